@@ -6,9 +6,15 @@ import com.worldcretornica.plotme_core.commands.PlotCommand;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
+import org.bukkit.command.TabCompleter;
 import org.bukkit.entity.Player;
 
-public class BukkitCommand extends CommandExBase implements CommandExecutor {
+import java.util.ArrayList;
+import java.util.List;
+
+public class BukkitCommand extends CommandExBase implements CommandExecutor, TabCompleter {
+
+    private static final int MAX_COMPLETIONS = 50;
 
 
     private final PlotMe_CorePlugin plugin;
@@ -37,6 +43,21 @@ public class BukkitCommand extends CommandExBase implements CommandExecutor {
         }
     }
 
+    @Override
+    public List<String> onTabComplete(CommandSender sender, Command command, String alias, String[] args) {
+        if (args.length == 1) {
+            List<String> names = new ArrayList<>();
+            String prefix = args[0].toLowerCase();
+            for (String name : commandMap.keySet()) {
+                if (name.startsWith(prefix)) {
+                    names.add(name);
+                }
+            }
+            return names;
+        }
+        return api.getNameCache().complete(args[args.length - 1], MAX_COMPLETIONS);
+    }
+
     private boolean handleConsoleCommands(CommandSender sender, String[] args) {
         if (args.length == 0) {
             PlotCommand command = commandMap.get("reload");
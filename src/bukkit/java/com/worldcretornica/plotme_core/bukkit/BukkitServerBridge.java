@@ -7,7 +7,6 @@ import com.worldcretornica.plotme_core.api.IPlayer;
 import com.worldcretornica.plotme_core.api.IServerBridge;
 import com.worldcretornica.plotme_core.api.IWorld;
 import com.worldcretornica.plotme_core.bukkit.api.BukkitOfflinePlayer;
-import com.worldcretornica.plotme_core.bukkit.api.BukkitWorld;
 import net.milkbowl.vault.economy.Economy;
 import net.milkbowl.vault.economy.EconomyResponse;
 import org.bukkit.Bukkit;
@@ -189,7 +188,7 @@ public class BukkitServerBridge extends IServerBridge {
         List<IWorld> worlds = new ArrayList<>();
 
         for (World world : Bukkit.getWorlds()) {
-            worlds.add(new BukkitWorld(world));
+            worlds.add(BukkitUtil.adapt(world));
         }
 
         return worlds;
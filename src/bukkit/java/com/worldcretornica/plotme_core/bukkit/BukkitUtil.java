@@ -32,7 +32,7 @@ public class BukkitUtil {
     }
 
     public static BukkitWorld adapt(World world) {
-        return new BukkitWorld(world);
+        return BukkitWorld.adapt(world);
     }
 
     public static IEntity adapt(org.bukkit.entity.Entity entity) {
@@ -10,68 +10,165 @@ import com.sk89q.worldedit.extent.AbstractDelegateExtent;
 import com.sk89q.worldedit.extent.Extent;
 import com.sk89q.worldedit.world.biome.BaseBiome;
 import com.worldcretornica.plotme_core.Plot;
+import com.worldcretornica.plotme_core.PlotId;
 import com.worldcretornica.plotme_core.PlotMeCoreManager;
 import com.worldcretornica.plotme_core.PlotMe_Core;
 import com.worldcretornica.plotme_core.api.IPlayer;
-import com.worldcretornica.plotme_core.api.Location;
+import com.worldcretornica.plotme_core.api.IWorld;
+import com.worldcretornica.plotme_core.storage.Database;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Limits a WorldEdit session to the plots the actor may build in.
+ *
+ * <p>The plots are resolved once per edit into a mask of integer rectangles, so every block of the edit
+ * only costs a bounds check. The plots of an actor are kept in {@link MemberPlots} between edits, which only
+ * looks at the plots that were added, saved or removed in its world since, see
+ * {@link Database#getChangedPlots}. The mask is also rebuilt when a player joins or quits, because trusted
+ * members may only build while the owner is online.</p>
+ */
 class PlotMeWorldEdit extends AbstractDelegateExtent {
 
-    private final PlotMe_Core api;
     private final Extent extent;
-    private final Actor actor;
-    private final PlotMeCoreManager manager = PlotMeCoreManager.getInstance();
-    private final IPlayer player;
+    private final boolean bypass;
+    /**
+     * Plot rectangles stored as consecutive minX, minZ, maxX, maxZ values.
+     */
+    private final int[] mask;
+    private int lastHit = -1;
 
-    public PlotMeWorldEdit(PlotMe_Core api, Extent extent, Actor actor) {
+    public PlotMeWorldEdit(PlotMe_Core api, Extent extent, Actor actor, MemberPlots plots) {
         super(extent);
-        this.api = api;
         this.extent = extent;
-        this.actor = actor;
-        player = api.getServerBridge().getPlayer(actor.getUniqueId());
-
-
+        IPlayer player = api.getServerBridge().getPlayer(actor.getUniqueId());
+        this.bypass = player != null && PlotMeCoreManager.getInstance().isPlayerIgnoringWELimit(player);
+        this.mask = bypass ? MemberPlots.EMPTY_MASK : plots.getMask(api);
     }
 
     @Override
     public boolean setBlock(Vector location, BaseBlock block) throws WorldEditException {
-        if (manager.isPlayerIgnoringWELimit(player)) {
-            return extent.setBlock(location, block);
-        } else {
-            Location loc = new Location(player.getWorld(), location.getX(), location.getY(), location.getZ());
-            Plot plot = manager.getPlot(loc);
-            if (plot != null) {
-                if (plot.getOwnerId().equals(player.getUniqueId())) {
-                    return extent.setBlock(location, block);
-                }
-                Optional<Plot.AccessLevel> member = plot.isMember(actor.getUniqueId());
-                if (member.isPresent()) {
-                    return !(member.get().equals(Plot.AccessLevel.TRUSTED) && !api.getServerBridge().getOfflinePlayer(plot.getOwnerId()).isOnline())
-                            && extent.setBlock(location, block);
-                }
-            }
-            return false;
-        }
+        return (bypass || canEdit(location.getBlockX(), location.getBlockZ())) && extent.setBlock(location, block);
     }
 
     @Override
     public boolean setBiome(Vector2D position, BaseBiome biome) {
-        if (manager.isPlayerIgnoringWELimit(player)) {
-            return extent.setBiome(position, biome);
-        } else {
-            Location loc = new Location(player.getWorld(), position.getX(), 0, position.getZ());
-            Plot plot = manager.getPlot(loc);
-            if (plot != null) {
-                if (plot.getOwnerId().equals(player.getUniqueId())) {
-                    return extent.setBiome(position, biome);
+        return (bypass || canEdit(position.getBlockX(), position.getBlockZ())) && extent.setBiome(position, biome);
+    }
+
+    private boolean canEdit(int x, int z) {
+        int[] rectangles = mask;
+        int last = lastHit;
+        if (last != -1 && contains(rectangles, last, x, z)) {
+            return true;
+        }
+        for (int i = 0; i < rectangles.length; i += 4) {
+            if (contains(rectangles, i, x, z)) {
+                lastHit = i;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean contains(int[] rectangles, int offset, int x, int z) {
+        return x >= rectangles[offset] && z >= rectangles[offset + 1] && x <= rectangles[offset + 2] && z <= rectangles[offset + 3];
+    }
+
+    /**
+     * The plots of a world that an actor owns or is a member of, kept between edits.
+     */
+    static final class MemberPlots {
+
+        private static final int[] EMPTY_MASK = new int[0];
+
+        private final IWorld world;
+        private final UUID actorId;
+        private final HashMap<PlotId, Plot> plots = new HashMap<>();
+        private int[] mask = EMPTY_MASK;
+        private long revision = -1;
+        private long presence = -1;
+
+        MemberPlots(IWorld world, UUID actorId) {
+            this.world = world;
+            this.actorId = actorId;
+        }
+
+        IWorld getWorld() {
+            return world;
+        }
+
+        /**
+         * Gets the mask for an edit, reading the plots that changed since the last edit first. The revisions
+         * are read once per edit.
+         *
+         * @return plot rectangles stored as consecutive minX, minZ, maxX, maxZ values
+         */
+        synchronized int[] getMask(PlotMe_Core api) {
+            Database database = api.getSqlManager();
+            long currentRevision = database.getRevision(world);
+            long currentPresence = PlotMe_CorePlugin.getInstance().getPresenceRevision();
+            if (currentRevision != revision || currentPresence != presence) {
+                refresh(database);
+                presence = currentPresence;
+                rebuildMask(api);
+            }
+            return mask;
+        }
+
+        /**
+         * Brings the plots up to date with the plots that changed, or reads them all again if too many plots
+         * changed since. Plots that aren't in memory are read from the storage.
+         */
+        private void refresh(Database database) {
+            List<PlotId> changed = new ArrayList<>();
+            long current = revision == -1 ? -1 : database.getChangedPlots(world, revision, changed);
+            if (current == -1) {
+                current = database.getRevision(world);
+                plots.clear();
+                for (Plot plot : database.getMemberPlots(world, actorId)) {
+                    plots.put(plot.getId(), plot);
+                }
+            } else {
+                for (PlotId id : changed) {
+                    Plot plot = database.findPlot(id, world);
+                    if (plot != null && (actorId.equals(plot.getOwnerId()) || plot.isMember(actorId).isPresent())) {
+                        plots.put(id, plot);
+                    } else {
+                        plots.remove(id);
+                    }
                 }
-                Optional<Plot.AccessLevel> member = plot.isMember(actor.getUniqueId());
-                if (member.isPresent()) {
-                    return !(member.get().equals(Plot.AccessLevel.TRUSTED) && !api.getServerBridge().getOfflinePlayer(plot.getOwnerId()).isOnline())
-                            && extent.setBiome(position, biome);
+            }
+            revision = current;
+        }
+
+        private void rebuildMask(PlotMe_Core api) {
+            int[] rectangles = new int[plots.size() * 4];
+            int size = 0;
+            for (Plot plot : plots.values()) {
+                if (!canBuild(api, plot)) {
+                    continue;
                 }
+                rectangles[size++] = Math.min(plot.getBottomX(), plot.getTopX());
+                rectangles[size++] = Math.min(plot.getBottomZ(), plot.getTopZ());
+                rectangles[size++] = Math.max(plot.getBottomX(), plot.getTopX());
+                rectangles[size++] = Math.max(plot.getBottomZ(), plot.getTopZ());
+            }
+            int[] trimmed = new int[size];
+            System.arraycopy(rectangles, 0, trimmed, 0, size);
+            mask = trimmed;
+        }
+
+        private boolean canBuild(PlotMe_Core api, Plot plot) {
+            if (plot.getOwnerId().equals(actorId)) {
+                return true;
             }
-            return false;
+            Optional<Plot.AccessLevel> member = plot.isMember(actorId);
+            return member.isPresent()
+                    && !(member.get().equals(Plot.AccessLevel.TRUSTED) && !api.getServerBridge().getOfflinePlayer(plot.getOwnerId()).isOnline());
         }
     }
 }
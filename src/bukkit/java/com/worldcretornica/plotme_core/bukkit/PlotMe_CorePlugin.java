@@ -1,5 +1,7 @@
 package com.worldcretornica.plotme_core.bukkit;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.worldcretornica.plotme_core.PlotMeCoreManager;
 import com.worldcretornica.plotme_core.PlotMe_Core;
 import com.worldcretornica.plotme_core.api.IEntity;
@@ -19,14 +21,24 @@ import org.mcstats.Metrics;
 import org.mcstats.Metrics.Graph;
 
 import java.io.IOException;
-import java.util.HashMap;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.TimeUnit;
 
 public class PlotMe_CorePlugin extends JavaPlugin {
 
     private static PlotMe_CorePlugin INSTANCE;
-    private final HashMap<UUID, BukkitPlayer> bukkitPlayerMap = new HashMap<>();
+    private final ConcurrentHashMap<UUID, BukkitPlayer> bukkitPlayerMap = new ConcurrentHashMap<>();
+    /**
+     * Wrappers of entities seen in recent events. A wrapper holds its entity, so an entity stays reachable from here after it is removed
+     * from the world until its wrapper was unused for a minute or is pushed out by newer ones; at most 2048 entities are held.
+     */
+    private final Cache<Entity, BukkitEntity> entityCache = CacheBuilder.newBuilder().maximumSize(2048)
+            .expireAfterAccess(1, TimeUnit.MINUTES).build();
     private final PlotMe_Core plotme = new PlotMe_Core();
+    private final AtomicLong presenceRevision = new AtomicLong();
     private BukkitServerBridge serverObjectBuilder;
 
     public static PlotMe_CorePlugin getInstance() {
@@ -37,6 +49,7 @@ public class PlotMe_CorePlugin extends JavaPlugin {
     public void onDisable() {
         getAPI().disable();
         getBukkitPlayerMap().clear();
+        entityCache.invalidateAll();
     }
 
     @Override
@@ -55,7 +68,9 @@ public class PlotMe_CorePlugin extends JavaPlugin {
         pm.registerEvents(new BukkitPlotDenyListener(this), this);
         plotme.getEventBus().register(listener);
         //Register Command
-        this.getCommand("plotme").setExecutor(new BukkitCommand(this));
+        BukkitCommand command = new BukkitCommand(this);
+        this.getCommand("plotme").setExecutor(command);
+        this.getCommand("plotme").setTabCompleter(command);
     }
 
     public PlotMe_Core getAPI() {
@@ -119,32 +134,60 @@ public class PlotMe_CorePlugin extends JavaPlugin {
 
 
     /**
-     * Gets a cache of BukkitPlayers for use in commands. Reducing the number of BukkitPlayer Objects being created. Players are removed on logoff.
+     * Gets a cache of BukkitPlayers for use in commands. Reducing the number of BukkitPlayer Objects being created. Players are added on
+     * login and removed on logoff. This method is safe to call from async tasks.
      * @param player {@link Player} from Bukkit
      * @return a BukkitPlayer for the player given
      */
     public IPlayer wrapPlayer(Player player) {
-        if (bukkitPlayerMap.containsKey(player.getUniqueId())) {
-            return bukkitPlayerMap.get(player.getUniqueId());
-        } else {
-            BukkitPlayer bukkitplayer = new BukkitPlayer(player);
-            bukkitPlayerMap.put(player.getUniqueId(), bukkitplayer);
+        UUID uuid = player.getUniqueId();
+        BukkitPlayer bukkitplayer = bukkitPlayerMap.get(uuid);
+        if (bukkitplayer != null && bukkitplayer.getPlayer() == player) {
             return bukkitplayer;
         }
+        BukkitPlayer created = new BukkitPlayer(player);
+        if (bukkitplayer == null) {
+            bukkitplayer = bukkitPlayerMap.putIfAbsent(uuid, created);
+            return bukkitplayer == null ? created : bukkitplayer;
+        }
+        // The player logged in again, the old wrapper points to the previous Player object
+        bukkitPlayerMap.put(uuid, created);
+        return created;
     }
 
     public IEntity wrapEntity(Entity entity) {
         if (entity instanceof Player) {
             return wrapPlayer((Player) entity);
         }
-        return new BukkitEntity(entity);
+        BukkitEntity bukkitentity = entityCache.getIfPresent(entity);
+        if (bukkitentity == null) {
+            bukkitentity = new BukkitEntity(entity);
+            entityCache.put(entity, bukkitentity);
+        }
+        return bukkitentity;
     }
 
     public void removePlayer(UUID playerUUID) {
         bukkitPlayerMap.remove(playerUUID);
     }
 
-    public HashMap<UUID, BukkitPlayer> getBukkitPlayerMap() {
+    /**
+     * Records that a player joined or quit.
+     */
+    public void presenceChanged() {
+        presenceRevision.incrementAndGet();
+    }
+
+    /**
+     * A counter that is incremented every time a player joins or quits, for data that depends on which
+     * players are online. This method is safe to call from async tasks.
+     * @return the current presence revision
+     */
+    public long getPresenceRevision() {
+        return presenceRevision.get();
+    }
+
+    public Map<UUID, BukkitPlayer> getBukkitPlayerMap() {
         return bukkitPlayerMap;
     }
 
@@ -1,5 +1,8 @@
 package com.worldcretornica.plotme_core.bukkit;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.sk89q.worldedit.EditSession;
 import com.sk89q.worldedit.event.extent.EditSessionEvent;
 import com.sk89q.worldedit.extension.platform.Actor;
 import com.sk89q.worldedit.util.eventbus.EventHandler;
@@ -9,9 +12,17 @@ import com.worldcretornica.plotme_core.PlotMe_Core;
 import com.worldcretornica.plotme_core.bukkit.api.BukkitWorld;
 import org.bukkit.World;
 
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
 public class PlotWorldEditListener {
 
     private final PlotMe_Core api;
+    /**
+     * The plots of the players that used WorldEdit lately, so an edit only reads the plots that changed
+     * since their last edit.
+     */
+    private final Cache<UUID, PlotMeWorldEdit.MemberPlots> memberPlots = CacheBuilder.newBuilder().expireAfterAccess(10, TimeUnit.MINUTES).build();
 
     public PlotWorldEditListener(PlotMe_Core api) {
         this.api = api;
@@ -20,14 +31,20 @@ public class PlotWorldEditListener {
     @Subscribe(priority = EventHandler.Priority.VERY_EARLY)
     public void worldEditListener(EditSessionEvent event) {
         Actor actor = event.getActor();
-        if (event.getWorld() == null) {
+        //Only wrap the outermost extent so blocks outside the plots are dropped before they reach the history or the reorder buffer.
+        if (event.getWorld() == null || event.getStage() != EditSession.Stage.BEFORE_HISTORY) {
             return;
         }
         World world1 = PlotMe_CorePlugin.getInstance().getServer().getWorld(event.getWorld().getName());
         BukkitWorld adapt = BukkitUtil.adapt(world1);
         if (PlotMeCoreManager.getInstance().isPlotWorld(adapt)) {
             if (actor != null && actor.isPlayer()) {
-                event.setExtent(new PlotMeWorldEdit(api, event.getExtent(), event.getActor()));
+                PlotMeWorldEdit.MemberPlots plots = memberPlots.getIfPresent(actor.getUniqueId());
+                if (plots == null || !plots.getWorld().equals(adapt)) {
+                    plots = new PlotMeWorldEdit.MemberPlots(adapt, actor.getUniqueId());
+                    memberPlots.put(actor.getUniqueId(), plots);
+                }
+                event.setExtent(new PlotMeWorldEdit(api, event.getExtent(), actor, plots));
             }
         }
     }
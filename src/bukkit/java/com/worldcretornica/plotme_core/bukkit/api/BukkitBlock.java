@@ -24,7 +24,7 @@ public class BukkitBlock implements IBlock {
 
     @Override
     public IWorld getWorld() {
-        return new BukkitWorld(block.getWorld());
+        return BukkitWorld.adapt(block.getWorld());
     }
 
     @Override
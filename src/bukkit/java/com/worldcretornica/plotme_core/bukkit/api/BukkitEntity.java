@@ -16,11 +16,9 @@ import java.util.UUID;
 public class BukkitEntity implements IEntity {
 
     public final Entity entity;
-    private final Vector coords;
 
     public BukkitEntity(Entity entity) {
         this.entity = entity;
-        coords = BukkitUtil.locationToVector(entity.getLocation());
     }
 
     @Override
@@ -44,7 +42,7 @@ public class BukkitEntity implements IEntity {
      */
     @Override
     public IWorld getWorld() {
-        return new BukkitWorld(entity.getWorld());
+        return BukkitWorld.adapt(entity.getWorld());
     }
 
     @Override
@@ -68,7 +66,7 @@ public class BukkitEntity implements IEntity {
     }
 
     public Vector getPosition() {
-        return coords;
+        return BukkitUtil.locationToVector(entity.getLocation());
     }
 
     public void setMetadata(String string, MetadataValue value) {
@@ -37,7 +37,7 @@ public class BukkitPlayer extends BukkitOfflinePlayer implements IPlayer {
 
     @Override
     public IWorld getWorld() {
-        return new BukkitWorld(player.getWorld());
+        return BukkitWorld.adapt(player.getWorld());
     }
 
     @Override
@@ -6,22 +6,80 @@ import com.worldcretornica.plotme_core.api.IWorld;
 import com.worldcretornica.plotme_core.api.IWorldBorder;
 import com.worldcretornica.plotme_core.api.Vector;
 import com.worldcretornica.plotme_core.bukkit.BukkitUtil;
+import com.worldcretornica.plotme_core.utils.WorldIndex;
 import org.bukkit.Location;
 import org.bukkit.World;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.EntityType;
 
 import java.io.File;
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.UUID;
 
-public class BukkitWorld implements IWorld {
+public class BukkitWorld implements IWorld, WorldIndex.Indexed {
+
+    /**
+     * The wrappers of every world seen so far.
+     */
+    private static volatile Slot[] registry = new Slot[0];
 
     private final World world;
+    private final int index;
 
+    /**
+     * @deprecated use {@link #adapt(World)} to get the canonical wrapper of a world
+     */
+    @Deprecated
     public BukkitWorld(World world) {
+        this(world, adapt(world).getIndex());
+    }
+
+    private BukkitWorld(World world, int index) {
         this.world = world;
+        this.index = index;
+    }
+
+    /**
+     * Get the canonical wrapper of a world. The same instance is returned for as long as the world
+     * stays loaded, and a reloaded world keeps its index.
+     *
+     * @param world the Bukkit world
+     * @return the wrapper of the world
+     */
+    public static BukkitWorld adapt(World world) {
+        for (Slot slot : registry) {
+            BukkitWorld wrapper = slot.wrapper.get();
+            if (wrapper != null && wrapper.world == world) {
+                return wrapper;
+            }
+        }
+        return register(world);
+    }
+
+    private static synchronized BukkitWorld register(World world) {
+        Slot[] current = registry;
+        UUID uuid = world.getUID();
+        for (int i = 0; i < current.length; i++) {
+            if (current[i].uuid.equals(uuid)) {
+                BukkitWorld wrapper = current[i].wrapper.get();
+                if (wrapper != null && wrapper.world == world) {
+                    return wrapper;
+                }
+                wrapper = new BukkitWorld(world, WorldIndex.of(uuid));
+                Slot[] updated = current.clone();
+                updated[i] = new Slot(uuid, wrapper);
+                registry = updated;
+                return wrapper;
+            }
+        }
+        BukkitWorld wrapper = new BukkitWorld(world, WorldIndex.of(uuid));
+        Slot[] updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = new Slot(uuid, wrapper);
+        registry = updated;
+        return wrapper;
     }
 
     /**
@@ -49,7 +107,7 @@ public class BukkitWorld implements IWorld {
 
     @Override
     public int hashCode() {
-        return getUUID().hashCode();
+        return index;
     }
 
     @Override
@@ -57,13 +115,14 @@ public class BukkitWorld implements IWorld {
         return world.getUID();
     }
 
+    @Override
+    public int getIndex() {
+        return index;
+    }
+
     @Override
     public boolean equals(Object obj) {
-        boolean result = false;
-        if (obj instanceof IWorld) {
-            result = this.hashCode() == obj.hashCode();
-        }
-        return result;
+        return obj == this || obj instanceof IWorld && WorldIndex.of((IWorld) obj) == index;
     }
 
     @Override
@@ -71,6 +130,11 @@ public class BukkitWorld implements IWorld {
         world.refreshChunk(x, z);
     }
 
+    @Override
+    public boolean isChunkLoaded(int x, int z) {
+        return world.isChunkLoaded(x, z);
+    }
+
     @Override
     public IBlock getBlockAt(int x, int y, int z) {
         return new BukkitBlock(world.getBlockAt(x, y, z));
@@ -103,4 +167,18 @@ public class BukkitWorld implements IWorld {
         return world.spawnEntity(etloc, entitytype);
     }
 
+    /**
+     * The wrapper of a world UUID. The wrapper is only weakly reachable from here, so an unloaded world can
+     * be collected; a new wrapper with the same {@link WorldIndex} is made if the world is loaded again.
+     */
+    private static final class Slot {
+
+        private final UUID uuid;
+        private final WeakReference<BukkitWorld> wrapper;
+
+        private Slot(UUID uuid, BukkitWorld wrapper) {
+            this.uuid = uuid;
+            this.wrapper = new WeakReference<>(wrapper);
+        }
+    }
 }
@@ -7,8 +7,8 @@ import com.worldcretornica.plotme_core.PlotId;
 import com.worldcretornica.plotme_core.PlotMapInfo;
 import com.worldcretornica.plotme_core.PlotMeCoreManager;
 import com.worldcretornica.plotme_core.PlotMe_Core;
-import com.worldcretornica.plotme_core.api.IEntity;
 import com.worldcretornica.plotme_core.api.IPlayer;
+import com.worldcretornica.plotme_core.api.IWorld;
 import com.worldcretornica.plotme_core.api.Location;
 import com.worldcretornica.plotme_core.api.event.PlotCreateEvent;
 import com.worldcretornica.plotme_core.api.event.PlotWorldLoadEvent;
@@ -22,10 +22,12 @@ import com.worldcretornica.plotme_core.bukkit.api.BukkitWorld;
 import org.bukkit.Material;
 import org.bukkit.block.Block;
 import org.bukkit.block.BlockFace;
+import org.bukkit.block.BlockState;
 import org.bukkit.entity.EntityType;
 import org.bukkit.entity.Monster;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.Cancellable;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.block.BlockBreakEvent;
@@ -58,6 +60,7 @@ import org.bukkit.event.player.PlayerInteractEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.event.server.ServerCommandEvent;
+import org.bukkit.event.world.ChunkLoadEvent;
 import org.bukkit.event.world.StructureGrowEvent;
 import org.bukkit.metadata.FixedMetadataValue;
 import org.bukkit.metadata.MetadataValue;
@@ -103,7 +106,7 @@ public class BukkitPlotListener implements Listener {
                         player.sendMessage(api.C("CannotBuild"));
                         event.setCancelled(true);
                         return;
-                    } else if (api.isPlotLocked(plot.getId())) {
+                    } else if (api.isPlotLocked(plot.getWorld(), plot.getId())) {
                         player.sendMessage(api.C("PlotLocked"));
                         event.setCancelled(true);
                     }
@@ -146,7 +149,7 @@ public class BukkitPlotListener implements Listener {
                         player.sendMessage(api.C("CannotBuild"));
                         event.setCancelled(true);
                         return;
-                    } else if (api.isPlotLocked(plot.getId())) {
+                    } else if (api.isPlotLocked(plot.getWorld(), plot.getId())) {
                         player.sendMessage(api.C("PlotLocked"));
                         event.setCancelled(true);
                     }
@@ -188,7 +191,7 @@ public class BukkitPlotListener implements Listener {
                     if (member.get().equals(Plot.AccessLevel.TRUSTED) && !api.getServerBridge().getOfflinePlayer(plot.getOwnerId()).isOnline()) {
                         player.sendMessage(api.C("CannotBuild"));
                         event.setCancelled(true);
-                    } else if (api.isPlotLocked(plot.getId())) {
+                    } else if (api.isPlotLocked(plot.getWorld(), plot.getId())) {
                         player.sendMessage(api.C("PlotLocked"));
                         event.setCancelled(true);
                     }
@@ -223,7 +226,7 @@ public class BukkitPlotListener implements Listener {
                     if (member.get().equals(Plot.AccessLevel.TRUSTED) && !api.getServerBridge().getOfflinePlayer(plot.getOwnerId()).isOnline()) {
                         player.sendMessage(api.C("CannotBuild"));
                         event.setCancelled(true);
-                    } else if (api.isPlotLocked(plot.getId())) {
+                    } else if (api.isPlotLocked(plot.getWorld(), plot.getId())) {
                         player.sendMessage(api.C("PlotLocked"));
                         event.setCancelled(true);
                     }
@@ -299,93 +302,61 @@ public class BukkitPlotListener implements Listener {
 
     @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
     public void onBlockSpread(BlockSpreadEvent event) {
-        Location location = BukkitUtil.adapt(event.getBlock().getLocation());
-
-        if (manager.isPlotWorld(location)) {
-            PlotId id = manager.getPlotId(location);
-
-            if (id == null) {
-                event.setCancelled(true);
-            } else {
-                event.setCancelled(api.isPlotLocked(id));
+        Block block = event.getBlock();
+        BukkitWorld world = BukkitUtil.adapt(block.getWorld());
 
-            }
+        if (manager.isPlotWorld(world)) {
+            event.setCancelled(isProtectedFromEnvironment(world, block.getX(), block.getZ()));
         }
     }
 
     @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
     public void onBlockForm(BlockFormEvent event) {
-        Location location = BukkitUtil.adapt(event.getBlock().getLocation());
-
-        if (manager.isPlotWorld(location)) {
-            PlotId id = manager.getPlotId(location);
+        Block block = event.getBlock();
+        BukkitWorld world = BukkitUtil.adapt(block.getWorld());
 
-            if (id == null) {
-                event.setCancelled(true);
-            } else {
-                event.setCancelled(api.isPlotLocked(id));
-
-            }
+        if (manager.isPlotWorld(world)) {
+            event.setCancelled(isProtectedFromEnvironment(world, block.getX(), block.getZ()));
         }
     }
 
     @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
     public void onBlockDamage(BlockDamageEvent event) {
-        Location location = BukkitUtil.adapt(event.getBlock().getLocation());
-
-        if (manager.isPlotWorld(location)) {
-            PlotId id = manager.getPlotId(location);
-
-            if (id == null) {
-                event.setCancelled(true);
-            } else {
-                event.setCancelled(api.isPlotLocked(id));
+        Block block = event.getBlock();
+        BukkitWorld world = BukkitUtil.adapt(block.getWorld());
 
-            }
+        if (manager.isPlotWorld(world)) {
+            event.setCancelled(isProtectedFromEnvironment(world, block.getX(), block.getZ()));
         }
     }
 
     @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
     public void onBlockFade(BlockFadeEvent event) {
-        Location location = BukkitUtil.adapt(event.getBlock().getLocation());
+        Block block = event.getBlock();
+        BukkitWorld world = BukkitUtil.adapt(block.getWorld());
 
-        if (manager.isPlotWorld(location)) {
-            PlotId id = manager.getPlotId(location);
-
-            if (id == null) {
-                event.setCancelled(true);
-            } else {
-                event.setCancelled(api.isPlotLocked(id));
-
-            }
+        if (manager.isPlotWorld(world)) {
+            event.setCancelled(isProtectedFromEnvironment(world, block.getX(), block.getZ()));
         }
     }
 
     @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
     public void onBlockFromTo(BlockFromToEvent event) {
-        Location location = BukkitUtil.adapt(event.getBlock().getLocation());
-        if (manager.isPlotWorld(location)) {
-            PlotId id = manager.getPlotId(location);
-            if (id == null) {
-                event.setCancelled(true);
-            } else {
-                event.setCancelled(api.isPlotLocked(id));
-            }
+        Block block = event.getBlock();
+        BukkitWorld world = BukkitUtil.adapt(block.getWorld());
+
+        if (manager.isPlotWorld(world)) {
+            event.setCancelled(isProtectedFromEnvironment(world, block.getX(), block.getZ()));
         }
     }
 
     @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
     public void onBlockGrow(BlockGrowEvent event) {
-        Location location = BukkitUtil.adapt(event.getBlock().getLocation());
-
-        if (manager.isPlotWorld(location)) {
-            PlotId id = manager.getPlotId(location);
+        Block block = event.getBlock();
+        BukkitWorld world = BukkitUtil.adapt(block.getWorld());
 
-            if (id == null) {
-                event.setCancelled(true);
-            } else {
-                event.setCancelled(api.isPlotLocked(id));
-            }
+        if (manager.isPlotWorld(world)) {
+            event.setCancelled(isProtectedFromEnvironment(world, block.getX(), block.getZ()));
         }
     }
 
@@ -396,11 +367,9 @@ public class BukkitPlotListener implements Listener {
             BlockFace face = event.getDirection();
 
             for (Block block : event.getBlocks()) {
-                PlotId id = manager.getPlotId(new Location(world, BukkitUtil.locationToVector(
-                        block.getLocation().add(face.getModX(), face.getModY(),
-                                face.getModZ()))));
-                if (id == null) {
+                if (manager.getPlotKey(world, block.getX() + face.getModX(), block.getZ() + face.getModZ()) == PlotId.NONE) {
                     event.setCancelled(true);
+                    return;
                 }
             }
         }
@@ -412,12 +381,9 @@ public class BukkitPlotListener implements Listener {
         if (manager.isPlotWorld(world)) {
             List<Block> blocks = event.getBlocks();
             for (Block moved : blocks) {
-                PlotId id = manager.getPlotId(new Location(world, BukkitUtil.locationToVector(moved.getLocation())));
-                if (id == null) {
+                if (isProtectedFromEnvironment(world, moved.getX(), moved.getZ())) {
                     event.setCancelled(true);
-                } else {
-                    event.setCancelled(api.isPlotLocked(id));
-
+                    return;
                 }
             }
         }
@@ -425,50 +391,79 @@ public class BukkitPlotListener implements Listener {
 
     @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
     public void onStructureGrow(StructureGrowEvent event) {
-        BukkitWorld world = new BukkitWorld(event.getWorld());
+        BukkitWorld world = BukkitUtil.adapt(event.getWorld());
         if (manager.isPlotWorld(world)) {
-            for (int i = 0; i < event.getBlocks().size(); i++) {
-                PlotId id = manager.getPlotId(BukkitUtil.adapt(event.getBlocks().get(i).getLocation()));
-                if (id == null) {
-                    event.getBlocks().remove(i);
-                    i--;
-                } else {
-                    event.setCancelled(api.isPlotLocked(id));
+            org.bukkit.Location source = event.getLocation();
+            long key = manager.getPlotKey(world, source.getBlockX(), source.getBlockZ());
+            if (key == PlotId.NONE || api.isPlotLocked(world, PlotId.keyX(key), PlotId.keyZ(key))) {
+                event.setCancelled(true);
+                return;
+            }
+            int[] bounds = manager.getPlotBounds(world, key);
+            List<BlockState> blocks = event.getBlocks();
+            int kept = 0;
+            for (int i = 0, size = blocks.size(); i < size; i++) {
+                BlockState block = blocks.get(i);
+                if (isInside(bounds, block.getX(), block.getZ())) {
+                    blocks.set(kept++, block);
                 }
             }
+            blocks.subList(kept, blocks.size()).clear();
         }
     }
 
     @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
     public void onEntityExplode(EntityExplodeEvent event) {
-        IEntity entity = plugin.wrapEntity(event.getEntity());
-        if (manager.isPlotWorld(entity)) {
-            PlotMapInfo pmi = manager.getMap(entity.getLocation());
+        org.bukkit.Location source = event.getLocation();
+        BukkitWorld world = BukkitUtil.adapt(source.getWorld());
+        PlotMapInfo pmi = manager.getMap(world);
 
-            if (pmi != null && pmi.isDisableExplosion()) {
+        if (pmi != null) {
+            if (pmi.isDisableExplosion()) {
                 event.setCancelled(true);
             } else {
-                PlotId id = manager.getPlotId(entity.getLocation());
-                if (id == null) {
-                    event.setCancelled(true);
-                }
+                filterExplosion(event, world, source.getBlockX(), source.getBlockZ(), event.blockList());
             }
         }
     }
 
     @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
     public void onBlockExplode(BlockExplodeEvent event) {
-        Location location = BukkitUtil.adapt(event.getBlock().getLocation());
-        PlotMapInfo pmi = manager.getMap(location);
+        Block source = event.getBlock();
+        BukkitWorld world = BukkitUtil.adapt(source.getWorld());
+        PlotMapInfo pmi = manager.getMap(world);
 
-        if (pmi != null && pmi.isDisableExplosion()) {
-            event.setCancelled(true);
-        } else {
-            PlotId id = manager.getPlotId(location);
-            if (id == null) {
+        if (pmi != null) {
+            if (pmi.isDisableExplosion()) {
                 event.setCancelled(true);
+            } else {
+                filterExplosion(event, world, source.getX(), source.getZ(), event.blockList());
+            }
+        }
+    }
+
+    /**
+     * Cancels an explosion that starts on a road, otherwise drops the blocks outside the plot it started in.
+     */
+    private void filterExplosion(Cancellable event, IWorld world, int sourceX, int sourceZ, List<Block> blocks) {
+        long key = manager.getPlotKey(world, sourceX, sourceZ);
+        if (key == PlotId.NONE) {
+            event.setCancelled(true);
+            return;
+        }
+        int[] bounds = manager.getPlotBounds(world, key);
+        int kept = 0;
+        for (int i = 0, size = blocks.size(); i < size; i++) {
+            Block block = blocks.get(i);
+            if (isInside(bounds, block.getX(), block.getZ())) {
+                blocks.set(kept++, block);
             }
         }
+        blocks.subList(kept, blocks.size()).clear();
+    }
+
+    private static boolean isInside(int[] bounds, int x, int z) {
+        return x >= bounds[0] && z >= bounds[1] && x <= bounds[2] && z <= bounds[3];
     }
 
     @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
@@ -495,7 +490,7 @@ public class BukkitPlotListener implements Listener {
                     if (member.isPresent()) {
                         if (member.get().equals(Plot.AccessLevel.TRUSTED) && !api.getServerBridge().getOfflinePlayer(plot.getOwnerId()).isOnline()) {
                             event.setCancelled(true);
-                        } else if (api.isPlotLocked(plot.getId())) {
+                        } else if (api.isPlotLocked(plot.getWorld(), plot.getId())) {
                             event.setCancelled(true);
                         }
                     } else {
@@ -530,7 +525,7 @@ public class BukkitPlotListener implements Listener {
                     if (member.get().equals(Plot.AccessLevel.TRUSTED) && !api.getServerBridge().getOfflinePlayer(plot.getOwnerId()).isOnline()) {
                         player.sendMessage(api.C("CannotBuild"));
                         event.setCancelled(true);
-                    } else if (api.isPlotLocked(plot.getId())) {
+                    } else if (api.isPlotLocked(plot.getWorld(), plot.getId())) {
                         player.sendMessage(api.C("PlotLocked"));
                         event.setCancelled(true);
                     }
@@ -568,7 +563,7 @@ public class BukkitPlotListener implements Listener {
                         if (member.get().equals(Plot.AccessLevel.TRUSTED) && !api.getServerBridge().getOfflinePlayer(plot.getOwnerId()).isOnline()) {
                             player.sendMessage(api.C("CannotBuild"));
                             event.setCancelled(true);
-                        } else if (api.isPlotLocked(plot.getId())) {
+                        } else if (api.isPlotLocked(plot.getWorld(), plot.getId())) {
                             player.sendMessage(api.C("PlotLocked"));
                             event.setCancelled(true);
                         }
@@ -610,7 +605,7 @@ public class BukkitPlotListener implements Listener {
                         if (member.get().equals(Plot.AccessLevel.TRUSTED) && !api.getServerBridge().getOfflinePlayer(plot.getOwnerId()).isOnline()) {
                             event.getPlayer().sendMessage(api.C("CannotBuild"));
                             event.setCancelled(true);
-                        } else if (api.isPlotLocked(plot.getId())) {
+                        } else if (api.isPlotLocked(plot.getWorld(), plot.getId())) {
                             event.getPlayer().sendMessage(api.C("PlotLocked"));
                             event.setCancelled(true);
                         }
@@ -637,13 +632,11 @@ public class BukkitPlotListener implements Listener {
     @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
     public void onCreatureSpawn(CreatureSpawnEvent event) {
 
-        Location location = BukkitUtil.adapt(event.getLocation());
+        org.bukkit.Location location = event.getLocation();
+        BukkitWorld world = BukkitUtil.adapt(location.getWorld());
 
-        if (manager.isPlotWorld(location)) {
-            PlotId id = manager.getPlotId(location);
-            if (id != null) {
-                event.setCancelled(true);
-            }
+        if (manager.isPlotWorld(world) && manager.getPlotKey(world, location.getBlockX(), location.getBlockZ()) != PlotId.NONE) {
+            event.setCancelled(true);
         }
     }
 
@@ -714,7 +707,7 @@ public class BukkitPlotListener implements Listener {
                     if (member.get().equals(Plot.AccessLevel.TRUSTED) && !api.getServerBridge().getOfflinePlayer(plot.getOwnerId()).isOnline()) {
                         event.getPlayer().sendMessage(api.C("CannotBuild"));
                         event.setCancelled(true);
-                    } else if (api.isPlotLocked(plot.getId())) {
+                    } else if (api.isPlotLocked(plot.getWorld(), plot.getId())) {
                         event.getPlayer().sendMessage(api.C("PlotLocked"));
                         event.setCancelled(true);
                     }
@@ -728,8 +721,11 @@ public class BukkitPlotListener implements Listener {
 
     @EventHandler(ignoreCancelled = true)
     public void onSandCannon(EntityChangeBlockEvent event) {
-        BukkitEntity entity = new BukkitEntity(event.getEntity());
-        if (manager.isPlotWorld(entity) && event.getEntityType().equals(EntityType.FALLING_BLOCK)) {
+        if (event.getEntityType() != EntityType.FALLING_BLOCK) {
+            return;
+        }
+        BukkitEntity entity = (BukkitEntity) plugin.wrapEntity(event.getEntity());
+        if (manager.isPlotWorld(entity)) {
             if (event.getTo().equals(Material.AIR)) {
                 entity.setMetadata("plotFallBlock", new FixedMetadataValue(plugin, event.getBlock().getLocation()));
             } else {
@@ -748,6 +744,14 @@ public class BukkitPlotListener implements Listener {
         }
     }
 
+    /**
+     * Checks if a block may not be changed by the environment, because it is on a road or in a plot that is being cleared.
+     */
+    private boolean isProtectedFromEnvironment(IWorld world, int x, int z) {
+        long key = manager.getPlotKey(world, x, z);
+        return key == PlotId.NONE || api.isPlotLocked(world, PlotId.keyX(key), PlotId.keyZ(key));
+    }
+
     @Subscribe(order = Order.FIRST)
     public void onPlotCreateFirst(PlotCreateEvent event) {
         api.getLogger().info("First Plot Create Event");
@@ -773,6 +777,13 @@ public class BukkitPlotListener implements Listener {
     public void onPlayerQuit(PlayerQuitEvent event) {
         UUID playerUUID = event.getPlayer().getUniqueId();
         plugin.removePlayer(playerUUID);
+        plugin.presenceChanged();
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onPlayerJoinWrap(PlayerJoinEvent event) {
+        plugin.wrapPlayer(event.getPlayer());
+        plugin.presenceChanged();
     }
 
     @EventHandler(priority = EventPriority.MONITOR)
@@ -784,6 +795,15 @@ public class BukkitPlotListener implements Listener {
         }
     }
 
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkLoad(ChunkLoadEvent event) {
+        IWorld world = BukkitUtil.adapt(event.getWorld());
+        if (manager.isPlotWorld(world)) {
+            api.getSqlManager().prefetchChunk(world, event.getChunk().getX(), event.getChunk().getZ());
+            api.getSignUpdateService().onChunkLoad(world, event.getChunk().getX(), event.getChunk().getZ());
+        }
+    }
+
     @EventHandler(priority = EventPriority.HIGHEST)
     public void onSignEdit(SignChangeEvent event) {
         IPlayer player = plugin.wrapPlayer(event.getPlayer());
@@ -806,7 +826,7 @@ public class BukkitPlotListener implements Listener {
                     if (member.get().equals(Plot.AccessLevel.TRUSTED) && !api.getServerBridge().getOfflinePlayer(plot.getOwnerId()).isOnline()) {
                         player.sendMessage(api.C("CannotBuild"));
                         event.setCancelled(true);
-                    } else if (api.isPlotLocked(plot.getId())) {
+                    } else if (api.isPlotLocked(plot.getWorld(), plot.getId())) {
                         player.sendMessage(api.C("PlotLocked"));
                         event.setCancelled(true);
                     }
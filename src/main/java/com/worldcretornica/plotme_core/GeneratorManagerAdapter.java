@@ -0,0 +1,313 @@
+package com.worldcretornica.plotme_core;
+
+import com.worldcretornica.plotme_core.api.IPlayer;
+import com.worldcretornica.plotme_core.api.IPlotMe_ExtendedGeneratorManager;
+import com.worldcretornica.plotme_core.api.IPlotMe_GeneratorManager;
+import com.worldcretornica.plotme_core.api.IWorld;
+import com.worldcretornica.plotme_core.api.Location;
+import com.worldcretornica.plotme_core.api.Vector;
+import com.worldcretornica.plotme_core.utils.ClearEntry;
+import com.worldcretornica.schematic.Schematic;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Gives generators that only implement {@link IPlotMe_GeneratorManager} the block coordinate lookups of
+ * {@link IPlotMe_ExtendedGeneratorManager}.
+ *
+ * <p>If the generator places its plots on a regular grid the lookups are answered by a {@link PlotGrid},
+ * otherwise they are translated to the calls of the generator.</p>
+ */
+class GeneratorManagerAdapter implements IPlotMe_ExtendedGeneratorManager {
+
+    private final IWorld world;
+    private final IPlotMe_GeneratorManager generator;
+    private final PlotGrid grid;
+
+    private GeneratorManagerAdapter(IWorld world, IPlotMe_GeneratorManager generator, PlotGrid grid) {
+        this.world = world;
+        this.generator = generator;
+        this.grid = grid;
+    }
+
+    /**
+     * Adapts a generator manager, unless it already implements the extended interface.
+     *
+     * @param world the world of the generator
+     * @param generator generator manager
+     * @return a generator manager with block coordinate lookups
+     */
+    static IPlotMe_ExtendedGeneratorManager adapt(IWorld world, IPlotMe_GeneratorManager generator) {
+        if (generator instanceof IPlotMe_ExtendedGeneratorManager) {
+            return (IPlotMe_ExtendedGeneratorManager) generator;
+        }
+        return new GeneratorManagerAdapter(world, generator, PlotGrid.derive(generator));
+    }
+
+    /**
+     * Gets the plot layout the lookups are answered from.
+     *
+     * @return the layout, or null if the generator does not place its plots on a regular grid
+     */
+    PlotGrid getGrid() {
+        return grid;
+    }
+
+    @Override
+    public long plotIdAt(int x, int z) {
+        if (grid != null) {
+            return grid.plotKeyAt(x, z);
+        }
+        PlotId id = generator.getPlotId(new Vector(x, 0, z));
+        if (id == null) {
+            return PlotId.NONE;
+        }
+        return id.getKey();
+    }
+
+    @Override
+    public boolean contains(long plotKey, int x, int z) {
+        if (grid != null) {
+            int idX = PlotId.keyX(plotKey);
+            int idZ = PlotId.keyZ(plotKey);
+            return x >= grid.bottomX(idX) && x <= grid.topX(idX) && z >= grid.bottomZ(idZ) && z <= grid.topZ(idZ);
+        }
+        return plotIdAt(x, z) == plotKey;
+    }
+
+    @Override
+    public void getPlotBounds(long plotKey, int[] bounds, int offset) {
+        int idX = PlotId.keyX(plotKey);
+        int idZ = PlotId.keyZ(plotKey);
+        if (grid != null) {
+            bounds[offset] = grid.bottomX(idX);
+            bounds[offset + 1] = grid.bottomZ(idZ);
+            bounds[offset + 2] = grid.topX(idX);
+            bounds[offset + 3] = grid.topZ(idZ);
+        } else {
+            PlotId id = new PlotId(idX, idZ);
+            int bottomX = generator.bottomX(id);
+            int bottomZ = generator.bottomZ(id);
+            int topX = generator.topX(id);
+            int topZ = generator.topZ(id);
+            bounds[offset] = Math.min(bottomX, topX);
+            bounds[offset + 1] = Math.min(bottomZ, topZ);
+            bounds[offset + 2] = Math.max(bottomX, topX);
+            bounds[offset + 3] = Math.max(bottomZ, topZ);
+        }
+    }
+
+    /**
+     * The generator can't tell where it puts the owner display, so the layout of the default generator is
+     * assumed: on the road next to the bottom corner of the plot, one block out on x and two blocks out on z.
+     */
+    @Override
+    public long ownerDisplayChunk(long plotKey) {
+        int idX = PlotId.keyX(plotKey);
+        int idZ = PlotId.keyZ(plotKey);
+        int bottomX;
+        int bottomZ;
+        if (grid != null) {
+            bottomX = grid.bottomX(idX);
+            bottomZ = grid.bottomZ(idZ);
+        } else {
+            PlotId id = new PlotId(idX, idZ);
+            bottomX = generator.bottomX(id);
+            bottomZ = generator.bottomZ(id);
+        }
+        return PlotId.toKey((bottomX - 1) >> 4, (bottomZ - 2) >> 4);
+    }
+
+    @Override
+    public void adjustPlotsFor(Collection<Plot> plots, boolean claimed) {
+        for (Plot plot : plots) {
+            generator.adjustPlotFor(plot, claimed, plot.isProtected(), plot.isForSale());
+        }
+    }
+
+    @Override
+    public void setOwnerDisplays(Map<PlotId, String[]> lines) {
+        for (Map.Entry<PlotId, String[]> entry : lines.entrySet()) {
+            String[] display = entry.getValue();
+            generator.setOwnerDisplay(entry.getKey(), display[0], display[1], display[2], display[3]);
+        }
+    }
+
+    @Override
+    public void removeOwnerDisplays(Collection<PlotId> ids) {
+        for (PlotId id : ids) {
+            generator.removeOwnerDisplay(id);
+        }
+    }
+
+    @Override
+    public void removeSellerDisplays(Collection<PlotId> ids) {
+        for (PlotId id : ids) {
+            generator.removeSellerDisplay(id);
+        }
+    }
+
+    @Override
+    public void refreshPlotChunks(Collection<PlotId> ids) {
+        HashSet<Long> chunks = new HashSet<>();
+        int[] bounds = new int[4];
+        for (PlotId id : ids) {
+            getPlotBounds(id.getKey(), bounds, 0);
+            for (int chunkX = bounds[0] >> 4; chunkX <= bounds[2] >> 4; chunkX++) {
+                for (int chunkZ = bounds[1] >> 4; chunkZ <= bounds[3] >> 4; chunkZ++) {
+                    if (chunks.add(PlotId.toKey(chunkX, chunkZ))) {
+                        world.refreshChunk(chunkX, chunkZ);
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public PlotId getPlotId(Vector loc) {
+        return generator.getPlotId(loc);
+    }
+
+    @Override
+    public PlotId getPlotId(IPlayer player) {
+        return generator.getPlotId(player);
+    }
+
+    @Override
+    public List<IPlayer> getPlayersInPlot(PlotId id) {
+        return generator.getPlayersInPlot(id);
+    }
+
+    @Override
+    public void clearEntities(Vector bottom, Vector top) {
+        generator.clearEntities(bottom, top);
+    }
+
+    @Override
+    public void fillRoad(PlotId id1, PlotId id2) {
+        generator.fillRoad(id1, id2);
+    }
+
+    @Override
+    public void fillMiddleRoad(PlotId id1, PlotId id2) {
+        generator.fillMiddleRoad(id1, id2);
+    }
+
+    @Override
+    public void setOwnerDisplay(PlotId id, String line1, String line2, String line3, String line4) {
+        generator.setOwnerDisplay(id, line1, line2, line3, line4);
+    }
+
+    @Override
+    public void setSellerDisplay(PlotId id, String line1, String line2, String line3, String line4) {
+        generator.setSellerDisplay(id, line1, line2, line3, line4);
+    }
+
+    @Override
+    public void removeOwnerDisplay(PlotId id) {
+        generator.removeOwnerDisplay(id);
+    }
+
+    @Override
+    public void removeSellerDisplay(PlotId id) {
+        generator.removeSellerDisplay(id);
+    }
+
+    @Override
+    public Vector getPlotBottomLoc(PlotId id) {
+        return generator.getPlotBottomLoc(id);
+    }
+
+    @Override
+    public Vector getPlotTopLoc(PlotId id) {
+        return generator.getPlotTopLoc(id);
+    }
+
+    @Override
+    public void refreshPlotChunks(PlotId id) {
+        generator.refreshPlotChunks(id);
+    }
+
+    @Override
+    public Vector getTop(PlotId id) {
+        return generator.getTop(id);
+    }
+
+    @Override
+    public Vector getBottom(PlotId id) {
+        return generator.getBottom(id);
+    }
+
+    @Override
+    public void clear(Vector bottom, Vector top, PlotId clearMap, ClearEntry entry) {
+        generator.clear(bottom, top, clearMap, entry);
+    }
+
+    @Override
+    public void adjustPlotFor(Plot id, boolean claimed, boolean protect, boolean forSale) {
+        generator.adjustPlotFor(id, claimed, protect, forSale);
+    }
+
+    @Override
+    public boolean isBlockInPlot(PlotId id, Vector location) {
+        return generator.isBlockInPlot(id, location);
+    }
+
+    @Override
+    public boolean movePlot(PlotId idFrom, PlotId idTo) {
+        return generator.movePlot(idFrom, idTo);
+    }
+
+    @Override
+    public int bottomX(PlotId id) {
+        return generator.bottomX(id);
+    }
+
+    @Override
+    public int bottomZ(PlotId id) {
+        return generator.bottomZ(id);
+    }
+
+    @Override
+    public int topX(PlotId id) {
+        return generator.topX(id);
+    }
+
+    @Override
+    public int topZ(PlotId id) {
+        return generator.topZ(id);
+    }
+
+    @Override
+    public Location getPlotHome(PlotId id) {
+        return generator.getPlotHome(id);
+    }
+
+    @Override
+    public int getPlotSize() {
+        return generator.getPlotSize();
+    }
+
+    @Override
+    public int getGroundHeight() {
+        return generator.getGroundHeight();
+    }
+
+    @Override
+    public Vector getPlotMiddle(PlotId id) {
+        return generator.getPlotMiddle(id);
+    }
+
+    @Override
+    public Schematic getPlotSchematic(PlotId id) {
+        return generator.getPlotSchematic(id);
+    }
+
+    @Override
+    public void setBiome(PlotId id, String biome) {
+        generator.setBiome(id, biome);
+    }
+}
@@ -0,0 +1,225 @@
+package com.worldcretornica.plotme_core;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Remembers the names of players by UUID and the UUIDs of players by name, so commands and signs never
+ * have to ask the server for an offline player.
+ *
+ * <p>The cache is filled from the database when PlotMe starts and updated every time a player joins.
+ * Names are looked up case-insensitively. If several players used the same name, the one seen last
+ * wins.</p>
+ */
+public class NameCache {
+
+    private final PlotMe_Core plugin;
+    private volatile ConcurrentHashMap<UUID, Entry> byId = new ConcurrentHashMap<>();
+    private volatile ConcurrentSkipListMap<String, UUID> byName = new ConcurrentSkipListMap<>();
+    /**
+     * Names recorded while the cache is being loaded, to be applied again to the loaded names. Null when no
+     * load is running.
+     */
+    private HashMap<UUID, Entry> recordedWhileLoading;
+
+    public NameCache(PlotMe_Core plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Gets the name of a player.
+     *
+     * @param uuid player UUID
+     * @return the last known name of the player, or null if the player is unknown
+     */
+    public String getName(UUID uuid) {
+        Entry entry = byId.get(uuid);
+        if (entry == null) {
+            return null;
+        }
+        return entry.name;
+    }
+
+    /**
+     * Gets the name of a player.
+     *
+     * @param uuid player UUID
+     * @param fallback name to return if the player is unknown
+     * @return the last known name of the player, or the fallback
+     */
+    public String getName(UUID uuid, String fallback) {
+        String name = getName(uuid);
+        if (name == null) {
+            return fallback;
+        }
+        return name;
+    }
+
+    /**
+     * Gets the name to show for an entry of the allowed or denied list of a plot, which holds either a
+     * UUID or a wildcard.
+     *
+     * @param player UUID of the player, as a string
+     * @return the name of the player, or the entry itself if it isn't the UUID of a known player
+     */
+    public String getDisplayName(String player) {
+        try {
+            return getName(UUID.fromString(player), player);
+        } catch (IllegalArgumentException e) {
+            return player;
+        }
+    }
+
+    /**
+     * Gets the UUID of a player.
+     *
+     * @param name player name, in any case
+     * @return the UUID of the player last seen with that name, or null if nobody was
+     */
+    public UUID getUniqueId(String name) {
+        return byName.get(name.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Gets the known names that start with a prefix, for tab completion.
+     *
+     * @param prefix start of the name, in any case
+     * @param limit maximum number of names to return
+     * @return the matching names, in alphabetical order
+     */
+    public List<String> complete(String prefix, int limit) {
+        String from = prefix.toLowerCase(Locale.ROOT);
+        List<String> names = new ArrayList<>();
+        for (Map.Entry<String, UUID> entry : byName.tailMap(from).entrySet()) {
+            if (names.size() >= limit || !entry.getKey().startsWith(from)) {
+                break;
+            }
+            String name = getName(entry.getValue());
+            if (name != null) {
+                names.add(name);
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Records that a player joined with a name. The name is stored in the database in the background if it
+     * changed.
+     *
+     * @param uuid player UUID
+     * @param name player name
+     * @return true if the player was not known or was known by another name
+     */
+    public boolean seen(final UUID uuid, final String name) {
+        final long now = System.currentTimeMillis();
+        boolean renamed;
+        boolean firstSeen;
+        synchronized (this) {
+            Entry previous = byId.get(uuid);
+            put(uuid, name, now);
+            renamed = previous == null || !previous.name.equals(name);
+            firstSeen = previous != null && previous.lastSeen == 0;
+        }
+        if (renamed || firstSeen) {
+            plugin.getServerBridge().runTaskAsynchronously(new Runnable() {
+                @Override
+                public void run() {
+                    plugin.getSqlManager().saveName(uuid, name, now);
+                }
+            });
+        }
+        return renamed;
+    }
+
+    /**
+     * Records the name of a player that was looked up rather than seen, and stores it in the database if the
+     * cache didn't know it. Writes to the database right away, so call it from a background thread.
+     *
+     * @param uuid player UUID
+     * @param name player name
+     */
+    public void resolved(UUID uuid, String name) {
+        if (put(uuid, name, 0)) {
+            plugin.getSqlManager().saveName(uuid, name, 0);
+        }
+    }
+
+    /**
+     * Adds a name to the cache, unless a name was seen more recently for the same player.
+     *
+     * @param uuid player UUID
+     * @param name player name
+     * @param lastSeen time the player was last seen with this name, in milliseconds since the epoch, or 0 if unknown
+     * @return true if the name was new to the cache
+     */
+    public synchronized boolean put(UUID uuid, String name, long lastSeen) {
+        Entry previous = byId.get(uuid);
+        if (previous != null && previous.lastSeen > lastSeen) {
+            return false;
+        }
+        if (recordedWhileLoading != null) {
+            recordedWhileLoading.put(uuid, new Entry(name, lastSeen));
+        }
+        if (previous != null && !previous.name.equalsIgnoreCase(name)) {
+            byName.remove(previous.name.toLowerCase(Locale.ROOT), uuid);
+        }
+        byId.put(uuid, new Entry(name, lastSeen));
+        String key = name.toLowerCase(Locale.ROOT);
+        UUID holder = byName.get(key);
+        Entry held = holder == null ? null : byId.get(holder);
+        if (held == null || holder.equals(uuid) || held.lastSeen <= lastSeen) {
+            byName.put(key, uuid);
+        }
+        return previous == null || !previous.name.equals(name);
+    }
+
+    /**
+     * Reads all names again from the database in the background and replaces the cached names with them.
+     * Names recorded while the database is read are kept.
+     */
+    public void loadAsynchronously() {
+        plugin.getServerBridge().runTaskAsynchronously(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (NameCache.this) {
+                    recordedWhileLoading = new HashMap<>();
+                }
+                NameCache loaded = new NameCache(plugin);
+                try {
+                    plugin.getSqlManager().loadNames(loaded);
+                } catch (RuntimeException e) {
+                    synchronized (NameCache.this) {
+                        recordedWhileLoading = null;
+                    }
+                    throw e;
+                }
+                synchronized (NameCache.this) {
+                    for (Map.Entry<UUID, Entry> entry : recordedWhileLoading.entrySet()) {
+                        loaded.put(entry.getKey(), entry.getValue().name, entry.getValue().lastSeen);
+                    }
+                    recordedWhileLoading = null;
+                    byId = loaded.byId;
+                    byName = loaded.byName;
+                }
+                plugin.getLogger().info("Loaded " + loaded.byId.size() + " player names");
+            }
+        });
+    }
+
+    private static final class Entry {
+
+        private final String name;
+        private final long lastSeen;
+
+        private Entry(String name, long lastSeen) {
+            this.name = name;
+            this.lastSeen = lastSeen;
+        }
+    }
+}
@@ -14,6 +14,8 @@ public class PermissionNames {
     public static final String USER_DISPOSE = "PlotMe.use.dispose";
     public static final String USER_SELL = "PlotMe.use.sell";
     public static final String USER_LIKE = "PlotMe.use.like";
+    public static final String USER_TOP = "PlotMe.use.top";
+    public static final String USER_NAME = "PlotMe.use.nameplot";
     public static final String USER_BUY = "PlotMe.use.buy";
     public static final String USER_DENY = "PlotMe.use.deny";
     public static final String USER_ADD = "PlotMe.use.add";
@@ -29,6 +31,7 @@ public class PermissionNames {
     public static final String ADMIN_DISPOSE = "PlotMe.admin.dispose";
     public static final String ADMIN_SETOWNER = "PlotMe.admin.setowner";
     public static final String ADMIN_SELL = "PlotMe.admin.sell";
+    public static final String ADMIN_NAME = "PlotMe.admin.name";
     public static final String ADMIN_ADDTIME = "PlotMe.admin.addtime";
     public static final String ADMIN_TP = "PlotMe.admin.tp";
     public static final String ADMIN_DONE = "PlotMe.admin.done";
@@ -1,51 +1,93 @@
 package com.worldcretornica.plotme_core;
 
 import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.worldcretornica.plotme_core.api.IWorld;
 import com.worldcretornica.plotme_core.api.Vector;
+import com.worldcretornica.plotme_core.utils.EpochDays;
+import com.worldcretornica.plotme_core.utils.StringPool;
 
 import java.sql.Date;
-import java.text.SimpleDateFormat;
 import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
-import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
 
+/**
+ * A claimed plot.
+ *
+ * <p>Large worlds keep hundreds of thousands of plots in memory, so a plot is kept small: members, denied
+ * players, likers and metadata are only allocated once the plot has any, repeated strings are shared
+ * through the {@link StringPool}, and dates are kept as numbers. {@link #getMemberLevels()},
+ * {@link #getDeniedPlayers()} and {@link #getLikerIds()} read the collections without allocating them; the
+ * older getters hand out the collections themselves and allocate them if the plot has none yet.</p>
+ */
 public class Plot {
 
-    private final HashMap<String, Plot.AccessLevel> allowed = new HashMap<>();
-    private final HashSet<String> denied = new HashSet<>();
-    private final HashMap<String, Map<String, String>> metadata = new HashMap<>();
-    private final Vector plotTopLoc;
-    private final Vector plotBottomLoc;
-    private final String createdDate;
+    /**
+     * Value of {@link #getExpiredAt()} for a plot that doesn't expire.
+     */
+    public static final long NO_EXPIRY = -1;
+
+    /**
+     * Longest plot name that can be stored.
+     */
+    public static final int MAX_NAME_LENGTH = 32;
+
+    private HashMap<String, Plot.AccessLevel> allowed;
+    private HashSet<String> denied;
+    /**
+     * Metadata of the plugins whose metadata was read, by plugin name.
+     */
+    private HashMap<String, PlotMetadata> metadata;
+    /**
+     * True if {@link #metadata} holds the metadata of every plugin, false if the metadata of a plugin is read
+     * from the storage when it is first asked for.
+     */
+    private boolean metadataComplete;
+    private PlotGeometry geometry;
+    /**
+     * Creation date in days since 1970-01-01, or {@link EpochDays#NONE} if it is unknown.
+     */
+    private final int createdDay;
     private String owner = "Unknown";
-    private UUID ownerId = UUID.randomUUID();
+    private UUID ownerId;
     private IWorld world;
     private String biome = "PLAINS";
-    private Date expiredDate = null;
+    private long expiredAt = NO_EXPIRY;
     private boolean finished = false;
-    private PlotId id = new PlotId(0, 0);
+    private PlotId id;
     private double price = 0.0;
     private boolean forSale = false;
-    private String finishedDate = null;
+    /**
+     * Date the plot was finished in days since 1970-01-01, or {@link EpochDays#NONE}.
+     */
+    private int finishedDay = EpochDays.NONE;
     private boolean protect = false;
     private int likes = 0;
     //defaults to 0 until it is saved to the database
     private long internalID = 0;
     private String plotName;
-    private HashSet<UUID> likers = new HashSet<>();
+    private HashSet<UUID> likers;
 
     public Plot(String owner, UUID uuid, IWorld world, PlotId plotId, Vector plotTopLoc, Vector plotBottomLoc) {
+        this(owner, uuid, world, new PlotGeometry(plotId, plotBottomLoc, plotTopLoc));
+    }
+
+    public Plot(String owner, UUID uuid, IWorld world, PlotGeometry geometry) {
         setOwner(owner);
         setOwnerId(uuid);
         setWorld(world);
-        setId(plotId);
-        this.plotTopLoc = plotTopLoc;
-        this.plotBottomLoc = plotBottomLoc;
-        createdDate = new SimpleDateFormat("yyyy-MM-dd").format(Calendar.getInstance().getTime());
+        this.id = geometry.getId();
+        this.geometry = geometry;
+        createdDay = EpochDays.today();
+        metadataComplete = true;
     }
 
     public Plot(long internalID, String owner, UUID ownerId, IWorld world, String biome, Date expiredDate,
@@ -54,28 +96,52 @@ public class Plot {
                     denied,
             HashSet<UUID> likers, PlotId id, double price, boolean forSale, boolean finished, String finishedDate, boolean protect,
             Map<String, Map<String, String>> metadata, int plotLikes, String plotName, Vector topLoc, Vector bottomLoc, String createdDate) {
+        this(internalID, owner, ownerId, world, biome, expiredDate, allowed, denied, likers, price, forSale, finished, finishedDate, protect,
+                metadata, plotLikes, plotName, new PlotGeometry(id, bottomLoc, topLoc), createdDate);
+    }
+
+    /**
+     * Creates a plot read from storage. The member, denied and liker collections are taken over by the plot
+     * if they aren't empty, so the caller must not change them afterwards.
+     *
+     * @param metadata the metadata of all plugins, or null to read the metadata of a plugin from the storage
+     *         when it is first asked for
+     */
+    public Plot(long internalID, String owner, UUID ownerId, IWorld world, String biome, Date expiredDate,
+            HashMap<String, AccessLevel> allowed, HashSet<String> denied, HashSet<UUID> likers, double price, boolean forSale,
+            boolean finished, String finishedDate, boolean protect, Map<String, Map<String, String>> metadata, int plotLikes, String plotName,
+            PlotGeometry geometry, String createdDate) {
         this.internalID = internalID;
-        this.owner = owner;
+        setOwner(owner);
         this.ownerId = ownerId;
         this.world = world;
-        this.biome = biome;
-        this.expiredDate = expiredDate;
+        setBiome(biome);
+        setExpiredDate(expiredDate);
         this.finished = finished;
-        this.finishedDate = finishedDate;
-        this.allowed.putAll(allowed);
-        this.id = id;
+        this.finishedDay = EpochDays.parse(finishedDate);
+        this.allowed = allowed.isEmpty() ? null : allowed;
+        this.id = geometry.getId();
         this.price = price;
         this.forSale = forSale;
-        this.finishedDate = finishedDate;
         this.protect = protect;
-        this.likers.addAll(likers);
+        this.likers = likers.isEmpty() ? null : likers;
         this.plotName = plotName;
         this.likes = plotLikes;
-        this.denied.addAll(denied);
-        this.metadata.putAll(metadata);
-        this.plotTopLoc = topLoc;
-        this.plotBottomLoc = bottomLoc;
-        this.createdDate = createdDate;
+        this.denied = denied.isEmpty() ? null : denied;
+        if (metadata != null) {
+            metadataComplete = true;
+            for (Map.Entry<String, Map<String, String>> properties : metadata.entrySet()) {
+                HashMap<String, Object> values = new HashMap<>(properties.getValue().size() * 2);
+                for (Map.Entry<String, String> property : properties.getValue().entrySet()) {
+                    if (property.getValue() != null) {
+                        values.put(StringPool.intern(property.getKey()), property.getValue());
+                    }
+                }
+                attachMetadata(new PlotMetadata(properties.getKey(), values));
+            }
+        }
+        this.geometry = geometry;
+        this.createdDay = EpochDays.parse(createdDate);
     }
 
     public void resetExpire(int days) {
@@ -86,10 +152,9 @@ public class Plot {
         } else {
             Calendar cal = Calendar.getInstance();
             cal.add(Calendar.DAY_OF_YEAR, days);
-            java.util.Date utlDate = cal.getTime();
-            java.sql.Date temp = new java.sql.Date(utlDate.getTime());
-            if (expiredDate == null || temp.after(expiredDate)) {
-                expiredDate = temp;
+            long temp = cal.getTimeInMillis();
+            if (expiredAt == NO_EXPIRY || temp > expiredAt) {
+                expiredAt = temp;
             }
         }
     }
@@ -99,7 +164,7 @@ public class Plot {
     }
 
     public final void setBiome(String biome) {
-        this.biome = biome;
+        this.biome = StringPool.intern(biome);
 
     }
 
@@ -108,7 +173,7 @@ public class Plot {
     }
 
     public final void setOwner(String owner) {
-        this.owner = owner;
+        this.owner = StringPool.intern(owner);
     }
 
     public final UUID getOwnerId() {
@@ -119,51 +184,88 @@ public class Plot {
         ownerId = uuid;
     }
 
+    /**
+     * Gets the denied players, as UUID strings or {@code *} for everyone. Changes to the set change the plot.
+     * @return denied players
+     * @deprecated allocates the set if nobody is denied, use {@link #getDeniedPlayers()}
+     */
+    @Deprecated
     public HashSet<String> getDenied() {
+        if (denied == null) {
+            denied = new HashSet<>(4);
+        }
         return denied;
     }
 
+    /**
+     * Gets the denied players, as UUID strings or {@code *} for everyone.
+     * @return denied players. unmodifiable.
+     */
+    public Set<String> getDeniedPlayers() {
+        return denied == null ? ImmutableSet.<String>of() : Collections.unmodifiableSet(denied);
+    }
+
     public void addMember(String name, AccessLevel level) {
+        if (allowed == null) {
+            allowed = new HashMap<>(4);
+        }
         if ("*".equals(name)) {
-            this.getMembers().clear();
-            getMembers().put(name, AccessLevel.ALLOWED);
+            allowed.clear();
+            allowed.put(name, AccessLevel.ALLOWED);
         } else {
-            getMembers().put(name, level);
+            allowed.put(StringPool.intern(name), level);
         }
     }
 
     public void addDenied(String name) {
         if (!isDeniedInternal(name)) {
-            getDenied().add(name);
+            if (denied == null) {
+                denied = new HashSet<>(4);
+            }
+            denied.add(StringPool.intern(name));
         }
     }
 
     public void removeMembers(String name) {
-        if (getMembers().containsKey(name)) {
-            // HashMap#remove doesn't take 2 arguments
-            // getMembers().remove(name, AccessLevel.ALLOWED);
-            getMembers().remove(name);
-        }
+        removeMember(name);
     }
 
     public void removeMember(String name) {
-        if (getMembers().containsKey(name)) {
-            getMembers().remove(name);
-        }
+        removeMemberAccess(name);
+    }
+
+    /**
+     * Removes a member.
+     * @param name UUID string of the member, or {@code *}
+     * @return the access level the member had, or null if it wasn't a member
+     */
+    public AccessLevel removeMemberAccess(String name) {
+        return allowed == null ? null : allowed.remove(name);
     }
 
     public void removeDenied(String name) {
-        if (getDenied().contains(name)) {
-            getDenied().remove(name);
-        }
+        removeDeniedPlayer(name);
+    }
+
+    /**
+     * Removes a denied player.
+     * @param name UUID string of the player, or {@code *}
+     * @return true if the player was denied
+     */
+    public boolean removeDeniedPlayer(String name) {
+        return denied != null && denied.remove(name);
     }
 
     public void removeAllMembers() {
-        getMembers().clear();
+        if (allowed != null) {
+            allowed.clear();
+        }
     }
 
     public void removeAllDenied() {
-        getDenied().clear();
+        if (denied != null) {
+            denied.clear();
+        }
     }
 
     public boolean isDenied(String name) {
@@ -175,17 +277,30 @@ public class Plot {
     }
 
     private boolean isDeniedInternal(String name) {
-        return getDenied().contains("*") || getDenied().contains(name);
+        return denied != null && (denied.contains("*") || denied.contains(name));
     }
 
     /**
-     * A map of allowed and trusted players
+     * A map of allowed and trusted players. Changes to the map change the plot.
      * @return allowed and trusted player map
+     * @deprecated allocates the map if the plot has no members, use {@link #getMemberLevels()}
      */
+    @Deprecated
     public HashMap<String, Plot.AccessLevel> getMembers() {
+        if (allowed == null) {
+            allowed = new HashMap<>(4);
+        }
         return allowed;
     }
 
+    /**
+     * A map of allowed and trusted players
+     * @return allowed and trusted player map. unmodifiable.
+     */
+    public Map<String, Plot.AccessLevel> getMemberLevels() {
+        return allowed == null ? ImmutableMap.<String, Plot.AccessLevel>of() : Collections.unmodifiableMap(allowed);
+    }
+
     public final IWorld getWorld() {
         return world;
     }
@@ -195,11 +310,19 @@ public class Plot {
     }
 
     public final Date getExpiredDate() {
-        return expiredDate;
+        return expiredAt == NO_EXPIRY ? null : new Date(expiredAt);
+    }
+
+    /**
+     * Gets the expiration date without creating a {@link Date}.
+     * @return the expiration date in milliseconds since the epoch, or {@link #NO_EXPIRY}
+     */
+    public final long getExpiredAt() {
+        return expiredAt;
     }
 
     public final void setExpiredDate(Date expiredDate) {
-        this.expiredDate = expiredDate;
+        this.expiredAt = expiredDate == null ? NO_EXPIRY : expiredDate.getTime();
     }
 
     public final boolean isFinished() {
@@ -208,19 +331,32 @@ public class Plot {
 
     public final void setFinished(boolean finished) {
         this.finished = finished;
-        if (finished) {
-            setFinishedDate(new SimpleDateFormat("yyyy-MM-dd").format(Calendar.getInstance().getTime()));
-        } else {
-            setFinishedDate(null);
-        }
+        finishedDay = finished ? EpochDays.today() : EpochDays.NONE;
     }
 
     public final PlotId getId() {
         return id;
     }
 
+    /**
+     * Changes the id of the plot, for example when it is moved. The geometry of the plot follows the new id.
+     * @param id new plot id
+     */
     public final void setId(PlotId id) {
         this.id = id;
+        PlotGeometry moved = PlotMeCoreManager.getInstance().getGeometry(world, id);
+        if (moved == null) {
+            moved = new PlotGeometry(id, geometry.getBottom(), geometry.getTop());
+        }
+        this.geometry = moved;
+    }
+
+    /**
+     * Gets the bounds, middle and home of the plot.
+     * @return plot geometry
+     */
+    public PlotGeometry getGeometry() {
+        return geometry;
     }
 
     /**
@@ -254,12 +390,7 @@ public class Plot {
     }
 
     public final String getFinishedDate() {
-        return finishedDate;
-    }
-
-    private void setFinishedDate(String finishedDate) {
-        this.finishedDate = finishedDate;
-
+        return EpochDays.format(finishedDay);
     }
 
     public final boolean isProtected() {
@@ -271,19 +402,107 @@ public class Plot {
     }
 
     public String getPlotProperty(String pluginname, String property) {
-        return metadata.get(pluginname).get(property);
+        if (metadataComplete && (metadata == null || !metadata.containsKey(pluginname))) {
+            return null;
+        }
+        return getMetadata(pluginname).getString(property);
     }
 
     public boolean setPlotProperty(String pluginname, String property, String value) {
-        if (!metadata.containsKey(pluginname)) {
-            metadata.put(pluginname, new HashMap<String, String>());
-        }
-        metadata.get(pluginname).put(property, value);
+        getMetadata(pluginname).setString(property, value);
         return true;
     }
 
+    /**
+     * Gets the metadata a plugin keeps on this plot. The metadata is read from the storage the first time
+     * it is asked for, which runs a query with a SQL storage.
+     *
+     * @param pluginname name of the plugin
+     * @return the metadata, empty if the plugin has none yet
+     */
+    public PlotMetadata getMetadata(String pluginname) {
+        PlotMetadata loaded = metadata == null ? null : metadata.get(pluginname);
+        if (loaded == null) {
+            if (metadataComplete || internalID == 0) {
+                loaded = new PlotMetadata(pluginname);
+            } else {
+                loaded = PlotMeCoreManager.getInstance().loadMetadata(this, pluginname);
+            }
+            attachMetadata(loaded);
+        }
+        return loaded;
+    }
+
+    /**
+     * Adds metadata that was read from the storage. Used by the storages.
+     */
+    public void attachMetadata(PlotMetadata plotMetadata) {
+        if (metadata == null) {
+            metadata = new HashMap<>(4);
+        }
+        metadata.put(plotMetadata.getNamespace(), plotMetadata);
+    }
+
+    /**
+     * Adds the metadata of every plugin that was read from the storage, keeping the metadata that was read
+     * before. Used by the storages.
+     *
+     * @param all values by key by plugin name
+     */
+    public void attachAllMetadata(Map<String, HashMap<String, Object>> all) {
+        for (Map.Entry<String, HashMap<String, Object>> plugin : all.entrySet()) {
+            if (metadata == null || !metadata.containsKey(plugin.getKey())) {
+                attachMetadata(new PlotMetadata(plugin.getKey(), plugin.getValue()));
+            }
+        }
+        metadataComplete = true;
+    }
+
+    /**
+     * Gets the metadata that was read so far.
+     *
+     * @return metadata of the plugins that were read. unmodifiable.
+     */
+    public Collection<PlotMetadata> getLoadedMetadata() {
+        return metadata == null ? ImmutableList.<PlotMetadata>of() : Collections.unmodifiableCollection(metadata.values());
+    }
+
+    /**
+     * Checks if the metadata of every plugin was read, so {@link #getLoadedMetadata()} is all there is.
+     */
+    public boolean isMetadataComplete() {
+        return metadataComplete;
+    }
+
+    /**
+     * Gets the string values of the metadata of every plugin. The metadata that wasn't read yet is read from
+     * the storage first, which runs a query with a SQL storage.
+     *
+     * @return properties by plugin name
+     */
     public Map<String, Map<String, String>> getAllPlotProperties() {
-        return metadata;
+        if (!metadataComplete && internalID != 0) {
+            attachAllMetadata(PlotMeCoreManager.getInstance().loadAllMetadata(this));
+        }
+        return getLoadedPlotProperties();
+    }
+
+    /**
+     * Gets the string values of the metadata that was read so far.
+     */
+    private Map<String, Map<String, String>> getLoadedPlotProperties() {
+        HashMap<String, Map<String, String>> properties = new HashMap<>();
+        for (PlotMetadata plotMetadata : getLoadedMetadata()) {
+            HashMap<String, String> values = new HashMap<>();
+            for (String key : plotMetadata.getKeys()) {
+                String value = plotMetadata.getString(key);
+                if (value != null) {
+                    values.put(key, value);
+                }
+            }
+            properties.put(plotMetadata.getNamespace(), values);
+        }
+        return properties;
     }
 
     /**
@@ -313,14 +532,36 @@ public class Plot {
     }
 
     public void addLike(int likes, UUID player) {
-        this.getLikers().add(player);
-        this.likes = likes;
+        addLiker(likes, player);
+    }
+
+    /**
+     * Adds a like of a player. Use {@link com.worldcretornica.plotme_core.storage.Database#likePlot(Plot, UUID)}
+     * to store it right away.
+     *
+     * @param likes number of likes to add
+     * @param player the player who likes the plot
+     * @return false if the player liked the plot already
+     */
+    public boolean addLiker(int likes, UUID player) {
+        if (likers == null) {
+            likers = new HashSet<>(4);
+        }
+        if (!likers.add(player)) {
+            return false;
+        }
+        this.likes += likes;
+        return true;
     }
 
     public String getPlotName() {
         return plotName;
     }
 
+    /**
+     * Sets the name of the plot without checking if another plot has it. Use
+     * {@link com.worldcretornica.plotme_core.storage.Database#renamePlot(Plot, String)} to rename a plot.
+     */
     public void setPlotName(String plotName) {
         this.plotName = plotName;
     }
@@ -330,62 +571,72 @@ public class Plot {
      * @return
      */
     public Vector getMiddle() {
-        Vector bottom = plotBottomLoc;
-        Vector top = plotTopLoc;
-
-        double x = (top.getX() + bottom.getX() + 1) / 2;
-        double z = (top.getZ() + bottom.getZ() + 1) / 2;
-
-
-        return new Vector(x, 0, z);
+        return geometry.getMiddle();
     }
 
     public int getTopX() {
-        return plotTopLoc.getBlockX();
+        return geometry.getTopX();
     }
 
     public int getTopZ() {
-        return plotTopLoc.getBlockZ();
+        return geometry.getTopZ();
     }
 
     public Vector getPlotTopLoc() {
-        return plotTopLoc;
+        return geometry.getTop();
     }
 
     public Vector getPlotBottomLoc() {
-        return plotBottomLoc;
+        return geometry.getBottom();
     }
 
     public int getBottomX() {
-        return plotBottomLoc.getBlockX();
+        return geometry.getBottomX();
     }
 
     public int getBottomZ() {
-        return plotBottomLoc.getBlockZ();
+        return geometry.getBottomZ();
     }
 
     public String getCreatedDate() {
-        return createdDate;
+        return createdDay == EpochDays.NONE ? "Unknown" : EpochDays.format(createdDay);
     }
 
     public void addDenied(HashSet<String> denied) {
-        this.denied.addAll(denied);
+        for (String name : denied) {
+            addDenied(name);
+        }
     }
 
     public void addMembers(HashMap<String, AccessLevel> allowed) {
-        this.allowed.putAll(allowed);
+        for (Map.Entry<String, AccessLevel> member : allowed.entrySet()) {
+            addMember(member.getKey(), member.getValue());
+        }
     }
 
     /**
-     * Gets a set of players who have liked this plot
-     * @return
+     * Gets a set of players who have liked this plot. Changes to the set change the plot.
+     * @return likers
+     * @deprecated allocates the set if nobody liked the plot, use {@link #getLikerIds()}
      */
+    @Deprecated
     public HashSet<UUID> getLikers() {
+        if (likers == null) {
+            likers = new HashSet<>(4);
+        }
         return likers;
     }
 
+    /**
+     * Gets a set of players who have liked this plot
+     * @return likers. unmodifiable.
+     */
+    public Set<UUID> getLikerIds() {
+        return likers == null ? ImmutableSet.<UUID>of() : Collections.unmodifiableSet(likers);
+    }
+
     public void setLikers(HashSet<UUID> likers) {
-        this.likers = likers;
+        this.likers = likers.isEmpty() ? null : likers;
     }
 
     //todo test equals to make sure it is reliable.
@@ -396,7 +647,7 @@ public class Plot {
                 if (obj1.getId().equals(this.id)) {
                     if (obj1.getOwnerId().equals(this.ownerId)) {
                         if (obj1.getWorld().equals(this.world)) {
-                            if (Objects.equals(obj1.getExpiredDate(), this.expiredDate)) {
+                            if (obj1.getExpiredAt() == this.expiredAt) {
                                 return true;
                             }
                         }
@@ -409,19 +660,35 @@ public class Plot {
     }
 
     public boolean canPlayerLike(UUID uniqueId) {
-        return !likers.contains(uniqueId);
+        return likers == null || !likers.contains(uniqueId);
     }
 
     public void removeLike(int i, UUID uniqueId) {
+        removeLiker(i, uniqueId);
+    }
+
+    /**
+     * Removes the like of a player.
+     *
+     * @param i number of likes to remove
+     * @param uniqueId the player who no longer likes the plot
+     * @return false if the player didn't like the plot
+     */
+    public boolean removeLiker(int i, UUID uniqueId) {
+        if (likers == null || !likers.remove(uniqueId)) {
+            return false;
+        }
         likes -= i;
-        likers.remove(uniqueId);
+        return true;
     }
 
     public Optional<AccessLevel> isMember(String allowed) {
-        if (getMembers().containsKey("*")) {
+        if (this.allowed == null) {
+            return Optional.absent();
+        } else if (this.allowed.containsKey("*")) {
             return Optional.of(AccessLevel.ALLOWED);
         } else {
-            return Optional.fromNullable(getMembers().get(allowed));
+            return Optional.fromNullable(this.allowed.get(allowed));
         }
     }
 
@@ -431,27 +698,26 @@ public class Plot {
 
     @Override public String toString() {
         return "Plot{" +
-                "allowed=" + allowed +
-                ", denied=" + denied +
-                ", metadata=" + metadata +
-                ", plotTopLoc=" + plotTopLoc +
-                ", plotBottomLoc=" + plotBottomLoc +
-                ", createdDate='" + createdDate + '\'' +
+                "allowed=" + getMemberLevels() +
+                ", denied=" + getDeniedPlayers() +
+                ", metadata=" + getLoadedPlotProperties() +
+                ", geometry=" + geometry +
+                ", createdDate='" + getCreatedDate() + '\'' +
                 ", owner='" + owner + '\'' +
                 ", ownerId=" + ownerId +
                 ", world=" + world +
                 ", biome='" + biome + '\'' +
-                ", expiredDate=" + expiredDate +
+                ", expiredDate=" + getExpiredDate() +
                 ", finished=" + finished +
                 ", id=" + id +
                 ", price=" + price +
                 ", forSale=" + forSale +
-                ", finishedDate='" + finishedDate + '\'' +
+                ", finishedDate='" + getFinishedDate() + '\'' +
                 ", protect=" + protect +
                 ", likes=" + likes +
                 ", internalID=" + internalID +
                 ", plotName='" + plotName + '\'' +
-                ", likers=" + likers +
+                ", likers=" + getLikerIds() +
                 '}';
     }
 
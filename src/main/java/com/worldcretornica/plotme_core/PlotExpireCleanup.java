@@ -3,6 +3,9 @@ package com.worldcretornica.plotme_core;
 import com.worldcretornica.plotme_core.api.IWorld;
 import com.worldcretornica.plotme_core.api.event.PlotResetEvent;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class PlotExpireCleanup implements Runnable {
 
     private final PlotMe_Core plugin;
@@ -16,25 +19,29 @@ public class PlotExpireCleanup implements Runnable {
     public void run() {
         plugin.getLogger().info("Beginning Expire Cleanup Task.");
         int i = 0;
-        for (IWorld world : PlotMeCoreManager.getInstance().getPlotMaps().keySet()) {
+        for (final IWorld world : PlotMeCoreManager.getInstance().getPlotMaps().keySet()) {
             if (PlotMeCoreManager.getInstance().getMap(world).getDaysToExpiration() == 0) {
                 break;
             }
-            for (final Plot plot : plugin.getSqlManager().getExpiredPlots(world)) {
+            final List<Plot> resetPlots = new ArrayList<>();
+            for (Plot plot : plugin.getSqlManager().getExpiredPlots(world)) {
                 if (!plot.isProtected()) {
                     i++;
                     PlotResetEvent event = new PlotResetEvent(plot, null);
                     plugin.getEventBus().post(event);
                     if (!event.isCancelled()) {
-                        plugin.getServerBridge().runTask(new Runnable() {
-                            @Override public void run() {
-                                PlotMeCoreManager.getInstance().clear(plot, null, ClearReason.Expired);
-                                PlotMeCoreManager.getInstance().deletePlot(plot);
-                            }
-                        });
+                        resetPlots.add(plot);
                     }
                 }
             }
+            if (!resetPlots.isEmpty()) {
+                plugin.getServerBridge().runTask(new Runnable() {
+                    @Override public void run() {
+                        PlotMeCoreManager.getInstance().clear(world, resetPlots, null, ClearReason.Expired);
+                        PlotMeCoreManager.getInstance().deletePlots(world, resetPlots);
+                    }
+                });
+            }
         }
         plugin.getLogger().info(i + " Expired Plots were deleted");
     }
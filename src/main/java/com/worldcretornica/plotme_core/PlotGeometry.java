@@ -0,0 +1,146 @@
+package com.worldcretornica.plotme_core;
+
+import com.worldcretornica.plotme_core.api.IPlotMe_GeneratorManager;
+import com.worldcretornica.plotme_core.api.Vector;
+
+/**
+ * The bounds and middle of a plot, as reported by the generator when the geometry was created. The home
+ * of a plot is not kept, it is only needed to teleport players and is asked from the generator then.
+ *
+ * <p>Geometry never changes after it is created. Methods returning a {@link Vector} return a new object on
+ * every call, so callers may modify the result.</p>
+ */
+public final class PlotGeometry {
+
+    private final PlotId id;
+    private final int bottomX;
+    private final int bottomY;
+    private final int bottomZ;
+    private final int topX;
+    private final int topY;
+    private final int topZ;
+    private final double middleX;
+    private final double middleY;
+    private final double middleZ;
+
+    private PlotGeometry(PlotId id, Vector bottom, Vector top, Vector middle) {
+        this.id = id;
+        this.bottomX = bottom.getBlockX();
+        this.bottomY = bottom.getBlockY();
+        this.bottomZ = bottom.getBlockZ();
+        this.topX = top.getBlockX();
+        this.topY = top.getBlockY();
+        this.topZ = top.getBlockZ();
+        if (middle == null) {
+            this.middleX = (top.getX() + bottom.getX() + 1) / 2;
+            this.middleY = 0;
+            this.middleZ = (top.getZ() + bottom.getZ() + 1) / 2;
+        } else {
+            this.middleX = middle.getX();
+            this.middleY = middle.getY();
+            this.middleZ = middle.getZ();
+        }
+    }
+
+    /**
+     * Creates the geometry of a plot from its corners only. The middle is computed from the corners.
+     *
+     * @param id plot id
+     * @param bottom bottom corner
+     * @param top top corner
+     */
+    public PlotGeometry(PlotId id, Vector bottom, Vector top) {
+        this(id, bottom, top, null);
+    }
+
+    /**
+     * Asks a generator for the geometry of a plot.
+     *
+     * @param generator the generator of the plotworld
+     * @param id plot id
+     * @return the geometry of the plot
+     */
+    public static PlotGeometry of(IPlotMe_GeneratorManager generator, PlotId id) {
+        return new PlotGeometry(id, generator.getPlotBottomLoc(id), generator.getPlotTopLoc(id), generator.getPlotMiddle(id));
+    }
+
+    public PlotId getId() {
+        return id;
+    }
+
+    public int getBottomX() {
+        return bottomX;
+    }
+
+    public int getBottomZ() {
+        return bottomZ;
+    }
+
+    public int getTopX() {
+        return topX;
+    }
+
+    public int getTopZ() {
+        return topZ;
+    }
+
+    public int getMinX() {
+        return Math.min(bottomX, topX);
+    }
+
+    public int getMinZ() {
+        return Math.min(bottomZ, topZ);
+    }
+
+    public int getMaxX() {
+        return Math.max(bottomX, topX);
+    }
+
+    public int getMaxZ() {
+        return Math.max(bottomZ, topZ);
+    }
+
+    public Vector getBottom() {
+        return new Vector(bottomX, bottomY, bottomZ);
+    }
+
+    public Vector getTop() {
+        return new Vector(topX, topY, topZ);
+    }
+
+    public double getMiddleX() {
+        return middleX;
+    }
+
+    public double getMiddleZ() {
+        return middleZ;
+    }
+
+    /**
+     * Do not use for teleporting players. It will suffocate or kill them.
+     * @return the middle of the plot
+     */
+    public Vector getMiddle() {
+        return new Vector(middleX, middleY, middleZ);
+    }
+
+    /**
+     * Checks if a block coordinate is inside the plot.
+     *
+     * @param x block x
+     * @param z block z
+     * @return true if the block is inside the plot
+     */
+    public boolean contains(int x, int z) {
+        return x >= getMinX() && x <= getMaxX() && z >= getMinZ() && z <= getMaxZ();
+    }
+
+    @Override
+    public String toString() {
+        return "PlotGeometry{" +
+                "id=" + id +
+                ", bottom=" + bottomX + "," + bottomY + "," + bottomZ +
+                ", top=" + topX + "," + topY + "," + topZ +
+                '}';
+    }
+}
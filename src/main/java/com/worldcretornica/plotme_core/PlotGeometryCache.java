@@ -0,0 +1,137 @@
+package com.worldcretornica.plotme_core;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.worldcretornica.plotme_core.api.IPlotMe_GeneratorManager;
+import com.worldcretornica.plotme_core.api.IWorld;
+import com.worldcretornica.plotme_core.api.IWorldBorder;
+
+/**
+ * Caches the geometry of the plots of one plotworld, and the range of plot ids that lie inside the world
+ * border.
+ */
+public class PlotGeometryCache {
+
+    private static final int MAXIMUM_SIZE = 8192;
+    private static final long BORDER_REFRESH_MILLIS = 1000;
+    /**
+     * The largest distance from the center of the world a world border can be at.
+     */
+    private static final int MAX_WORLD_RADIUS = 30000000;
+
+    private final IWorld world;
+    private final IPlotMe_GeneratorManager generator;
+    private final LoadingCache<PlotId, PlotGeometry> geometries;
+    /**
+     * The plot ids inside the world border as minimum x, maximum x, minimum z and maximum z.
+     */
+    private volatile int[] borderRange;
+    private volatile long borderCheckedAt;
+
+    public PlotGeometryCache(IWorld world, final IPlotMe_GeneratorManager generator) {
+        this.world = world;
+        this.generator = generator;
+        this.geometries = CacheBuilder.newBuilder().maximumSize(MAXIMUM_SIZE).build(new CacheLoader<PlotId, PlotGeometry>() {
+            @Override
+            public PlotGeometry load(PlotId id) {
+                return PlotGeometry.of(generator, id);
+            }
+        });
+    }
+
+    /**
+     * Gets the geometry of a plot, asking the generator if it isn't cached yet.
+     *
+     * @param id plot id
+     * @return the geometry of the plot
+     */
+    public PlotGeometry get(PlotId id) {
+        return geometries.getUnchecked(id);
+    }
+
+    /**
+     * Forgets the geometry of a plot, for example after the generator changed it.
+     *
+     * @param id plot id
+     */
+    public void invalidate(PlotId id) {
+        geometries.invalidate(id);
+    }
+
+    /**
+     * Checks if a plot lies inside the world border. The border is read again at most once per second.
+     *
+     * @param id plot id
+     * @return true if the plot is inside the world border
+     */
+    public boolean isInsideBorder(PlotId id) {
+        int[] range = borderRange;
+        long now = System.currentTimeMillis();
+        if (range == null || now - borderCheckedAt > BORDER_REFRESH_MILLIS) {
+            range = computeBorderRange();
+            borderRange = range;
+            borderCheckedAt = now;
+        }
+        return id.getX() >= range[0] && id.getX() <= range[1] && id.getZ() >= range[2] && id.getZ() <= range[3];
+    }
+
+    private int[] computeBorderRange() {
+        IWorldBorder border = world.getWorldBorder();
+        int limit = MAX_WORLD_RADIUS / Math.max(1, generator.getPlotSize()) + 1;
+        return new int[]{firstPast(true, border.minX(), limit), lastBefore(true, border.maxX(), limit),
+                firstPast(false, border.minZ(), limit), lastBefore(false, border.maxZ(), limit)};
+    }
+
+    /**
+     * Finds the lowest plot id along an axis whose top lies past a coordinate.
+     */
+    private int firstPast(boolean xAxis, double coordinate, int limit) {
+        int lo = -limit;
+        int hi = limit;
+        while (lo < hi) {
+            int mid = (int) (((long) lo + hi) >> 1);
+            if (top(xAxis, mid) > coordinate) {
+                hi = mid;
+            } else {
+                lo = mid + 1;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Finds the highest plot id along an axis whose bottom lies before a coordinate.
+     */
+    private int lastBefore(boolean xAxis, double coordinate, int limit) {
+        int lo = -limit;
+        int hi = limit;
+        while (lo < hi) {
+            int mid = (int) (((long) lo + hi + 1) >> 1);
+            if (bottom(xAxis, mid) < coordinate) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return lo;
+    }
+
+    private int bottom(boolean xAxis, int index) {
+        if (xAxis) {
+            PlotId id = new PlotId(index, 0);
+            return Math.min(generator.bottomX(id), generator.topX(id));
+        }
+        PlotId id = new PlotId(0, index);
+        return Math.min(generator.bottomZ(id), generator.topZ(id));
+    }
+
+    private int top(boolean xAxis, int index) {
+        if (xAxis) {
+            PlotId id = new PlotId(index, 0);
+            return Math.max(generator.bottomX(id), generator.topX(id));
+        }
+        PlotId id = new PlotId(0, index);
+        return Math.max(generator.bottomZ(id), generator.topZ(id));
+    }
+}
@@ -0,0 +1,149 @@
+package com.worldcretornica.plotme_core;
+
+import com.worldcretornica.plotme_core.api.IPlotMe_GeneratorManager;
+import com.worldcretornica.plotme_core.api.Vector;
+
+/**
+ * The periodic plot and road layout of a plotworld.
+ *
+ * <p>Plots are laid out on a regular grid: every {@code period} blocks along an axis there is a plot
+ * {@code plotSize} blocks wide followed by a road. Once the grid is known, the plot at a block
+ * coordinate can be answered with integer arithmetic alone.</p>
+ */
+public final class PlotGrid {
+
+    private static final int[][] SAMPLE_IDS = {{0, 0}, {1, 1}, {-1, -1}, {3, -2}, {-5, 7}};
+
+    private final int offsetX;
+    private final int offsetZ;
+    private final int periodX;
+    private final int periodZ;
+    private final int sizeX;
+    private final int sizeZ;
+
+    private PlotGrid(int offsetX, int offsetZ, int periodX, int periodZ, int sizeX, int sizeZ) {
+        this.offsetX = offsetX;
+        this.offsetZ = offsetZ;
+        this.periodX = periodX;
+        this.periodZ = periodZ;
+        this.sizeX = sizeX;
+        this.sizeZ = sizeZ;
+    }
+
+    /**
+     * Derives the grid from the plot size and path width the generator lays its plots out with.
+     *
+     * <p>The layout is read back from the plot bounds of the generator and is checked against its
+     * {@link IPlotMe_GeneratorManager#getPlotId(Vector)} at a number of sample points.</p>
+     *
+     * @param generator the generator of the plotworld
+     * @return the grid, or null if the generator does not place its plots on a regular grid
+     */
+    public static PlotGrid derive(IPlotMe_GeneratorManager generator) {
+        PlotId origin = new PlotId(0, 0);
+        int offsetX = Math.min(generator.bottomX(origin), generator.topX(origin));
+        int offsetZ = Math.min(generator.bottomZ(origin), generator.topZ(origin));
+        int sizeX = Math.abs(generator.topX(origin) - generator.bottomX(origin)) + 1;
+        int sizeZ = Math.abs(generator.topZ(origin) - generator.bottomZ(origin)) + 1;
+        int periodX = Math.min(generator.bottomX(new PlotId(1, 0)), generator.topX(new PlotId(1, 0))) - offsetX;
+        int periodZ = Math.min(generator.bottomZ(new PlotId(0, 1)), generator.topZ(new PlotId(0, 1))) - offsetZ;
+        if (periodX < sizeX || periodZ < sizeZ) {
+            return null;
+        }
+        PlotGrid grid = new PlotGrid(offsetX, offsetZ, periodX, periodZ, sizeX, sizeZ);
+        for (int[] sample : SAMPLE_IDS) {
+            if (!grid.matches(generator, new PlotId(sample[0], sample[1]))) {
+                return null;
+            }
+        }
+        return grid;
+    }
+
+    private boolean matches(IPlotMe_GeneratorManager generator, PlotId id) {
+        int minX = bottomX(id.getX());
+        int minZ = bottomZ(id.getZ());
+        int maxX = topX(id.getX());
+        int maxZ = topZ(id.getZ());
+        if (minX != Math.min(generator.bottomX(id), generator.topX(id)) || maxX != Math.max(generator.bottomX(id), generator.topX(id))
+                || minZ != Math.min(generator.bottomZ(id), generator.topZ(id)) || maxZ != Math.max(generator.bottomZ(id), generator.topZ(id))) {
+            return false;
+        }
+        int[][] points = {{minX, minZ}, {maxX, maxZ}, {minX - 1, minZ}, {maxX + 1, maxZ}, {minX, minZ - 1}, {maxX, maxZ + 1}};
+        for (int[] point : points) {
+            PlotId expected = PlotId.fromKey(plotKeyAt(point[0], point[1]));
+            PlotId actual = generator.getPlotId(new Vector(point[0], 0, point[1]));
+            if (expected == null ? actual != null : !expected.equals(actual)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets the plot at a block coordinate.
+     *
+     * @param x block x
+     * @param z block z
+     * @return the packed key of the plot (see {@link PlotId#toKey(int, int)}), or {@link PlotId#NONE} if the block is on a road
+     */
+    public long plotKeyAt(int x, int z) {
+        int relX = x - offsetX;
+        int idX = floorDiv(relX, periodX);
+        if (relX - idX * periodX >= sizeX) {
+            return PlotId.NONE;
+        }
+        int relZ = z - offsetZ;
+        int idZ = floorDiv(relZ, periodZ);
+        if (relZ - idZ * periodZ >= sizeZ) {
+            return PlotId.NONE;
+        }
+        return PlotId.toKey(idX, idZ);
+    }
+
+    /**
+     * Checks if a block coordinate is on a road.
+     *
+     * @param x block x
+     * @param z block z
+     * @return true if the block is not inside a plot
+     */
+    public boolean isRoad(int x, int z) {
+        return plotKeyAt(x, z) == PlotId.NONE;
+    }
+
+    public int bottomX(int idX) {
+        return offsetX + idX * periodX;
+    }
+
+    public int bottomZ(int idZ) {
+        return offsetZ + idZ * periodZ;
+    }
+
+    public int topX(int idX) {
+        return bottomX(idX) + sizeX - 1;
+    }
+
+    public int topZ(int idZ) {
+        return bottomZ(idZ) + sizeZ - 1;
+    }
+
+    private static int floorDiv(int x, int y) {
+        int r = x / y;
+        if ((x ^ y) < 0 && r * y != x) {
+            r--;
+        }
+        return r;
+    }
+
+    @Override
+    public String toString() {
+        return "PlotGrid{" +
+                "offsetX=" + offsetX +
+                ", offsetZ=" + offsetZ +
+                ", periodX=" + periodX +
+                ", periodZ=" + periodZ +
+                ", sizeX=" + sizeX +
+                ", sizeZ=" + sizeZ +
+                '}';
+    }
+}
@@ -3,6 +3,11 @@ package com.worldcretornica.plotme_core;
 
 public class PlotId {
 
+    /**
+     * Packed key returned by coordinate lookups when the coordinate is not inside a plot.
+     */
+    public static final long NONE = Long.MIN_VALUE;
+
     private final int x;
     private final int z;
 
@@ -36,10 +41,64 @@ public class PlotId {
         return false;
     }
 
+    /**
+     * Packs a plot id into a single long, with x in the high and z in the low 32 bits.
+     *
+     * @param x plot id x
+     * @param z plot id z
+     * @return packed plot key
+     */
+    public static long toKey(int x, int z) {
+        return (long) x << 32 | z & 0xFFFFFFFFL;
+    }
+
+    /**
+     * Gets the x part of a packed plot key.
+     *
+     * @param key packed plot key
+     * @return plot id x
+     */
+    public static int keyX(long key) {
+        return (int) (key >> 32);
+    }
+
+    /**
+     * Gets the z part of a packed plot key.
+     *
+     * @param key packed plot key
+     * @return plot id z
+     */
+    public static int keyZ(long key) {
+        return (int) key;
+    }
+
+    /**
+     * Creates a plot id from a packed plot key.
+     *
+     * @param key packed plot key
+     * @return the plot id, or null if the key is {@link #NONE}
+     */
+    public static PlotId fromKey(long key) {
+        if (key == NONE) {
+            return null;
+        }
+        return new PlotId(keyX(key), keyZ(key));
+    }
+
     public int getX() {
         return x;
     }
 
+    /**
+     * Gets this id packed into a single long.
+     *
+     * @return packed plot key
+     * @see #toKey(int, int)
+     */
+    public long getKey() {
+        return toKey(x, z);
+    }
+
     public int getZ() {
         return z;
     }
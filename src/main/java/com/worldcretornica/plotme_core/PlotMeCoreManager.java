@@ -6,6 +6,7 @@ import com.worldcretornica.plotme_core.api.ICommandSender;
 import com.worldcretornica.plotme_core.api.IEntity;
 import com.worldcretornica.plotme_core.api.IOfflinePlayer;
 import com.worldcretornica.plotme_core.api.IPlayer;
+import com.worldcretornica.plotme_core.api.IPlotMe_ExtendedGeneratorManager;
 import com.worldcretornica.plotme_core.api.IPlotMe_GeneratorManager;
 import com.worldcretornica.plotme_core.api.IWorld;
 import com.worldcretornica.plotme_core.api.Location;
@@ -13,10 +14,14 @@ import com.worldcretornica.plotme_core.api.Vector;
 import com.worldcretornica.plotme_core.api.event.PlotLoadEvent;
 
 import java.sql.Date;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 
@@ -45,6 +50,26 @@ public class PlotMeCoreManager {
         plugin = instance;
     }
 
+    /**
+     * Reads the metadata a plugin keeps on a plot from the storage, for {@link Plot#getMetadata(String)}.
+     */
+    PlotMetadata loadMetadata(Plot plot, String pluginname) {
+        if (plugin == null || plugin.getSqlManager() == null) {
+            return new PlotMetadata(pluginname);
+        }
+        return plugin.getSqlManager().loadMetadata(plot, pluginname);
+    }
+
+    /**
+     * Reads the metadata of every plugin on a plot from the storage, for {@link Plot#getAllPlotProperties()}.
+     */
+    Map<String, HashMap<String, Object>> loadAllMetadata(Plot plot) {
+        if (plugin == null || plugin.getSqlManager() == null) {
+            return new HashMap<>();
+        }
+        return plugin.getSqlManager().getStorage().loadAllMetadata(plot);
+    }
+
     /**
      * Removes the plot from the plotmap
      * @param plot plot id
@@ -55,18 +80,44 @@ public class PlotMeCoreManager {
         return plugin.getSqlManager().deletePlot(plot);
     }
 
+    /**
+     * Removes a plot from the plotmap that is added again under another id, keeping its metadata
+     * @param plot the plot
+     */
+    private void deletePlotToMove(Plot plot) {
+        removeSellSign(plot);
+        removeOwnerSign(plot);
+        plugin.getSqlManager().deletePlotToMove(plot);
+    }
+
+    /**
+     * Removes several plots of a world from the plotmap, removing their signs in one go
+     * @param world plotworld
+     * @param plots plots to remove
+     */
+    public void deletePlots(IWorld world, Collection<Plot> plots) {
+        List<PlotId> ids = new ArrayList<>(plots.size());
+        for (Plot plot : plots) {
+            ids.add(plot.getId());
+        }
+        IPlotMe_ExtendedGeneratorManager genManager = getExtendedGenManager(world);
+        genManager.removeSellerDisplays(ids);
+        genManager.removeOwnerDisplays(ids);
+        for (Plot plot : plots) {
+            plugin.getSignUpdateService().forget(plot);
+            plugin.getSqlManager().deletePlot(plot);
+        }
+    }
+
     /**
      * Sets the sign for the plot owner
      *
      * @param plot  plot to set sign on
      */
     public void setOwnerSign(Plot plot) {
-        PlotId id = plot.getId();
-        String line1 = "ID: " + id.toString();
-        String line2 = "";
-        String line3 = plot.getOwner();
-        String line4 = "";
-        getGenManager(plot.getWorld()).setOwnerDisplay(id, line1, line2, line3, line4);
+        String[] lines = plugin.getSignUpdateService().getOwnerSignLines(plot);
+        getExtendedGenManager(plot.getWorld()).setOwnerDisplay(plot.getId(), lines[0], lines[1], lines[2], lines[3]);
+        plugin.getSignUpdateService().written(plot, lines);
     }
 
     /**
@@ -76,10 +127,10 @@ public class PlotMeCoreManager {
      * @return Plot ID or an empty string if not found
      */
     public PlotId getPlotId(Location location) {
-        if (getGenManager(location.getWorld()) == null) {
+        if (getExtendedGenManager(location.getWorld()) == null) {
             return null;
         }
-        return getGenManager(location.getWorld()).getPlotId(location.getVector());
+        return getExtendedGenManager(location.getWorld()).getPlotId(location.getVector());
 
     }
 
@@ -90,11 +141,40 @@ public class PlotMeCoreManager {
      * @return Plot ID or an empty string if not found
      */
     public PlotId getPlotId(IPlayer player) {
-        if (getGenManager(player.getWorld()) == null) {
+        if (getExtendedGenManager(player.getWorld()) == null) {
             return null;
         }
-        return getGenManager(player.getWorld()).getPlotId(player);
+        return getExtendedGenManager(player.getWorld()).getPlotId(player);
+
+    }
+
+    /**
+     * Get the plot at a block coordinate without creating any objects
+     *
+     * @param world plotworld
+     * @param x block x
+     * @param z block z
+     * @return packed plot key (see {@link PlotId#toKey(int, int)}) or {@link PlotId#NONE} if the block is not in a plot
+     */
+    public long getPlotKey(IWorld world, int x, int z) {
+        IPlotMe_ExtendedGeneratorManager genManager = getExtendedGenManager(world);
+        if (genManager == null) {
+            return PlotId.NONE;
+        }
+        return genManager.plotIdAt(x, z);
+    }
 
+    /**
+     * Get the block bounds of a plot
+     *
+     * @param world plotworld
+     * @param key packed plot key
+     * @return minimum x, minimum z, maximum x and maximum z of the plot, in that order
+     */
+    public int[] getPlotBounds(IWorld world, long key) {
+        int[] bounds = new int[4];
+        getExtendedGenManager(world).getPlotBounds(key, bounds, 0);
+        return bounds;
     }
 
     /**
@@ -102,7 +182,8 @@ public class PlotMeCoreManager {
      * @param plot    plot to remove the sign from
      */
     public void removeOwnerSign(Plot plot) {
-        getGenManager(plot.getWorld()).removeOwnerDisplay(plot.getId());
+        getExtendedGenManager(plot.getWorld()).removeOwnerDisplay(plot.getId());
+        plugin.getSignUpdateService().forget(plot);
     }
 
     /**
@@ -110,7 +191,7 @@ public class PlotMeCoreManager {
      * @param plot    plot id to remove the sign from
      */
     public void removeSellSign(Plot plot) {
-        getGenManager(plot.getWorld()).removeSellerDisplay(plot.getId());
+        getExtendedGenManager(plot.getWorld()).removeSellerDisplay(plot.getId());
     }
 
     /**
@@ -123,7 +204,25 @@ public class PlotMeCoreManager {
         String line2 = plugin.C("SignPrice", plot.getPrice());
         String line4 = "/plotme buy";
 
-        getGenManager(plot.getWorld()).setSellerDisplay(plot.getId(), line1, line2, "", line4);
+        getExtendedGenManager(plot.getWorld()).setSellerDisplay(plot.getId(), line1, line2, "", line4);
+    }
+
+    /**
+     * Gets the cached bounds, middle and home of a plot
+     *
+     * @param world plotworld
+     * @param id plot id
+     * @return the geometry of the plot, or null if the world isn't a plotworld
+     */
+    public PlotGeometry getGeometry(IWorld world, PlotId id) {
+        if (plugin == null || world == null) {
+            return null;
+        }
+        PlotGeometryCache cache = plugin.getGeometryCache(world);
+        if (cache == null) {
+            return null;
+        }
+        return cache.get(id);
     }
 
     /**
@@ -135,7 +234,7 @@ public class PlotMeCoreManager {
      */
     @Deprecated
     public Vector getPlotBottomLoc(IWorld world, PlotId id) {
-        return getGenManager(world).getPlotBottomLoc(id);
+        return getGeometry(world, id).getBottom();
     }
 
     /**
@@ -147,7 +246,7 @@ public class PlotMeCoreManager {
      */
     @Deprecated
     public Vector getPlotTopLoc(IWorld world, PlotId id) {
-        return getGenManager(world).getPlotTopLoc(id);
+        return getGeometry(world, id).getTop();
     }
 
     /**
@@ -159,7 +258,7 @@ public class PlotMeCoreManager {
      */
     @Deprecated
     public int bottomX(PlotId id, IWorld world) {
-        return getGenManager(world).bottomX(id);
+        return getGeometry(world, id).getBottomX();
     }
 
     /**
@@ -171,7 +270,7 @@ public class PlotMeCoreManager {
      */
     @Deprecated
     public int topX(PlotId id, IWorld world) {
-        return getGenManager(world).topX(id);
+        return getGeometry(world, id).getTopX();
     }
 
     /**
@@ -183,7 +282,7 @@ public class PlotMeCoreManager {
      */
     @Deprecated
     public int bottomZ(PlotId id, IWorld world) {
-        return getGenManager(world).bottomZ(id);
+        return getGeometry(world, id).getBottomZ();
     }
 
     /**
@@ -195,7 +294,7 @@ public class PlotMeCoreManager {
      */
     @Deprecated
     public int topZ(PlotId id, IWorld world) {
-        return getGenManager(world).topZ(id);
+        return getGeometry(world, id).getTopZ();
     }
 
     /**
@@ -217,13 +316,23 @@ public class PlotMeCoreManager {
      * @return a list of players in the plot
      */
     public List<IPlayer> getPlayersInPlot(PlotId id, IWorld world) {
-        return getGenManager(world).getPlayersInPlot(id);
+        return getExtendedGenManager(world).getPlayersInPlot(id);
     }
 
     public IPlotMe_GeneratorManager getGenManager(IWorld world) {
         return plugin.getGenManager(world);
     }
 
+    /**
+     * Gets the generator manager of a plotworld with block coordinate lookups.
+     *
+     * @param world plotworld
+     * @return the generator manager, or null if the world is not a plotworld
+     */
+    public IPlotMe_ExtendedGeneratorManager getExtendedGenManager(IWorld world) {
+        return plugin.getExtendedGenManager(world);
+    }
+
     /**
      * Get the number of plots the player owns
      *
@@ -435,7 +544,7 @@ public class PlotMeCoreManager {
      */
     public Plot createPlot(PlotId id, IWorld world, String owner, UUID uuid, PlotMapInfo pmi) {
 
-        Plot plot = new Plot(owner, uuid, world, id, this.getPlotTopLoc(world, id), this.getPlotBottomLoc(world, id));
+        Plot plot = new Plot(owner, uuid, world, getGeometry(world, id));
         if (pmi.getDaysToExpiration() == 0) {
             plot.setExpiredDate(null);
         } else {
@@ -464,18 +573,19 @@ public class PlotMeCoreManager {
      * @return true if successful, false otherwise
      */
     public boolean movePlot(IWorld world, PlotId idFrom, PlotId idTo) {
-
-        if (!getGenManager(world).movePlot(idFrom, idTo)) {
+        IPlotMe_ExtendedGeneratorManager genManager = getExtendedGenManager(world);
+        if (!genManager.movePlot(idFrom, idTo)) {
             return false;
         }
+        genManager.refreshPlotChunks(Arrays.asList(idFrom, idTo));
 
         Plot plotFrom = getPlotById(idFrom, world);
         Plot plotTo = getPlotById(idTo, world);
 
         if (plotFrom != null) {
             if (plotTo != null) {
-                deletePlot(plotFrom);
-                deletePlot(plotTo);
+                deletePlotToMove(plotFrom);
+                deletePlotToMove(plotTo);
                 plotTo.setId(idFrom);
                 plugin.getSqlManager().addPlot(plotTo);
                 loadPlot(plotTo);
@@ -500,7 +610,7 @@ public class PlotMeCoreManager {
      * Move a plot to an spot where there is no plot existing.
      */
     private void movePlotToEmpty(Plot filledPlot, PlotId idDestination) {
-        deletePlot(filledPlot);
+        deletePlotToMove(filledPlot);
 
         filledPlot.setId(idDestination);
         plugin.getSqlManager().addPlot(filledPlot);
@@ -542,7 +652,7 @@ public class PlotMeCoreManager {
         if (plugin.getServerBridge().isUsingLwc()) {
             removeLWC(plot);
         }
-        getGenManager(plot.getWorld()).clearEntities(plot.getPlotBottomLoc(), plot.getPlotTopLoc());
+        getExtendedGenManager(plot.getWorld()).clearEntities(plot.getPlotBottomLoc(), plot.getPlotTopLoc());
         if (reason.equals(ClearReason.Clear)) {
             adjustWall(plot, true);
         } else {
@@ -551,6 +661,28 @@ public class PlotMeCoreManager {
         plugin.addPlotToClear(plot, reason, sender);
     }
 
+    /**
+     * Clears several plots of a world, updating their walls in one go
+     * @param world plotworld
+     * @param plots plots to be cleared
+     * @param sender the sender of the command
+     * @param reason The reason they will be cleared. The cause can be: EXPIRED, RESET, CLEAR
+     */
+    public void clear(IWorld world, Collection<Plot> plots, ICommandSender sender, ClearReason reason) {
+        IPlotMe_ExtendedGeneratorManager genManager = getExtendedGenManager(world);
+        boolean usingLwc = plugin.getServerBridge().isUsingLwc();
+        for (Plot plot : plots) {
+            if (usingLwc) {
+                removeLWC(plot);
+            }
+            genManager.clearEntities(plot.getPlotBottomLoc(), plot.getPlotTopLoc());
+        }
+        genManager.adjustPlotsFor(plots, reason.equals(ClearReason.Clear));
+        for (Plot plot : plots) {
+            plugin.addPlotToClear(plot, reason, sender);
+        }
+    }
+
     /**
      * Checks if the plot is claimed or not
      *
@@ -559,22 +691,11 @@ public class PlotMeCoreManager {
      * @return true if the plot is unclaimed, false otherwise
      */
     public boolean isPlotAvailable(PlotId id, IWorld world) {
-        for (Plot plot : plugin.getSqlManager().getPlots()) {
-            if (plot.getId().equals(id) && plot.getWorld().equals(world)) {
-                return false;
-            }
-        }
-        if (getPlotTopLoc(world, id).getX() > world.getWorldBorder().minX()) {
-            if (getPlotBottomLoc(world, id).getX() < world.getWorldBorder().maxX()) {
-                if (getPlotTopLoc(world, id).getZ() > world.getWorldBorder().minZ()) {
-                    if (getPlotBottomLoc(world, id).getZ() < world.getWorldBorder().maxZ()) {
-                        return true;
-                    }
-                }
-            }
+        if (getPlotById(id, world) != null) {
+            return false;
         }
-
-        return false;
+        PlotGeometryCache cache = plugin.getGeometryCache(world);
+        return cache != null && cache.isInsideBorder(id);
     }
 
     /**
@@ -587,7 +708,7 @@ public class PlotMeCoreManager {
         if (plot == null) {
             player.sendMessage(plugin.C("NoPlotFound"));
         } else {
-            getGenManager(player.getWorld()).adjustPlotFor(plot, true, plot.isProtected(), plot.isForSale());
+            getExtendedGenManager(player.getWorld()).adjustPlotFor(plot, true, plot.isProtected(), plot.isForSale());
         }
     }
 
@@ -597,11 +718,11 @@ public class PlotMeCoreManager {
      * @param claimed is the plot claimed
      */
     public void adjustWall(Plot plot, boolean claimed) {
-        getGenManager(plot.getWorld()).adjustPlotFor(plot, claimed, plot.isProtected(), plot.isForSale());
+        getExtendedGenManager(plot.getWorld()).adjustPlotFor(plot, claimed, plot.isProtected(), plot.isForSale());
     }
 
     public void setBiome(Plot plot) {
-        getGenManager(plot.getWorld()).setBiome(plot.getId(), plot.getBiome());
+        getExtendedGenManager(plot.getWorld()).setBiome(plot.getId(), plot.getBiome());
     }
 
 
@@ -668,13 +789,50 @@ public class PlotMeCoreManager {
      * @return location as an ILocation
      */
     public Vector getPlotMiddle(IWorld world, PlotId id) {
-        return getGenManager(world).getPlotMiddle(id);
+        return getGeometry(world, id).getMiddle();
     }
 
+    /**
+     * Records the name of a player and, if the player is new or changed their name, brings the owner name and owner sign of their
+     * plots up to date. The plots are looked up in the background; the plots whose owner name is out of date are then saved on the
+     * main thread. Signs are written by the {@link SignUpdateService}, and only if their text changed.
+     *
+     * @param uuid player UUID
+     * @param name current name of the player
+     */
     public void UpdatePlayerNameFromId(final UUID uuid, final String name) {
-        for (final Plot plot : plugin.getSqlManager().getPlayerPlots(uuid)) {
-            setOwnerSign(plot);
+        if (!plugin.getNameCache().seen(uuid, name)) {
+            return;
         }
+        plugin.getServerBridge().runTaskAsynchronously(new Runnable() {
+            @Override
+            public void run() {
+                final List<Plot> owned = plugin.getSqlManager().findPlayerPlots(uuid);
+                if (owned.isEmpty()) {
+                    return;
+                }
+                plugin.getServerBridge().runTask(new Runnable() {
+                    @Override
+                    public void run() {
+                        SignUpdateService signs = plugin.getSignUpdateService();
+                        for (Plot found : owned) {
+                            Plot plot = plugin.getSqlManager().getLoadedPlot(found.getId(), found.getWorld());
+                            if (plot == null) {
+                                plot = found;
+                            }
+                            if (!uuid.equals(plot.getOwnerId())) {
+                                continue;
+                            }
+                            if (!name.equals(plot.getOwner())) {
+                                plot.setOwner(name);
+                                plugin.getSqlManager().savePlot(plot);
+                            }
+                            signs.request(plot);
+                        }
+                    }
+                });
+            }
+        });
     }
 
 
@@ -1,14 +1,31 @@
 package com.worldcretornica.plotme_core;
 
+import com.worldcretornica.plotme_core.api.IPlotMe_ExtendedGeneratorManager;
 import com.worldcretornica.plotme_core.api.IPlotMe_GeneratorManager;
+import com.worldcretornica.plotme_core.api.IWorld;
 import com.worldcretornica.plotme_core.utils.ClearEntry;
 
 import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
 
+/**
+ * Clears the queued plots one chunk per run. The chunks of cleared plots are sent to the players once the
+ * queue holds no more plots of their world, through {@link IPlotMe_ExtendedGeneratorManager#refreshPlotChunks},
+ * so chunks shared by plots cleared together are only sent once.
+ */
 public class PlotMeSpool implements Runnable {
 
     public static ArrayDeque<ClearEntry> clearList = new ArrayDeque<>();
     private final PlotMe_Core plugin;
+    /**
+     * The world of the plots in {@link #cleared}.
+     */
+    private IWorld clearedWorld;
+    /**
+     * Plots that were cleared but whose chunks weren't refreshed yet.
+     */
+    private final List<PlotId> cleared = new ArrayList<>();
 
 
     public PlotMeSpool(PlotMe_Core plotMe_core) {
@@ -18,6 +35,7 @@ public class PlotMeSpool implements Runnable {
     @Override
     public void run() {
         if (clearList.isEmpty()) {
+            refreshCleared();
             return;
         }
         ClearEntry first = clearList.getFirst();
@@ -30,6 +48,11 @@ public class PlotMeSpool implements Runnable {
                 genmanager.adjustPlotFor(first.getPlot(), false, false, false);
             }
             clearList.removeFirst();
+            if (!first.getPlot().getWorld().equals(clearedWorld)) {
+                refreshCleared();
+                clearedWorld = first.getPlot().getWorld();
+            }
+            cleared.add(first.getPlot().getId());
             if (first.getSender() != null) {
                 first.getSender().sendMessage(plugin.C("WordPlot") + " " + first.getPlot().getId().getID() + " " + plugin.C("WordCleared"));
             }
@@ -40,5 +63,17 @@ public class PlotMeSpool implements Runnable {
 
     }
 
+    private void refreshCleared() {
+        if (cleared.isEmpty()) {
+            return;
+        }
+        IPlotMe_ExtendedGeneratorManager genManager = PlotMeCoreManager.getInstance().getExtendedGenManager(clearedWorld);
+        if (genManager != null) {
+            genManager.refreshPlotChunks(cleared);
+        }
+        cleared.clear();
+        clearedWorld = null;
+    }
+
 
-}
\ No newline at end of file
+}
@@ -2,21 +2,27 @@ package com.worldcretornica.plotme_core;
 
 import com.worldcretornica.configuration.ConfigAccessor;
 import com.worldcretornica.plotme_core.api.ICommandSender;
+import com.worldcretornica.plotme_core.api.IPlotMe_ExtendedGeneratorManager;
 import com.worldcretornica.plotme_core.api.IPlotMe_GeneratorManager;
 import com.worldcretornica.plotme_core.api.IServerBridge;
 import com.worldcretornica.plotme_core.api.IWorld;
 import com.worldcretornica.plotme_core.api.event.eventbus.EventBus;
 import com.worldcretornica.plotme_core.bukkit.SchematicUtil;
 import com.worldcretornica.plotme_core.storage.Database;
+import com.worldcretornica.plotme_core.storage.FilePlotStorage;
+import com.worldcretornica.plotme_core.storage.JournalPlotStorage;
+import com.worldcretornica.plotme_core.storage.MemoryPlotStorage;
 import com.worldcretornica.plotme_core.storage.MySQLConnector;
+import com.worldcretornica.plotme_core.storage.PlotStorage;
 import com.worldcretornica.plotme_core.storage.SQLiteConnector;
 import com.worldcretornica.plotme_core.utils.ClearEntry;
+import com.worldcretornica.plotme_core.utils.WorldTable;
 import org.bukkit.ChatColor;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.configuration.file.YamlConfiguration;
 
+import java.io.File;
 import java.text.MessageFormat;
-import java.util.HashMap;
 import java.util.MissingResourceException;
 import java.util.ResourceBundle;
 import java.util.logging.Level;
@@ -25,7 +31,15 @@ import java.util.logging.Logger;
 public class PlotMe_Core {
 
     private final AbstractSchematicUtil schematicutil = new SchematicUtil(this);
-    private final HashMap<IWorld, IPlotMe_GeneratorManager> managers = new HashMap<>();
+    private final WorldTable<IPlotMe_GeneratorManager> managers = new WorldTable<>();
+    /**
+     * The generator managers, adapted to the extended interface if they don't implement it.
+     */
+    private final WorldTable<IPlotMe_ExtendedGeneratorManager> adaptedManagers = new WorldTable<>();
+    private final WorldTable<PlotGeometryCache> geometries = new WorldTable<>();
+    private final SignUpdateService signUpdateService = new SignUpdateService(this);
+    private final NameCache nameCache = new NameCache(this);
+    private ProfileResolver profileResolver;
     //Spool stuff
     //private final ConcurrentLinkedQueue<PlotToClear> plotsToClear = new ConcurrentLinkedQueue<>();
     private final EventBus eventBus = new EventBus();
@@ -45,6 +59,53 @@ public class PlotMe_Core {
         return managers.get(world);
     }
 
+    /**
+     * Gets the generator manager of a plotworld with block coordinate lookups. Generators that only implement
+     * {@link IPlotMe_GeneratorManager} are adapted.
+     *
+     * @param world plotworld
+     * @return the generator manager, or null if the world is not a plotworld
+     */
+    public IPlotMe_ExtendedGeneratorManager getExtendedGenManager(IWorld world) {
+        return adaptedManagers.get(world);
+    }
+
+    /**
+     * Gets the plot layout of a plotworld.
+     *
+     * @param world plotworld
+     * @return the layout, or null if the generator of the world does not place its plots on a regular grid
+     */
+    public PlotGrid getPlotGrid(IWorld world) {
+        IPlotMe_ExtendedGeneratorManager manager = adaptedManagers.get(world);
+        if (manager instanceof GeneratorManagerAdapter) {
+            return ((GeneratorManagerAdapter) manager).getGrid();
+        }
+        return null;
+    }
+
+    /**
+     * Gets the plot geometry cache of a plotworld.
+     *
+     * @param world plotworld
+     * @return the geometry cache, or null if the world isn't a plotworld
+     */
+    public PlotGeometryCache getGeometryCache(IWorld world) {
+        return geometries.get(world);
+    }
+
+    public SignUpdateService getSignUpdateService() {
+        return signUpdateService;
+    }
+
+    public NameCache getNameCache() {
+        return nameCache;
+    }
+
+    public ProfileResolver getProfileResolver() {
+        return profileResolver;
+    }
+
     public AbstractSchematicUtil getSchematicUtil() {
         return this.schematicutil;
     }
@@ -59,6 +120,13 @@ public class PlotMe_Core {
         setWorldCurrentlyProcessingExpired(null);
         //plotsToClear.clear();
         managers.clear();
+        adaptedManagers.clear();
+        geometries.clear();
+        signUpdateService.clear();
+        if (profileResolver != null) {
+            profileResolver.shutdown();
+            profileResolver = null;
+        }
     }
 
     public void enable() {
@@ -66,21 +134,47 @@ public class PlotMe_Core {
         configFile = new ConfigAccessor(getServerBridge().getDataFolder(), "config.yml");
         setupConfigFiles();
         setupSQL();
+        nameCache.loadAsynchronously();
+        setupProfileResolver();
         serverBridge.setupHooks();
         serverBridge.runTaskTimer(new PlotMeSpool(this), 15, 15);
+        serverBridge.runTaskTimer(signUpdateService, 1, 1);
+        int snapshotMinutes = getConfig().getInt("CacheSnapshotMinutes", 10);
+        if (snapshotMinutes > 0) {
+            serverBridge.runTaskTimer(new Runnable() {
+                @Override
+                public void run() {
+                    getSqlManager().writeSnapshots();
+                }
+            }, 20L * 60 * snapshotMinutes, 20L * 60 * snapshotMinutes);
+        }
+        if (getConfig().getBoolean("LazyPlotLoading", false)) {
+            serverBridge.runTaskTimer(new Runnable() {
+                @Override
+                public void run() {
+                    getSqlManager().evictPlots();
+                }
+            }, 20L * 30, 20L * 30);
+        }
         if (getConfig().getBoolean("ExpirePlotCleanup")) {
             //20L * 60 = 1 minute in ticks
             serverBridge
                     .runTaskTimerAsynchronously(new PlotExpireCleanup(this), 20L * 60 * 30, 20L * 60 * getConfig().getInt("ExpirePlotCleanupTimer"));
         }
-        //getSqlManager().plotConvertToUUIDAsynchronously();
+        //Convert the player names left from before UUIDs, then copy the plots to the v2 tables, once the plotworlds are loaded
+        getSqlManager().startBackgroundMigrations();
     }
 
     public void reload() {
         getSqlManager().closeConnection();
+        if (profileResolver != null) {
+            profileResolver.shutdown();
+        }
         setupConfigFiles();
         configFile.reloadFile();
         setupSQL();
+        nameCache.loadAsynchronously();
+        setupProfileResolver();
         PlotMeCoreManager.getInstance().getPlotMaps().clear();
 
         for (IWorld world : managers.keySet()) {
@@ -125,30 +219,69 @@ public class PlotMe_Core {
         getSqlManager().loadPlotsAsynchronously(world);
     }
 
+    private void setupProfileResolver() {
+        FileConfiguration config = getConfig();
+        profileResolver = new ProfileResolver(nameCache, getLogger(),
+                config.getString("ProfileNamesURL", ProfileResolver.DEFAULT_NAMES_URL),
+                config.getString("ProfileURL", ProfileResolver.DEFAULT_PROFILE_URL),
+                config.getDouble("ProfileRequestsPerSecond", 5),
+                Math.max(1, config.getInt("ProfileRequestThreads", 2)),
+                config.getInt("ProfileRequestRetries", 3));
+    }
+
     /**
      * Setup SQL Database
      */
     private void setupSQL() {
         FileConfiguration config = getConfig();
-        if (config.getBoolean("usemySQL", false)) {
-            String url = config.getString("mySQLconn");
-            String user = config.getString("mySQLuname");
-            String pass = config.getString("mySQLpass");
-            setSqlManager(new MySQLConnector(this, url, user, pass));
-        } else {
-            setSqlManager(new SQLiteConnector(this));
+        String type = config.getString("Storage", config.getBoolean("usemySQL", false) ? "mysql" : "sqlite").toLowerCase();
+        PlotStorage storage;
+        switch (type) {
+            case "mysql":
+                String url = config.getString("mySQLconn");
+                String user = config.getString("mySQLuname");
+                String pass = config.getString("mySQLpass");
+                storage = new MySQLConnector(this, url, user, pass);
+                break;
+            case "file":
+                storage = new FilePlotStorage(getLogger(), new File(getServerBridge().getDataFolder(), "plots"));
+                break;
+            case "journal":
+                storage = new JournalPlotStorage(getLogger(), new File(getServerBridge().getDataFolder(), "journal"),
+                        config.getLong("JournalSyncMillis", 200), config.getLong("JournalCompactionBytes", 16L * 1024 * 1024));
+                break;
+            case "memory":
+                getLogger().warning("Plots are kept in memory only and will be lost when the server stops");
+                storage = new MemoryPlotStorage(getLogger());
+                break;
+            default:
+                if (!"sqlite".equals(type)) {
+                    getLogger().warning("Unknown storage type " + type + ", using sqlite");
+                }
+                storage = new SQLiteConnector(this);
+                break;
         }
+        setSqlManager(new Database(this, storage));
     }
 
     /**
      * The point where the generator activates PlotMe
      */
     public void addManager(IWorld world, IPlotMe_GeneratorManager manager) {
+        IPlotMe_ExtendedGeneratorManager adapted = GeneratorManagerAdapter.adapt(world, manager);
+        if (adapted instanceof GeneratorManagerAdapter && ((GeneratorManagerAdapter) adapted).getGrid() == null) {
+            getLogger().warning("The generator of " + world.getName() + " does not use a regular plot layout, block lookups will be slower");
+        }
         managers.put(world, manager);
+        adaptedManagers.put(world, adapted);
+        geometries.put(world, new PlotGeometryCache(world, adapted));
         setupWorld(world);
     }
 
     public IPlotMe_GeneratorManager removeManager(IWorld world) {
+        geometries.remove(world);
+        signUpdateService.forget(world);
+        adaptedManagers.remove(world);
         return managers.remove(world);
     }
 
@@ -197,16 +330,44 @@ public class PlotMe_Core {
         }
     }
 
+    /**
+     * Checks if a plot with this id is queued to be cleared in any world.
+     *
+     * @deprecated a lock only applies to the plot in one world, use {@link #isPlotLocked(IWorld, PlotId)}
+     */
+    @Deprecated
     public boolean isPlotLocked(PlotId id) {
+        for (ClearEntry clearEntry : PlotMeSpool.clearList) {
+            if (clearEntry.getPlot().getId().equals(id)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean isPlotLocked(IWorld world, PlotId id) {
+        return isPlotLocked(world, id.getX(), id.getZ());
+    }
+
+    /**
+     * Checks if a plot is queued to be cleared.
+     *
+     * @param world plotworld
+     * @param idX plot id x
+     * @param idZ plot id z
+     * @return true if the plot is waiting in the clear queue
+     */
+    public boolean isPlotLocked(IWorld world, int idX, int idZ) {
         if (PlotMeSpool.clearList.isEmpty()) {
             return false;
-        } else {
-            for (ClearEntry clearEntry : PlotMeSpool.clearList) {
-                clearEntry.getPlot().getId().equals(id);
+        }
+        for (ClearEntry clearEntry : PlotMeSpool.clearList) {
+            Plot plot = clearEntry.getPlot();
+            PlotId id = plot.getId();
+            if (id.getX() == idX && id.getZ() == idZ && plot.getWorld().equals(world)) {
+                return true;
             }
-
         }
-
         return false;
     }
 
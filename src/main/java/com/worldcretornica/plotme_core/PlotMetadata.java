@@ -0,0 +1,296 @@
+package com.worldcretornica.plotme_core;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.primitives.Ints;
+import com.google.common.primitives.Longs;
+import com.worldcretornica.plotme_core.utils.StringPool;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The metadata one plugin keeps on one plot. Get it through {@link Plot#getMetadata(String)}, which reads
+ * it from the storage the first time a plugin asks for it.
+ *
+ * <p>Values are ints, longs, strings of up to 255 characters or byte arrays. The keys that changed since the
+ * last save are tracked, so saving a plot only writes those. Call
+ * {@link com.worldcretornica.plotme_core.storage.Database#saveMetadata(Plot)} to save the metadata without
+ * the rest of the plot.</p>
+ */
+public final class PlotMetadata {
+
+    /**
+     * Longest string value that can be stored.
+     */
+    public static final int MAX_STRING_LENGTH = 255;
+
+    private final String namespace;
+    private final HashMap<String, Object> values;
+    /**
+     * Keys changed since the last save, or null if there are none.
+     */
+    private HashSet<String> changed;
+
+    /**
+     * Creates metadata without any values.
+     *
+     * @param namespace name of the plugin the metadata belongs to
+     */
+    public PlotMetadata(String namespace) {
+        this(namespace, new HashMap<String, Object>(4));
+    }
+
+    /**
+     * Creates metadata read from the storage. The map is taken over, so the caller must not change it
+     * afterwards.
+     *
+     * @param namespace name of the plugin the metadata belongs to
+     * @param values values by key, each an Integer, Long, String or byte[]
+     */
+    public PlotMetadata(String namespace, HashMap<String, Object> values) {
+        this.namespace = StringPool.intern(namespace);
+        this.values = values;
+    }
+
+    public String getNamespace() {
+        return namespace;
+    }
+
+    public synchronized boolean contains(String key) {
+        return values.containsKey(key);
+    }
+
+    /**
+     * Gets the type of a value.
+     *
+     * @return the type, or null if there is no value for the key
+     */
+    public synchronized Type getType(String key) {
+        Object value = values.get(key);
+        return value == null ? null : Type.of(value);
+    }
+
+    /**
+     * Gets a value as an int. Strings that hold a number, like the ones written by older versions, are
+     * read too.
+     *
+     * @return the value, or the default if there is none or it isn't a number
+     */
+    public synchronized int getInt(String key, int defaultValue) {
+        Object value = values.get(key);
+        if (value instanceof Number) {
+            return ((Number) value).intValue();
+        }
+        Integer parsed = value instanceof String ? Ints.tryParse((String) value) : null;
+        return parsed == null ? defaultValue : parsed;
+    }
+
+    /**
+     * Gets a value as a long. Strings that hold a number are read too.
+     *
+     * @return the value, or the default if there is none or it isn't a number
+     */
+    public synchronized long getLong(String key, long defaultValue) {
+        Object value = values.get(key);
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        Long parsed = value instanceof String ? Longs.tryParse((String) value) : null;
+        return parsed == null ? defaultValue : parsed;
+    }
+
+    /**
+     * Gets a value as a string. Numbers are written out.
+     *
+     * @return the value, or null if there is none or it is a byte array
+     */
+    public synchronized String getString(String key) {
+        Object value = values.get(key);
+        if (value instanceof String || value instanceof Number) {
+            return value.toString();
+        }
+        return null;
+    }
+
+    /**
+     * Gets a byte array value.
+     *
+     * @return a copy of the value, or null if there is none or it isn't a byte array
+     */
+    public synchronized byte[] getBytes(String key) {
+        Object value = values.get(key);
+        return value instanceof byte[] ? ((byte[]) value).clone() : null;
+    }
+
+    public synchronized void setInt(String key, int value) {
+        put(key, value);
+    }
+
+    public synchronized void setLong(String key, long value) {
+        put(key, value);
+    }
+
+    /**
+     * @param value the value, or null to remove it
+     */
+    public synchronized void setString(String key, String value) {
+        Preconditions.checkArgument(value == null || value.length() <= MAX_STRING_LENGTH, "value longer than %s characters", MAX_STRING_LENGTH);
+        put(key, value);
+    }
+
+    /**
+     * @param value the value, or null to remove it. The array is copied.
+     */
+    public synchronized void setBytes(String key, byte[] value) {
+        put(key, value == null ? null : value.clone());
+    }
+
+    /**
+     * Removes a value.
+     *
+     * @return true if there was a value for the key
+     */
+    public synchronized boolean remove(String key) {
+        boolean removed = values.containsKey(key);
+        put(key, null);
+        return removed;
+    }
+
+    /**
+     * Gets a value the way it is stored. Byte arrays are not copied and must not be changed.
+     *
+     * @return an Integer, Long, String or byte[], or null if there is no value for the key
+     */
+    public synchronized Object getValue(String key) {
+        return values.get(key);
+    }
+
+    /**
+     * @return the keys that have a value. unmodifiable.
+     */
+    public synchronized Set<String> getKeys() {
+        return ImmutableSet.copyOf(values.keySet());
+    }
+
+    /**
+     * Gets all values, for the storages. Byte arrays are not copied and must not be changed.
+     *
+     * @return a copy of the values by key
+     */
+    public synchronized Map<String, Object> getValues() {
+        return new HashMap<>(values);
+    }
+
+    /**
+     * Checks if values changed since the last save.
+     */
+    public synchronized boolean isChanged() {
+        return changed != null;
+    }
+
+    /**
+     * Gets the values that changed since the last save and forgets that they changed. Called by the
+     * storages while saving.
+     *
+     * @return the changed values by key, with null for removed values
+     */
+    public synchronized Map<String, Object> takeChanges() {
+        if (changed == null) {
+            return new HashMap<>();
+        }
+        HashMap<String, Object> changes = new HashMap<>(changed.size() * 2);
+        for (String key : changed) {
+            changes.put(key, values.get(key));
+        }
+        changed = null;
+        return changes;
+    }
+
+    /**
+     * Marks every value as changed, so the next save writes all of them.
+     */
+    public synchronized void markChanged() {
+        if (!values.isEmpty()) {
+            changed = new HashSet<>(values.keySet());
+        }
+    }
+
+    private void put(String key, Object value) {
+        Preconditions.checkNotNull(key, "key");
+        Object previous = value == null ? values.remove(key) : values.put(StringPool.intern(key), value);
+        if (equal(previous, value)) {
+            return;
+        }
+        if (changed == null) {
+            changed = new HashSet<>(4);
+        }
+        changed.add(StringPool.intern(key));
+    }
+
+    private static boolean equal(Object a, Object b) {
+        if (a instanceof byte[] && b instanceof byte[]) {
+            return Arrays.equals((byte[]) a, (byte[]) b);
+        }
+        return a == null ? b == null : a.equals(b);
+    }
+
+    @Override
+    public synchronized String toString() {
+        return namespace + values.keySet();
+    }
+
+    /**
+     * The types of values, with the codes the storages write for them.
+     */
+    public enum Type {
+        STRING(0),
+        INT(1),
+        LONG(2),
+        BLOB(3);
+
+        private final int code;
+
+        Type(int code) {
+            this.code = code;
+        }
+
+        public static Type getType(int code) {
+            switch (code) {
+                case 1:
+                    return INT;
+                case 2:
+                    return LONG;
+                case 3:
+                    return BLOB;
+                default:
+                    return STRING;
+            }
+        }
+
+        /**
+         * Gets the type of a value.
+         *
+         * @param value an Integer, Long, String or byte[]
+         */
+        public static Type of(Object value) {
+            if (value instanceof Integer) {
+                return INT;
+            }
+            if (value instanceof Long) {
+                return LONG;
+            }
+            if (value instanceof byte[]) {
+                return BLOB;
+            }
+            return STRING;
+        }
+
+        public int getCode() {
+            return code;
+        }
+    }
+}
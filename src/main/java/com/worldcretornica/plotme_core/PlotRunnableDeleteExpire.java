@@ -5,6 +5,7 @@ import com.worldcretornica.plotme_core.api.IWorld;
 import com.worldcretornica.plotme_core.api.event.PlotResetEvent;
 import com.worldcretornica.plotme_core.storage.Database;
 
+import java.util.ArrayList;
 import java.util.List;
 
 public class PlotRunnableDeleteExpire implements Runnable {
@@ -29,19 +30,21 @@ public class PlotRunnableDeleteExpire implements Runnable {
             if (expiredPlots.isEmpty()) {
                 plugin.setCounterExpired(0);
             } else {
-
+                List<Plot> resetPlots = new ArrayList<>(expiredPlots.size());
                 for (Plot expiredPlot : expiredPlots) {
                     if (!expiredPlot.isProtected()) {
                         PlotResetEvent event = new PlotResetEvent(expiredPlot, sender);
                         plugin.getEventBus().post(event);
                         if (!event.isCancelled()) {
-                            plotMeCoreManager.clear(expiredPlot, sender, ClearReason.Expired);
-
-                            plotMeCoreManager.deletePlot(expiredPlot);
-                            plugin.setCounterExpired(plugin.getCounterExpired() - 1);
+                            resetPlots.add(expiredPlot);
                         }
                     }
                 }
+                if (!resetPlots.isEmpty()) {
+                    plotMeCoreManager.clear(world, resetPlots, sender, ClearReason.Expired);
+                    plotMeCoreManager.deletePlots(world, resetPlots);
+                    plugin.setCounterExpired(plugin.getCounterExpired() - resetPlots.size());
+                }
 
                 plugin.getLogger().info(plugin.C("DeletedExpiredPlots", expiredPlots.size()));
             }
@@ -0,0 +1,356 @@
+package com.worldcretornica.plotme_core;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.RateLimiter;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.worldcretornica.plotme_core.utils.UUIDs;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+
+/**
+ * Looks up player profiles from a Mojang style profile API and stores the results in the {@link NameCache}
+ * and the database.
+ *
+ * <p>Names are looked up in batches of up to {@value #NAMES_PER_REQUEST}, and lookups of the same name or
+ * UUID by different callers share one request. Requests go through a rate limiter and a fixed number of
+ * threads, and are retried with a growing delay when they fail or the API asks to slow down. Players found
+ * in the name cache are never looked up.</p>
+ */
+public class ProfileResolver {
+
+    public static final String DEFAULT_NAMES_URL = "https://api.mojang.com/profiles/minecraft";
+    public static final String DEFAULT_PROFILE_URL = "https://sessionserver.mojang.com/session/minecraft/profile/";
+    private static final int NAMES_PER_REQUEST = 100;
+    private static final long FIRST_RETRY_DELAY_MILLIS = 500;
+    private static final int TIMEOUT_MILLIS = 10000;
+    private static final int TOO_MANY_REQUESTS = 429;
+    /**
+     * Runs listeners on the thread that completes the future, so they still run once the request threads
+     * are stopped.
+     */
+    private static final Executor CALLER = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    private final NameCache names;
+    private final Logger logger;
+    private final String namesUrl;
+    private final String profileUrl;
+    private final int retries;
+    private final RateLimiter rateLimiter;
+    private final ExecutorService executor;
+    private final ConcurrentHashMap<String, SettableFuture<UUID>> pendingIds = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<UUID, SettableFuture<String>> pendingNames = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<String> unsentNames = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private volatile boolean shutdown;
+
+    /**
+     * @param names cache to look players up in first, and to store results in
+     * @param logger logger for failed lookups
+     * @param namesUrl endpoint that takes a JSON array of names and returns their profiles
+     * @param profileUrl endpoint that returns the profile of the UUID appended to it
+     * @param requestsPerSecond maximum number of requests per second
+     * @param threads maximum number of requests at the same time
+     * @param retries number of times a failed request is tried again
+     */
+    public ProfileResolver(NameCache names, Logger logger, String namesUrl, String profileUrl, double requestsPerSecond, int threads,
+            int retries) {
+        this.names = names;
+        this.logger = logger;
+        this.namesUrl = namesUrl;
+        this.profileUrl = profileUrl;
+        this.retries = Math.max(0, retries);
+        this.rateLimiter = RateLimiter.create(requestsPerSecond);
+        this.executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactoryBuilder().setNameFormat("PlotMe Profile Resolver %d").setDaemon(true).build());
+        ((ThreadPoolExecutor) executor).allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Looks up the UUID of a player.
+     *
+     * @param name player name
+     * @return a future of the UUID, which is null if no player has that name
+     */
+    public ListenableFuture<UUID> resolveUniqueId(String name) {
+        UUID cached = names.getUniqueId(name);
+        if (cached != null) {
+            return Futures.immediateFuture(cached);
+        }
+        if (shutdown) {
+            return Futures.immediateCancelledFuture();
+        }
+        String key = name.toLowerCase(Locale.ROOT);
+        SettableFuture<UUID> future = SettableFuture.create();
+        SettableFuture<UUID> pending = pendingIds.putIfAbsent(key, future);
+        if (pending != null) {
+            return pending;
+        }
+        unsentNames.add(key);
+        scheduleFlush();
+        if (shutdown) {
+            cancelPending();
+        }
+        return future;
+    }
+
+    /**
+     * Looks up the UUIDs of several players.
+     *
+     * @param playerNames player names
+     * @return a future of the UUIDs by name, as passed in. Players that don't exist are left out.
+     */
+    public ListenableFuture<Map<String, UUID>> resolveUniqueIds(Collection<String> playerNames) {
+        final List<String> requested = new ArrayList<>(playerNames);
+        List<ListenableFuture<UUID>> futures = new ArrayList<>(requested.size());
+        for (String name : requested) {
+            futures.add(resolveUniqueId(name));
+        }
+        final ListenableFuture<List<UUID>> all = Futures.allAsList(futures);
+        final SettableFuture<Map<String, UUID>> result = SettableFuture.create();
+        all.addListener(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    List<UUID> ids = all.get();
+                    Map<String, UUID> map = new HashMap<>();
+                    for (int i = 0; i < requested.size(); i++) {
+                        if (ids.get(i) != null) {
+                            map.put(requested.get(i), ids.get(i));
+                        }
+                    }
+                    result.set(map);
+                } catch (Exception e) {
+                    result.setException(e.getCause() == null ? e : e.getCause());
+                }
+            }
+        }, CALLER);
+        return result;
+    }
+
+    /**
+     * Looks up the current name of a player.
+     *
+     * @param uuid player UUID
+     * @return a future of the name, which is null if no player has that UUID
+     */
+    public ListenableFuture<String> resolveName(final UUID uuid) {
+        String cached = names.getName(uuid);
+        if (cached != null) {
+            return Futures.immediateFuture(cached);
+        }
+        if (shutdown) {
+            return Futures.immediateCancelledFuture();
+        }
+        final SettableFuture<String> future = SettableFuture.create();
+        SettableFuture<String> pending = pendingNames.putIfAbsent(uuid, future);
+        if (pending != null) {
+            return pending;
+        }
+        execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Object response = request(new URL(profileUrl + UUIDs.toTrimmed(uuid)), null);
+                    String name = response == null ? null : (String) ((JSONObject) response).get("name");
+                    if (name != null) {
+                        names.resolved(uuid, name);
+                    }
+                    future.set(name);
+                } catch (IOException | ParseException | RuntimeException e) {
+                    logger.warning("Could not look up the name of " + uuid + ": " + e.getMessage());
+                    future.setException(e);
+                } finally {
+                    pendingNames.remove(uuid, future);
+                }
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Stops all lookups. The futures of lookups that didn't finish are cancelled.
+     */
+    public void shutdown() {
+        shutdown = true;
+        executor.shutdownNow();
+        cancelPending();
+    }
+
+    private void cancelPending() {
+        for (SettableFuture<UUID> future : pendingIds.values()) {
+            future.cancel(false);
+        }
+        pendingIds.clear();
+        unsentNames.clear();
+        for (SettableFuture<String> future : pendingNames.values()) {
+            future.cancel(false);
+        }
+        pendingNames.clear();
+    }
+
+    /**
+     * Runs a task on the request threads, unless the resolver was shut down.
+     */
+    private void execute(Runnable task) {
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            cancelPending();
+        }
+    }
+
+    private void scheduleFlush() {
+        if (flushScheduled.compareAndSet(false, true)) {
+            execute(new Runnable() {
+                @Override
+                public void run() {
+                    flushScheduled.set(false);
+                    List<String> batch = new ArrayList<>(NAMES_PER_REQUEST);
+                    String name;
+                    while ((name = unsentNames.poll()) != null) {
+                        batch.add(name);
+                        if (batch.size() == NAMES_PER_REQUEST) {
+                            sendBatch(batch);
+                            batch = new ArrayList<>(NAMES_PER_REQUEST);
+                        }
+                    }
+                    if (!batch.isEmpty()) {
+                        sendBatch(batch);
+                    }
+                }
+            });
+        }
+    }
+
+    private void sendBatch(final List<String> batch) {
+        execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    JSONArray profiles = (JSONArray) request(new URL(namesUrl), JSONArray.toJSONString(batch));
+                    if (profiles != null) {
+                        for (Object profile : profiles) {
+                            JSONObject jsonProfile = (JSONObject) profile;
+                            String name = (String) jsonProfile.get("name");
+                            UUID uuid = UUIDs.fromTrimmed((String) jsonProfile.get("id"));
+                            names.resolved(uuid, name);
+                            SettableFuture<UUID> future = pendingIds.remove(name.toLowerCase(Locale.ROOT));
+                            if (future != null) {
+                                future.set(uuid);
+                            }
+                        }
+                    }
+                    for (String name : batch) {
+                        SettableFuture<UUID> future = pendingIds.remove(name);
+                        if (future != null) {
+                            future.set(null);
+                        }
+                    }
+                } catch (IOException | ParseException | RuntimeException e) {
+                    logger.warning("Could not look up the UUIDs of " + batch.size() + " players: " + e.getMessage());
+                    for (String name : batch) {
+                        SettableFuture<UUID> future = pendingIds.remove(name);
+                        if (future != null) {
+                            future.setException(e);
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Sends a request, waiting for the rate limiter first and retrying if it fails.
+     *
+     * @param url the endpoint
+     * @param body JSON to post, or null to send a GET request
+     * @return the parsed response, or null if the API has no content for the request
+     */
+    private Object request(URL url, String body) throws IOException, ParseException {
+        IOException failure = null;
+        for (int attempt = 0; attempt <= retries; attempt++) {
+            if (attempt > 0 && !sleep(FIRST_RETRY_DELAY_MILLIS << (attempt - 1))) {
+                break;
+            }
+            rateLimiter.acquire();
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            connection.setConnectTimeout(TIMEOUT_MILLIS);
+            connection.setReadTimeout(TIMEOUT_MILLIS);
+            connection.setUseCaches(false);
+            try {
+                if (body != null) {
+                    connection.setRequestMethod("POST");
+                    connection.setRequestProperty("Content-Type", "application/json");
+                    connection.setDoOutput(true);
+                    try (OutputStream stream = connection.getOutputStream()) {
+                        stream.write(body.getBytes(StandardCharsets.UTF_8));
+                    }
+                }
+                int status = connection.getResponseCode();
+                if (status == HttpURLConnection.HTTP_NO_CONTENT || status == HttpURLConnection.HTTP_NOT_FOUND) {
+                    return null;
+                }
+                if (status == TOO_MANY_REQUESTS || status >= HttpURLConnection.HTTP_INTERNAL_ERROR) {
+                    failure = new IOException("HTTP " + status + " from " + url);
+                    continue;
+                }
+                if (status != HttpURLConnection.HTTP_OK) {
+                    failure = new IOException("HTTP " + status + " from " + url);
+                    break;
+                }
+                try (Reader reader = new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8)) {
+                    return new JSONParser().parse(reader);
+                }
+            } catch (IOException e) {
+                failure = e;
+            } finally {
+                connection.disconnect();
+            }
+        }
+        throw failure == null ? new IOException("Interrupted while waiting to retry " + url) : failure;
+    }
+
+    private static boolean sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package com.worldcretornica.plotme_core;
+
+import com.worldcretornica.plotme_core.api.IPlotMe_ExtendedGeneratorManager;
+import com.worldcretornica.plotme_core.api.IWorld;
+import com.worldcretornica.plotme_core.utils.WorldTable;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes owner signs in the background.
+ *
+ * <p>The service remembers the text it last wrote on the sign of every plot and drops requests that would
+ * not change it. Signs in chunks that aren't loaded are kept until the chunk loads, instead of loading the
+ * chunk. All other signs are written a few per tick, see the {@code SignUpdatesPerTick} setting, and handed
+ * to the generator as one batch per world so it can group them by chunk.</p>
+ *
+ * <p>Signs that wait for a chunk longer than ten minutes are dropped, the next request for the plot queues
+ * them again. The remembered text is kept for the most recently written signs of each world only.</p>
+ */
+public class SignUpdateService implements Runnable {
+
+    private static final int DEFAULT_UPDATES_PER_TICK = 10;
+    private static final int RENDERED_PER_WORLD = 1024;
+    private static final long DEFERRED_EXPIRY = TimeUnit.MINUTES.toMillis(10);
+    private static final long EXPIRY_CHECK_INTERVAL = TimeUnit.MINUTES.toMillis(1);
+
+    private final PlotMe_Core plugin;
+    private final WorldTable<WorldSigns> worlds = new WorldTable<>();
+    private long lastExpiryCheck;
+
+    public SignUpdateService(PlotMe_Core plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Asks for the owner sign of a plot to be brought up to date. Nothing is written if the sign already
+     * shows the right text.
+     *
+     * @param plot plot to update the sign of
+     */
+    public synchronized void request(Plot plot) {
+        String[] lines = getOwnerSignLines(plot);
+        WorldSigns signs = getSigns(plot.getWorld());
+        PlotId id = plot.getId();
+        signs.unqueue(id, signChunk(plot));
+        if (!Arrays.equals(lines, signs.rendered.get(id))) {
+            signs.queued.put(id, lines);
+        }
+    }
+
+    /**
+     * Records that the owner sign of a plot was just written with the given text, outside of this service.
+     *
+     * @param plot plot the sign belongs to
+     * @param lines the four lines on the sign
+     */
+    public synchronized void written(Plot plot, String[] lines) {
+        WorldSigns signs = getSigns(plot.getWorld());
+        signs.unqueue(plot.getId(), signChunk(plot));
+        signs.rendered.put(plot.getId(), lines);
+    }
+
+    /**
+     * Forgets the owner sign of a plot, for example because it was removed.
+     *
+     * @param plot plot the sign belonged to
+     */
+    public synchronized void forget(Plot plot) {
+        WorldSigns signs = worlds.get(plot.getWorld());
+        if (signs != null) {
+            signs.unqueue(plot.getId(), signChunk(plot));
+            signs.rendered.remove(plot.getId());
+        }
+    }
+
+    /**
+     * Forgets all owner signs of a world.
+     *
+     * @param world the world
+     */
+    public synchronized void forget(IWorld world) {
+        worlds.remove(world);
+    }
+
+    /**
+     * Forgets all owner signs.
+     */
+    public synchronized void clear() {
+        worlds.clear();
+    }
+
+    /**
+     * Queues the signs that were waiting for a chunk to load.
+     *
+     * @param world the world of the chunk
+     * @param chunkX chunk x
+     * @param chunkZ chunk z
+     */
+    public synchronized void onChunkLoad(IWorld world, int chunkX, int chunkZ) {
+        WorldSigns signs = worlds.get(world);
+        if (signs != null && !signs.deferred.isEmpty()) {
+            DeferredSigns waiting = signs.deferred.remove(PlotId.toKey(chunkX, chunkZ));
+            if (waiting != null) {
+                signs.queued.putAll(waiting.signs);
+            }
+        }
+    }
+
+    /**
+     * Writes the next few queued signs. Runs every tick on the main thread.
+     */
+    @Override
+    public synchronized void run() {
+        long now = System.currentTimeMillis();
+        if (now - lastExpiryCheck >= EXPIRY_CHECK_INTERVAL) {
+            lastExpiryCheck = now;
+            for (Map.Entry<IWorld, WorldSigns> entry : worlds.entrySet()) {
+                entry.getValue().expireDeferred(now - DEFERRED_EXPIRY);
+            }
+        }
+        int budget = -1;
+        for (Map.Entry<IWorld, WorldSigns> entry : worlds.entrySet()) {
+            WorldSigns signs = entry.getValue();
+            if (signs.queued.isEmpty()) {
+                continue;
+            }
+            if (budget < 0) {
+                budget = Math.max(1, plugin.getConfig().getInt("SignUpdatesPerTick", DEFAULT_UPDATES_PER_TICK));
+            }
+            IWorld world = entry.getKey();
+            IPlotMe_ExtendedGeneratorManager genManager = plugin.getExtendedGenManager(world);
+            if (genManager == null) {
+                signs.queued.clear();
+                continue;
+            }
+            HashMap<PlotId, String[]> batch = new HashMap<>();
+            Iterator<Map.Entry<PlotId, String[]>> iterator = signs.queued.entrySet().iterator();
+            while (budget > 0 && iterator.hasNext()) {
+                Map.Entry<PlotId, String[]> sign = iterator.next();
+                iterator.remove();
+                PlotId id = sign.getKey();
+                String[] lines = sign.getValue();
+                long chunk = genManager.ownerDisplayChunk(id.getKey());
+                if (chunk == PlotId.NONE) {
+                    continue;
+                }
+                if (!world.isChunkLoaded(PlotId.keyX(chunk), PlotId.keyZ(chunk))) {
+                    DeferredSigns waiting = signs.deferred.get(chunk);
+                    if (waiting == null) {
+                        waiting = new DeferredSigns(now);
+                        signs.deferred.put(chunk, waiting);
+                    }
+                    waiting.signs.put(id, lines);
+                    continue;
+                }
+                batch.put(id, lines);
+                signs.rendered.put(id, lines);
+                budget--;
+            }
+            if (!batch.isEmpty()) {
+                genManager.setOwnerDisplays(batch);
+            }
+            if (budget == 0) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Gets the text of the owner sign of a plot. The owner name is taken from the name cache.
+     *
+     * @param plot the plot
+     * @return the four lines of the sign
+     */
+    public String[] getOwnerSignLines(Plot plot) {
+        String owner = plugin.getNameCache().getName(plot.getOwnerId(), plot.getOwner());
+        return new String[]{"ID: " + plot.getId().toString(), "", owner, ""};
+    }
+
+    private WorldSigns getSigns(IWorld world) {
+        WorldSigns signs = worlds.get(world);
+        if (signs == null) {
+            signs = new WorldSigns();
+            worlds.put(world, signs);
+        }
+        return signs;
+    }
+
+    private long signChunk(Plot plot) {
+        return signChunk(plot.getWorld(), plot.getId());
+    }
+
+    private long signChunk(IWorld world, PlotId id) {
+        IPlotMe_ExtendedGeneratorManager genManager = plugin.getExtendedGenManager(world);
+        if (genManager == null) {
+            return PlotId.NONE;
+        }
+        return genManager.ownerDisplayChunk(id.getKey());
+    }
+
+    private static class WorldSigns {
+
+        /**
+         * Text last written on the sign of each plot, least recently used first.
+         */
+        private final LinkedHashMap<PlotId, String[]> rendered =
+                new LinkedHashMap<PlotId, String[]>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<PlotId, String[]> eldest) {
+                        return size() > RENDERED_PER_WORLD;
+                    }
+                };
+        /**
+         * Signs to write, in the order they were asked for.
+         */
+        private final LinkedHashMap<PlotId, String[]> queued = new LinkedHashMap<>();
+        /**
+         * Signs waiting for their chunk to load, by chunk.
+         */
+        private final HashMap<Long, DeferredSigns> deferred = new HashMap<>();
+
+        private void unqueue(PlotId id, long chunk) {
+            queued.remove(id);
+            DeferredSigns waiting = deferred.get(chunk);
+            if (waiting != null && waiting.signs.remove(id) != null && waiting.signs.isEmpty()) {
+                deferred.remove(chunk);
+            }
+        }
+
+        private void expireDeferred(long deferredBefore) {
+            Iterator<DeferredSigns> iterator = deferred.values().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().since < deferredBefore) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    private static class DeferredSigns {
+
+        private final HashMap<PlotId, String[]> signs = new HashMap<>();
+        /**
+         * When the first of the signs started waiting.
+         */
+        private final long since;
+
+        private DeferredSigns(long since) {
+            this.since = since;
+        }
+    }
+}
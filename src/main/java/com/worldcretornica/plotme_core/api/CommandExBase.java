@@ -17,8 +17,10 @@ import com.worldcretornica.plotme_core.commands.CmdExpired;
 import com.worldcretornica.plotme_core.commands.CmdHome;
 import com.worldcretornica.plotme_core.commands.CmdInfo;
 import com.worldcretornica.plotme_core.commands.CmdLike;
+import com.worldcretornica.plotme_core.commands.CmdMarket;
 import com.worldcretornica.plotme_core.commands.CmdMiddle;
 import com.worldcretornica.plotme_core.commands.CmdMove;
+import com.worldcretornica.plotme_core.commands.CmdName;
 import com.worldcretornica.plotme_core.commands.CmdPlotList;
 import com.worldcretornica.plotme_core.commands.CmdProtect;
 import com.worldcretornica.plotme_core.commands.CmdReload;
@@ -29,6 +31,7 @@ import com.worldcretornica.plotme_core.commands.CmdSell;
 import com.worldcretornica.plotme_core.commands.CmdSetOwner;
 import com.worldcretornica.plotme_core.commands.CmdShowHelp;
 import com.worldcretornica.plotme_core.commands.CmdTP;
+import com.worldcretornica.plotme_core.commands.CmdTop;
 import com.worldcretornica.plotme_core.commands.CmdTrust;
 import com.worldcretornica.plotme_core.commands.CmdUndeny;
 import com.worldcretornica.plotme_core.commands.CmdWEAnywhere;
@@ -66,8 +69,11 @@ public class CommandExBase {
         registerCommand(new CmdReset(api));
         registerCommand(new CmdResetExpired(api));
         registerCommand(new CmdSell(api));
+        registerCommand(new CmdMarket(api));
         registerCommand(new CmdTrust(api));
         registerCommand(new CmdLike(api));
+        registerCommand(new CmdTop(api));
+        registerCommand(new CmdName(api));
         registerCommand(new CmdSetOwner(api));
         registerCommand(new CmdShowHelp(api));
         registerCommand(new CmdTP(api));
@@ -0,0 +1,91 @@
+package com.worldcretornica.plotme_core.api;
+
+import com.worldcretornica.plotme_core.Plot;
+import com.worldcretornica.plotme_core.PlotId;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Block coordinate lookups that work on plain ints and never create objects, and bulk variants of the
+ * plot operations of {@link IPlotMe_GeneratorManager} that let the generator group its work by chunk.
+ *
+ * <p>Plots are identified by a packed key, see {@link PlotId#toKey(int, int)}. Generators may implement
+ * this interface directly; any other generator is wrapped by PlotMe when it registers, so every
+ * generator manager returned by PlotMe implements it.</p>
+ */
+public interface IPlotMe_ExtendedGeneratorManager extends IPlotMe_GeneratorManager {
+
+    /**
+     * Gets the plot at a block coordinate.
+     *
+     * @param x block x
+     * @param z block z
+     * @return packed key of the plot, or {@link PlotId#NONE} if the block is not in a plot
+     */
+    long plotIdAt(int x, int z);
+
+    /**
+     * Checks if a block coordinate is inside a plot.
+     *
+     * @param plotKey packed key of the plot
+     * @param x block x
+     * @param z block z
+     * @return true if the block is inside the plot
+     */
+    boolean contains(long plotKey, int x, int z);
+
+    /**
+     * Writes the bounds of a plot into an array as minimum x, minimum z, maximum x and maximum z.
+     *
+     * @param plotKey packed key of the plot
+     * @param bounds array to write the bounds into
+     * @param offset index of the first value to write
+     */
+    void getPlotBounds(long plotKey, int[] bounds, int offset);
+
+    /**
+     * Gets the chunk the owner display of a plot is in, so it can be written once the chunk is loaded.
+     *
+     * @param plotKey packed key of the plot
+     * @return packed key of the chunk, see {@link PlotId#toKey(int, int)}, or {@link PlotId#NONE} if the plot
+     * has no owner display
+     */
+    long ownerDisplayChunk(long plotKey);
+
+    /**
+     * Updates the blocks on the border of several plots. Protection and sale status are taken from each plot.
+     *
+     * @param plots plots to update
+     * @param claimed true if the plots are claimed
+     */
+    void adjustPlotsFor(Collection<Plot> plots, boolean claimed);
+
+    /**
+     * Sets the owner display of several plots.
+     *
+     * @param lines the four lines of the display, by plot
+     */
+    void setOwnerDisplays(Map<PlotId, String[]> lines);
+
+    /**
+     * Removes the owner display of several plots.
+     *
+     * @param ids plot ids
+     */
+    void removeOwnerDisplays(Collection<PlotId> ids);
+
+    /**
+     * Removes the seller display of several plots.
+     *
+     * @param ids plot ids
+     */
+    void removeSellerDisplays(Collection<PlotId> ids);
+
+    /**
+     * Refreshes the chunks of several plots. Chunks shared by plots are refreshed once.
+     *
+     * @param ids plot ids
+     */
+    void refreshPlotChunks(Collection<PlotId> ids);
+}
@@ -24,6 +24,15 @@ public interface IWorld {
 
     void refreshChunk(int x, int z);
 
+    /**
+     * Checks if a chunk is loaded, without loading it.
+     *
+     * @param x chunk x
+     * @param z chunk z
+     * @return true if the chunk is loaded
+     */
+    boolean isChunkLoaded(int x, int z);
+
     IBlock getBlockAt(int x, int y, int z);
 
     IWorldBorder getWorldBorder();
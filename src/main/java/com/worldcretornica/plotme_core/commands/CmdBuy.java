@@ -10,6 +10,8 @@ import com.worldcretornica.plotme_core.api.IWorld;
 import com.worldcretornica.plotme_core.api.event.PlotBuyEvent;
 import net.milkbowl.vault.economy.EconomyResponse;
 
+import java.util.UUID;
+
 public class CmdBuy extends PlotCommand {
 
     public CmdBuy(PlotMe_Core instance) {
@@ -33,76 +35,14 @@ public class CmdBuy extends PlotCommand {
                     Plot plot = manager.getPlot(player.getLocation());
 
                     if (plot != null) {
-                        if (plot.isForSale()) {
-                            String buyer = player.getName();
-
-                            if (player.getUniqueId().equals(plot.getOwnerId())) {
-                                player.sendMessage(C("MsgCannotBuyOwnPlot"));
-                            } else {
-                                int plotLimit = getPlotLimit(player);
-
-                                int plotsOwned = manager.getOwnedPlotCount(player.getUniqueId(), world);
-
-                                if (plotLimit != -1 && plotsOwned >= plotLimit) {
-                                    player.sendMessage(C("MsgAlreadyReachedMaxPlots", plotsOwned, plotLimit));
-                                } else {
-                                    double cost = plot.getPrice();
-
-                                    if (serverBridge.has(player, cost)) {
-                                        player.sendMessage(C("MsgNotEnoughBuy"));
-                                    } else {
-                                        PlotBuyEvent event = new PlotBuyEvent(plot, player, cost);
-                                        plugin.getEventBus().post(event);
-
-                                        if (!event.isCancelled()) {
-                                            EconomyResponse er = serverBridge.withdrawPlayer(player, cost);
-
-                                            if (er.transactionSuccess()) {
-                                                String oldOwner = plot.getOwner();
-
-                                                IOfflinePlayer currBuyer = serverBridge.getOfflinePlayer(plot.getOwnerId());
-
-                                                EconomyResponse er2 = serverBridge.depositPlayer(currBuyer, cost);
-
-                                                if (er2.transactionSuccess()) {
-                                                    for (IPlayer onlinePlayers : serverBridge.getOnlinePlayers()) {
-                                                        if (onlinePlayers.getName().equals(oldOwner)) {
-                                                            onlinePlayers.sendMessage(C("WordPlot") + " " + plot.getId() + " "
-                                                                    + C("SoldTo", buyer) + serverBridge.getEconomy().get().format(cost));
-                                                            break;
-                                                        }
-                                                    }
-                                                } else {
-                                                    player.sendMessage(er2.errorMessage);
-                                                    serverBridge.getLogger().warning(er2.errorMessage);
-                                                }
-
-                                                plot.setOwner(buyer);
-                                                plot.setOwnerId(player.getUniqueId());
-                                                plot.setPrice(0.0);
-                                                plot.setForSale(false);
-                                                plugin.getSqlManager().savePlot(plot);
-                                                manager.adjustWall(plot, true);
-                                                manager.removeSellSign(plot);
-                                                manager.setOwnerSign(plot);
-                                                player.sendMessage(C("PlotBought", serverBridge.getEconomy().get().format(cost)));
-
-                                                if (isAdvancedLogging()) {
-                                                    plugin.getLogger()
-                                                            .info(buyer + " " + C("MsgBoughtPlot") + " " + plot.getId().toString() + " " + C(
-                                                                    "WordFor") + " "
-                                                                    + cost);
-                                                }
-                                            } else {
-                                                player.sendMessage(er.errorMessage);
-                                                serverBridge.getLogger().warning(er.errorMessage);
-                                            }
-                                        }
-                                    }
-                                }
+                        if (plugin.getSqlManager().lockPlot(plot)) {
+                            try {
+                                buy(player, world, plot);
+                            } finally {
+                                plugin.getSqlManager().unlockPlot(plot);
                             }
                         } else {
-                            player.sendMessage(C("MsgPlotNotForSale"));
+                            player.sendMessage(C("MsgPlotBeingBought"));
                         }
                     } else {
                         player.sendMessage("No plot found or on road."); //todo caption this
@@ -117,6 +57,88 @@ public class CmdBuy extends PlotCommand {
         return true;
     }
 
+    /**
+     * Buys a plot. The plot is locked, so PlotMe's commands don't change whether it is for sale or its price
+     * while the money changes hands. Listeners of the buy event may still change the plot, so the sale is
+     * checked again before any money is taken.
+     */
+    private void buy(IPlayer player, IWorld world, Plot plot) {
+        if (plot.isForSale()) {
+            String buyer = player.getName();
+
+            if (player.getUniqueId().equals(plot.getOwnerId())) {
+                player.sendMessage(C("MsgCannotBuyOwnPlot"));
+            } else {
+                int plotLimit = getPlotLimit(player);
+
+                int plotsOwned = manager.getOwnedPlotCount(player.getUniqueId(), world);
+
+                if (plotLimit != -1 && plotsOwned >= plotLimit) {
+                    player.sendMessage(C("MsgAlreadyReachedMaxPlots", plotsOwned, plotLimit));
+                } else {
+                    double cost = plot.getPrice();
+
+                    if (serverBridge.has(player, cost)) {
+                        player.sendMessage(C("MsgNotEnoughBuy"));
+                    } else {
+                        PlotBuyEvent event = new PlotBuyEvent(plot, player, cost);
+                        UUID seller = plot.getOwnerId();
+                        plugin.getEventBus().post(event);
+
+                        if (!plot.isForSale() || Double.compare(plot.getPrice(), cost) != 0 || !seller.equals(plot.getOwnerId())) {
+                            player.sendMessage(C("MsgPlotNotForSale"));
+                        } else if (!event.isCancelled()) {
+                            EconomyResponse er = serverBridge.withdrawPlayer(player, cost);
+
+                            if (er.transactionSuccess()) {
+                                String oldOwner = plot.getOwner();
+
+                                IOfflinePlayer currBuyer = serverBridge.getOfflinePlayer(plot.getOwnerId());
+
+                                EconomyResponse er2 = serverBridge.depositPlayer(currBuyer, cost);
+
+                                if (er2.transactionSuccess()) {
+                                    for (IPlayer onlinePlayers : serverBridge.getOnlinePlayers()) {
+                                        if (onlinePlayers.getName().equals(oldOwner)) {
+                                            onlinePlayers.sendMessage(C("WordPlot") + " " + plot.getId() + " "
+                                                    + C("SoldTo", buyer) + serverBridge.getEconomy().get().format(cost));
+                                            break;
+                                        }
+                                    }
+                                } else {
+                                    player.sendMessage(er2.errorMessage);
+                                    serverBridge.getLogger().warning(er2.errorMessage);
+                                }
+
+                                plot.setOwner(buyer);
+                                plot.setOwnerId(player.getUniqueId());
+                                plot.setPrice(0.0);
+                                plot.setForSale(false);
+                                plugin.getSqlManager().savePlot(plot);
+                                manager.adjustWall(plot, true);
+                                manager.removeSellSign(plot);
+                                manager.setOwnerSign(plot);
+                                player.sendMessage(C("PlotBought", serverBridge.getEconomy().get().format(cost)));
+
+                                if (isAdvancedLogging()) {
+                                    plugin.getLogger()
+                                            .info(buyer + " " + C("MsgBoughtPlot") + " " + plot.getId().toString() + " " + C(
+                                                    "WordFor") + " "
+                                                    + cost);
+                                }
+                            } else {
+                                player.sendMessage(er.errorMessage);
+                                serverBridge.getLogger().warning(er.errorMessage);
+                            }
+                        }
+                    }
+                }
+            }
+        } else {
+            player.sendMessage(C("MsgPlotNotForSale"));
+        }
+    }
+
     @Override
     public String getUsage() {
         return C("CmdBuyUsage");
@@ -1,13 +1,11 @@
 package com.worldcretornica.plotme_core.commands;
 
-import com.google.common.collect.Lists;
 import com.worldcretornica.plotme_core.PermissionNames;
 import com.worldcretornica.plotme_core.Plot;
 import com.worldcretornica.plotme_core.PlotMe_Core;
 import com.worldcretornica.plotme_core.api.ICommandSender;
 import com.worldcretornica.plotme_core.api.IPlayer;
-
-import java.util.List;
+import com.worldcretornica.plotme_core.storage.PlotQuery;
 
 public class CmdDoneList extends PlotCommand {
 
@@ -30,14 +28,16 @@ public class CmdDoneList extends PlotCommand {
                     page = Integer.parseInt(args[1]);
                 }
 
-                List<List<Plot>> partition = Lists.partition(plugin.getSqlManager().getFinishedPlots(player.getWorld()), 10);
+                PlotQuery query = PlotQuery.finished();
+                int pages = (plugin.getSqlManager().countPlots(player.getWorld(), query) + 9) / 10;
 
-                if (partition.isEmpty()) {
+                if (pages == 0) {
                     player.sendMessage(C("NoFinishedPlots"));
                 } else {
-                    player.sendMessage(C("MsgFinishedPlotsPage", page, partition.size()));
+                    page = Math.max(1, Math.min(page, pages));
+                    player.sendMessage(C("MsgFinishedPlotsPage", page, pages));
 
-                    for (Plot plot : partition.get(page - 1)) {
+                    for (Plot plot : plugin.getSqlManager().getPlotPage(player.getWorld(), query, page, 10)) {
                         player.sendMessage(plot.getId() + " -> " + plot.getOwner() + " @ " + plot.getFinishedDate());
                     }
                 }
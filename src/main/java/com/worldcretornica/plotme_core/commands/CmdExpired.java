@@ -1,14 +1,12 @@
 package com.worldcretornica.plotme_core.commands;
 
-import com.google.common.collect.Lists;
 import com.worldcretornica.plotme_core.PermissionNames;
 import com.worldcretornica.plotme_core.Plot;
 import com.worldcretornica.plotme_core.PlotMapInfo;
 import com.worldcretornica.plotme_core.PlotMe_Core;
 import com.worldcretornica.plotme_core.api.ICommandSender;
 import com.worldcretornica.plotme_core.api.IPlayer;
-
-import java.util.List;
+import com.worldcretornica.plotme_core.storage.PlotQuery;
 
 public class CmdExpired extends PlotCommand {
 
@@ -31,12 +29,14 @@ public class CmdExpired extends PlotCommand {
                     if (args.length == 2) {
                         page = Integer.parseInt(args[1]);
                     }
-                    List<List<Plot>> partition = Lists.partition(plugin.getSqlManager().getExpiredPlots(player.getWorld()), 10);
-                    if (partition.isEmpty()) {
+                    PlotQuery query = PlotQuery.expired(System.currentTimeMillis());
+                    int pages = (plugin.getSqlManager().countPlots(player.getWorld(), query) + 9) / 10;
+                    if (pages == 0) {
                         player.sendMessage(C("MsgNoPlotExpired"));
                     } else {
-                        player.sendMessage(C("MsgExpiredPlotsPage", page, partition.size()));
-                        for (Plot plot : partition.get(page - 1)) {
+                        page = Math.max(1, Math.min(page, pages));
+                        player.sendMessage(C("MsgExpiredPlotsPage", page, pages));
+                        for (Plot plot : plugin.getSqlManager().getPlotPage(player.getWorld(), query, page, 10)) {
                             assert plot.getExpiredDate() != null;
                             player.sendMessage(plot.getId() + " -> " + plot.getOwner() + " @ " + plot.getExpiredDate().toString());
                         }
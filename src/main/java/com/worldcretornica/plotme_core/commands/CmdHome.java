@@ -5,7 +5,6 @@ import com.worldcretornica.plotme_core.Plot;
 import com.worldcretornica.plotme_core.PlotMapInfo;
 import com.worldcretornica.plotme_core.PlotMe_Core;
 import com.worldcretornica.plotme_core.api.ICommandSender;
-import com.worldcretornica.plotme_core.api.IOfflinePlayer;
 import com.worldcretornica.plotme_core.api.IPlayer;
 import com.worldcretornica.plotme_core.api.IWorld;
 import com.worldcretornica.plotme_core.api.Location;
@@ -64,12 +63,11 @@ public class CmdHome extends PlotCommand {
                     } catch (NumberFormatException e) {
                         player.sendMessage(getUsage());
                     }
-                    IOfflinePlayer offlinePlayer = serverBridge.getOfflinePlayer(args[2]);
-                    if (offlinePlayer == null) {
+                    uuid = getUniqueId(args[2]);
+                    if (uuid == null) {
                         player.sendMessage("Error in Home Command!");
                         return true;
                     }
-                    uuid = offlinePlayer.getUniqueId();
                 }
                 PlotMapInfo pmi = manager.getMap(world);
                 if (manager.isPlotWorld(world)) {
@@ -10,7 +10,6 @@ import com.worldcretornica.plotme_core.api.IWorld;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.UUID;
 
 public class CmdInfo extends PlotCommand {
 
@@ -28,7 +27,7 @@ public class CmdInfo extends PlotCommand {
     }
 
     public boolean execute(ICommandSender sender, String[] args) {
-        if (args.length > 1) {
+        if (args.length > 2) {
             sender.sendMessage(getUsage());
             return true;
         }
@@ -36,15 +35,27 @@ public class CmdInfo extends PlotCommand {
         if (player.hasPermission(PermissionNames.USER_INFO)) {
             IWorld world = player.getWorld();
             if (manager.isPlotWorld(world)) {
-                Plot plot = manager.getPlot(player);
+                Plot plot;
+                if (args.length == 2) {
+                    plot = plugin.getSqlManager().getPlotByName(args[1]);
+                    if (plot == null) {
+                        player.sendMessage(C("MsgNoPlotNamed", args[1]));
+                        return true;
+                    }
+                } else {
+                    plot = manager.getPlot(player);
+                }
 
                 if (plot == null) {
                     player.sendMessage(C("NoPlotFound"));
                     return true;
                 }
                 player.sendMessage("Internal ID: " + plot.getInternalID());
+                if (plot.getPlotName() != null) {
+                    player.sendMessage(C("InfoName", plot.getPlotName()));
+                }
                 player.sendMessage(
-                        "ID: " + plot.getId().getID() + " " + C("InfoOwner", serverBridge.getOfflinePlayer(plot.getOwnerId()).getName()) + " " + C
+                        "ID: " + plot.getId().getID() + " " + C("InfoOwner", plugin.getNameCache().getName(plot.getOwnerId(), plot.getOwner())) + " " + C
                                 ("InfoBiome", plot
                                         .getBiome()));
                 player.sendMessage("Likes: " + plot.getLikes());
@@ -92,11 +103,11 @@ public class CmdInfo extends PlotCommand {
                             + " " + C("InfoProtected") + ": " + C("WordNo"));
                 }
 
-                if (!plot.getMembers().isEmpty()) {
+                if (!plot.getMemberLevels().isEmpty()) {
                     StringBuilder builder = new StringBuilder("Members: ");
-                    if (!plot.getMembers().containsKey("*")) {
-                        for (Map.Entry<String, Plot.AccessLevel> member : plot.getMembers().entrySet()) {
-                            builder.append(plugin.getServerBridge().getOfflinePlayer(UUID.fromString(member.getKey())).getName()).append(" (")
+                    if (!plot.getMemberLevels().containsKey("*")) {
+                        for (Map.Entry<String, Plot.AccessLevel> member : plot.getMemberLevels().entrySet()) {
+                            builder.append(plugin.getNameCache().getDisplayName(member.getKey())).append(" (")
                                     .append(member.getValue().toString()).append(")   ");
                         }
                     } else {
@@ -105,12 +116,12 @@ public class CmdInfo extends PlotCommand {
                     player.sendMessage(builder.toString());
                 }
 
-                if (!plot.getDenied().isEmpty()) {
+                if (!plot.getDeniedPlayers().isEmpty()) {
                     StringBuilder builder = new StringBuilder(C("InfoDenied"));
                     builder.append(": ");
-                    if (!plot.getDenied().contains("*")) {
-                        for (String s : plot.getDenied()) {
-                            builder.append(plugin.getServerBridge().getOfflinePlayer(UUID.fromString(s)).getName()).append("  ");
+                    if (!plot.getDeniedPlayers().contains("*")) {
+                        for (String s : plot.getDeniedPlayers()) {
+                            builder.append(plugin.getNameCache().getDisplayName(s)).append("  ");
                         }
                     } else {
                         builder.append('*');
@@ -30,12 +30,10 @@ public class CmdLike extends PlotCommand {
                     player.sendMessage(C("NoPlotFound"));
                     return true;
                 }
-                if (plot.canPlayerLike(player.getUniqueId())) {
-                    plot.addLike(1, player.getUniqueId());
-                    plugin.getSqlManager().savePlot(plot);
+                if (plugin.getSqlManager().likePlot(plot, player.getUniqueId())) {
                     player.sendMessage(MessageFormat.format("Added like to plot {0}", plot.getId().getID()));
                 } else {
-                    plot.removeLike(1, player.getUniqueId());
+                    plugin.getSqlManager().unlikePlot(plot, player.getUniqueId());
                     player.sendMessage(MessageFormat.format("Removed like from plot {0}", plot.getId().getID()));
                 }
             } else {
@@ -0,0 +1,70 @@
+package com.worldcretornica.plotme_core.commands;
+
+import com.google.common.primitives.Doubles;
+import com.google.common.primitives.Ints;
+import com.worldcretornica.plotme_core.PermissionNames;
+import com.worldcretornica.plotme_core.Plot;
+import com.worldcretornica.plotme_core.PlotMe_Core;
+import com.worldcretornica.plotme_core.api.ICommandSender;
+import com.worldcretornica.plotme_core.api.IPlayer;
+import com.worldcretornica.plotme_core.api.IWorld;
+
+public class CmdMarket extends PlotCommand {
+
+    private static final int PAGE_SIZE = 10;
+
+    public CmdMarket(PlotMe_Core instance) {
+        super(instance);
+    }
+
+    public String getName() {
+        return "market";
+    }
+
+    public boolean execute(ICommandSender sender, String[] args) {
+        if (args.length > 4) {
+            sender.sendMessage(getUsage());
+            return true;
+        }
+        IPlayer player = (IPlayer) sender;
+        IWorld world = player.getWorld();
+        if (manager.isPlotWorld(world)) {
+            if (manager.isEconomyEnabled(world)) {
+                if (player.hasPermission(PermissionNames.USER_BUY)) {
+                    Integer page = args.length > 1 ? Ints.tryParse(args[1]) : Integer.valueOf(1);
+                    Double minPrice = args.length > 2 ? Doubles.tryParse(args[2]) : Double.valueOf(0);
+                    Double maxPrice = args.length > 3 ? Doubles.tryParse(args[3]) : Double.valueOf(Double.MAX_VALUE);
+                    if (page == null || minPrice == null || maxPrice == null || minPrice.isNaN() || maxPrice.isNaN()) {
+                        player.sendMessage(getUsage());
+                        return true;
+                    }
+
+                    int pages = (plugin.getSqlManager().countPlotsForSale(world, minPrice, maxPrice) + PAGE_SIZE - 1) / PAGE_SIZE;
+
+                    if (pages == 0) {
+                        player.sendMessage(C("NoPlotsForSale"));
+                    } else {
+                        int shown = Math.max(1, Math.min(page, pages));
+                        player.sendMessage(C("MsgPlotsForSalePage", shown, pages));
+
+                        for (Plot plot : plugin.getSqlManager().getPlotsForSale(world, minPrice, maxPrice, shown, PAGE_SIZE)) {
+                            player.sendMessage(plot.getId() + " -> " + plot.getOwner() + " @ " + serverBridge.getEconomy().get().format(plot.getPrice()));
+                        }
+                    }
+                } else {
+                    return false;
+                }
+            } else {
+                player.sendMessage(C("EconomyDisabled"));
+            }
+        } else {
+            player.sendMessage(C("NotPlotWorld"));
+        }
+        return true;
+    }
+
+    @Override
+    public String getUsage() {
+        return C("CmdMarketUsage");
+    }
+}
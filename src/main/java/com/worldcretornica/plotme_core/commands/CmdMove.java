@@ -9,6 +9,8 @@ import com.worldcretornica.plotme_core.api.IPlayer;
 import com.worldcretornica.plotme_core.api.IWorld;
 import com.worldcretornica.plotme_core.api.event.PlotMoveEvent;
 
+import java.util.Arrays;
+
 public class CmdMove extends PlotCommand {
 
     public CmdMove(PlotMe_Core instance) {
@@ -20,7 +22,7 @@ public class CmdMove extends PlotCommand {
     }
 
     public boolean execute(ICommandSender sender, String[] args) {
-        IPlayer player = (IPlayer) sender;
+        final IPlayer player = (IPlayer) sender;
         if (player.hasPermission(PermissionNames.ADMIN_MOVE)) {
             if (!manager.isPlotWorld(player)) {
                 player.sendMessage(C("NotPlotWorld"));
@@ -33,36 +35,20 @@ public class CmdMove extends PlotCommand {
                     player.sendMessage("You can't do that!");
                     return true;
                 }
-                IWorld world = player.getWorld();
+                final IWorld world = player.getWorld();
 
                 if (!PlotId.isValidID(plot1) || !PlotId.isValidID(plot2)) {
                     player.sendMessage("Something you typed is wrong!");
                 } else {
-                    PlotId id1 = new PlotId(plot1);
-                    final Plot plot_1 = manager.getPlotById(id1, world);
-                    if (plot_1 != null) {
-                        if (plot_1.isProtected()) {
-                            player.sendMessage("You can't do that!");
-                            return true;
-                        }
-                    }
-                    PlotId id2 = new PlotId(plot2);
-                    final Plot plot_2 = manager.getPlotById(id2, world);
-                    if (plot_2 != null) {
-                        if (plot_2.isProtected()) {
-                            player.sendMessage("You can't do that!");
-                            return true;
-                        }
-                    }
-                    PlotMoveEvent event = new PlotMoveEvent(id1, id2, player);
-                    plugin.getEventBus().post(event);
-                    if (!event.isCancelled()) {
-                        if (manager.movePlot(world, id1, id2)) {
-                            player.sendMessage(C("MsgPlotMovedSuccess"));
-                        } else {
-                            player.sendMessage(C("MovePlotError"));
+                    final PlotId id1 = new PlotId(plot1);
+                    final PlotId id2 = new PlotId(plot2);
+                    // Read both plots off the main thread first, they are usually far from the player
+                    plugin.getSqlManager().loadPlots(world, Arrays.asList(id1, id2), new Runnable() {
+                        @Override
+                        public void run() {
+                            move(player, world, id1, id2);
                         }
-                    }
+                    });
                 }
             }
         } else {
@@ -71,6 +57,32 @@ public class CmdMove extends PlotCommand {
         return true;
     }
 
+    private void move(IPlayer player, IWorld world, PlotId id1, PlotId id2) {
+        Plot plot_1 = manager.getPlotById(id1, world);
+        if (plot_1 != null) {
+            if (plot_1.isProtected()) {
+                player.sendMessage("You can't do that!");
+                return;
+            }
+        }
+        Plot plot_2 = manager.getPlotById(id2, world);
+        if (plot_2 != null) {
+            if (plot_2.isProtected()) {
+                player.sendMessage("You can't do that!");
+                return;
+            }
+        }
+        PlotMoveEvent event = new PlotMoveEvent(id1, id2, player);
+        plugin.getEventBus().post(event);
+        if (!event.isCancelled()) {
+            if (manager.movePlot(world, id1, id2)) {
+                player.sendMessage(C("MsgPlotMovedSuccess"));
+            } else {
+                player.sendMessage(C("MovePlotError"));
+            }
+        }
+    }
+
     @Override
     public String getUsage() {
         return C("CmdMoveUsage");
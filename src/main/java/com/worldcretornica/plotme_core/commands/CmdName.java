@@ -0,0 +1,78 @@
+package com.worldcretornica.plotme_core.commands;
+
+import com.worldcretornica.plotme_core.PermissionNames;
+import com.worldcretornica.plotme_core.Plot;
+import com.worldcretornica.plotme_core.PlotId;
+import com.worldcretornica.plotme_core.PlotMe_Core;
+import com.worldcretornica.plotme_core.api.ICommandSender;
+import com.worldcretornica.plotme_core.api.IPlayer;
+
+import java.util.regex.Pattern;
+
+public class CmdName extends PlotCommand {
+
+    private static final Pattern VALID_NAME = Pattern.compile("[A-Za-z0-9_-]{1," + Plot.MAX_NAME_LENGTH + "}");
+
+    public CmdName(PlotMe_Core instance) {
+        super(instance);
+    }
+
+    public String getName() {
+        return "name";
+    }
+
+    public boolean execute(ICommandSender sender, String[] args) {
+        if (args.length > 2) {
+            sender.sendMessage(getUsage());
+            return true;
+        }
+        final IPlayer player = (IPlayer) sender;
+        if (manager.isPlotWorld(player)) {
+            if (player.hasPermission(PermissionNames.USER_NAME) || player.hasPermission(PermissionNames.ADMIN_NAME)) {
+                Plot plot = manager.getPlot(player);
+                if (plot == null) {
+                    player.sendMessage(C("NoPlotFound"));
+                } else if (!player.getUniqueId().equals(plot.getOwnerId()) && !player.hasPermission(PermissionNames.ADMIN_NAME)) {
+                    player.sendMessage(C("MsgDoNotOwnPlot"));
+                } else if (args.length == 1) {
+                    plugin.getSqlManager().renamePlot(plot, null);
+                    player.sendMessage(C("MsgPlotNameRemoved"));
+                } else if (!VALID_NAME.matcher(args[1]).matches() || PlotId.isValidID(args[1])) {
+                    player.sendMessage(C("MsgInvalidPlotName", Plot.MAX_NAME_LENGTH));
+                } else {
+                    rename(player, plot, args[1]);
+                }
+            } else {
+                return false;
+            }
+        } else {
+            player.sendMessage(C("NotPlotWorld"));
+        }
+        return true;
+    }
+
+    private void rename(final IPlayer player, final Plot plot, final String name) {
+        // Names in worlds that aren't loaded are looked up in the storage, so check them off the main thread
+        serverBridge.runTaskAsynchronously(new Runnable() {
+            @Override
+            public void run() {
+                final boolean taken = plugin.getSqlManager().isPlotNameTaken(plot, name);
+                serverBridge.runTask(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (!taken && plugin.getSqlManager().renamePlot(plot, name)) {
+                            player.sendMessage(C("MsgPlotNamed", name));
+                        } else {
+                            player.sendMessage(C("MsgPlotNameTaken", name));
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    @Override
+    public String getUsage() {
+        return C("CmdNameUsage");
+    }
+}
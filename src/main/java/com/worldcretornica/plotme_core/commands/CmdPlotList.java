@@ -5,7 +5,6 @@ import com.worldcretornica.plotme_core.PermissionNames;
 import com.worldcretornica.plotme_core.Plot;
 import com.worldcretornica.plotme_core.PlotMe_Core;
 import com.worldcretornica.plotme_core.api.ICommandSender;
-import com.worldcretornica.plotme_core.api.IOfflinePlayer;
 import com.worldcretornica.plotme_core.api.IPlayer;
 
 import java.util.List;
@@ -28,12 +27,11 @@ public class CmdPlotList extends PlotCommand {
                 UUID uuid;
                 int page = 1;
                 if (args.length >= 2) {
-                    IOfflinePlayer offlinePlayer = serverBridge.getOfflinePlayer(args[1]);
-                    if (offlinePlayer == null) {
+                    uuid = getUniqueId(args[1]);
+                    if (uuid == null) {
                         player.sendMessage("No player found by that name");
                         return true;
                     }
-                    uuid = offlinePlayer.getUniqueId();
                     if (args.length == 3) {
                         page = Integer.parseInt(args[2]);
                     }
@@ -5,7 +5,6 @@ import com.worldcretornica.plotme_core.Plot;
 import com.worldcretornica.plotme_core.PlotMapInfo;
 import com.worldcretornica.plotme_core.PlotMe_Core;
 import com.worldcretornica.plotme_core.api.ICommandSender;
-import com.worldcretornica.plotme_core.api.IOfflinePlayer;
 import com.worldcretornica.plotme_core.api.IPlayer;
 import com.worldcretornica.plotme_core.api.IWorld;
 import com.worldcretornica.plotme_core.api.event.PlotRemoveAllowedEvent;
@@ -53,12 +52,12 @@ public class CmdRemove extends PlotCommand {
                         if (args[1].equals("*")) {
                             allowed = "*";
                         } else {
-                            IOfflinePlayer offlinePlayer = serverBridge.getOfflinePlayer(args[1]);
-                            if (offlinePlayer == null) {
+                            UUID allowedId = getUniqueId(args[1]);
+                            if (allowedId == null) {
                                 player.sendMessage("An error occured while trying to remove " + args[1]);
                                 return true;
                             } else {
-                                allowed = offlinePlayer.getUniqueId().toString();
+                                allowed = allowedId.toString();
                             }
                         }
                         if (plot.isMember(allowed).isPresent()) {
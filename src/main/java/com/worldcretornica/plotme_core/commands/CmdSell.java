@@ -33,7 +33,9 @@ public class CmdSell extends PlotCommand {
                             player.sendMessage(C("NoPlotFound"));
                             return true;
                         } else {
-                            if (player.getUniqueId().equals(plot.getOwnerId()) || player.hasPermission(PermissionNames.ADMIN_SELL)) {
+                            if (plugin.getSqlManager().isPlotLocked(plot)) {
+                                player.sendMessage(C("MsgPlotBeingBought"));
+                            } else if (player.getUniqueId().equals(plot.getOwnerId()) || player.hasPermission(PermissionNames.ADMIN_SELL)) {
 
                                 PlotSellChangeEvent event;
                                 if (plot.isForSale()) {
@@ -62,6 +64,9 @@ public class CmdSell extends PlotCommand {
                                         try {
                                             price = Double.parseDouble(args[1]);
                                         } catch (NumberFormatException e) {
+                                            price = Double.NaN;
+                                        }
+                                        if (Double.isNaN(price) || Double.isInfinite(price) || price < 0) {
                                             player.sendMessage("Invalid price.");
                                             return true;
                                         }
@@ -43,7 +43,9 @@ public class CmdSetOwner extends PlotCommand {
             }
 
 
-            if (!plot.getOwnerId().equals(newOwner.getUniqueId())) {
+            if (plugin.getSqlManager().isPlotLocked(plot)) {
+                player.sendMessage(C("MsgPlotBeingBought"));
+            } else if (!plot.getOwnerId().equals(newOwner.getUniqueId())) {
                 PlotOwnerChangeEvent event = new PlotOwnerChangeEvent(plot, player, newOwner);
                 plugin.getEventBus().post(event);
 
@@ -29,7 +29,7 @@ public class CmdTP extends PlotCommand {
     }
 
     public boolean execute(ICommandSender sender, String[] args) {
-        IPlayer player = (IPlayer) sender;
+        final IPlayer player = (IPlayer) sender;
         if (player.hasPermission(PermissionNames.ADMIN_TP)) {
             boolean plotWorld = manager.isPlotWorld(player);
             if (plotWorld || plugin.getConfig().getBoolean("allowWorldTeleport")) {
@@ -48,19 +48,48 @@ public class CmdTP extends PlotCommand {
                     }
 
                     if (PlotId.isValidID(args[1])) {
-                        PlotId id2 = new PlotId(args[1]);
+                        final PlotId id2 = new PlotId(args[1]);
                         if (manager.isPlotWorld(world)) {
-                            Location location = manager.getPlotHome(id2, player.getWorld());
-                            Plot plot = manager.getPlotById(id2, world);
-                            PlotTeleportEvent event = new PlotTeleportEvent(plot, player, location, id2);
-                            plugin.getEventBus().post(event);
+                            final IWorld target = world;
+                            // Read the plot off the main thread first, it is usually far from the player
+                            plugin.getSqlManager().loadPlots(target, Collections.singletonList(id2), new Runnable() {
+                                @Override
+                                public void run() {
+                                    Location location = manager.getPlotHome(id2, target);
+                                    Plot plot = manager.getPlotById(id2, target);
+                                    PlotTeleportEvent event = new PlotTeleportEvent(plot, player, location, id2);
+                                    plugin.getEventBus().post(event);
 
-                            if (!event.isCancelled()) {
-                                player.teleport(location, plugin);
-                            }
+                                    if (!event.isCancelled()) {
+                                        player.teleport(location, plugin);
+                                    }
+                                }
+                            });
                         } else {
                             player.sendMessage(C("MsgNoPlotworldFound"));
                         }
+                    } else {
+                        final String name = args[1];
+                        final IWorld narrowedTo = args.length == 3 ? world : null;
+                        // Read the plot off the main thread first, it is usually far from the player
+                        plugin.getSqlManager().loadPlotByName(name, new Runnable() {
+                            @Override
+                            public void run() {
+                                Plot plot = plugin.getSqlManager().getPlotByName(name);
+                                // Names are unique across worlds, so a world given with a name only narrows the search
+                                if (plot == null || narrowedTo != null && !plot.getWorld().equals(narrowedTo)) {
+                                    player.sendMessage(C("MsgNoPlotNamed", name));
+                                    return;
+                                }
+                                Location location = manager.getPlotHome(plot.getId(), plot.getWorld());
+                                PlotTeleportEvent event = new PlotTeleportEvent(plot, player, location, plot.getId());
+                                plugin.getEventBus().post(event);
+
+                                if (!event.isCancelled()) {
+                                    player.teleport(location, plugin);
+                                }
+                            }
+                        });
                     }
                 } else {
                     player.sendMessage(getUsage());
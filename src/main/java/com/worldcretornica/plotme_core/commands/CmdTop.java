@@ -0,0 +1,64 @@
+package com.worldcretornica.plotme_core.commands;
+
+import com.worldcretornica.plotme_core.PermissionNames;
+import com.worldcretornica.plotme_core.Plot;
+import com.worldcretornica.plotme_core.PlotMe_Core;
+import com.worldcretornica.plotme_core.api.ICommandSender;
+import com.worldcretornica.plotme_core.api.IPlayer;
+import com.worldcretornica.plotme_core.api.IWorld;
+
+import java.util.List;
+
+public class CmdTop extends PlotCommand {
+
+    private static final int COUNT = 10;
+
+    public CmdTop(PlotMe_Core instance) {
+        super(instance);
+    }
+
+    public String getName() {
+        return "top";
+    }
+
+    public boolean execute(ICommandSender sender, String[] args) {
+        final IPlayer player = (IPlayer) sender;
+        if (player.hasPermission(PermissionNames.USER_TOP)) {
+            final IWorld world = player.getWorld();
+            final boolean ofWorld = manager.isPlotWorld(world) && !(args.length == 2 && "all".equalsIgnoreCase(args[1]));
+            if (ofWorld) {
+                player.sendMessage(C("MsgTopPlotsOfWorld", world.getName()));
+            } else {
+                player.sendMessage(C("MsgTopPlots"));
+            }
+            // Plots that aren't in memory are read from the storage, so the list is put together off the main thread
+            serverBridge.runTaskAsynchronously(new Runnable() {
+                @Override
+                public void run() {
+                    final List<Plot> top = ofWorld ? plugin.getSqlManager().getTopPlots(world, COUNT) : plugin.getSqlManager().getTopPlots(COUNT);
+                    serverBridge.runTask(new Runnable() {
+                        @Override
+                        public void run() {
+                            if (top.isEmpty()) {
+                                player.sendMessage(C("NoLikedPlots"));
+                            }
+                            int rank = 1;
+                            for (Plot plot : top) {
+                                player.sendMessage(rank++ + ". " + plot.getId() + " (" + plot.getWorld().getName() + ") -> " + plot.getOwner() + " : "
+                                        + plot.getLikes());
+                            }
+                        }
+                    });
+                }
+            });
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public String getUsage() {
+        return C("CmdTopUsage");
+    }
+}
@@ -5,12 +5,13 @@ import com.worldcretornica.plotme_core.Plot;
 import com.worldcretornica.plotme_core.PlotMapInfo;
 import com.worldcretornica.plotme_core.PlotMe_Core;
 import com.worldcretornica.plotme_core.api.ICommandSender;
-import com.worldcretornica.plotme_core.api.IOfflinePlayer;
 import com.worldcretornica.plotme_core.api.IPlayer;
 import com.worldcretornica.plotme_core.api.IWorld;
 import com.worldcretornica.plotme_core.api.event.PlotRemoveDeniedEvent;
 import net.milkbowl.vault.economy.EconomyResponse;
 
+import java.util.UUID;
+
 public class CmdUndeny extends PlotCommand {
 
     public CmdUndeny(PlotMe_Core instance) {
@@ -46,12 +47,12 @@ public class CmdUndeny extends PlotCommand {
                     if ("*".equals(denied)) {
                         return undenyAll(plot, player, pmi);
                     }
-                    IOfflinePlayer offlinePlayer = serverBridge.getOfflinePlayer(denied);
-                    if (offlinePlayer == null) {
+                    UUID deniedId = getUniqueId(denied);
+                    if (deniedId == null) {
                         player.sendMessage("An error occured while trying to remove " + args[1]);
                         return true;
                     } else {
-                        denied = offlinePlayer.getUniqueId().toString();
+                        denied = deniedId.toString();
                     }
                     if (plot.isDenied(denied)) {
                         double price = 0.0;
@@ -117,7 +118,7 @@ public class CmdUndeny extends PlotCommand {
     }
 
     private boolean undenyAll(Plot plot, IPlayer player, PlotMapInfo pmi) {
-        if (!plot.getDenied().isEmpty()) {
+        if (!plot.getDeniedPlayers().isEmpty()) {
             double price = pmi.getUndenyPlayerPrice();
             PlotRemoveDeniedEvent event = new PlotRemoveDeniedEvent(plot, player, "*");
             if (manager.isEconomyEnabled(pmi)) {
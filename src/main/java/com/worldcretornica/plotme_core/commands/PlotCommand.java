@@ -3,11 +3,13 @@ package com.worldcretornica.plotme_core.commands;
 import com.worldcretornica.plotme_core.PlotMeCoreManager;
 import com.worldcretornica.plotme_core.PlotMe_Core;
 import com.worldcretornica.plotme_core.api.ICommandSender;
+import com.worldcretornica.plotme_core.api.IOfflinePlayer;
 import com.worldcretornica.plotme_core.api.IPlayer;
 import com.worldcretornica.plotme_core.api.IServerBridge;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.UUID;
 
 public abstract class PlotCommand {
 
@@ -49,6 +51,26 @@ public abstract class PlotCommand {
     }
 
 
+    /**
+     * Gets the UUID of a player by name, from the name cache, the players online or, as a last resort, the
+     * server's profile of the offline player.
+     *
+     * @param name player name
+     * @return the UUID of the player, or null if no player by that name is known
+     */
+    UUID getUniqueId(String name) {
+        UUID uuid = plugin.getNameCache().getUniqueId(name);
+        if (uuid != null) {
+            return uuid;
+        }
+        IPlayer online = serverBridge.getPlayer(name);
+        if (online != null) {
+            return online.getUniqueId();
+        }
+        IOfflinePlayer offline = serverBridge.getOfflinePlayer(name);
+        return offline == null ? null : offline.getUniqueId();
+    }
+
     String C(String caption, Object... args) {
         return plugin.C(caption, args);
     }
@@ -1,44 +1,184 @@
 package com.worldcretornica.plotme_core.storage;
 
-import com.google.common.base.Predicate;
-import com.google.common.collect.Collections2;
+import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Ordering;
+import com.google.common.primitives.Ints;
+import com.worldcretornica.plotme_core.NameCache;
 import com.worldcretornica.plotme_core.Plot;
 import com.worldcretornica.plotme_core.PlotId;
-import com.worldcretornica.plotme_core.PlotMeCoreManager;
+import com.worldcretornica.plotme_core.PlotMetadata;
 import com.worldcretornica.plotme_core.PlotMe_Core;
 import com.worldcretornica.plotme_core.api.IWorld;
 import com.worldcretornica.plotme_core.api.event.PlotLoadEvent;
 import com.worldcretornica.plotme_core.api.event.PlotWorldLoadEvent;
+import com.worldcretornica.plotme_core.utils.WorldTable;
 
+import java.io.File;
 import java.sql.Connection;
-import java.sql.Date;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
-import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.Vector;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 
-import javax.annotation.Nullable;
+/**
+ * Keeps the plots of the loaded worlds in memory and passes every change on to a {@link PlotStorage}.
+ *
+ * <p>With a SQL storage, the plots of every world are also written to a {@link PlotCacheSnapshot} when the
+ * plugin stops and every few minutes, see the {@code CacheSnapshotMinutes} setting. A world is read from
+ * its snapshot instead of the database if none of its plots changed since.</p>
+ *
+ * <p>With the {@code LazyPlotLoading} setting, plots are only read when they are asked for and plots
+ * nobody uses are evicted again, see {@link PlotResidency}. Queries for the plots of an owner or for
+ * expired, finished or for sale plots then go to the storage. Snapshots are not written in that mode.</p>
+ */
+public class Database {
 
-public abstract class Database {
+    private static final Ordering<Plot> MOST_LIKED = new Ordering<Plot>() {
+        @Override
+        public int compare(Plot left, Plot right) {
+            return Ints.compare(right.getLikes(), left.getLikes());
+        }
+    };
 
     public final ConcurrentHashMap<IWorld, HashMap<PlotId, Plot>> plots = new ConcurrentHashMap<>();
     final PlotMe_Core plugin;
+    private final PlotStorage storage;
+    /**
+     * The plots of each loaded world that were added, saved or removed lately.
+     */
+    private final WorldTable<PlotChangeLog> changeLogs = new WorldTable<>();
+    /**
+     * Snapshots of the plot cache, or null if the storage can't tell if a snapshot is up to date.
+     */
+    private final PlotCacheSnapshot snapshots;
+    private final WorldTable<SnapshotState> snapshotStates = new WorldTable<>();
+    /**
+     * Decides which plots stay in memory, or null if all plots of a loaded world are in memory.
+     */
+    private final PlotResidency residency;
+    /**
+     * Scan index of the plots of each loaded world, used to answer queries. Kept in addition to the plots,
+     * and only if all plots of a world are in memory.
+     */
+    private final WorldTable<PlotScanIndex> scanIndexes = new WorldTable<>();
+    /**
+     * The liked plots of each loaded world, ranked by their number of likes.
+     */
+    private final WorldTable<PlotRanking> rankings = new WorldTable<>();
+    /**
+     * The plots for sale of each loaded world, by price.
+     */
+    private final WorldTable<PlotMarket> markets = new WorldTable<>();
+    /**
+     * The names of the plots of all loaded worlds.
+     */
+    private final PlotNameIndex names = new PlotNameIndex();
+    /**
+     * The plots that are changing hands right now, by world name and plot id. Plots that aren't saved yet
+     * have no internal id, so it can't be used.
+     */
+    private final Set<String> lockedPlots = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    /**
+     * @deprecated internal ids are handed out by {@link PlotStorage#allocateId()}. Only {@link
+     * #incrementNextPlotId()} updates this field.
+     */
+    @Deprecated
     public long nextPlotId = 1;
-    Connection connection;
 
-    public Database(PlotMe_Core plugin) {
+    public Database(PlotMe_Core plugin, PlotStorage storage) {
         this.plugin = plugin;
+        this.storage = storage;
+        if (plugin.getConfig().getBoolean("LazyPlotLoading", false)) {
+            residency = new PlotResidency(this, plugin.getConfig().getInt("ResidentPlotBudget", 50000), plugin.getConfig().getInt("ResidentPlotRadius", 3));
+        } else {
+            residency = null;
+        }
+        if (residency == null && storage instanceof JdbcPlotStorage && plugin.getConfig().getInt("CacheSnapshotMinutes", 10) > 0) {
+            snapshots = new PlotCacheSnapshot(plugin.getLogger(), new File(plugin.getServerBridge().getDataFolder(), "cache"));
+        } else {
+            snapshots = null;
+        }
+    }
+
+    /**
+     * Gets the storage the plots are kept in.
+     *
+     * @return the storage
+     */
+    public PlotStorage getStorage() {
+        return storage;
+    }
+
+    /**
+     * Gets the connection of the SQL storage, opening it if needed.
+     *
+     * @return the connection, or null if the plots aren't stored in an SQL database
+     * @deprecated plots are written through {@link #getStorage()}; writes on this connection may be committed
+     * with the writes of the storage
+     */
+    @Deprecated
+    public Connection startConnection() {
+        return storage instanceof JdbcPlotStorage ? ((JdbcPlotStorage) storage).getConnection() : null;
+    }
+
+    /**
+     * @deprecated see {@link #startConnection()}
+     */
+    @Deprecated
+    Connection getConnection() {
+        return startConnection();
+    }
+
+    /**
+     * Deletes the rows of a plot from a table of the SQL storage. Does nothing for other storages.
+     *
+     * @deprecated plots are removed through {@link #deletePlot(Plot)}
+     */
+    @Deprecated
+    public void deleteAllFrom(long internalID, String table) {
+        if (storage instanceof JdbcPlotStorage) {
+            ((JdbcPlotStorage) storage).deleteAllFrom(internalID, table);
+        }
+    }
+
+    /**
+     * Hands out the next internal id and stores the id after it in {@link #nextPlotId}.
+     *
+     * @deprecated use {@link PlotStorage#allocateId()}
+     */
+    @Deprecated
+    public void incrementNextPlotId() {
+        nextPlotId = storage.allocateId() + 1;
+    }
+
+    /**
+     * @deprecated the storage hands out internal ids and can't be set back; this only sets {@link #nextPlotId}
+     */
+    @Deprecated
+    public void setNextPlotId(long id) {
+        nextPlotId = id;
+    }
+
+    /**
+     * Evicts the plots nobody used lately if more plots are in memory than the {@code ResidentPlotBudget}
+     * allows, and reads the plots around online players ahead. Does nothing unless plots are loaded lazily.
+     * Runs on the main thread.
+     */
+    public void evictPlots() {
+        if (residency != null) {
+            residency.run();
+        }
     }
 
     /**
@@ -49,45 +189,220 @@ public abstract class Database {
     public List<Plot> getPlots() {
         Vector<Plot> allPlots = new Vector<>();
         for (HashMap<PlotId, Plot> plotIdPlotHashMap : plots.values()) {
-            allPlots.addAll(plotIdPlotHashMap.values());
+            synchronized (plotIdPlotHashMap) {
+                allPlots.addAll(plotIdPlotHashMap.values());
+            }
         }
         return allPlots;
     }
 
     /**
-     * Closes the connecection to the database.
-     * This will not close the connection if the connection is null.
+     * Gets the loaded plots of a single world. If plots are loaded lazily, only the plots that are in memory
+     * right now are returned. Safe to call from any thread.
+     *
+     * @param world plotworld
+     * @return a copy of the plots in the world, or an empty collection if the world has not been loaded
+     */
+    public Collection<Plot> getPlots(IWorld world) {
+        HashMap<PlotId, Plot> worldPlots = plots.get(world);
+        if (worldPlots == null) {
+            return ImmutableList.of();
+        }
+        synchronized (worldPlots) {
+            return ImmutableList.copyOf(worldPlots.values());
+        }
+    }
+
+    /**
+     * Gets the plots of a loaded world that a player owns or is a member of. If plots are loaded lazily, the
+     * plots are read from the storage. Safe to call from any thread.
+     *
+     * @param world plotworld
+     * @param player UUID of the player
+     * @return the plots. unmodifiable.
+     */
+    public List<Plot> getMemberPlots(IWorld world, UUID player) {
+        HashMap<PlotId, Plot> worldPlots = plots.get(world);
+        if (worldPlots == null) {
+            return ImmutableList.of();
+        }
+        if (residency != null) {
+            return preferResident(world, worldPlots, storage.findMemberPlots(world, player));
+        }
+        List<Plot> found = new ArrayList<>();
+        synchronized (worldPlots) {
+            for (Plot plot : worldPlots.values()) {
+                if (player.equals(plot.getOwnerId()) || plot.isMember(player).isPresent()) {
+                    found.add(plot);
+                }
+            }
+        }
+        return ImmutableList.copyOf(found);
+    }
+
+    /**
+     * Gets a plot if it is in memory, without reading it from the storage. Safe to call from any thread.
+     *
+     * @param id plot id
+     * @param world plotworld
+     * @return the plot, or null if it isn't claimed or not in memory
+     */
+    public Plot getLoadedPlot(PlotId id, IWorld world) {
+        HashMap<PlotId, Plot> worldPlots = plots.get(world);
+        return worldPlots == null ? null : cached(worldPlots, id);
+    }
+
+    /**
+     * Gets a claimed plot without keeping it in memory. If plots are loaded lazily and the plot isn't in
+     * memory, the copy still in use is returned, or else the plot is read from the storage. Safe to call from
+     * any thread.
+     *
+     * @param id plot id
+     * @param world plotworld
+     * @return the plot, or null if it isn't claimed or the world isn't loaded
+     */
+    public Plot findPlot(PlotId id, IWorld world) {
+        HashMap<PlotId, Plot> worldPlots = plots.get(world);
+        if (worldPlots == null) {
+            return null;
+        }
+        Plot plot = cached(worldPlots, id);
+        if (plot == null && residency != null) {
+            plot = residency.getReleased(world, id);
+            if (plot == null) {
+                plot = storage.loadPlot(world, id);
+                if (plot != null) {
+                    plot = residency.release(world, plot);
+                }
+            }
+        }
+        return plot;
+    }
+
+    private static Plot cached(HashMap<PlotId, Plot> worldPlots, PlotId id) {
+        synchronized (worldPlots) {
+            return worldPlots.get(id);
+        }
+    }
+
+    /**
+     * Writes the snapshots of the worlds that changed and closes the storage.
      */
     public void closeConnection() {
-        if (connection != null) {
-            try {
-                connection.close();
-            } catch (SQLException e) {
-                plugin.getLogger().severe("Could not close database connection: ");
-                plugin.getLogger().severe(e.getMessage());
+        if (snapshots != null) {
+            for (Map.Entry<IWorld, HashMap<PlotId, Plot>> entry : plots.entrySet()) {
+                SnapshotState state = snapshotStates.get(entry.getKey());
+                if (state != null && state.generation != state.snapshotGeneration) {
+                    PlotCacheSnapshot.Encoded encoded;
+                    synchronized (entry.getValue()) {
+                        encoded = snapshots.encode(entry.getValue().values());
+                    }
+                    writeSnapshot(entry.getKey(), state, state.generation, encoded, newStamp());
+                }
             }
         }
+        storage.close();
     }
 
-    public abstract Connection startConnection();
+    /**
+     * Writes the snapshots of the worlds that changed since their last snapshot. Only the list of plots is
+     * copied on the main thread; the plots are encoded and written in the background. A plot that changes
+     * while it is encoded also changes the generation of its world, so such a snapshot is never stamped.
+     * Runs on the main thread.
+     */
+    public void writeSnapshots() {
+        if (snapshots == null) {
+            return;
+        }
+        for (Map.Entry<IWorld, HashMap<PlotId, Plot>> entry : plots.entrySet()) {
+            final IWorld world = entry.getKey();
+            final SnapshotState state = snapshotStates.get(world);
+            if (state == null) {
+                continue;
+            }
+            final long generation;
+            synchronized (state) {
+                if (state.generation == state.snapshotGeneration) {
+                    continue;
+                }
+                generation = state.generation;
+            }
+            final List<Plot> worldPlots;
+            synchronized (entry.getValue()) {
+                worldPlots = new ArrayList<>(entry.getValue().values());
+            }
+            final long stamp = newStamp();
+            plugin.getServerBridge().runTaskAsynchronously(new Runnable() {
+                @Override
+                public void run() {
+                    PlotCacheSnapshot.Encoded encoded;
+                    try {
+                        encoded = snapshots.encode(worldPlots);
+                    } catch (ConcurrentModificationException e) {
+                        // A plot changed while it was encoded, the next snapshot will have it
+                        return;
+                    }
+                    writeSnapshot(world, state, generation, encoded, stamp);
+                }
+            });
+        }
+    }
 
     /**
-     * The database connection
-     * @return the connection to the database
+     * Writes a snapshot and stores its stamp, unless the world changed since it was encoded.
      */
-    Connection getConnection() {
-        try {
-            if (connection == null || connection.isClosed()) {
-                return startConnection();
+    private void writeSnapshot(IWorld world, SnapshotState state, long generation, PlotCacheSnapshot.Encoded encoded, long stamp) {
+        if (!snapshots.write(world.getName(), stamp, encoded)) {
+            return;
+        }
+        synchronized (state) {
+            if (state.generation != generation) {
+                return;
             }
-        } catch (SQLException e) {
-            plugin.getLogger().severe("Oh no! A connection error occurred:");
-            plugin.getLogger().severe(e.getMessage());
+            ((JdbcPlotStorage) storage).setCacheStamp(world.getName(), stamp);
+            state.stamped = true;
+            state.snapshotGeneration = generation;
         }
-        return connection;
     }
 
-    protected abstract void createTables();
+    /**
+     * Records that a plot of a world is about to change, which makes the snapshot of the world out of date.
+     * Changes made through {@link #savePlot} and {@link #deletePlot} are recorded already.
+     *
+     * @param world the plotworld
+     */
+    public void changed(IWorld world) {
+        SnapshotState state = snapshots == null ? null : snapshotStates.get(world);
+        if (state == null) {
+            return;
+        }
+        boolean stamped;
+        synchronized (state) {
+            state.generation++;
+            stamped = state.stamped;
+            state.stamped = false;
+        }
+        if (stamped) {
+            ((JdbcPlotStorage) storage).setCacheStamp(world.getName(), 0);
+        }
+    }
+
+    private static long newStamp() {
+        long stamp;
+        do {
+            stamp = ThreadLocalRandom.current().nextLong();
+        } while (stamp == 0);
+        return stamp;
+    }
+
+    /**
+     * Starts the data migrations that didn't finish yet, in the background.
+     */
+    public void startBackgroundMigrations() {
+        if (storage instanceof JdbcPlotStorage) {
+            ((JdbcPlotStorage) storage).startBackgroundMigrations();
+        }
+    }
 
     /**
      * Get the number of plots in the world
@@ -95,7 +410,13 @@ public abstract class Database {
      * @return number of plots in the world
      */
     public int getWorldPlotCount(IWorld world) {
-        return plots.get(world).size();
+        if (residency != null) {
+            return residency.getClaimedCount(world);
+        }
+        HashMap<PlotId, Plot> worldPlots = plots.get(world);
+        synchronized (worldPlots) {
+            return worldPlots.size();
+        }
     }
 
     /**
@@ -107,56 +428,125 @@ public abstract class Database {
     }
 
     public int getPlotCount(IWorld world, final UUID uuid) {
-        return Collections2.filter(plots.get(world).values(), new Predicate<Plot>() {
-            @Override public boolean apply(@Nullable Plot input) {
-                return input.getOwnerId().equals(uuid);
+        if (residency != null) {
+            return getOwnedPlots(world, uuid).size();
+        }
+        return selectLoaded(world, PlotQuery.ownedBy(uuid)).size();
+    }
+
+    /**
+     * A counter that is incremented every time a plot of a world is added, saved or removed. Callers that
+     * derive data from plot ownership or membership can compare it to a previously seen value to know when
+     * their data is stale, and ask {@link #getChangedPlots} which plots changed. Reading plots into memory or
+     * evicting them doesn't count as a change. Safe to call from any thread.
+     *
+     * @param world plotworld
+     * @return the current revision of the world
+     */
+    public long getRevision(IWorld world) {
+        return changeLog(world).getRevision();
+    }
+
+    /**
+     * Collects the plots of a world that were added, saved or removed after a revision. Only the last few
+     * hundred changes are kept. Safe to call from any thread.
+     *
+     * @param world plotworld
+     * @param revision a revision returned by {@link #getRevision} or by this method
+     * @param changed receives the ids of the plots that changed
+     * @return the current revision of the world, or -1 if changes that old are no longer known and the caller
+     * has to start over
+     */
+    public long getChangedPlots(IWorld world, long revision, Collection<PlotId> changed) {
+        return changeLog(world).getChanges(revision, changed);
+    }
+
+    private PlotChangeLog changeLog(IWorld world) {
+        PlotChangeLog log = changeLogs.get(world);
+        if (log == null) {
+            synchronized (changeLogs) {
+                log = changeLogs.get(world);
+                if (log == null) {
+                    log = new PlotChangeLog();
+                    changeLogs.put(world, log);
+                }
             }
-        }).size();
+        }
+        return log;
     }
 
     public void addPlot(Plot plot) {
+        if (residency != null) {
+            residency.claimed(plot.getWorld(), plot.getId());
+        }
         addPlotToCache(plot);
         savePlot(plot);
     }
 
     private void addPlotToCache(Plot plot) {
-        plots.get(plot.getWorld()).put(plot.getId(), plot);
+        HashMap<PlotId, Plot> worldPlots = plots.get(plot.getWorld());
+        synchronized (worldPlots) {
+            worldPlots.put(plot.getId(), plot);
+        }
+        PlotScanIndex scanIndex = scanIndexes.get(plot.getWorld());
+        if (scanIndex != null) {
+            scanIndex.put(plot);
+        }
+    }
+
+    /**
+     * Removes a plot that is added again under another id, as when plots are moved. The plot reads all of
+     * its metadata first and keeps it in memory, so the metadata is written again when the plot is added.
+     *
+     * @param plot the plot
+     */
+    public void deletePlotToMove(Plot plot) {
+        if (plot.getInternalID() != 0) {
+            if (!plot.isMetadataComplete()) {
+                plot.attachAllMetadata(storage.loadAllMetadata(plot));
+            }
+            for (PlotMetadata metadata : plot.getLoadedMetadata()) {
+                metadata.markChanged();
+            }
+        }
+        deletePlot(plot);
     }
 
     public boolean deletePlot(Plot plot) {
-        deletePlotFromStorage(plot);
+        changed(plot.getWorld());
+        storage.deletePlot(plot);
+        if (residency != null) {
+            residency.removed(plot.getWorld(), plot.getId());
+        }
+        PlotRanking ranking = rankings.get(plot.getWorld());
+        if (ranking != null) {
+            ranking.remove(plot.getId());
+        }
+        PlotMarket market = markets.get(plot.getWorld());
+        if (market != null) {
+            market.remove(plot.getId());
+        }
+        names.remove(plot.getWorld(), plot.getId());
+        changeLog(plot.getWorld()).add(plot.getId());
         return deletePlotFromCache(plot);
 
     }
 
     private boolean deletePlotFromCache(Plot plot) {
-        plots.get(plot.getWorld()).remove(plot.getId());
-        return true;
-    }
-
-    private void deletePlotFromStorage(Plot plot) {
-        deleteAllFrom(plot.getInternalID(), "plotmecore_allowed");
-        deleteAllFrom(plot.getInternalID(), "plotmecore_denied");
-        deleteAllFrom(plot.getInternalID(), "plotmecore_metadata");
-        deleteAllFrom(plot.getInternalID(), "plotmecore_likes");
-        deleteAllFrom(plot.getInternalID(), "plotmecore_plots");
-    }
-
-    public void deleteAllFrom(final long internalID, final String table) {
-        try (Statement statement = getConnection().createStatement()) {
-            statement.execute("DELETE FROM " + table + " WHERE plot_id = " + internalID);
-            getConnection().commit();
-        } catch (SQLException e) {
-            plugin.getLogger().severe("Error deleting plot " + internalID + "'s data from table: " + table);
-            plugin.getLogger().severe("Details: " + e.getMessage());
-            plugin.getLogger().severe("Error Code: " + e.getErrorCode());
-            plugin.getLogger().severe("SQLState: " + e.getSQLState());
+        HashMap<PlotId, Plot> worldPlots = plots.get(plot.getWorld());
+        synchronized (worldPlots) {
+            worldPlots.remove(plot.getId());
         }
+        PlotScanIndex scanIndex = scanIndexes.get(plot.getWorld());
+        if (scanIndex != null) {
+            scanIndex.remove(plot.getId());
+        }
+        return true;
     }
 
-
     /**
-     * Placeholder.
+     * Gets the plots a player owns in the loaded worlds. If plots are loaded lazily, the plots are read from
+     * the storage and kept in memory. Runs on the main thread.
      *
      * @param uuid
      * @return plots. unmodifiable.
@@ -164,30 +554,63 @@ public abstract class Database {
 
     public List<Plot> getPlayerPlots(final UUID uuid) {
         ArrayList<Plot> filter = new ArrayList<>();
-        for (HashMap<PlotId, Plot> plotIdPlotHashMap : plots.values()) {
-            filter.addAll(Collections2.filter(plotIdPlotHashMap.values(), new Predicate<Plot>() {
-                @Override public boolean apply(Plot plot) {
-                    return plot.getOwnerId().equals(uuid);
+        if (residency != null) {
+            for (Map.Entry<IWorld, HashMap<PlotId, Plot>> entry : plots.entrySet()) {
+                for (Plot plot : storage.findOwnedPlots(entry.getKey(), uuid)) {
+                    filter.add(adopt(entry.getKey(), entry.getValue(), plot));
                 }
-            }));
+            }
+            return ImmutableList.copyOf(filter);
+        }
+        for (IWorld world : plots.keySet()) {
+            filter.addAll(selectLoaded(world, PlotQuery.ownedBy(uuid)));
         }
         return ImmutableList.copyOf(filter);
     }
 
     /**
-     * Placeholder.
+     * Gets the plots a player owns in the loaded worlds without keeping them in memory. If plots are loaded
+     * lazily, they are read from the storage and the plots that are not in memory are returned as read.
+     * Safe to call from any thread.
+     *
+     * @param uuid
+     * @return plots. unmodifiable.
+     */
+    public List<Plot> findPlayerPlots(UUID uuid) {
+        ArrayList<Plot> found = new ArrayList<>();
+        for (Map.Entry<IWorld, HashMap<PlotId, Plot>> entry : plots.entrySet()) {
+            if (residency != null) {
+                found.addAll(preferResident(entry.getKey(), entry.getValue(), storage.findOwnedPlots(entry.getKey(), uuid)));
+                continue;
+            }
+            synchronized (entry.getValue()) {
+                for (Plot plot : entry.getValue().values()) {
+                    if (uuid.equals(plot.getOwnerId())) {
+                        found.add(plot);
+                    }
+                }
+            }
+        }
+        return ImmutableList.copyOf(found);
+    }
+
+    /**
+     * Gets the plots a player owns in a world. The plots of a world that isn't loaded, or of any world if
+     * plots are loaded lazily, are read from the storage.
      *
      * @param world
      * @param uuid
      * @return owned plots. unmodifiable.
      */
     public List<Plot> getOwnedPlots(final IWorld world, final UUID uuid) {
-        Collection<Plot> filter = Collections2.filter(plots.get(world).values(), new Predicate<Plot>() {
-            @Override public boolean apply(Plot plot) {
-                return plot.getOwnerId().equals(uuid) && plot.getWorld().equals(world);
-            }
-        });
-        return ImmutableList.copyOf(filter);
+        HashMap<PlotId, Plot> worldPlots = plots.get(world);
+        if (worldPlots == null) {
+            return ImmutableList.copyOf(storage.findOwnedPlots(world, uuid));
+        }
+        if (residency != null) {
+            return preferResident(world, worldPlots, storage.findOwnedPlots(world, uuid));
+        }
+        return ImmutableList.copyOf(selectLoaded(world, PlotQuery.ownedBy(uuid)));
     }
 
     public void loadPlotsAsynchronously(final IWorld world) {
@@ -195,8 +618,55 @@ public abstract class Database {
             @Override
             public void run() {
                 plugin.getLogger().info("Loading plots for world " + world.getName());
-                HashMap<PlotId, Plot> plots2 = getPlots(world);
+                if (residency != null) {
+                    int claimed = residency.loadWorld(world);
+                    rankings.put(world, new PlotRanking(storage.loadLikeCounts(world)));
+                    PlotMarket market = new PlotMarket();
+                    for (Plot plot : storage.findPlots(world, PlotQuery.forSale(), null, Integer.MAX_VALUE)) {
+                        market.put(plot);
+                    }
+                    markets.put(world, market);
+                    names.loadWorld(world, storage.loadPlotNames(world));
+                    plots.put(world, new HashMap<PlotId, Plot>());
+                    changeLog(world).clear();
+                    plugin.getEventBus().post(new PlotWorldLoadEvent(world, claimed));
+                    return;
+                }
+                HashMap<PlotId, Plot> plots2 = null;
+                if (snapshots != null) {
+                    long stamp = ((JdbcPlotStorage) storage).getCacheStamp(world.getName());
+                    plots2 = snapshots.read(world, stamp);
+                    SnapshotState state = new SnapshotState();
+                    state.stamped = stamp != 0;
+                    state.snapshotGeneration = plots2 == null ? -1 : 0;
+                    snapshotStates.put(world, state);
+                    if (plots2 != null) {
+                        plugin.getLogger().info("Read " + plots2.size() + " plots of " + world.getName() + " from the plot cache");
+                    }
+                }
+                if (plots2 == null) {
+                    plots2 = new HashMap<>(storage.loadWorld(world));
+                }
+                PlotScanIndex scanIndex = new PlotScanIndex(plots2.size());
+                PlotMarket market = new PlotMarket();
+                HashMap<PlotId, Integer> likes = new HashMap<>();
+                HashMap<PlotId, String> plotNames = new HashMap<>();
+                for (Plot plot : plots2.values()) {
+                    scanIndex.put(plot);
+                    market.put(plot);
+                    if (plot.getLikes() > 0) {
+                        likes.put(plot.getId(), plot.getLikes());
+                    }
+                    if (plot.getPlotName() != null) {
+                        plotNames.put(plot.getId(), plot.getPlotName());
+                    }
+                }
+                scanIndexes.put(world, scanIndex);
+                markets.put(world, market);
+                names.loadWorld(world, plotNames);
+                rankings.put(world, new PlotRanking(likes));
                 plots.put(world, plots2);
+                changeLog(world).clear();
                 PlotWorldLoadEvent eventWorld = new PlotWorldLoadEvent(world, plots2.size());
                 plugin.getEventBus().post(eventWorld);
                 for (Plot plot : plots2.values()) {
@@ -206,243 +676,583 @@ public abstract class Database {
                 }
 
             }
+        });
+    }
 
-            private HashMap<PlotId, Plot> getPlots(IWorld world) {
-                HashMap<PlotId, Plot> ret = new HashMap<>();
-                Connection connection = getConnection();
-                try (PreparedStatement statementPlot = connection.prepareStatement("SELECT * FROM plotmecore_plots WHERE LOWER(world) = ?");
-                        PreparedStatement statementAllowed = connection.prepareStatement("SELECT * FROM plotmecore_allowed WHERE plot_id = ?");
-                        PreparedStatement statementDenied = connection.prepareStatement("SELECT * FROM plotmecore_denied WHERE plot_id = ?");
-                        PreparedStatement statementLikes = connection.prepareStatement("SELECT * FROM plotmecore_likes WHERE plot_id = ?");
-                        PreparedStatement statementMetadata = connection.prepareStatement("SELECT * FROM plotmecore_metadata WHERE plot_id = ?")
-                ) {
-                    statementPlot.setString(1, world.getName().toLowerCase());
-                    try (ResultSet setPlots = statementPlot.executeQuery()) {
-                        while (setPlots.next()) {
-                            long internalID = setPlots.getLong("plot_id");
-                            PlotId id = new PlotId(setPlots.getInt("plotX"), setPlots.getInt("plotZ"));
-                            String owner = setPlots.getString("owner");
-                            UUID ownerId = UUID.fromString(setPlots.getString("ownerID"));
-                            String biome = setPlots.getString("biome");
-                            Date expiredDate = setPlots.getDate("expiredDate");
-                            boolean finished = setPlots.getBoolean("finished");
-                            String finishedDate = setPlots.getString("finishedDate");
-                            String createdDate = setPlots.getString("createdDate");
-                            double price = setPlots.getDouble("price");
-                            boolean forSale = setPlots.getBoolean("forSale");
-                            boolean protect = setPlots.getBoolean("protected");
-                            String plotName = setPlots.getString("plotName");
-                            int plotLikes = setPlots.getInt("plotLikes");
-                            com.worldcretornica.plotme_core.api.Vector
-                                    topLoc = PlotMeCoreManager.getInstance().getPlotTopLoc(world, id);
-                            com.worldcretornica.plotme_core.api.Vector bottomLoc =
-                                    PlotMeCoreManager.getInstance().getPlotBottomLoc(world, id);
-                            HashMap<String, Map<String, String>> metadata = new HashMap<>();
-                            HashMap<String, Plot.AccessLevel> allowed = new HashMap<>();
-                            HashSet<String> denied = new HashSet<>();
-                            HashSet<UUID> likers = new HashSet<>();
-                            statementAllowed.setLong(1, internalID);
-                            try (ResultSet setAllowed = statementAllowed.executeQuery()) {
-                                while (setAllowed.next()) {
-                                    allowed.put(setAllowed.getString("player"), Plot.AccessLevel.getAccessLevel(setAllowed.getInt("access")));
-                                }
-                            }
-                            statementDenied.setLong(1, internalID);
-                            try (ResultSet setDenied = statementDenied.executeQuery()) {
-                                while (setDenied.next()) {
-                                    denied.add(setDenied.getString("player"));
+    /**
+     * Gets a claimed plot. If plots are loaded lazily and the plot isn't in memory, the copy still in use
+     * is taken back, or else the plot is read from the storage unless the world's Bloom filter knows it was
+     * never claimed. Plots around players are usually read ahead by {@link #prefetchChunk} and the eviction
+     * run, and commands that act on plots elsewhere read them ahead with {@link #loadPlots}, so reading the
+     * storage here is the exception. Runs on the main thread.
+     *
+     * @param id plot id
+     * @param world plotworld
+     * @return the plot, or null if it isn't claimed
+     */
+    public Plot getPlot(PlotId id, IWorld world) {
+        HashMap<PlotId, Plot> worldPlots = plots.get(world);
+        Plot plot = cached(worldPlots, id);
+        if (residency == null) {
+            return plot;
+        }
+        if (plot != null) {
+            residency.touch(world, id);
+            return plot;
+        }
+        plot = residency.getReleased(world, id);
+        if (plot == null) {
+            plot = residency.load(world, id);
+        }
+        return plot == null ? null : adopt(world, worldPlots, plot);
+    }
+
+    /**
+     * Keeps a plot read from the storage in memory, unless it is in memory already. Runs on the main thread.
+     *
+     * @return the plot in memory, which is the one everyone else sees
+     */
+    private Plot adopt(IWorld world, HashMap<PlotId, Plot> worldPlots, Plot loaded) {
+        Plot plot;
+        synchronized (worldPlots) {
+            plot = worldPlots.get(loaded.getId());
+            if (plot != null) {
+                return plot;
+            }
+            plot = residency.getReleased(world, loaded.getId());
+            if (plot == null) {
+                plot = loaded;
+            }
+            worldPlots.put(plot.getId(), plot);
+        }
+        residency.forget(world, plot.getId());
+        plugin.getEventBus().post(new PlotLoadEvent(plot));
+        return plot;
+    }
+
+    /**
+     * Replaces the plots read from the storage by the copies in use, so changes are made to the plot everyone
+     * else sees. Copies that aren't in use yet are held weakly, so whoever asks for them next gets the same.
+     */
+    private List<Plot> preferResident(IWorld world, HashMap<PlotId, Plot> worldPlots, List<Plot> stored) {
+        ArrayList<Plot> merged = new ArrayList<>(stored.size());
+        for (Plot plot : stored) {
+            Plot resident = cached(worldPlots, plot.getId());
+            if (resident == null && residency != null) {
+                resident = residency.release(world, plot);
+            }
+            merged.add(resident == null ? plot : resident);
+        }
+        return ImmutableList.copyOf(merged);
+    }
+
+    /**
+     * Reads the plots a chunk overlaps in the background, so the plots are in memory before players interact
+     * with them and {@link #getPlot} doesn't read them on the main thread. Only does something if plots are
+     * loaded lazily. Runs on the main thread.
+     *
+     * @param world plotworld
+     * @param chunkX x coordinate of the chunk
+     * @param chunkZ z coordinate of the chunk
+     */
+    public void prefetchChunk(IWorld world, int chunkX, int chunkZ) {
+        loadPlots(world, PlotResidency.getChunkPlots(world, chunkX, chunkZ), null);
+    }
+
+    /**
+     * Reads the plots that aren't in memory in the background and keeps them in memory, then runs a task on
+     * the main thread. Commands that act on plots far from the player call this first, so {@link #getPlot}
+     * doesn't read the plots on the main thread. Runs on the main thread.
+     *
+     * @param world plotworld
+     * @param ids the plot ids
+     * @param then task to run once the plots are in memory, or null. Runs right away if all plots are in
+     * memory already or plots aren't loaded lazily.
+     */
+    public void loadPlots(final IWorld world, Collection<PlotId> ids, final Runnable then) {
+        final HashMap<PlotId, Plot> worldPlots = plots.get(world);
+        if (residency == null || worldPlots == null) {
+            if (then != null) {
+                then.run();
+            }
+            return;
+        }
+        final List<PlotId> missing = new ArrayList<>();
+        for (PlotId id : ids) {
+            if (cached(worldPlots, id) == null && residency.getReleased(world, id) == null && residency.mightBeClaimed(world, id)
+                    && residency.startLoading(world, id)) {
+                missing.add(id);
+            }
+        }
+        if (missing.isEmpty()) {
+            if (then != null) {
+                then.run();
+            }
+            return;
+        }
+        final long revision = changeLog(world).getRevision();
+        plugin.getServerBridge().runTaskAsynchronously(new Runnable() {
+            @Override
+            public void run() {
+                final List<Plot> loaded = new ArrayList<>(missing.size());
+                try {
+                    for (PlotId id : missing) {
+                        Plot plot = storage.loadPlot(world, id);
+                        if (plot != null) {
+                            loaded.add(plot);
+                        }
+                    }
+                } finally {
+                    plugin.getServerBridge().runTask(new Runnable() {
+                        @Override
+                        public void run() {
+                            // Plots that were claimed, saved or removed meanwhile are read again when needed
+                            Set<PlotId> changed = new HashSet<>();
+                            boolean known = changeLog(world).getChanges(revision, changed) != -1;
+                            for (Plot plot : loaded) {
+                                if (known && !changed.contains(plot.getId())) {
+                                    adopt(world, worldPlots, plot);
                                 }
                             }
-                            statementLikes.setLong(1, internalID);
-                            try (ResultSet setLikes = statementLikes.executeQuery()) {
-                                while (setLikes.next()) {
-                                    likers.add(UUID.fromString(setLikes.getString("player")));
-                                }
+                            for (PlotId id : missing) {
+                                residency.doneLoading(world, id);
                             }
-
-                            statementMetadata.setLong(1, internalID);
-                            try (ResultSet setMetadata = statementMetadata.executeQuery()) {
-                                while (setMetadata.next()) {
-                                    String pluginname = setMetadata.getString("pluginName");
-                                    String propertyname = setMetadata.getString("propertyName");
-                                    String propertyvalue = setMetadata.getString("propertyValue");
-                                    if (!metadata.containsKey(pluginname)) {
-                                        metadata.put(pluginname, new HashMap<String, String>());
-                                    }
-                                    metadata.get(pluginname).put(propertyname, propertyvalue);
-                                }
+                            if (then != null) {
+                                then.run();
                             }
-
-                            Plot plot =
-                                    new Plot(internalID, owner, ownerId, world, biome, expiredDate, allowed, denied,
-                                            likers, id, price, forSale, finished, finishedDate, protect, metadata, plotLikes, plotName, topLoc,
-                                            bottomLoc, createdDate);
-                            ret.put(plot.getId(), plot);
                         }
-                    }
-                } catch (SQLException ex) {
-                    plugin.getLogger().severe("Load exception :");
-                    plugin.getLogger().severe(ex.getMessage());
-                    plugin.getLogger().severe("Details: " + ex.getMessage());
-                    plugin.getLogger().severe("Error Code: " + ex.getErrorCode());
-                    plugin.getLogger().severe("SQLState: " + ex.getSQLState());
+                    });
                 }
-                return ret;
             }
         });
     }
 
-    public Plot getPlot(PlotId id, IWorld world) {
-        return plots.get(world).get(id);
-    }
-
-
+    /**
+     * Gets the expired plots of a world. The plots of a world that isn't loaded, or of any world if plots are
+     * loaded lazily, are read from the storage.
+     *
+     * @param world plotworld
+     * @return expired plots. unmodifiable.
+     */
     public List<Plot> getExpiredPlots(final IWorld world) {
-        Collection<Plot> filter = Collections2.filter(plots.get(world).values(), new Predicate<Plot>() {
-            @Override public boolean apply(Plot plot) {
-                return plot.getExpiredDate() != null && Calendar.getInstance().getTime().after(plot.getExpiredDate()) && plot.getWorld().equals
-                        (world);
-            }
-        });
-        return ImmutableList.copyOf(filter);
+        HashMap<PlotId, Plot> worldPlots = plots.get(world);
+        if (worldPlots == null) {
+            return ImmutableList.copyOf(storage.findExpiredPlots(world, Calendar.getInstance().getTime()));
+        }
+        if (residency != null) {
+            return preferResident(world, worldPlots, storage.findExpiredPlots(world, Calendar.getInstance().getTime()));
+        }
+        return ImmutableList.copyOf(selectLoaded(world, PlotQuery.expired(System.currentTimeMillis())));
     }
 
     public List<Plot> getFinishedPlots(final IWorld world) {
-        Collection<Plot> filter = Collections2.filter(plots.get(world).values(), new Predicate<Plot>() {
-            @Override public boolean apply(Plot plot) {
-                return plot.isFinished() && plot.getWorld().equals(world);
-            }
-        });
+        if (residency != null) {
+            return preferResident(world, plots.get(world), storage.findPlots(world, PlotQuery.finished(), null, Integer.MAX_VALUE));
+        }
+        return ImmutableList.copyOf(selectLoaded(world, PlotQuery.finished()));
+    }
 
-        return ImmutableList.copyOf(filter);
+    /**
+     * Finds the plots of a world that match a query through the scan index of the world. The index narrows
+     * the plots down as of their last save, then each plot is checked as it is now. Only works if all plots
+     * of the world are in memory.
+     *
+     * @param world plotworld
+     * @param query the query
+     * @return the matching plots, in no particular order
+     */
+    private List<Plot> selectLoaded(IWorld world, PlotQuery query) {
+        HashMap<PlotId, Plot> worldPlots = plots.get(world);
+        List<PlotId> ids = scanIndexes.get(world).select(query);
+        List<Plot> selected = new ArrayList<>(ids.size());
+        for (PlotId id : ids) {
+            Plot plot = cached(worldPlots, id);
+            if (plot != null && query.matches(plot)) {
+                selected.add(plot);
+            }
+        }
+        return selected;
     }
 
-    public void incrementNextPlotId() {
-        this.setNextPlotId(this.nextPlotId + 1);
+    /**
+     * Gets one page of the plots of a world that match a query. If all plots of the world are in memory,
+     * the page is taken from memory, otherwise it is read from the storage starting right after the plots
+     * of the pages before.
+     *
+     * @param world plotworld
+     * @param query the query
+     * @param page page number, starting at 1
+     * @param pageSize number of plots per page
+     * @return the plots of the page, in the order of the query. unmodifiable.
+     */
+    public List<Plot> getPlotPage(IWorld world, PlotQuery query, int page, int pageSize) {
+        int skip = (page - 1) * pageSize;
+        HashMap<PlotId, Plot> worldPlots = plots.get(world);
+        if (worldPlots != null && residency == null) {
+            List<Plot> selected = selectLoaded(world, query);
+            return ImmutableList.copyOf(query.page(selected, query.cursorAt(selected, skip), pageSize));
+        }
+        PlotQuery.Cursor after = storage.findCursor(world, query, skip);
+        if (skip > 0 && after == null) {
+            return ImmutableList.of();
+        }
+        List<Plot> stored = storage.findPlots(world, query, after, pageSize);
+        return worldPlots == null ? ImmutableList.copyOf(stored) : preferResident(world, worldPlots, stored);
     }
 
-    public void setNextPlotId(final long id) {
-        this.nextPlotId = id;
-        try (Statement statement = getConnection().createStatement()) {
-            statement.execute("DELETE FROM plotmecore_nextid;");
-            statement.execute("INSERT INTO plotmecore_nextid VALUES (" + id + ");");
-        } catch (SQLException e) {
-            plugin.getLogger().severe("Error setting next internal Plot id. Details below: ");
-            plugin.getLogger().severe(e.getMessage());
+    /**
+     * Counts the plots of a world that match a query. If all plots of the world are in memory, the plots are
+     * counted the way {@link #getPlotPage} selects them, so the count and the pages agree.
+     *
+     * @param world plotworld
+     * @param query the query
+     * @return the number of matching plots
+     */
+    public int countPlots(IWorld world, PlotQuery query) {
+        HashMap<PlotId, Plot> worldPlots = plots.get(world);
+        if (worldPlots != null && residency == null) {
+            return selectLoaded(world, query).size();
         }
+        return storage.countPlots(world, query);
     }
 
     public void savePlot(Plot plot) {
         if (plot.getInternalID() == 0) {
-            plot.setInternalID(nextPlotId);
-            incrementNextPlotId();
-        }
-        writePlotToStorage(plot);
-    }
-
-    private void writePlotToStorage(final Plot plot) {
-        //first delete the plot (if exists) from the database
-        deletePlotFromStorage(plot);
-        try (PreparedStatement ps = getConnection().prepareStatement(
-                "INSERT INTO plotmecore_plots(plot_id,plotX, plotZ, world, ownerID, owner, biome, finished, finishedDate, forSale, price, "
-                        + "protected, "
-                        + "expiredDate, topX, topZ, bottomX, bottomZ, plotLikes, createdDate) VALUES (?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,"
-                        + "?)")) {
-            ps.setLong(1, plot.getInternalID());
-            ps.setInt(2, plot.getId().getX());
-            ps.setInt(3, plot.getId().getZ());
-            ps.setString(4, plot.getWorld().getName().toLowerCase());
-            ps.setString(5, plot.getOwnerId().toString());
-            ps.setString(6, plot.getOwner());
-            ps.setString(7, plot.getBiome());
-            ps.setBoolean(8, plot.isFinished());
-            ps.setString(9, plot.getFinishedDate());
-            ps.setBoolean(10, plot.isForSale());
-            ps.setDouble(11, plot.getPrice());
-            ps.setBoolean(12, plot.isProtected());
-            ps.setDate(13, plot.getExpiredDate());
-            ps.setInt(14, plot.getTopX());
-            ps.setInt(15, plot.getTopZ());
-            ps.setInt(16, plot.getBottomX());
-            ps.setInt(17, plot.getBottomZ());
-            ps.setInt(18, plot.getLikes());
-            ps.setString(19, plot.getCreatedDate());
-            ps.executeUpdate();
-            getConnection().commit();
-        } catch (SQLException e) {
-            plugin.getLogger().severe("Insert Exception :");
-            plugin.getLogger().severe(e.getMessage());
-            plugin.getLogger().severe("Details: " + e.getMessage());
-            plugin.getLogger().severe("Error Code: " + e.getErrorCode());
-            plugin.getLogger().severe("SQLState: " + e.getSQLState());
-
-        }
-        for (String denied : plot.getDenied()) {
-            try (PreparedStatement ps = getConnection()
-                    .prepareStatement("INSERT INTO plotmecore_denied (plot_id, player) VALUES(?,?)")) {
-                ps.setLong(1, plot.getInternalID());
-                ps.setString(2, denied);
-                ps.execute();
-                getConnection().commit();
-            } catch (SQLException e) {
-                plugin.getLogger().severe("Error adding allowed data for plot with internal id " + plot.getInternalID());
-                plugin.getLogger().severe("Details: " + e.getMessage());
-                plugin.getLogger().severe("Error Code: " + e.getErrorCode());
-                plugin.getLogger().severe("SQLState: " + e.getSQLState());
-
-                e.printStackTrace();
-            }
+            plot.setInternalID(storage.allocateId());
+        }
+        changed(plot.getWorld());
+        changeLog(plot.getWorld()).add(plot.getId());
+        PlotScanIndex scanIndex = scanIndexes.get(plot.getWorld());
+        if (scanIndex != null && cached(plots.get(plot.getWorld()), plot.getId()) == plot) {
+            scanIndex.put(plot);
+        }
+        PlotRanking ranking = rankings.get(plot.getWorld());
+        if (ranking != null) {
+            ranking.set(plot.getId(), plot.getLikes());
         }
-        for (Map.Entry<String, Plot.AccessLevel> member : plot.getMembers().entrySet()) {
-            try (PreparedStatement ps = getConnection()
-                    .prepareStatement("INSERT INTO plotmecore_allowed (plot_id, player, access) VALUES(?,?, ?)")) {
-                ps.setLong(1, plot.getInternalID());
-                ps.setString(2, member.getKey());
-                ps.setInt(3, member.getValue().getLevel());
-                ps.execute();
-                getConnection().commit();
-            } catch (SQLException e) {
-                plugin.getLogger().severe("Error adding allowed data for plot with internal id " + plot.getInternalID());
-                plugin.getLogger().severe("Details: " + e.getMessage());
-                plugin.getLogger().severe("Error Code: " + e.getErrorCode());
-                plugin.getLogger().severe("SQLState: " + e.getSQLState());
-
-                e.printStackTrace();
+        PlotMarket market = markets.get(plot.getWorld());
+        if (market != null) {
+            market.put(plot);
+        }
+        names.put(plot);
+        storage.savePlot(plot);
+    }
+
+    /**
+     * Checks if another plot has a name. Names are unique across all worlds, loaded or not, and compared
+     * without regard to case. Names in loaded worlds are looked up in memory, the others in the storage,
+     * so call this off the main thread before {@link #renamePlot}.
+     *
+     * @param plot the plot to rename
+     * @param name the new name
+     * @return true if another plot has the name, or if the storage couldn't tell
+     */
+    public boolean isPlotNameTaken(Plot plot, String name) {
+        PlotNameIndex.NamedPlot named = names.get(name);
+        if (named != null) {
+            return !(named.world.equals(plot.getWorld()) && named.id.equals(plot.getId()));
+        }
+        long stored = storage.findPlotByName(name);
+        return stored != 0 && stored != plot.getInternalID();
+    }
+
+    /**
+     * Renames a plot and saves it. Only the names in loaded worlds are checked, so check the other worlds with
+     * {@link #isPlotNameTaken} first. Runs on the main thread.
+     *
+     * @param plot the plot
+     * @param name the new name, at most {@link Plot#MAX_NAME_LENGTH} characters, or null to take the name
+     * away
+     * @return false if another plot in a loaded world has the name
+     */
+    public boolean renamePlot(Plot plot, String name) {
+        Preconditions.checkArgument(name == null || name.length() <= Plot.MAX_NAME_LENGTH, "name longer than %s characters",
+                Plot.MAX_NAME_LENGTH);
+        synchronized (names) {
+            if (!names.claim(plot.getWorld(), plot.getId(), name)) {
+                return false;
             }
+            plot.setPlotName(name);
+        }
+        savePlot(plot);
+        return true;
+    }
+
+    /**
+     * Gets the plot with a name, in any loaded world. If plots are loaded lazily, the plot is read from the
+     * storage and kept in memory, unless {@link #loadPlotByName} read it already. Runs on the main thread.
+     *
+     * @param name plot name, in any case
+     * @return the plot, or null if no plot has the name
+     */
+    public Plot getPlotByName(String name) {
+        PlotNameIndex.NamedPlot named = names.get(name);
+        return named == null ? null : getPlot(named.id, named.world);
+    }
+
+    /**
+     * Reads the plot with a name in the background and keeps it in memory, then runs a task on the main
+     * thread, like {@link #loadPlots}. Runs on the main thread.
+     *
+     * @param name plot name, in any case
+     * @param then task to run once the plot is in memory. Runs right away if no plot has the name.
+     */
+    public void loadPlotByName(String name, Runnable then) {
+        PlotNameIndex.NamedPlot named = names.get(name);
+        if (named == null) {
+            then.run();
+            return;
         }
-        for (UUID player : plot.getLikers()) {
-            try (PreparedStatement ps = getConnection()
-                    .prepareStatement("INSERT INTO plotmecore_likes (plot_id, player) VALUES(?, ?)")) {
-                ps.setLong(1, plot.getInternalID());
-                ps.setString(2, player.toString());
-                ps.execute();
-                getConnection().commit();
-            } catch (SQLException e) {
-                plugin.getLogger().severe("Error adding allowed data for plot with internal id " + plot.getInternalID());
-                plugin.getLogger().severe("Details: " + e.getMessage());
-                plugin.getLogger().severe("Error Code: " + e.getErrorCode());
-                plugin.getLogger().severe("SQLState: " + e.getSQLState());
-                e.printStackTrace();
+        loadPlots(named.world, Collections.singletonList(named.id), then);
+    }
+
+    /**
+     * Finds the plot names that start with a prefix, for tab completion.
+     *
+     * @param prefix start of the name, in any case
+     * @param limit most names to return
+     * @return the names, in alphabetical order. unmodifiable.
+     */
+    public List<String> findPlotNames(String prefix, int limit) {
+        return ImmutableList.copyOf(names.complete(prefix, limit));
+    }
+
+    /**
+     * Gets one page of the plots for sale in a world within a price range. Plots are listed as they were
+     * last saved. If plots are loaded lazily, the plots are read from the storage and kept in memory. Runs on
+     * the main thread.
+     *
+     * @param world plotworld
+     * @param minPrice lowest price, inclusive
+     * @param maxPrice highest price, inclusive
+     * @param page page number, starting at 1
+     * @param pageSize number of plots per page
+     * @return the plots of the page, the cheapest first. unmodifiable.
+     */
+    public List<Plot> getPlotsForSale(IWorld world, double minPrice, double maxPrice, int page, int pageSize) {
+        PlotMarket market = markets.get(world);
+        if (market == null) {
+            return ImmutableList.of();
+        }
+        List<Plot> found = new ArrayList<>(pageSize);
+        for (PlotId id : market.find(minPrice, maxPrice, (page - 1) * pageSize, pageSize)) {
+            Plot plot = getPlot(id, world);
+            if (plot != null) {
+                found.add(plot);
             }
         }
-        for (Map.Entry<String, Map<String, String>> metadata : plot.getAllPlotProperties().entrySet()) {
-            for (Map.Entry<String, String> stringStringEntry : metadata.getValue().entrySet()) {
-                try (PreparedStatement ps = getConnection()
-                        .prepareStatement("INSERT INTO plotmecore_metadata(plot_id, pluginName, propertyName, "
-                                + "propertyValue) VALUES (?,?,?,?)")) {
-                    ps.setLong(1, plot.getInternalID());
-                    ps.setString(2, metadata.getKey());
-                    ps.setString(3, stringStringEntry.getKey());
-                    ps.setString(4, stringStringEntry.getValue());
-                    ps.execute();
-                    getConnection().commit();
-                } catch (SQLException e) {
-                    plugin.getLogger().severe("Details: " + e.getMessage());
-                    plugin.getLogger().severe("Error Code: " + e.getErrorCode());
-                    plugin.getLogger().severe("SQLState: " + e.getSQLState());
-                    e.printStackTrace();
-                }
+        return ImmutableList.copyOf(found);
+    }
+
+    /**
+     * Counts the plots for sale in a world within a price range.
+     *
+     * @param world plotworld
+     * @param minPrice lowest price, inclusive
+     * @param maxPrice highest price, inclusive
+     * @return the number of plots
+     */
+    public int countPlotsForSale(IWorld world, double minPrice, double maxPrice) {
+        PlotMarket market = markets.get(world);
+        return market == null ? 0 : market.count(minPrice, maxPrice);
+    }
+
+    /**
+     * Takes the lock of a plot that is about to change hands. While the buy event listeners and the economy
+     * run, the plot can't be bought by someone else, and commands that change its sale check
+     * {@link #isPlotLocked(Plot)} and leave it alone. The lock must be given back with {@link #unlockPlot(Plot)}.
+     *
+     * @param plot the plot
+     * @return false if someone else holds the lock
+     */
+    public boolean lockPlot(Plot plot) {
+        return lockedPlots.add(lockKey(plot));
+    }
+
+    public void unlockPlot(Plot plot) {
+        lockedPlots.remove(lockKey(plot));
+    }
+
+    /**
+     * Checks if a plot is changing hands right now.
+     */
+    public boolean isPlotLocked(Plot plot) {
+        return lockedPlots.contains(lockKey(plot));
+    }
+
+    private static String lockKey(Plot plot) {
+        return plot.getWorld().getName().toLowerCase() + ';' + plot.getId().getID();
+    }
+
+    /**
+     * Adds the like of a player to a plot and stores it, without writing the rest of the plot.
+     *
+     * @param plot the plot
+     * @param player UUID of the player
+     * @return false if the player liked the plot already
+     */
+    public boolean likePlot(Plot plot, UUID player) {
+        if (!plot.addLiker(1, player)) {
+            return false;
+        }
+        storeLike(plot, player, true);
+        return true;
+    }
+
+    /**
+     * Removes the like of a player from a plot and stores it, without writing the rest of the plot.
+     *
+     * @param plot the plot
+     * @param player UUID of the player
+     * @return false if the player didn't like the plot
+     */
+    public boolean unlikePlot(Plot plot, UUID player) {
+        if (!plot.removeLiker(1, player)) {
+            return false;
+        }
+        storeLike(plot, player, false);
+        return true;
+    }
+
+    private void storeLike(Plot plot, UUID player, boolean liked) {
+        if (plot.getInternalID() == 0) {
+            savePlot(plot);
+            return;
+        }
+        changed(plot.getWorld());
+        PlotRanking ranking = rankings.get(plot.getWorld());
+        if (ranking != null) {
+            ranking.set(plot.getId(), plot.getLikes());
+        }
+        if (liked) {
+            storage.addLike(plot, player);
+        } else {
+            storage.removeLike(plot, player);
+        }
+    }
+
+    /**
+     * Gets the most liked plots of a world. If plots are loaded lazily, the plots that aren't in memory are
+     * read from the storage without keeping them in memory. Safe to call from any thread.
+     *
+     * @param world plotworld
+     * @param count most plots to return
+     * @return the plots, the most liked first. unmodifiable.
+     */
+    public List<Plot> getTopPlots(IWorld world, int count) {
+        PlotRanking ranking = rankings.get(world);
+        if (ranking == null || !plots.containsKey(world)) {
+            return ImmutableList.of();
+        }
+        List<Plot> top = new ArrayList<>(count);
+        for (PlotId id : ranking.top(count)) {
+            Plot plot = findPlot(id, world);
+            if (plot != null) {
+                top.add(plot);
             }
         }
+        return ImmutableList.copyOf(top);
+    }
+
+    /**
+     * Gets the most liked plots of all loaded worlds. Safe to call from any thread.
+     *
+     * @param count most plots to return
+     * @return the plots, the most liked first. unmodifiable.
+     */
+    public List<Plot> getTopPlots(int count) {
+        List<Plot> candidates = new ArrayList<>();
+        for (IWorld world : plots.keySet()) {
+            candidates.addAll(getTopPlots(world, count));
+        }
+        return ImmutableList.copyOf(MOST_LIKED.leastOf(candidates, count));
+    }
+
+    /**
+     * Reads the metadata a plugin keeps on a plot from the storage. Use {@link Plot#getMetadata(String)},
+     * which only reads it once.
+     *
+     * @param plot the plot
+     * @param namespace name of the plugin
+     * @return the metadata
+     */
+    public PlotMetadata loadMetadata(Plot plot, String namespace) {
+        if (plot.getInternalID() == 0) {
+            return new PlotMetadata(namespace);
+        }
+        return new PlotMetadata(namespace, storage.loadMetadata(plot, namespace));
+    }
+
+    /**
+     * Saves the metadata values of a plot that changed, without writing the rest of the plot.
+     *
+     * @param plot the plot
+     */
+    public void saveMetadata(Plot plot) {
+        if (plot.getInternalID() == 0) {
+            savePlot(plot);
+            return;
+        }
+        boolean dirty = false;
+        for (PlotMetadata metadata : plot.getLoadedMetadata()) {
+            dirty |= metadata.isChanged();
+        }
+        if (!dirty) {
+            return;
+        }
+        changed(plot.getWorld());
+        storage.saveMetadata(plot);
+    }
+
+    /**
+     * Reads one metadata value of every plot of a world from the storage, for instance to rank plots by it.
+     * Values that were changed but not saved yet are not seen.
+     *
+     * @param world plotworld
+     * @param namespace name of the plugin
+     * @param key the key of the value
+     * @return the values by plot id, each an Integer, Long, String or byte[]
+     */
+    public Map<PlotId, Object> getMetadataColumn(IWorld world, String namespace, String key) {
+        return storage.loadMetadataColumn(world, namespace, key);
+    }
+
+    /**
+     * Fills a name cache with the player names known to the storage.
+     *
+     * @param names cache to fill
+     */
+    public void loadNames(NameCache names) {
+        storage.loadNames(names);
+    }
+
+    /**
+     * Stores the name of a player.
+     *
+     * @param uuid player UUID
+     * @param name player name
+     * @param lastSeen time the player was last seen with this name, in milliseconds since the epoch
+     */
+    public void saveName(UUID uuid, String name, long lastSeen) {
+        storage.saveName(uuid, name, lastSeen);
+    }
+
+    /**
+     * Tracks whether the snapshot of a world is up to date.
+     */
+    private static final class SnapshotState {
+
+        /**
+         * Incremented every time a plot of the world changes.
+         */
+        private long generation;
+        /**
+         * Generation the last snapshot was written at.
+         */
+        private long snapshotGeneration;
+        /**
+         * True if the database holds the stamp of the last snapshot.
+         */
+        private boolean stamped;
     }
 }
@@ -0,0 +1,571 @@
+package com.worldcretornica.plotme_core.storage;
+
+import com.google.common.io.CountingInputStream;
+import com.worldcretornica.plotme_core.NameCache;
+import com.worldcretornica.plotme_core.Plot;
+import com.worldcretornica.plotme_core.PlotId;
+import com.worldcretornica.plotme_core.PlotMetadata;
+import com.worldcretornica.plotme_core.api.IWorld;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * Keeps every plot in its own file, in a folder per world.
+ *
+ * <p>Files are written to a temporary file first, forced to the disk and then moved over the old one, so a
+ * crash leaves either the old or the new plot behind. The owner, expiration date and name of every plot are
+ * read once when the storage opens, so expired, owned and named plots can be found without reading all
+ * files. The headers are indexed by internal id, by world and plot id and by name.</p>
+ *
+ * <p>Player names are appended to one file, and the file is only rewritten once it holds twice as many
+ * entries as there are players.</p>
+ */
+public class FilePlotStorage implements PlotStorage {
+
+    private static final String EXTENSION = ".plot";
+    private static final String TEMP_EXTENSION = ".tmp";
+    private static final int NAME_RECORD_BYTES = 36;
+
+    private final Logger logger;
+    private final File folder;
+    private final File nextIdFile;
+    private final File namesFile;
+    private final ConcurrentHashMap<Long, IndexedPlot> index = new ConcurrentHashMap<>();
+    /**
+     * The plots of every world by plot key, see {@link PlotId#getKey()}.
+     */
+    private final ConcurrentHashMap<String, ConcurrentHashMap<Long, IndexedPlot>> worlds = new ConcurrentHashMap<>();
+    /**
+     * The named plots by name, in lower case.
+     */
+    private final ConcurrentHashMap<String, IndexedPlot> byName = new ConcurrentHashMap<>();
+    private final HashMap<UUID, StoredName> names = new HashMap<>();
+    /**
+     * Number of entries in the names file, including the ones that were replaced since.
+     */
+    private int nameRecords;
+    private long nextId = 1;
+
+    /**
+     * @param logger logger for errors
+     * @param folder folder to keep the plots in, created if needed
+     */
+    public FilePlotStorage(Logger logger, File folder) {
+        this.logger = logger;
+        this.folder = folder;
+        this.nextIdFile = new File(folder, "nextid");
+        this.namesFile = new File(folder, "names.dat");
+        if (!folder.isDirectory() && !folder.mkdirs()) {
+            logger.severe("Could not create the plot folder " + folder);
+        }
+        open();
+    }
+
+    private void open() {
+        File[] worlds = folder.listFiles();
+        if (worlds != null) {
+            for (File world : worlds) {
+                if (world.getName().endsWith(TEMP_EXTENSION)) {
+                    deleteQuietly(world);
+                    continue;
+                }
+                File[] files = world.isDirectory() ? world.listFiles() : null;
+                if (files == null) {
+                    continue;
+                }
+                for (File file : files) {
+                    if (file.getName().endsWith(TEMP_EXTENSION)) {
+                        // Left behind by a crash before the move
+                        deleteQuietly(file);
+                        continue;
+                    }
+                    if (!file.getName().endsWith(EXTENSION)) {
+                        continue;
+                    }
+                    try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+                        PlotCodec.Header header = PlotCodec.readHeader(in);
+                        index(new IndexedPlot(world.getName(), header, PlotCodec.readNameAfterHeader(in)));
+                        nextId = Math.max(nextId, header.internalId + 1);
+                    } catch (IOException e) {
+                        logger.severe("Could not read plot file " + file + ": " + e.getMessage());
+                    }
+                }
+            }
+        }
+        if (nextIdFile.isFile()) {
+            try (DataInputStream in = new DataInputStream(new FileInputStream(nextIdFile))) {
+                nextId = Math.max(nextId, in.readLong());
+            } catch (IOException e) {
+                logger.severe("Could not read " + nextIdFile + ": " + e.getMessage());
+            }
+        }
+        if (namesFile.isFile()) {
+            readNames();
+        }
+    }
+
+    private void readNames() {
+        long complete = 0;
+        try (CountingInputStream counting = new CountingInputStream(new BufferedInputStream(new FileInputStream(namesFile)));
+                DataInputStream in = new DataInputStream(counting)) {
+            while (true) {
+                UUID uuid = new UUID(in.readLong(), in.readLong());
+                names.put(uuid, new StoredName(in.readUTF(), in.readLong()));
+                nameRecords++;
+                complete = counting.getCount();
+            }
+        } catch (EOFException ignored) {
+            // End of the names
+        } catch (IOException e) {
+            logger.severe("Could not read " + namesFile + ": " + e.getMessage());
+            return;
+        }
+        if (complete < namesFile.length()) {
+            // A crash cut off the last entry, drop it so new entries are appended after a whole one
+            try (RandomAccessFile file = new RandomAccessFile(namesFile, "rw")) {
+                file.setLength(complete);
+            } catch (IOException e) {
+                logger.severe("Could not repair " + namesFile + ": " + e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public Map<PlotId, Plot> loadWorld(IWorld world) {
+        HashMap<PlotId, Plot> loaded = new HashMap<>();
+        for (IndexedPlot indexed : getWorldPlots(world).values()) {
+            Plot plot = read(indexed, world);
+            if (plot != null) {
+                loaded.put(plot.getId(), plot);
+            }
+        }
+        return loaded;
+    }
+
+    @Override
+    public Plot loadPlot(IWorld world, PlotId id) {
+        IndexedPlot indexed = getWorldPlots(world).get(id.getKey());
+        if (indexed == null) {
+            return null;
+        }
+        return read(indexed, world);
+    }
+
+    @Override
+    public long[] loadPlotKeys(IWorld world) {
+        Map<Long, IndexedPlot> worldPlots = getWorldPlots(world);
+        long[] keys = new long[worldPlots.size()];
+        int count = 0;
+        for (Long key : worldPlots.keySet()) {
+            if (count < keys.length) {
+                keys[count++] = key;
+            }
+        }
+        return Arrays.copyOf(keys, count);
+    }
+
+    /**
+     * Writes the whole plot to its file. Saves are serialized, so the index always matches the last file
+     * written.
+     */
+    @Override
+    public synchronized void savePlot(Plot plot) {
+        String worldName = plot.getWorld().getName().toLowerCase();
+        byte[] data = PlotCodec.encodeSaved(plot);
+        File file = plotFile(worldName, plot.getInternalID());
+        try {
+            writeAtomically(file, data);
+            IndexedPlot previous = index(new IndexedPlot(worldName, PlotCodec.decodeHeader(data), plot.getPlotName()));
+            if (previous != null && !previous.world.equals(worldName)) {
+                Files.deleteIfExists(plotFile(previous.world, plot.getInternalID()).toPath());
+            }
+        } catch (IOException e) {
+            logger.severe("Error saving plot with internal id " + plot.getInternalID() + ": " + e.getMessage());
+        }
+    }
+
+    @Override
+    public synchronized void deletePlot(Plot plot) {
+        IndexedPlot indexed = index.remove(plot.getInternalID());
+        if (indexed == null) {
+            return;
+        }
+        unindex(indexed);
+        try {
+            Files.deleteIfExists(plotFile(indexed.world, plot.getInternalID()).toPath());
+        } catch (IOException e) {
+            logger.severe("Error deleting plot with internal id " + plot.getInternalID() + ": " + e.getMessage());
+        }
+    }
+
+    @Override
+    public synchronized long allocateId() {
+        long id = nextId++;
+        try {
+            writeAtomically(nextIdFile, ByteBuffer.allocate(8).putLong(nextId).array());
+        } catch (IOException e) {
+            logger.severe("Error setting next internal Plot id: " + e.getMessage());
+        }
+        return id;
+    }
+
+    @Override
+    public List<Plot> findExpiredPlots(IWorld world, Date now) {
+        List<Plot> expired = new ArrayList<>();
+        for (IndexedPlot indexed : getWorldPlots(world).values()) {
+            if (indexed.header.isExpired(now.getTime())) {
+                Plot plot = read(indexed, world);
+                if (plot != null) {
+                    expired.add(plot);
+                }
+            }
+        }
+        return expired;
+    }
+
+    @Override
+    public List<Plot> findOwnedPlots(IWorld world, UUID owner) {
+        List<Plot> owned = new ArrayList<>();
+        for (IndexedPlot indexed : getWorldPlots(world).values()) {
+            if (indexed.header.ownerId.equals(owner)) {
+                Plot plot = read(indexed, world);
+                if (plot != null) {
+                    owned.add(plot);
+                }
+            }
+        }
+        return owned;
+    }
+
+    @Override
+    public List<Plot> findMemberPlots(IWorld world, UUID player) {
+        List<Plot> found = new ArrayList<>();
+        for (IndexedPlot indexed : getWorldPlots(world).values()) {
+            Plot plot = read(indexed, world);
+            if (plot != null && (player.equals(plot.getOwnerId()) || plot.isMember(player).isPresent())) {
+                found.add(plot);
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public List<Plot> findPlots(IWorld world, PlotQuery query, PlotQuery.Cursor after, int limit) {
+        return query.page(findCandidates(world, query), after, limit);
+    }
+
+    @Override
+    public PlotQuery.Cursor findCursor(IWorld world, PlotQuery query, int skip) {
+        return query.cursorAt(findCandidates(world, query), skip);
+    }
+
+    @Override
+    public int countPlots(IWorld world, PlotQuery query) {
+        return query.count(findCandidates(world, query));
+    }
+
+    /**
+     * Reads the plots of a world that might match a query, judging by the plot header.
+     */
+    private List<Plot> findCandidates(IWorld world, PlotQuery query) {
+        List<Plot> candidates = new ArrayList<>();
+        for (IndexedPlot indexed : getWorldPlots(world).values()) {
+            if (query.mightMatch(indexed.header)) {
+                Plot plot = read(indexed, world);
+                if (plot != null) {
+                    candidates.add(plot);
+                }
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Reads the metadata from the stored copy of the plot. Plots read from this storage hold the metadata of
+     * every plugin already, so this is rarely needed.
+     */
+    @Override
+    public HashMap<String, Object> loadMetadata(Plot plot, String namespace) {
+        Plot stored = loadPlot(plot.getWorld(), plot.getId());
+        HashMap<String, Object> values = new HashMap<>();
+        if (stored != null && stored.getInternalID() == plot.getInternalID()) {
+            for (PlotMetadata metadata : stored.getLoadedMetadata()) {
+                if (metadata.getNamespace().equals(namespace)) {
+                    values.putAll(metadata.getValues());
+                }
+            }
+        }
+        return values;
+    }
+
+    @Override
+    public Map<String, HashMap<String, Object>> loadAllMetadata(Plot plot) {
+        Plot stored = loadPlot(plot.getWorld(), plot.getId());
+        HashMap<String, HashMap<String, Object>> all = new HashMap<>();
+        if (stored != null && stored.getInternalID() == plot.getInternalID()) {
+            for (PlotMetadata metadata : stored.getLoadedMetadata()) {
+                all.put(metadata.getNamespace(), new HashMap<>(metadata.getValues()));
+            }
+        }
+        return all;
+    }
+
+    /**
+     * Plots are stored whole, so the plot is saved again.
+     */
+    @Override
+    public void saveMetadata(Plot plot) {
+        savePlot(plot);
+    }
+
+    @Override
+    public Map<PlotId, Object> loadMetadataColumn(IWorld world, String namespace, String key) {
+        HashMap<PlotId, Object> column = new HashMap<>();
+        for (Plot plot : loadWorld(world).values()) {
+            for (PlotMetadata metadata : plot.getLoadedMetadata()) {
+                if (metadata.getNamespace().equals(namespace) && metadata.contains(key)) {
+                    column.put(plot.getId(), metadata.getValue(key));
+                }
+            }
+        }
+        return column;
+    }
+
+    /**
+     * Plots are stored whole, so the plot is saved again.
+     */
+    @Override
+    public void addLike(Plot plot, UUID player) {
+        savePlot(plot);
+    }
+
+    /**
+     * Plots are stored whole, so the plot is saved again.
+     */
+    @Override
+    public void removeLike(Plot plot, UUID player) {
+        savePlot(plot);
+    }
+
+    @Override
+    public Map<PlotId, Integer> loadLikeCounts(IWorld world) {
+        HashMap<PlotId, Integer> counts = new HashMap<>();
+        for (Plot plot : loadWorld(world).values()) {
+            if (plot.getLikes() > 0) {
+                counts.put(plot.getId(), plot.getLikes());
+            }
+        }
+        return counts;
+    }
+
+    @Override
+    public Map<PlotId, String> loadPlotNames(IWorld world) {
+        HashMap<PlotId, String> names = new HashMap<>();
+        for (Plot plot : loadWorld(world).values()) {
+            if (plot.getPlotName() != null) {
+                names.put(plot.getId(), plot.getPlotName());
+            }
+        }
+        return names;
+    }
+
+    @Override
+    public long findPlotByName(String name) {
+        IndexedPlot indexed = byName.get(name.toLowerCase(Locale.ROOT));
+        return indexed == null ? 0 : indexed.header.internalId;
+    }
+
+    @Override
+    public synchronized void loadNames(NameCache cache) {
+        for (Map.Entry<UUID, StoredName> entry : names.entrySet()) {
+            cache.put(entry.getKey(), entry.getValue().name, entry.getValue().lastSeen);
+        }
+    }
+
+    /**
+     * Appends the name to the names file. Entries read later replace the ones before them, so the file is
+     * only rewritten once most of its entries were replaced.
+     */
+    @Override
+    public synchronized void saveName(UUID uuid, String name, long lastSeen) {
+        StoredName stored = new StoredName(name, lastSeen);
+        names.put(uuid, stored);
+        try {
+            if (nameRecords >= 2 * names.size() + 1024) {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream(names.size() * NAME_RECORD_BYTES);
+                try (DataOutputStream out = new DataOutputStream(bytes)) {
+                    for (Map.Entry<UUID, StoredName> entry : names.entrySet()) {
+                        writeName(out, entry.getKey(), entry.getValue());
+                    }
+                }
+                writeAtomically(namesFile, bytes.toByteArray());
+                nameRecords = names.size();
+            } else {
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(namesFile, true)))) {
+                    writeName(out, uuid, stored);
+                }
+                nameRecords++;
+            }
+        } catch (IOException e) {
+            logger.severe("Error saving the name of " + name + ": " + e.getMessage());
+        }
+    }
+
+    private static void writeName(DataOutputStream out, UUID uuid, StoredName stored) throws IOException {
+        out.writeLong(uuid.getMostSignificantBits());
+        out.writeLong(uuid.getLeastSignificantBits());
+        out.writeUTF(stored.name);
+        out.writeLong(stored.lastSeen);
+    }
+
+    @Override
+    public void close() {
+    }
+
+    /**
+     * Adds a plot to the index, replacing the entry with the same internal id.
+     *
+     * @return the replaced entry, or null
+     */
+    private IndexedPlot index(IndexedPlot indexed) {
+        IndexedPlot previous = index.put(indexed.header.internalId, indexed);
+        unindex(previous);
+        ConcurrentHashMap<Long, IndexedPlot> worldPlots = worlds.get(indexed.world);
+        if (worldPlots == null) {
+            worldPlots = new ConcurrentHashMap<>();
+            worlds.put(indexed.world, worldPlots);
+        }
+        worldPlots.put(indexed.header.id.getKey(), indexed);
+        if (indexed.name != null) {
+            byName.put(indexed.name, indexed);
+        }
+        return previous;
+    }
+
+    private void unindex(IndexedPlot indexed) {
+        if (indexed != null) {
+            ConcurrentHashMap<Long, IndexedPlot> worldPlots = worlds.get(indexed.world);
+            if (worldPlots != null) {
+                worldPlots.remove(indexed.header.id.getKey(), indexed);
+            }
+            if (indexed.name != null) {
+                byName.remove(indexed.name, indexed);
+            }
+        }
+    }
+
+    /**
+     * Gets the plots of a world by plot key.
+     */
+    private Map<Long, IndexedPlot> getWorldPlots(IWorld world) {
+        ConcurrentHashMap<Long, IndexedPlot> worldPlots = worlds.get(world.getName().toLowerCase());
+        if (worldPlots == null) {
+            return Collections.emptyMap();
+        }
+        return worldPlots;
+    }
+
+    private Plot read(IndexedPlot indexed, IWorld world) {
+        File file = plotFile(indexed.world, indexed.header.internalId);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            return PlotCodec.read(in, world);
+        } catch (IOException e) {
+            logger.severe("Could not read plot file " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private File plotFile(String world, long internalId) {
+        return new File(new File(folder, world), internalId + EXTENSION);
+    }
+
+    /**
+     * Replaces a file with new contents. The contents are written to a temporary file of their own and
+     * forced to the disk before the move, so the move never exposes a file that isn't fully written.
+     */
+    private void writeAtomically(File file, byte[] data) throws IOException {
+        File parent = file.getParentFile();
+        if (!parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Could not create " + parent);
+        }
+        File temp = File.createTempFile(file.getName() + ".", TEMP_EXTENSION, parent);
+        try {
+            try (FileOutputStream out = new FileOutputStream(temp)) {
+                out.write(data);
+                out.getFD().sync();
+            }
+            replace(temp, file);
+        } catch (IOException e) {
+            deleteQuietly(temp);
+            throw e;
+        }
+    }
+
+    private void deleteQuietly(File file) {
+        try {
+            Files.deleteIfExists(file.toPath());
+        } catch (IOException e) {
+            logger.warning("Could not delete " + file + ": " + e.getMessage());
+        }
+    }
+
+    private static void replace(File source, File target) throws IOException {
+        try {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static final class IndexedPlot {
+
+        private final String world;
+        private final PlotCodec.Header header;
+        /**
+         * The plot name in lower case, or null.
+         */
+        private final String name;
+
+        private IndexedPlot(String world, PlotCodec.Header header, String name) {
+            this.world = world;
+            this.header = header;
+            this.name = name == null ? null : name.toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private static final class StoredName {
+
+        private final String name;
+        private final long lastSeen;
+
+        private StoredName(String name, long lastSeen) {
+            this.name = name;
+            this.lastSeen = lastSeen;
+        }
+    }
+}
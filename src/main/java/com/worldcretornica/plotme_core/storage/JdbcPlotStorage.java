@@ -0,0 +1,1328 @@
+package com.worldcretornica.plotme_core.storage;
+
+import com.worldcretornica.plotme_core.NameCache;
+import com.worldcretornica.plotme_core.Plot;
+import com.worldcretornica.plotme_core.PlotGeometry;
+import com.worldcretornica.plotme_core.PlotId;
+import com.worldcretornica.plotme_core.PlotMeCoreManager;
+import com.worldcretornica.plotme_core.PlotMetadata;
+import com.worldcretornica.plotme_core.PlotMe_Core;
+import com.worldcretornica.plotme_core.api.IWorld;
+import com.worldcretornica.plotme_core.utils.StringPool;
+import com.worldcretornica.plotme_core.utils.UUIDs;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Stores plots in SQL tables. The SQL dialect specific parts, like the connection and the table
+ * definitions, are left to the subclasses.
+ */
+public abstract class JdbcPlotStorage implements PlotStorage {
+
+    /**
+     * Stands for everyone in the allowed and denied lists of the v2 tables.
+     */
+    private static final UUID EVERYONE = new UUID(0L, 0L);
+    final PlotMe_Core plugin;
+    private long nextPlotId = 1;
+    Connection connection;
+    /**
+     * Connection for the writes of background tasks, like player names. It is kept apart from the connection
+     * of the main thread, so a commit or rollback on one never ends a transaction of the other. Only used while
+     * holding {@link #backgroundLock}.
+     */
+    private Connection backgroundConnection;
+    private final Object backgroundLock = new Object();
+    /**
+     * True once the plots were copied to the v2 tables. From then on plots are read from and written to the
+     * v2 tables only. Before that, plots are written to both layouts.
+     */
+    private volatile boolean schemaV2;
+    private final ConcurrentHashMap<String, Integer> worldIds = new ConcurrentHashMap<>();
+    private SchemaMigrator migrator;
+
+    public JdbcPlotStorage(PlotMe_Core plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Closes the connecection to the database.
+     * This will not close the connection if the connection is null.
+     */
+    @Override
+    public void close() {
+        synchronized (backgroundLock) {
+            closeQuietly(backgroundConnection);
+            backgroundConnection = null;
+        }
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                plugin.getLogger().severe("Could not close database connection: ");
+                plugin.getLogger().severe(e.getMessage());
+            }
+        }
+    }
+
+    public abstract Connection startConnection();
+
+    /**
+     * Opens a new connection to the database, with auto-commit off. Background tasks that write more than
+     * a row, like the data migrations, use their own connection.
+     *
+     * @return the connection
+     * @throws SQLException if the connection can't be opened
+     */
+    protected abstract Connection openConnection() throws SQLException;
+
+    /**
+     * Gets the start of an insert that skips rows whose key is taken instead of failing, like
+     * {@code INSERT OR IGNORE} or {@code INSERT IGNORE}.
+     */
+    protected abstract String insertIgnore();
+
+    /**
+     * Gets the condition that compares the plotName column with a parameter without regard to case, in a
+     * form the index on the column can answer.
+     */
+    protected abstract String plotNameEquals();
+
+    /**
+     * Gets the connection for the writes of background tasks, opening it if needed. The caller must hold
+     * {@link #backgroundLock} until it committed or rolled back.
+     */
+    private Connection getBackgroundConnection() throws SQLException {
+        if (backgroundConnection == null || backgroundConnection.isClosed()) {
+            backgroundConnection = openConnection();
+        }
+        return backgroundConnection;
+    }
+
+    void closeQuietly(Connection connection) {
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                plugin.getLogger().severe("Could not close database connection: " + e.getMessage());
+            }
+        }
+    }
+
+    static void rollbackQuietly(Connection connection) {
+        if (connection != null) {
+            try {
+                connection.rollback();
+            } catch (SQLException ignored) {
+            }
+        }
+    }
+
+    /**
+     * The database connection
+     * @return the connection to the database
+     */
+    Connection getConnection() {
+        try {
+            if (connection == null || connection.isClosed()) {
+                return startConnection();
+            }
+        } catch (SQLException e) {
+            plugin.getLogger().severe("Oh no! A connection error occurred:");
+            plugin.getLogger().severe(e.getMessage());
+        }
+        return connection;
+    }
+
+    /**
+     * Gets the steps that create and change the tables, in the SQL dialect of this database.
+     *
+     * @return the schema steps
+     */
+    protected abstract List<Migration> getSchemaMigrations();
+
+    /**
+     * Brings the tables up to date and reads the next plot id and the table layout.
+     */
+    protected void createTables() {
+        List<Migration> migrations = new ArrayList<>(getSchemaMigrations());
+        migrations.add(new UUIDMigration(plugin, this, plugin.getConfig().getDouble("UUIDMigrationRowsPerSecond", 200)));
+        migrations.add(new SchemaV2Migration(plugin, this));
+        migrator = new SchemaMigrator(plugin, this, migrations);
+        migrator.migrateSchema();
+        loadNextPlotId();
+        loadSchemaState();
+    }
+
+    /**
+     * Starts the data migrations that didn't finish yet, in the background.
+     */
+    public void startBackgroundMigrations() {
+        if (migrator != null) {
+            migrator.startBackgroundMigrations();
+        }
+    }
+
+    private void loadNextPlotId() {
+        Connection connection = getConnection();
+        try (Statement statement = connection.createStatement()) {
+            try (ResultSet results = statement.executeQuery("SELECT * FROM plotmecore_nextid;")) {
+                if (!results.next()) {
+                    statement.execute("INSERT INTO plotmecore_nextid VALUES(1);");
+                    this.nextPlotId = 1;
+                } else {
+                    this.nextPlotId = results.getLong("nextid");
+                }
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            plugin.getLogger().severe("Error reading the next plot id:");
+            plugin.getLogger().severe(e.getMessage());
+        }
+    }
+
+    @Override
+    public synchronized long allocateId() {
+        long id = nextPlotId++;
+        try (Statement statement = getConnection().createStatement()) {
+            statement.execute("DELETE FROM plotmecore_nextid;");
+            statement.execute("INSERT INTO plotmecore_nextid VALUES (" + nextPlotId + ");");
+            getConnection().commit();
+        } catch (SQLException e) {
+            plugin.getLogger().severe("Error setting next internal Plot id. Details below: ");
+            plugin.getLogger().severe(e.getMessage());
+        }
+        return id;
+    }
+
+    @Override
+    public Map<PlotId, Plot> loadWorld(IWorld world) {
+        return loadPlots(world, "");
+    }
+
+    @Override
+    public Plot loadPlot(IWorld world, PlotId id) {
+        return loadPlots(world, " AND plotX = ? AND plotZ = ?", id.getX(), id.getZ()).get(id);
+    }
+
+    @Override
+    public long[] loadPlotKeys(IWorld world) {
+        Connection connection = getConnection();
+        String query = schemaV2 ? "SELECT plotX, plotZ FROM plotmecore_plots_v2 WHERE world_id = ?"
+                                : "SELECT plotX, plotZ FROM plotmecore_plots WHERE LOWER(world) = ?";
+        long[] keys = new long[256];
+        int count = 0;
+        try (PreparedStatement statement = connection.prepareStatement(query)) {
+            if (schemaV2) {
+                statement.setInt(1, getWorldId(world.getName()));
+            } else {
+                statement.setString(1, world.getName().toLowerCase());
+            }
+            try (ResultSet set = statement.executeQuery()) {
+                while (set.next()) {
+                    if (count == keys.length) {
+                        keys = Arrays.copyOf(keys, count * 2);
+                    }
+                    keys[count++] = PlotId.toKey(set.getInt(1), set.getInt(2));
+                }
+            }
+        } catch (SQLException ex) {
+            plugin.getLogger().severe("Error reading the plot ids of " + world.getName() + ":");
+            plugin.getLogger().severe(ex.getMessage());
+        }
+        return Arrays.copyOf(keys, count);
+    }
+
+    @Override
+    public List<Plot> findExpiredPlots(IWorld world, java.util.Date now) {
+        return findPlots(world, PlotQuery.expired(now.getTime()), null, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Plot> findOwnedPlots(IWorld world, UUID owner) {
+        return findPlots(world, PlotQuery.ownedBy(owner), null, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Plot> findMemberPlots(IWorld world, UUID player) {
+        if (schemaV2) {
+            byte[] bytes = UUIDs.toBytes(player);
+            return new ArrayList<>(loadPlotsV2(world,
+                    " AND (ownerID = ? OR plot_id IN (SELECT plot_id FROM plotmecore_allowed_v2 WHERE player = ? OR player = ?))",
+                    bytes, bytes, UUIDs.toBytes(EVERYONE)).values());
+        }
+        return new ArrayList<>(loadPlots(world, " AND (ownerID = ? OR plot_id IN (SELECT plot_id FROM plotmecore_allowed WHERE player = ? OR player = '*'))",
+                player.toString(), player.toString()).values());
+    }
+
+    /**
+     * Reads a page of plots. The v2 tables are read in index order, starting right after the cursor. The
+     * legacy tables have no index for most queries, so all matching plots are read and paged in memory.
+     */
+    @Override
+    public List<Plot> findPlots(IWorld world, PlotQuery query, PlotQuery.Cursor after, int limit) {
+        List<Object> arguments = new ArrayList<>();
+        String filter = queryFilter(query, arguments);
+        if (!schemaV2) {
+            return query.page(loadPlots(world, filter, arguments.toArray()).values(), after, limit);
+        }
+        if (after != null) {
+            if (query.getKind() == PlotQuery.Kind.EXPIRED) {
+                filter += " AND (expiredAt > ? OR (expiredAt = ? AND plot_id > ?))";
+                arguments.add(after.getSortKey());
+                arguments.add(after.getSortKey());
+            } else {
+                filter += " AND plot_id > ?";
+            }
+            arguments.add(after.getInternalId());
+        }
+        arguments.add(limit);
+        return new ArrayList<>(loadPlotsV2(world, filter + queryOrder(query) + " LIMIT ?", arguments.toArray()).values());
+    }
+
+    @Override
+    public PlotQuery.Cursor findCursor(IWorld world, PlotQuery query, int skip) {
+        if (skip <= 0) {
+            return null;
+        }
+        List<Object> arguments = new ArrayList<>();
+        String filter = queryFilter(query, arguments);
+        if (!schemaV2) {
+            return query.cursorAt(loadPlots(world, filter, arguments.toArray()).values(), skip);
+        }
+        String sortKey = query.getKind() == PlotQuery.Kind.EXPIRED ? "expiredAt" : "0";
+        Connection connection = getConnection();
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT " + sortKey + ", plot_id FROM plotmecore_plots_v2 WHERE world_id = ?" + filter + queryOrder(query) + " LIMIT 1 OFFSET ?")) {
+            statement.setInt(1, getWorldId(world.getName()));
+            int index = 2;
+            for (Object argument : arguments) {
+                statement.setObject(index++, argument);
+            }
+            statement.setInt(index, skip - 1);
+            try (ResultSet set = statement.executeQuery()) {
+                return set.next() ? new PlotQuery.Cursor(set.getLong(1), set.getLong(2)) : null;
+            }
+        } catch (SQLException ex) {
+            plugin.getLogger().severe("Error finding a page of plots in " + world.getName() + ":");
+            plugin.getLogger().severe(ex.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public int countPlots(IWorld world, PlotQuery query) {
+        List<Object> arguments = new ArrayList<>();
+        String filter = queryFilter(query, arguments);
+        if (!schemaV2) {
+            return loadPlots(world, filter, arguments.toArray()).size();
+        }
+        Connection connection = getConnection();
+        try (PreparedStatement statement = connection.prepareStatement("SELECT COUNT(*) FROM plotmecore_plots_v2 WHERE world_id = ?" + filter)) {
+            statement.setInt(1, getWorldId(world.getName()));
+            int index = 2;
+            for (Object argument : arguments) {
+                statement.setObject(index++, argument);
+            }
+            try (ResultSet set = statement.executeQuery()) {
+                return set.next() ? set.getInt(1) : 0;
+            }
+        } catch (SQLException ex) {
+            plugin.getLogger().severe("Error counting the plots in " + world.getName() + ":");
+            plugin.getLogger().severe(ex.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * Builds the part of the WHERE clause that selects the plots of a query. The finished and for sale
+     * conditions are written out as constants so SQLite can use its partial indexes for them.
+     *
+     * @param query the query
+     * @param arguments list to add the values of the parameters of the filter to
+     * @return the filter, for the tables in use
+     */
+    private String queryFilter(PlotQuery query, List<Object> arguments) {
+        switch (query.getKind()) {
+            case EXPIRED:
+                if (schemaV2) {
+                    arguments.add(query.getNow());
+                    return " AND expiredAt IS NOT NULL AND expiredAt < ?";
+                }
+                arguments.add(new Date(query.getNow()));
+                return " AND expiredDate IS NOT NULL AND expiredDate < ?";
+            case FINISHED:
+                return " AND finished = 1";
+            case FOR_SALE:
+                return " AND forSale = 1";
+            default:
+                arguments.add(schemaV2 ? UUIDs.toBytes(query.getOwner()) : query.getOwner().toString());
+                return " AND ownerID = ?";
+        }
+    }
+
+    private static String queryOrder(PlotQuery query) {
+        return query.getKind() == PlotQuery.Kind.EXPIRED ? " ORDER BY expiredAt, plot_id" : " ORDER BY plot_id";
+    }
+
+    /**
+     * Reads the plots of a world from the tables in use. The plots are returned in the order the database
+     * returned them.
+     *
+     * @param world the plotworld
+     * @param filter SQL added to the WHERE clause of the plot query, may use parameters
+     * @param arguments values of the parameters of the filter
+     * @return the plots by id
+     */
+    private HashMap<PlotId, Plot> loadPlots(IWorld world, String filter, Object... arguments) {
+        if (schemaV2) {
+            return loadPlotsV2(world, filter, arguments);
+        }
+        HashMap<PlotId, Plot> ret = new LinkedHashMap<>();
+        Connection connection = getConnection();
+        try (PreparedStatement statementPlot = connection.prepareStatement("SELECT * FROM plotmecore_plots WHERE LOWER(world) = ?" + filter);
+                PreparedStatement statementAllowed = connection.prepareStatement("SELECT * FROM plotmecore_allowed WHERE plot_id = ?");
+                PreparedStatement statementDenied = connection.prepareStatement("SELECT * FROM plotmecore_denied WHERE plot_id = ?");
+                PreparedStatement statementLikes = connection.prepareStatement("SELECT * FROM plotmecore_likes WHERE plot_id = ?");
+                PreparedStatement statementMetadata = connection.prepareStatement("SELECT * FROM plotmecore_metadata WHERE plot_id = ?")
+        ) {
+            statementPlot.setString(1, world.getName().toLowerCase());
+            for (int i = 0; i < arguments.length; i++) {
+                statementPlot.setObject(i + 2, arguments[i]);
+            }
+            try (ResultSet setPlots = statementPlot.executeQuery()) {
+                while (setPlots.next()) {
+                    long internalID = setPlots.getLong("plot_id");
+                    PlotId id = new PlotId(setPlots.getInt("plotX"), setPlots.getInt("plotZ"));
+                    String owner = setPlots.getString("owner");
+                    UUID ownerId = UUID.fromString(setPlots.getString("ownerID"));
+                    String biome = setPlots.getString("biome");
+                    Date expiredDate = setPlots.getDate("expiredDate");
+                    boolean finished = setPlots.getBoolean("finished");
+                    String finishedDate = setPlots.getString("finishedDate");
+                    String createdDate = setPlots.getString("createdDate");
+                    double price = setPlots.getDouble("price");
+                    boolean forSale = setPlots.getBoolean("forSale");
+                    boolean protect = setPlots.getBoolean("protected");
+                    String plotName = setPlots.getString("plotName");
+                    int plotLikes = setPlots.getInt("plotLikes");
+                    PlotGeometry geometry = PlotMeCoreManager.getInstance().getGeometry(world, id);
+                    HashMap<String, Map<String, String>> metadata = new HashMap<>();
+                    HashMap<String, Plot.AccessLevel> allowed = new HashMap<>();
+                    HashSet<String> denied = new HashSet<>();
+                    HashSet<UUID> likers = new HashSet<>();
+                    statementAllowed.setLong(1, internalID);
+                    try (ResultSet setAllowed = statementAllowed.executeQuery()) {
+                        while (setAllowed.next()) {
+                            allowed.put(StringPool.intern(setAllowed.getString("player")), Plot.AccessLevel.getAccessLevel(setAllowed.getInt("access")));
+                        }
+                    }
+                    statementDenied.setLong(1, internalID);
+                    try (ResultSet setDenied = statementDenied.executeQuery()) {
+                        while (setDenied.next()) {
+                            denied.add(StringPool.intern(setDenied.getString("player")));
+                        }
+                    }
+                    statementLikes.setLong(1, internalID);
+                    try (ResultSet setLikes = statementLikes.executeQuery()) {
+                        while (setLikes.next()) {
+                            likers.add(UUID.fromString(setLikes.getString("player")));
+                        }
+                    }
+
+                    statementMetadata.setLong(1, internalID);
+                    try (ResultSet setMetadata = statementMetadata.executeQuery()) {
+                        while (setMetadata.next()) {
+                            String pluginname = setMetadata.getString("pluginName");
+                            String propertyname = setMetadata.getString("propertyName");
+                            String propertyvalue = setMetadata.getString("propertyValue");
+                            if (!metadata.containsKey(pluginname)) {
+                                metadata.put(pluginname, new HashMap<String, String>());
+                            }
+                            metadata.get(pluginname).put(propertyname, propertyvalue);
+                        }
+                    }
+
+                    Plot plot =
+                            new Plot(internalID, owner, ownerId, world, biome, expiredDate, allowed, denied,
+                                    likers, price, forSale, finished, finishedDate, protect, metadata, plotLikes, plotName, geometry,
+                                    createdDate);
+                    ret.put(plot.getId(), plot);
+                }
+            }
+        } catch (SQLException ex) {
+            plugin.getLogger().severe("Load exception :");
+            plugin.getLogger().severe(ex.getMessage());
+            plugin.getLogger().severe("Details: " + ex.getMessage());
+            plugin.getLogger().severe("Error Code: " + ex.getErrorCode());
+            plugin.getLogger().severe("SQLState: " + ex.getSQLState());
+        }
+        return ret;
+    }
+
+    @Override
+    public void deletePlot(Plot plot) {
+        deletePlotRows(plot);
+        if (!schemaV2) {
+            deleteAllFrom(plot.getInternalID(), "plotmecore_metadata");
+        }
+        deleteAllFrom(plot.getInternalID(), "plotmecore_metadata_v2");
+    }
+
+    /**
+     * Deletes everything of a plot but its metadata, which is written one value at a time.
+     */
+    private void deletePlotRows(Plot plot) {
+        if (!schemaV2) {
+            deleteAllFrom(plot.getInternalID(), "plotmecore_allowed");
+            deleteAllFrom(plot.getInternalID(), "plotmecore_denied");
+            deleteAllFrom(plot.getInternalID(), "plotmecore_likes");
+            deleteAllFrom(plot.getInternalID(), "plotmecore_plots");
+        }
+        deleteAllFrom(plot.getInternalID(), "plotmecore_allowed_v2");
+        deleteAllFrom(plot.getInternalID(), "plotmecore_denied_v2");
+        deleteAllFrom(plot.getInternalID(), "plotmecore_likes_v2");
+        deleteAllFrom(plot.getInternalID(), "plotmecore_plots_v2");
+    }
+
+    public void deleteAllFrom(final long internalID, final String table) {
+        try (Statement statement = getConnection().createStatement()) {
+            statement.execute("DELETE FROM " + table + " WHERE plot_id = " + internalID);
+            getConnection().commit();
+        } catch (SQLException e) {
+            plugin.getLogger().severe("Error deleting plot " + internalID + "'s data from table: " + table);
+            plugin.getLogger().severe("Details: " + e.getMessage());
+            plugin.getLogger().severe("Error Code: " + e.getErrorCode());
+            plugin.getLogger().severe("SQLState: " + e.getSQLState());
+        }
+    }
+
+    @Override
+    public void savePlot(final Plot plot) {
+        //first delete the plot (if exists) from the database
+        deletePlotRows(plot);
+        if (!schemaV2) {
+            writePlotToLegacyTables(plot);
+        }
+        writePlotToV2Tables(plot);
+        // The copy to the v2 tables skips plots that are in them already, so until it is done the v2 tables get
+        // all metadata of a saved plot
+        if (!schemaV2) {
+            deleteAllFrom(plot.getInternalID(), "plotmecore_metadata_v2");
+        }
+        writeMetadata(plot, !schemaV2);
+    }
+
+    /**
+     * Inserts the like and raises the like counter in the same transaction, so the counter can't drift from
+     * the number of likes. The counter is only raised if the like wasn't stored yet.
+     */
+    @Override
+    public void addLike(Plot plot, UUID player) {
+        Connection connection = getConnection();
+        try {
+            try (PreparedStatement insert = connection.prepareStatement(insertIgnore() + " INTO plotmecore_likes_v2 (plot_id, player) VALUES (?,?)")) {
+                insert.setLong(1, plot.getInternalID());
+                insert.setBytes(2, UUIDs.toBytes(player));
+                if (insert.executeUpdate() > 0) {
+                    updateLikeCount(connection, "plotmecore_plots_v2", plot, 1);
+                }
+            }
+            if (!schemaV2) {
+                try (PreparedStatement insert = connection.prepareStatement(insertIgnore() + " INTO plotmecore_likes (plot_id, player) VALUES (?,?)")) {
+                    insert.setLong(1, plot.getInternalID());
+                    insert.setString(2, player.toString());
+                    if (insert.executeUpdate() > 0) {
+                        updateLikeCount(connection, "plotmecore_plots", plot, 1);
+                    }
+                }
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            plugin.getLogger().severe("Error adding a like to plot with internal id " + plot.getInternalID() + ":");
+            plugin.getLogger().severe(e.getMessage());
+            try {
+                connection.rollback();
+            } catch (SQLException ignored) {
+            }
+        }
+    }
+
+    /**
+     * Deletes the like and lowers the like counter in the same transaction. The counter is only lowered if
+     * there was a like to delete.
+     */
+    @Override
+    public void removeLike(Plot plot, UUID player) {
+        Connection connection = getConnection();
+        try {
+            try (PreparedStatement delete = connection.prepareStatement("DELETE FROM plotmecore_likes_v2 WHERE plot_id = ? AND player = ?")) {
+                delete.setLong(1, plot.getInternalID());
+                delete.setBytes(2, UUIDs.toBytes(player));
+                if (delete.executeUpdate() > 0) {
+                    updateLikeCount(connection, "plotmecore_plots_v2", plot, -1);
+                }
+            }
+            if (!schemaV2) {
+                try (PreparedStatement delete = connection.prepareStatement("DELETE FROM plotmecore_likes WHERE plot_id = ? AND player = ?")) {
+                    delete.setLong(1, plot.getInternalID());
+                    delete.setString(2, player.toString());
+                    if (delete.executeUpdate() > 0) {
+                        updateLikeCount(connection, "plotmecore_plots", plot, -1);
+                    }
+                }
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            plugin.getLogger().severe("Error removing a like from plot with internal id " + plot.getInternalID() + ":");
+            plugin.getLogger().severe(e.getMessage());
+            try {
+                connection.rollback();
+            } catch (SQLException ignored) {
+            }
+        }
+    }
+
+    private static void updateLikeCount(Connection connection, String table, Plot plot, int change) throws SQLException {
+        try (PreparedStatement update = connection.prepareStatement("UPDATE " + table + " SET plotLikes = plotLikes + ? WHERE plot_id = ?")) {
+            update.setInt(1, change);
+            update.setLong(2, plot.getInternalID());
+            update.executeUpdate();
+        }
+    }
+
+    @Override
+    public Map<PlotId, Integer> loadLikeCounts(IWorld world) {
+        HashMap<PlotId, Integer> counts = new HashMap<>();
+        Connection connection = getConnection();
+        String query = schemaV2 ? "SELECT plotX, plotZ, plotLikes FROM plotmecore_plots_v2 WHERE world_id = ? AND plotLikes > 0"
+                                : "SELECT plotX, plotZ, plotLikes FROM plotmecore_plots WHERE LOWER(world) = ? AND plotLikes > 0";
+        try (PreparedStatement statement = connection.prepareStatement(query)) {
+            if (schemaV2) {
+                statement.setInt(1, getWorldId(world.getName()));
+            } else {
+                statement.setString(1, world.getName().toLowerCase());
+            }
+            try (ResultSet set = statement.executeQuery()) {
+                while (set.next()) {
+                    counts.put(new PlotId(set.getInt(1), set.getInt(2)), set.getInt(3));
+                }
+            }
+        } catch (SQLException ex) {
+            plugin.getLogger().severe("Error reading the likes of " + world.getName() + ":");
+            plugin.getLogger().severe(ex.getMessage());
+        }
+        return counts;
+    }
+
+    @Override
+    public Map<PlotId, String> loadPlotNames(IWorld world) {
+        HashMap<PlotId, String> names = new HashMap<>();
+        Connection connection = getConnection();
+        String query = schemaV2 ? "SELECT plotX, plotZ, plotName FROM plotmecore_plots_v2 WHERE world_id = ? AND plotName IS NOT NULL"
+                                : "SELECT plotX, plotZ, plotName FROM plotmecore_plots WHERE LOWER(world) = ? AND plotName IS NOT NULL";
+        try (PreparedStatement statement = connection.prepareStatement(query)) {
+            if (schemaV2) {
+                statement.setInt(1, getWorldId(world.getName()));
+            } else {
+                statement.setString(1, world.getName().toLowerCase());
+            }
+            try (ResultSet set = statement.executeQuery()) {
+                while (set.next()) {
+                    names.put(new PlotId(set.getInt(1), set.getInt(2)), set.getString(3));
+                }
+            }
+        } catch (SQLException ex) {
+            plugin.getLogger().severe("Error reading the plot names of " + world.getName() + ":");
+            plugin.getLogger().severe(ex.getMessage());
+        }
+        return names;
+    }
+
+    @Override
+    public long findPlotByName(String name) {
+        Connection connection = getConnection();
+        String query = schemaV2 ? "SELECT plot_id FROM plotmecore_plots_v2 WHERE " + plotNameEquals()
+                                : "SELECT plot_id FROM plotmecore_plots WHERE " + plotNameEquals();
+        try (PreparedStatement statement = connection.prepareStatement(query)) {
+            statement.setString(1, name);
+            try (ResultSet set = statement.executeQuery()) {
+                return set.next() ? set.getLong(1) : 0;
+            }
+        } catch (SQLException ex) {
+            plugin.getLogger().severe("Error looking up the plot named " + name + ":");
+            plugin.getLogger().severe(ex.getMessage());
+            return -1;
+        }
+    }
+
+    @Override
+    public HashMap<String, Object> loadMetadata(Plot plot, String namespace) {
+        HashMap<String, Object> values = new HashMap<>();
+        Connection connection = getConnection();
+        String query = schemaV2
+                ? "SELECT propertyName, valueType, propertyValue, numberValue, blobValue FROM plotmecore_metadata_v2 WHERE plot_id = ? AND pluginName = ?"
+                : "SELECT propertyName, propertyValue FROM plotmecore_metadata WHERE plot_id = ? AND pluginName = ?";
+        try (PreparedStatement statement = connection.prepareStatement(query)) {
+            statement.setLong(1, plot.getInternalID());
+            statement.setString(2, namespace);
+            try (ResultSet set = statement.executeQuery()) {
+                while (set.next()) {
+                    Object value = schemaV2 ? readMetadataValue(set, 2) : set.getString(2);
+                    if (value != null) {
+                        values.put(StringPool.intern(set.getString(1)), value);
+                    }
+                }
+            }
+        } catch (SQLException ex) {
+            plugin.getLogger().severe("Error reading the " + namespace + " metadata of plot with internal id " + plot.getInternalID() + ":");
+            plugin.getLogger().severe(ex.getMessage());
+        }
+        return values;
+    }
+
+    @Override
+    public Map<String, HashMap<String, Object>> loadAllMetadata(Plot plot) {
+        HashMap<String, HashMap<String, Object>> all = new HashMap<>();
+        Connection connection = getConnection();
+        String query = schemaV2
+                ? "SELECT pluginName, propertyName, valueType, propertyValue, numberValue, blobValue FROM plotmecore_metadata_v2 WHERE plot_id = ?"
+                : "SELECT pluginName, propertyName, propertyValue FROM plotmecore_metadata WHERE plot_id = ?";
+        try (PreparedStatement statement = connection.prepareStatement(query)) {
+            statement.setLong(1, plot.getInternalID());
+            try (ResultSet set = statement.executeQuery()) {
+                while (set.next()) {
+                    Object value = schemaV2 ? readMetadataValue(set, 3) : set.getString(3);
+                    if (value == null) {
+                        continue;
+                    }
+                    HashMap<String, Object> values = all.get(set.getString(1));
+                    if (values == null) {
+                        values = new HashMap<>();
+                        all.put(set.getString(1), values);
+                    }
+                    values.put(StringPool.intern(set.getString(2)), value);
+                }
+            }
+        } catch (SQLException ex) {
+            plugin.getLogger().severe("Error reading the metadata of plot with internal id " + plot.getInternalID() + ":");
+            plugin.getLogger().severe(ex.getMessage());
+        }
+        return all;
+    }
+
+    @Override
+    public void saveMetadata(Plot plot) {
+        writeMetadata(plot, false);
+    }
+
+    /**
+     * Writes the changed metadata values of a plot. Values are written to the legacy table as strings as
+     * long as it is in use; byte arrays can't be kept there.
+     *
+     * @param plot the plot
+     * @param all true to write all loaded values to the v2 table, not only the changed ones
+     */
+    private void writeMetadata(Plot plot, boolean all) {
+        Connection connection = getConnection();
+        try {
+            try (PreparedStatement replace = connection.prepareStatement("REPLACE INTO plotmecore_metadata_v2 (plot_id, pluginName, propertyName, "
+                    + "valueType, propertyValue, numberValue, blobValue) VALUES (?,?,?,?,?,?,?)");
+                    PreparedStatement delete = connection.prepareStatement(
+                            "DELETE FROM plotmecore_metadata_v2 WHERE plot_id = ? AND pluginName = ? AND propertyName = ?");
+                    PreparedStatement deleteLegacy = connection.prepareStatement(
+                            "DELETE FROM plotmecore_metadata WHERE plot_id = ? AND pluginName = ? AND propertyName = ?");
+                    PreparedStatement insertLegacy = connection.prepareStatement(
+                            "INSERT INTO plotmecore_metadata (plot_id, pluginName, propertyName, propertyValue) VALUES (?,?,?,?)")) {
+                for (PlotMetadata metadata : plot.getLoadedMetadata()) {
+                    Map<String, Object> changes = metadata.takeChanges();
+                    for (Map.Entry<String, Object> change : (all ? metadata.getValues() : changes).entrySet()) {
+                        Object value = change.getValue();
+                        if (value == null) {
+                            setMetadataKey(delete, plot, metadata, change.getKey());
+                            delete.addBatch();
+                        } else {
+                            PlotMetadata.Type type = PlotMetadata.Type.of(value);
+                            setMetadataKey(replace, plot, metadata, change.getKey());
+                            replace.setInt(4, type.getCode());
+                            replace.setString(5, type == PlotMetadata.Type.STRING ? (String) value : null);
+                            replace.setObject(6, value instanceof Number ? ((Number) value).longValue() : null, Types.BIGINT);
+                            replace.setBytes(7, type == PlotMetadata.Type.BLOB ? (byte[]) value : null);
+                            replace.addBatch();
+                        }
+                    }
+                    if (schemaV2) {
+                        continue;
+                    }
+                    for (Map.Entry<String, Object> change : changes.entrySet()) {
+                        Object value = change.getValue();
+                        setMetadataKey(deleteLegacy, plot, metadata, change.getKey());
+                        deleteLegacy.addBatch();
+                        if (value != null && !(value instanceof byte[])) {
+                            setMetadataKey(insertLegacy, plot, metadata, change.getKey());
+                            insertLegacy.setString(4, value.toString());
+                            insertLegacy.addBatch();
+                        }
+                    }
+                }
+                delete.executeBatch();
+                replace.executeBatch();
+                if (!schemaV2) {
+                    deleteLegacy.executeBatch();
+                    insertLegacy.executeBatch();
+                }
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            plugin.getLogger().severe("Error saving the metadata of plot with internal id " + plot.getInternalID() + ":");
+            plugin.getLogger().severe(e.getMessage());
+            try {
+                connection.rollback();
+            } catch (SQLException ignored) {
+            }
+        }
+    }
+
+    private static void setMetadataKey(PreparedStatement statement, Plot plot, PlotMetadata metadata, String key) throws SQLException {
+        statement.setLong(1, plot.getInternalID());
+        statement.setString(2, metadata.getNamespace());
+        statement.setString(3, key);
+    }
+
+    @Override
+    public Map<PlotId, Object> loadMetadataColumn(IWorld world, String namespace, String key) {
+        HashMap<PlotId, Object> column = new HashMap<>();
+        Connection connection = getConnection();
+        String query = schemaV2
+                ? "SELECT p.plotX, p.plotZ, m.valueType, m.propertyValue, m.numberValue, m.blobValue FROM plotmecore_metadata_v2 m "
+                        + "JOIN plotmecore_plots_v2 p ON p.plot_id = m.plot_id WHERE m.pluginName = ? AND m.propertyName = ? AND p.world_id = ?"
+                : "SELECT p.plotX, p.plotZ, m.propertyValue FROM plotmecore_metadata m "
+                        + "JOIN plotmecore_plots p ON p.plot_id = m.plot_id WHERE m.pluginName = ? AND m.propertyName = ? AND LOWER(p.world) = ?";
+        try (PreparedStatement statement = connection.prepareStatement(query)) {
+            statement.setString(1, namespace);
+            statement.setString(2, key);
+            if (schemaV2) {
+                statement.setInt(3, getWorldId(world.getName()));
+            } else {
+                statement.setString(3, world.getName().toLowerCase());
+            }
+            try (ResultSet set = statement.executeQuery()) {
+                while (set.next()) {
+                    Object value = schemaV2 ? readMetadataValue(set, 3) : set.getString(3);
+                    if (value != null) {
+                        column.put(new PlotId(set.getInt(1), set.getInt(2)), value);
+                    }
+                }
+            }
+        } catch (SQLException ex) {
+            plugin.getLogger().severe("Error reading " + namespace + " metadata of " + world.getName() + ":");
+            plugin.getLogger().severe(ex.getMessage());
+        }
+        return column;
+    }
+
+    /**
+     * Reads a value of the v2 metadata table.
+     *
+     * @param set row with the valueType, propertyValue, numberValue and blobValue columns in that order
+     * @param column index of the valueType column
+     * @return the value, or null if the row has none
+     */
+    private static Object readMetadataValue(ResultSet set, int column) throws SQLException {
+        switch (PlotMetadata.Type.getType(set.getInt(column))) {
+            case INT:
+                long intValue = set.getLong(column + 2);
+                return set.wasNull() ? null : (int) intValue;
+            case LONG:
+                long longValue = set.getLong(column + 2);
+                return set.wasNull() ? null : longValue;
+            case BLOB:
+                return set.getBytes(column + 3);
+            default:
+                return set.getString(column + 1);
+        }
+    }
+
+    private void writePlotToLegacyTables(final Plot plot) {
+        try (PreparedStatement ps = getConnection().prepareStatement(
+                "INSERT INTO plotmecore_plots(plot_id,plotX, plotZ, world, ownerID, owner, biome, finished, finishedDate, forSale, price, "
+                        + "protected, "
+                        + "expiredDate, topX, topZ, bottomX, bottomZ, plotLikes, createdDate) VALUES (?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,"
+                        + "?)")) {
+            ps.setLong(1, plot.getInternalID());
+            ps.setInt(2, plot.getId().getX());
+            ps.setInt(3, plot.getId().getZ());
+            ps.setString(4, plot.getWorld().getName().toLowerCase());
+            ps.setString(5, plot.getOwnerId().toString());
+            ps.setString(6, plot.getOwner());
+            ps.setString(7, plot.getBiome());
+            ps.setBoolean(8, plot.isFinished());
+            ps.setString(9, plot.getFinishedDate());
+            ps.setBoolean(10, plot.isForSale());
+            ps.setDouble(11, plot.getPrice());
+            ps.setBoolean(12, plot.isProtected());
+            ps.setDate(13, plot.getExpiredDate());
+            ps.setInt(14, plot.getTopX());
+            ps.setInt(15, plot.getTopZ());
+            ps.setInt(16, plot.getBottomX());
+            ps.setInt(17, plot.getBottomZ());
+            ps.setInt(18, plot.getLikes());
+            ps.setString(19, plot.getCreatedDate());
+            ps.executeUpdate();
+            getConnection().commit();
+        } catch (SQLException e) {
+            plugin.getLogger().severe("Insert Exception :");
+            plugin.getLogger().severe(e.getMessage());
+            plugin.getLogger().severe("Details: " + e.getMessage());
+            plugin.getLogger().severe("Error Code: " + e.getErrorCode());
+            plugin.getLogger().severe("SQLState: " + e.getSQLState());
+
+        }
+        for (String denied : plot.getDeniedPlayers()) {
+            try (PreparedStatement ps = getConnection()
+                    .prepareStatement("INSERT INTO plotmecore_denied (plot_id, player) VALUES(?,?)")) {
+                ps.setLong(1, plot.getInternalID());
+                ps.setString(2, denied);
+                ps.execute();
+                getConnection().commit();
+            } catch (SQLException e) {
+                plugin.getLogger().severe("Error adding allowed data for plot with internal id " + plot.getInternalID());
+                plugin.getLogger().severe("Details: " + e.getMessage());
+                plugin.getLogger().severe("Error Code: " + e.getErrorCode());
+                plugin.getLogger().severe("SQLState: " + e.getSQLState());
+
+                e.printStackTrace();
+            }
+        }
+        for (Map.Entry<String, Plot.AccessLevel> member : plot.getMemberLevels().entrySet()) {
+            try (PreparedStatement ps = getConnection()
+                    .prepareStatement("INSERT INTO plotmecore_allowed (plot_id, player, access) VALUES(?,?, ?)")) {
+                ps.setLong(1, plot.getInternalID());
+                ps.setString(2, member.getKey());
+                ps.setInt(3, member.getValue().getLevel());
+                ps.execute();
+                getConnection().commit();
+            } catch (SQLException e) {
+                plugin.getLogger().severe("Error adding allowed data for plot with internal id " + plot.getInternalID());
+                plugin.getLogger().severe("Details: " + e.getMessage());
+                plugin.getLogger().severe("Error Code: " + e.getErrorCode());
+                plugin.getLogger().severe("SQLState: " + e.getSQLState());
+
+                e.printStackTrace();
+            }
+        }
+        for (UUID player : plot.getLikerIds()) {
+            try (PreparedStatement ps = getConnection()
+                    .prepareStatement("INSERT INTO plotmecore_likes (plot_id, player) VALUES(?, ?)")) {
+                ps.setLong(1, plot.getInternalID());
+                ps.setString(2, player.toString());
+                ps.execute();
+                getConnection().commit();
+            } catch (SQLException e) {
+                plugin.getLogger().severe("Error adding allowed data for plot with internal id " + plot.getInternalID());
+                plugin.getLogger().severe("Details: " + e.getMessage());
+                plugin.getLogger().severe("Error Code: " + e.getErrorCode());
+                plugin.getLogger().severe("SQLState: " + e.getSQLState());
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Fills a name cache with the owners of all plots and every player in the name table. Names from the
+     * name table win over plot owner names, since they are updated every time the player joins.
+     *
+     * @param names cache to fill
+     */
+    @Override
+    public void loadNames(NameCache names) {
+        try (Statement statement = getConnection().createStatement()) {
+            if (schemaV2) {
+                try (ResultSet results = statement.executeQuery("SELECT DISTINCT ownerID, owner FROM plotmecore_plots_v2")) {
+                    while (results.next()) {
+                        names.put(UUIDs.fromBytes(results.getBytes("ownerID")), results.getString("owner"), 0);
+                    }
+                }
+            } else {
+                try (ResultSet results = statement.executeQuery("SELECT DISTINCT ownerID, owner FROM plotmecore_plots")) {
+                    while (results.next()) {
+                        try {
+                            names.put(UUID.fromString(results.getString("ownerID")), results.getString("owner"), 0);
+                        } catch (IllegalArgumentException ignored) {
+                            // Plots from before UUIDs have no usable owner id
+                        }
+                    }
+                }
+            }
+            try (ResultSet results = statement.executeQuery("SELECT uuid, name, lastSeen FROM plotmecore_names")) {
+                while (results.next()) {
+                    names.put(UUID.fromString(results.getString("uuid")), results.getString("name"), results.getLong("lastSeen"));
+                }
+            }
+        } catch (SQLException e) {
+            plugin.getLogger().severe("Error loading player names:");
+            plugin.getLogger().severe(e.getMessage());
+        }
+    }
+
+    /**
+     * Stores the name of a player.
+     *
+     * @param uuid player UUID
+     * @param name player name
+     * @param lastSeen time the player was last seen with this name, in milliseconds since the epoch
+     */
+    @Override
+    public void saveName(UUID uuid, String name, long lastSeen) {
+        synchronized (backgroundLock) {
+            Connection connection = null;
+            try {
+                connection = getBackgroundConnection();
+                try (PreparedStatement ps = connection.prepareStatement("REPLACE INTO plotmecore_names (uuid, name, lastSeen) VALUES (?,?,?)")) {
+                    ps.setString(1, uuid.toString());
+                    ps.setString(2, name);
+                    ps.setLong(3, lastSeen);
+                    ps.executeUpdate();
+                }
+                connection.commit();
+            } catch (SQLException e) {
+                plugin.getLogger().severe("Error saving the name of " + name + ":");
+                plugin.getLogger().severe(e.getMessage());
+                rollbackQuietly(connection);
+            }
+        }
+    }
+
+    /**
+     * Gets the stamp of the plot cache snapshot that matches the plots of a world.
+     *
+     * @param world world name
+     * @return the stamp, or 0 if the plots changed since the last snapshot
+     */
+    public long getCacheStamp(String world) {
+        try (PreparedStatement ps = getConnection().prepareStatement("SELECT stamp FROM plotmecore_cache_stamps WHERE world = ?")) {
+            ps.setString(1, world.toLowerCase());
+            try (ResultSet results = ps.executeQuery()) {
+                return results.next() ? results.getLong("stamp") : 0;
+            }
+        } catch (SQLException e) {
+            plugin.getLogger().severe("Error reading the plot cache stamp of " + world + ":");
+            plugin.getLogger().severe(e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * Stores the stamp of the plot cache snapshot that matches the plots of a world. Written on the
+     * connection of the background tasks, so it never commits a plot write that is half done.
+     *
+     * @param world world name
+     * @param stamp the stamp, or 0 to mark the snapshot as out of date
+     */
+    public void setCacheStamp(String world, long stamp) {
+        synchronized (backgroundLock) {
+            Connection connection = null;
+            try {
+                connection = getBackgroundConnection();
+                try (PreparedStatement ps = connection.prepareStatement("REPLACE INTO plotmecore_cache_stamps (world, stamp) VALUES (?,?)")) {
+                    ps.setString(1, world.toLowerCase());
+                    ps.setLong(2, stamp);
+                    ps.executeUpdate();
+                }
+                connection.commit();
+            } catch (SQLException e) {
+                plugin.getLogger().severe("Error storing the plot cache stamp of " + world + ":");
+                plugin.getLogger().severe(e.getMessage());
+                rollbackQuietly(connection);
+            }
+        }
+    }
+
+    /**
+     * Checks if plots are stored in the v2 tables only.
+     *
+     * @return true if the plots were copied to the v2 tables
+     */
+    public boolean isSchemaV2() {
+        return schemaV2;
+    }
+
+    /**
+     * Reads which table layout plots are stored in. Called once the tables are created.
+     */
+    private void loadSchemaState() {
+        try {
+            schemaV2 = readCheckpoint(SchemaV2Migration.NAME) < 0;
+        } catch (SQLException e) {
+            plugin.getLogger().severe("Error reading the plot table layout:");
+            plugin.getLogger().severe(e.getMessage());
+        }
+    }
+
+    /**
+     * Switches reads and writes to the v2 tables.
+     */
+    void useSchemaV2() {
+        schemaV2 = true;
+    }
+
+    /**
+     * Gets the progress of a data migration.
+     *
+     * @param name migration name
+     * @return the id of the last row that was migrated, 0 if the migration didn't start yet, or -1 if it is done
+     */
+    long readCheckpoint(String name) throws SQLException {
+        return readCheckpoint(getConnection(), name);
+    }
+
+    /**
+     * Gets the progress of a data migration, reading through the given connection.
+     *
+     * @param connection the connection of the migration
+     * @param name migration name
+     * @return the id of the last row that was migrated, 0 if the migration didn't start yet, or -1 if it is done
+     */
+    static long readCheckpoint(Connection connection, String name) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("SELECT lastId, done FROM plotmecore_migrations WHERE name = ?")) {
+            ps.setString(1, name);
+            try (ResultSet results = ps.executeQuery()) {
+                if (!results.next()) {
+                    return 0;
+                }
+                if (results.getBoolean("done")) {
+                    return -1;
+                }
+                return results.getLong("lastId");
+            }
+        }
+    }
+
+    /**
+     * Stores the progress of a data migration. The caller commits the connection.
+     *
+     * @param connection the connection of the migration
+     * @param name migration name
+     * @param lastId id of the last row that was migrated
+     * @param done true if the migration is finished
+     */
+    static void writeCheckpoint(Connection connection, String name, long lastId, boolean done) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("REPLACE INTO plotmecore_migrations (name, lastId, done) VALUES (?,?,?)")) {
+            ps.setString(1, name);
+            ps.setLong(2, lastId);
+            ps.setBoolean(3, done);
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Gets the id of a world in the v2 tables, adding the world if it has none yet.
+     *
+     * @param name world name, in any case
+     * @return the world id
+     */
+    int getWorldId(String name) throws SQLException {
+        return getWorldId(getConnection(), name);
+    }
+
+    /**
+     * Gets the id of a world in the v2 tables, adding the world through the given connection if it has none
+     * yet. Adding a world commits the connection.
+     *
+     * @param connection the connection to add the world with
+     * @param name world name, in any case
+     * @return the world id
+     */
+    synchronized int getWorldId(Connection connection, String name) throws SQLException {
+        String key = name.toLowerCase();
+        Integer id = worldIds.get(key);
+        if (id != null) {
+            return id;
+        }
+        try (PreparedStatement select = connection.prepareStatement("SELECT world_id FROM plotmecore_worlds WHERE name = ?")) {
+            select.setString(1, key);
+            try (ResultSet results = select.executeQuery()) {
+                if (!results.next()) {
+                    try (PreparedStatement insert = connection.prepareStatement("INSERT INTO plotmecore_worlds (name) VALUES (?)")) {
+                        insert.setString(1, key);
+                        insert.executeUpdate();
+                    }
+                    connection.commit();
+                    return getWorldId(connection, key);
+                }
+                id = results.getInt("world_id");
+            }
+        }
+        worldIds.put(key, id);
+        return id;
+    }
+
+    /**
+     * Converts an entry of the allowed or denied list of a plot to its v2 form.
+     *
+     * @param player the UUID of the player, or * for everyone
+     * @return 16 bytes, or null if the entry is neither a UUID nor the wildcard
+     */
+    static byte[] toPlayerBytes(String player) {
+        if ("*".equals(player)) {
+            return UUIDs.toBytes(EVERYONE);
+        }
+        try {
+            return UUIDs.toBytes(UUID.fromString(player));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    static String fromPlayerBytes(byte[] player) {
+        UUID uuid = UUIDs.fromBytes(player);
+        if (EVERYONE.equals(uuid)) {
+            return "*";
+        }
+        return uuid.toString();
+    }
+
+    private void writePlotToV2Tables(Plot plot) {
+        Connection connection = getConnection();
+        try {
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "INSERT INTO plotmecore_plots_v2(plot_id, world_id, plotX, plotZ, ownerID, owner, biome, finished, finishedDate, forSale, "
+                            + "price, protected, expiredDate, topX, topZ, bottomX, bottomZ, plotName, plotLikes, createdDate, expiredAt) "
+                            + "VALUES (?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?)")) {
+                ps.setLong(1, plot.getInternalID());
+                ps.setInt(2, getWorldId(plot.getWorld().getName()));
+                ps.setInt(3, plot.getId().getX());
+                ps.setInt(4, plot.getId().getZ());
+                ps.setBytes(5, UUIDs.toBytes(plot.getOwnerId()));
+                ps.setString(6, plot.getOwner());
+                ps.setString(7, plot.getBiome());
+                ps.setBoolean(8, plot.isFinished());
+                ps.setString(9, plot.getFinishedDate());
+                ps.setBoolean(10, plot.isForSale());
+                ps.setDouble(11, plot.getPrice());
+                ps.setBoolean(12, plot.isProtected());
+                ps.setDate(13, plot.getExpiredDate());
+                ps.setInt(14, plot.getTopX());
+                ps.setInt(15, plot.getTopZ());
+                ps.setInt(16, plot.getBottomX());
+                ps.setInt(17, plot.getBottomZ());
+                ps.setString(18, plot.getPlotName());
+                ps.setInt(19, plot.getLikes());
+                ps.setString(20, plot.getCreatedDate());
+                ps.setObject(21, plot.getExpiredAt() == Plot.NO_EXPIRY ? null : plot.getExpiredAt(), Types.BIGINT);
+                ps.executeUpdate();
+            }
+            try (PreparedStatement ps = connection.prepareStatement("INSERT INTO plotmecore_allowed_v2 (plot_id, player, access) VALUES (?,?,?)")) {
+                for (Map.Entry<String, Plot.AccessLevel> member : plot.getMemberLevels().entrySet()) {
+                    byte[] player = toPlayerBytes(member.getKey());
+                    if (player != null) {
+                        ps.setLong(1, plot.getInternalID());
+                        ps.setBytes(2, player);
+                        ps.setInt(3, member.getValue().getLevel());
+                        ps.addBatch();
+                    }
+                }
+                ps.executeBatch();
+            }
+            try (PreparedStatement ps = connection.prepareStatement("INSERT INTO plotmecore_denied_v2 (plot_id, player) VALUES (?,?)")) {
+                for (String denied : plot.getDeniedPlayers()) {
+                    byte[] player = toPlayerBytes(denied);
+                    if (player != null) {
+                        ps.setLong(1, plot.getInternalID());
+                        ps.setBytes(2, player);
+                        ps.addBatch();
+                    }
+                }
+                ps.executeBatch();
+            }
+            try (PreparedStatement ps = connection.prepareStatement("INSERT INTO plotmecore_likes_v2 (plot_id, player) VALUES (?,?)")) {
+                for (UUID liker : plot.getLikerIds()) {
+                    ps.setLong(1, plot.getInternalID());
+                    ps.setBytes(2, UUIDs.toBytes(liker));
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            plugin.getLogger().severe("Error saving plot with internal id " + plot.getInternalID() + ":");
+            plugin.getLogger().severe("Details: " + e.getMessage());
+            plugin.getLogger().severe("Error Code: " + e.getErrorCode());
+            plugin.getLogger().severe("SQLState: " + e.getSQLState());
+            try {
+                connection.rollback();
+            } catch (SQLException ignored) {
+            }
+        }
+    }
+
+    private HashMap<PlotId, Plot> loadPlotsV2(IWorld world, String filter, Object... arguments) {
+        HashMap<PlotId, Plot> ret = new LinkedHashMap<>();
+        Connection connection = getConnection();
+        try (PreparedStatement statementPlot = connection.prepareStatement("SELECT * FROM plotmecore_plots_v2 WHERE world_id = ?" + filter);
+                PreparedStatement statementAllowed = connection.prepareStatement("SELECT player, access FROM plotmecore_allowed_v2 WHERE plot_id = ?");
+                PreparedStatement statementDenied = connection.prepareStatement("SELECT player FROM plotmecore_denied_v2 WHERE plot_id = ?");
+                PreparedStatement statementLikes = connection.prepareStatement("SELECT player FROM plotmecore_likes_v2 WHERE plot_id = ?")
+        ) {
+            statementPlot.setInt(1, getWorldId(world.getName()));
+            for (int i = 0; i < arguments.length; i++) {
+                statementPlot.setObject(i + 2, arguments[i]);
+            }
+            try (ResultSet setPlots = statementPlot.executeQuery()) {
+                while (setPlots.next()) {
+                    long internalID = setPlots.getLong("plot_id");
+                    PlotId id = new PlotId(setPlots.getInt("plotX"), setPlots.getInt("plotZ"));
+                    HashMap<String, Plot.AccessLevel> allowed = new HashMap<>();
+                    HashSet<String> denied = new HashSet<>();
+                    HashSet<UUID> likers = new HashSet<>();
+                    statementAllowed.setLong(1, internalID);
+                    try (ResultSet setAllowed = statementAllowed.executeQuery()) {
+                        while (setAllowed.next()) {
+                            allowed.put(StringPool.intern(fromPlayerBytes(setAllowed.getBytes("player"))), Plot.AccessLevel.getAccessLevel(setAllowed.getInt("access")));
+                        }
+                    }
+                    statementDenied.setLong(1, internalID);
+                    try (ResultSet setDenied = statementDenied.executeQuery()) {
+                        while (setDenied.next()) {
+                            denied.add(StringPool.intern(fromPlayerBytes(setDenied.getBytes("player"))));
+                        }
+                    }
+                    statementLikes.setLong(1, internalID);
+                    try (ResultSet setLikes = statementLikes.executeQuery()) {
+                        while (setLikes.next()) {
+                            likers.add(UUIDs.fromBytes(setLikes.getBytes("player")));
+                        }
+                    }
+                    // Metadata is read per plugin when it is first asked for
+                    Plot plot = new Plot(internalID, setPlots.getString("owner"), UUIDs.fromBytes(setPlots.getBytes("ownerID")), world,
+                            setPlots.getString("biome"), setPlots.getDate("expiredDate"), allowed, denied, likers, setPlots.getDouble("price"),
+                            setPlots.getBoolean("forSale"), setPlots.getBoolean("finished"), setPlots.getString("finishedDate"),
+                            setPlots.getBoolean("protected"), null, setPlots.getInt("plotLikes"), setPlots.getString("plotName"),
+                            PlotMeCoreManager.getInstance().getGeometry(world, id), setPlots.getString("createdDate"));
+                    ret.put(plot.getId(), plot);
+                }
+            }
+        } catch (SQLException ex) {
+            plugin.getLogger().severe("Load exception :");
+            plugin.getLogger().severe("Details: " + ex.getMessage());
+            plugin.getLogger().severe("Error Code: " + ex.getErrorCode());
+            plugin.getLogger().severe("SQLState: " + ex.getSQLState());
+        }
+        return ret;
+    }
+}
@@ -0,0 +1,456 @@
+package com.worldcretornica.plotme_core.storage;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.worldcretornica.plotme_core.Plot;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Keeps plots in memory and records every change in an append-only journal on disk.
+ *
+ * <p>When the storage opens, the plots are rebuilt by reading the snapshot file and then the journal on
+ * top of it. Every record carries a checksum; a record that was cut off or damaged by a crash ends the
+ * replay, and the journal is cut back to the last good record. Records of an unknown type are skipped. If
+ * the snapshot or the journal isn't a PlotMe file at all, the storage refuses to write so the files can be
+ * looked at; changes are then lost at the next restart.</p>
+ *
+ * <p>Once the journal grows past a set size, the current state is written to a new snapshot and the
+ * journal starts over with the changes made while the snapshot was written. Records only replace or remove
+ * whole plots, so replaying a journal that is already part of the snapshot does no harm. Saves wait for
+ * the journal only while the state is copied and while the new journal is swapped in, not while the
+ * snapshot is written or synced.</p>
+ *
+ * <p>Writes are synced to disk either right away or in batches every few milliseconds, see the {@code
+ * JournalSyncMillis} setting. With batches, a power loss can lose the changes of the last batch, but never
+ * damages older ones.</p>
+ */
+public class JournalPlotStorage extends MemoryPlotStorage {
+
+    private static final int SNAPSHOT_MAGIC = 0x504d5331;
+    private static final int JOURNAL_MAGIC = 0x504d4a31;
+    private static final byte PUT_PLOT = 1;
+    private static final byte DELETE_PLOT = 2;
+    private static final byte NEXT_ID = 3;
+    private static final byte NAME = 4;
+
+    private final File snapshotFile;
+    private final File journalFile;
+    private final long syncMillis;
+    private final long compactionBytes;
+    private final ScheduledExecutorService executor;
+    private final File newJournalFile;
+    private FileChannel journal;
+    private boolean unsynced;
+    private boolean compactionScheduled;
+
+    /**
+     * @param logger logger for errors
+     * @param folder folder for the snapshot and the journal, created if needed
+     * @param syncMillis time between syncs of the journal to disk, or 0 to sync every change
+     * @param compactionBytes size of the journal at which it is folded into the snapshot
+     */
+    public JournalPlotStorage(Logger logger, File folder, long syncMillis, long compactionBytes) {
+        super(logger);
+        this.snapshotFile = new File(folder, "plots.snapshot");
+        this.journalFile = new File(folder, "plots.journal");
+        this.newJournalFile = new File(folder, "plots.journal.tmp");
+        this.syncMillis = Math.max(0, syncMillis);
+        this.compactionBytes = Math.max(1024, compactionBytes);
+        this.executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("PlotMe Journal").setDaemon(true).build());
+        if (!folder.isDirectory() && !folder.mkdirs()) {
+            logger.severe("Could not create the plot folder " + folder);
+        }
+        open();
+        if (this.syncMillis > 0) {
+            executor.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    sync();
+                }
+            }, this.syncMillis, this.syncMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private synchronized void open() {
+        try {
+            if (snapshotFile.isFile() && replay(snapshotFile, SNAPSHOT_MAGIC) == 0) {
+                refuse(snapshotFile);
+                return;
+            }
+            boolean empty = !journalFile.isFile() || journalFile.length() == 0;
+            long end = empty ? 0 : replay(journalFile, JOURNAL_MAGIC);
+            if (!empty && end == 0) {
+                refuse(journalFile);
+                return;
+            }
+            Files.deleteIfExists(newJournalFile.toPath());
+            journal = FileChannel.open(journalFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            if (empty) {
+                journal.write(ByteBuffer.allocate(4).putInt(0, JOURNAL_MAGIC));
+                journal.force(false);
+            } else if (journal.size() > end) {
+                logger.warning("Dropped " + (journal.size() - end) + " bytes of unfinished changes at the end of " + journalFile);
+                journal.truncate(end);
+                journal.force(false);
+            }
+            journal.position(journal.size());
+        } catch (IOException e) {
+            logger.severe("Could not open the plot journal " + journalFile + ":");
+            logger.severe(e.getMessage());
+        }
+    }
+
+    private void refuse(File file) {
+        logger.severe("PlotMe won't write plots until " + file + " is repaired or moved away. Changes made until then are lost at the "
+                + "next restart.");
+    }
+
+    /**
+     * Applies the records of a file.
+     *
+     * @return the position after the last good record, or 0 if the file doesn't start with the magic number
+     */
+    private long replay(File file, int magic) throws IOException {
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        if (buffer.remaining() < 4 || buffer.getInt() != magic) {
+            logger.severe(file + " is not a PlotMe plot file, ignoring it");
+            return 0;
+        }
+        CRC32 crc = new CRC32();
+        while (buffer.remaining() >= 8) {
+            int start = buffer.position();
+            int length = buffer.getInt();
+            if (length <= 0 || buffer.remaining() < length + 4) {
+                buffer.position(start);
+                break;
+            }
+            crc.reset();
+            crc.update(bytes, buffer.position(), length);
+            int checksum = buffer.getInt(buffer.position() + length);
+            if ((int) crc.getValue() != checksum) {
+                logger.warning("Damaged record in " + file + " at byte " + start + ", ignoring the rest of the file");
+                buffer.position(start);
+                break;
+            }
+            if (!apply(new DataInputStream(new ByteArrayInputStream(bytes, buffer.position(), length)))) {
+                logger.warning("Skipped a record of unknown type in " + file + " at byte " + start + ", was it written by a newer PlotMe?");
+            }
+            buffer.position(buffer.position() + length + 4);
+        }
+        return buffer.position();
+    }
+
+    /**
+     * Applies one record.
+     *
+     * @return false if the record type is unknown
+     */
+    private boolean apply(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case PUT_PLOT:
+                String world = in.readUTF();
+                byte[] data = new byte[in.readInt()];
+                in.readFully(data);
+                put(world, data);
+                break;
+            case DELETE_PLOT:
+                remove(in.readLong());
+                break;
+            case NEXT_ID:
+                raiseNextId(in.readLong());
+                break;
+            case NAME:
+                UUID uuid = new UUID(in.readLong(), in.readLong());
+                super.saveName(uuid, in.readUTF(), in.readLong());
+                break;
+            default:
+                return false;
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized void savePlot(Plot plot) {
+        String world = plot.getWorld().getName().toLowerCase();
+        byte[] data = PlotCodec.encodeSaved(plot);
+        try {
+            put(world, data);
+            Record record = new Record(PUT_PLOT);
+            record.writeUTF(world);
+            record.writeInt(data.length);
+            record.write(data);
+            append(record);
+        } catch (IOException e) {
+            logger.severe("Error saving plot with internal id " + plot.getInternalID() + ": " + e.getMessage());
+        }
+    }
+
+    @Override
+    public synchronized void deletePlot(Plot plot) {
+        remove(plot.getInternalID());
+        try {
+            Record record = new Record(DELETE_PLOT);
+            record.writeLong(plot.getInternalID());
+            append(record);
+        } catch (IOException e) {
+            logger.severe("Error deleting plot with internal id " + plot.getInternalID() + ": " + e.getMessage());
+        }
+    }
+
+    @Override
+    public synchronized long allocateId() {
+        long id = super.allocateId();
+        try {
+            Record record = new Record(NEXT_ID);
+            record.writeLong(id + 1);
+            append(record);
+        } catch (IOException e) {
+            logger.severe("Error setting next internal Plot id: " + e.getMessage());
+        }
+        return id;
+    }
+
+    @Override
+    public synchronized void saveName(UUID uuid, String name, long lastSeen) {
+        super.saveName(uuid, name, lastSeen);
+        try {
+            Record record = new Record(NAME);
+            writeName(record, uuid, name, lastSeen);
+            append(record);
+        } catch (IOException e) {
+            logger.severe("Error saving the name of " + name + ": " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+        synchronized (this) {
+            sync();
+            if (journal != null) {
+                try {
+                    journal.close();
+                } catch (IOException e) {
+                    logger.severe("Could not close the plot journal: " + e.getMessage());
+                }
+                journal = null;
+            }
+        }
+    }
+
+    /**
+     * Syncs the changes written since the last sync to disk. Saves go on while the journal syncs.
+     */
+    private void sync() {
+        FileChannel channel;
+        synchronized (this) {
+            if (!unsynced || journal == null) {
+                return;
+            }
+            channel = journal;
+            unsynced = false;
+        }
+        try {
+            channel.force(false);
+        } catch (ClosedChannelException e) {
+            // Swapped or closed, which syncs the journal too
+        } catch (IOException e) {
+            synchronized (this) {
+                unsynced = true;
+            }
+            logger.severe("Could not sync the plot journal: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes the current state to a new snapshot and starts a new journal with the changes made since. The
+     * snapshot and the new journal each replace the old file in a single rename, so a crash leaves the old
+     * snapshot and the full journal, the new snapshot and the full journal, or the new snapshot and the new
+     * journal.
+     */
+    private void compact() {
+        long nextId;
+        HashMap<UUID, StoredName> names;
+        List<StoredPlot> plots;
+        long cut;
+        synchronized (this) {
+            compactionScheduled = false;
+            if (journal == null) {
+                return;
+            }
+            nextId = getNextId();
+            names = new HashMap<>(getStoredNames());
+            plots = new ArrayList<>(getStoredPlots());
+            try {
+                cut = journal.size();
+            } catch (IOException e) {
+                logger.severe("Could not compact the plot journal, it will keep growing until the next try:");
+                logger.severe(e.getMessage());
+                return;
+            }
+        }
+        File temp = new File(snapshotFile.getPath() + ".tmp");
+        try {
+            try (FileChannel snapshot = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                snapshot.write(ByteBuffer.allocate(4).putInt(0, SNAPSHOT_MAGIC));
+                Record record = new Record(NEXT_ID);
+                record.writeLong(nextId);
+                write(snapshot, record);
+                for (Map.Entry<UUID, StoredName> name : names.entrySet()) {
+                    record = new Record(NAME);
+                    writeName(record, name.getKey(), name.getValue().name, name.getValue().lastSeen);
+                    write(snapshot, record);
+                }
+                for (StoredPlot plot : plots) {
+                    record = new Record(PUT_PLOT);
+                    record.writeUTF(plot.world);
+                    record.writeInt(plot.data.length);
+                    record.write(plot.data);
+                    write(snapshot, record);
+                }
+                snapshot.force(true);
+            }
+            move(temp, snapshotFile);
+            startNewJournal(cut);
+        } catch (IOException e) {
+            logger.severe("Could not compact the plot journal, it will keep growing until the next try:");
+            logger.severe(e.getMessage());
+        }
+    }
+
+    /**
+     * Replaces the journal with one that holds the records written after a position. Most of them are copied
+     * while saves go on; only the records written during the copy are copied while saves wait.
+     *
+     * @param from position of the first record that isn't part of the snapshot
+     */
+    private void startNewJournal(long from) throws IOException {
+        long copied;
+        synchronized (this) {
+            if (journal == null) {
+                return;
+            }
+            copied = journal.size();
+        }
+        try (FileChannel source = FileChannel.open(journalFile.toPath(), StandardOpenOption.READ);
+                FileChannel target = FileChannel.open(newJournalFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING)) {
+            target.write(ByteBuffer.allocate(4).putInt(0, JOURNAL_MAGIC));
+            copy(source, from, copied, target);
+            target.force(false);
+            synchronized (this) {
+                if (journal == null) {
+                    return;
+                }
+                long end = journal.size();
+                if (end > copied) {
+                    copy(source, copied, end, target);
+                    target.force(false);
+                }
+                move(newJournalFile, journalFile);
+                journal.close();
+                journal = FileChannel.open(journalFile.toPath(), StandardOpenOption.WRITE);
+                journal.position(journal.size());
+                unsynced = false;
+            }
+        }
+    }
+
+    private static void copy(FileChannel source, long from, long to, FileChannel target) throws IOException {
+        long position = from;
+        while (position < to) {
+            position += source.transferTo(position, to - position, target);
+        }
+    }
+
+    private static void move(File source, File target) throws IOException {
+        try {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void append(Record record) throws IOException {
+        if (journal == null) {
+            throw new IOException("The plot journal is not open");
+        }
+        write(journal, record);
+        if (syncMillis == 0) {
+            journal.force(false);
+        } else {
+            unsynced = true;
+        }
+        if (!compactionScheduled && journal.size() > compactionBytes) {
+            compactionScheduled = true;
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    compact();
+                }
+            });
+        }
+    }
+
+    /**
+     * Frames a record with its length and checksum and writes it.
+     */
+    private static void write(FileChannel channel, Record record) throws IOException {
+        byte[] payload = record.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+        ByteBuffer buffer = ByteBuffer.allocate(payload.length + 8);
+        buffer.putInt(payload.length).put(payload).putInt((int) crc.getValue());
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static void writeName(Record record, UUID uuid, String name, long lastSeen) throws IOException {
+        record.writeLong(uuid.getMostSignificantBits());
+        record.writeLong(uuid.getLeastSignificantBits());
+        record.writeUTF(name);
+        record.writeLong(lastSeen);
+    }
+
+    /**
+     * A record being written: its type followed by its fields.
+     */
+    private static final class Record extends DataOutputStream {
+
+        private Record(byte type) throws IOException {
+            super(new ByteArrayOutputStream(64));
+            writeByte(type);
+        }
+
+        private byte[] toByteArray() {
+            return ((ByteArrayOutputStream) out).toByteArray();
+        }
+    }
+}
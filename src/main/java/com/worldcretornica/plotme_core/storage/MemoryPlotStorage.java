@@ -0,0 +1,399 @@
+package com.worldcretornica.plotme_core.storage;
+
+import com.worldcretornica.plotme_core.NameCache;
+import com.worldcretornica.plotme_core.Plot;
+import com.worldcretornica.plotme_core.PlotId;
+import com.worldcretornica.plotme_core.PlotMetadata;
+import com.worldcretornica.plotme_core.api.IWorld;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Keeps plots in memory only, for tests and for measuring the rest of PlotMe without a database. Nothing
+ * survives a restart.
+ *
+ * <p>Plots are kept in their encoded form, so loading a world costs about as much as with a real storage
+ * and changes to a loaded plot are only seen after it is saved. Plots are indexed by internal id, by
+ * world and plot id and by name, so a single plot is found without going through the others.</p>
+ */
+public class MemoryPlotStorage implements PlotStorage {
+
+    final Logger logger;
+    private final ConcurrentHashMap<Long, StoredPlot> plots = new ConcurrentHashMap<>();
+    /**
+     * The plots of every world by plot key, see {@link PlotId#getKey()}.
+     */
+    private final ConcurrentHashMap<String, ConcurrentHashMap<Long, StoredPlot>> worlds = new ConcurrentHashMap<>();
+    /**
+     * The named plots by name, in lower case.
+     */
+    private final ConcurrentHashMap<String, StoredPlot> byName = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<UUID, StoredName> names = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong(1);
+
+    public MemoryPlotStorage(Logger logger) {
+        this.logger = logger;
+    }
+
+    @Override
+    public Map<PlotId, Plot> loadWorld(IWorld world) {
+        HashMap<PlotId, Plot> loaded = new HashMap<>();
+        for (StoredPlot stored : getWorldPlots(world).values()) {
+            Plot plot = decode(stored, world);
+            if (plot != null) {
+                loaded.put(plot.getId(), plot);
+            }
+        }
+        return loaded;
+    }
+
+    @Override
+    public Plot loadPlot(IWorld world, PlotId id) {
+        StoredPlot stored = getWorldPlots(world).get(id.getKey());
+        if (stored == null) {
+            return null;
+        }
+        return decode(stored, world);
+    }
+
+    @Override
+    public long[] loadPlotKeys(IWorld world) {
+        Map<Long, StoredPlot> worldPlots = getWorldPlots(world);
+        long[] keys = new long[worldPlots.size()];
+        int count = 0;
+        for (Long key : worldPlots.keySet()) {
+            if (count < keys.length) {
+                keys[count++] = key;
+            }
+        }
+        return Arrays.copyOf(keys, count);
+    }
+
+    @Override
+    public void savePlot(Plot plot) {
+        byte[] data = PlotCodec.encodeSaved(plot);
+        try {
+            put(plot.getWorld().getName().toLowerCase(), data);
+        } catch (IOException e) {
+            logger.severe("Error saving plot with internal id " + plot.getInternalID() + ": " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void deletePlot(Plot plot) {
+        remove(plot.getInternalID());
+    }
+
+    @Override
+    public long allocateId() {
+        return nextId.getAndIncrement();
+    }
+
+    /**
+     * Stores an encoded plot.
+     *
+     * @param world world name, in lower case
+     * @param data the plot, as written by {@link PlotCodec}
+     */
+    synchronized void put(String world, byte[] data) throws IOException {
+        PlotCodec.Header header = PlotCodec.decodeHeader(data);
+        String name = PlotCodec.readName(new DataInputStream(new ByteArrayInputStream(data)));
+        StoredPlot stored = new StoredPlot(world, header, name == null ? null : name.toLowerCase(Locale.ROOT), data);
+        unindex(plots.put(header.internalId, stored));
+        ConcurrentHashMap<Long, StoredPlot> worldPlots = worlds.get(world);
+        if (worldPlots == null) {
+            worldPlots = new ConcurrentHashMap<>();
+            worlds.put(world, worldPlots);
+        }
+        worldPlots.put(header.id.getKey(), stored);
+        if (stored.name != null) {
+            byName.put(stored.name, stored);
+        }
+    }
+
+    synchronized void remove(long internalId) {
+        unindex(plots.remove(internalId));
+    }
+
+    private void unindex(StoredPlot stored) {
+        if (stored != null) {
+            ConcurrentHashMap<Long, StoredPlot> worldPlots = worlds.get(stored.world);
+            if (worldPlots != null) {
+                worldPlots.remove(stored.header.id.getKey(), stored);
+            }
+            if (stored.name != null) {
+                byName.remove(stored.name, stored);
+            }
+        }
+    }
+
+    /**
+     * Gets the plots of a world by plot key.
+     */
+    private Map<Long, StoredPlot> getWorldPlots(IWorld world) {
+        ConcurrentHashMap<Long, StoredPlot> worldPlots = worlds.get(world.getName().toLowerCase());
+        if (worldPlots == null) {
+            return Collections.emptyMap();
+        }
+        return worldPlots;
+    }
+
+    long getNextId() {
+        return nextId.get();
+    }
+
+    /**
+     * Makes sure ids below the given one are never handed out.
+     *
+     * @param id the lowest id to hand out from now on
+     */
+    void raiseNextId(long id) {
+        long current;
+        while ((current = nextId.get()) < id && !nextId.compareAndSet(current, id)) {
+            // Try again
+        }
+    }
+
+    Collection<StoredPlot> getStoredPlots() {
+        return plots.values();
+    }
+
+    Map<UUID, StoredName> getStoredNames() {
+        return names;
+    }
+
+    @Override
+    public List<Plot> findExpiredPlots(IWorld world, Date now) {
+        List<Plot> expired = new ArrayList<>();
+        for (StoredPlot stored : getWorldPlots(world).values()) {
+            if (stored.header.isExpired(now.getTime())) {
+                Plot plot = decode(stored, world);
+                if (plot != null) {
+                    expired.add(plot);
+                }
+            }
+        }
+        return expired;
+    }
+
+    @Override
+    public List<Plot> findOwnedPlots(IWorld world, UUID owner) {
+        List<Plot> owned = new ArrayList<>();
+        for (StoredPlot stored : getWorldPlots(world).values()) {
+            if (stored.header.ownerId.equals(owner)) {
+                Plot plot = decode(stored, world);
+                if (plot != null) {
+                    owned.add(plot);
+                }
+            }
+        }
+        return owned;
+    }
+
+    @Override
+    public List<Plot> findMemberPlots(IWorld world, UUID player) {
+        List<Plot> found = new ArrayList<>();
+        for (StoredPlot stored : getWorldPlots(world).values()) {
+            Plot plot = decode(stored, world);
+            if (plot != null && (player.equals(plot.getOwnerId()) || plot.isMember(player).isPresent())) {
+                found.add(plot);
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public List<Plot> findPlots(IWorld world, PlotQuery query, PlotQuery.Cursor after, int limit) {
+        return query.page(findCandidates(world, query), after, limit);
+    }
+
+    @Override
+    public PlotQuery.Cursor findCursor(IWorld world, PlotQuery query, int skip) {
+        return query.cursorAt(findCandidates(world, query), skip);
+    }
+
+    @Override
+    public int countPlots(IWorld world, PlotQuery query) {
+        return query.count(findCandidates(world, query));
+    }
+
+    /**
+     * Reads the plots of a world that might match a query, judging by the plot header.
+     */
+    private List<Plot> findCandidates(IWorld world, PlotQuery query) {
+        List<Plot> candidates = new ArrayList<>();
+        for (StoredPlot stored : getWorldPlots(world).values()) {
+            if (query.mightMatch(stored.header)) {
+                Plot plot = decode(stored, world);
+                if (plot != null) {
+                    candidates.add(plot);
+                }
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Reads the metadata from the stored copy of the plot. Plots read from this storage hold the metadata of
+     * every plugin already, so this is rarely needed.
+     */
+    @Override
+    public HashMap<String, Object> loadMetadata(Plot plot, String namespace) {
+        Plot stored = loadPlot(plot.getWorld(), plot.getId());
+        HashMap<String, Object> values = new HashMap<>();
+        if (stored != null && stored.getInternalID() == plot.getInternalID()) {
+            for (PlotMetadata metadata : stored.getLoadedMetadata()) {
+                if (metadata.getNamespace().equals(namespace)) {
+                    values.putAll(metadata.getValues());
+                }
+            }
+        }
+        return values;
+    }
+
+    @Override
+    public Map<String, HashMap<String, Object>> loadAllMetadata(Plot plot) {
+        Plot stored = loadPlot(plot.getWorld(), plot.getId());
+        HashMap<String, HashMap<String, Object>> all = new HashMap<>();
+        if (stored != null && stored.getInternalID() == plot.getInternalID()) {
+            for (PlotMetadata metadata : stored.getLoadedMetadata()) {
+                all.put(metadata.getNamespace(), new HashMap<>(metadata.getValues()));
+            }
+        }
+        return all;
+    }
+
+    /**
+     * Plots are stored whole, so the plot is saved again.
+     */
+    @Override
+    public void saveMetadata(Plot plot) {
+        savePlot(plot);
+    }
+
+    @Override
+    public Map<PlotId, Object> loadMetadataColumn(IWorld world, String namespace, String key) {
+        HashMap<PlotId, Object> column = new HashMap<>();
+        for (Plot plot : loadWorld(world).values()) {
+            for (PlotMetadata metadata : plot.getLoadedMetadata()) {
+                if (metadata.getNamespace().equals(namespace) && metadata.contains(key)) {
+                    column.put(plot.getId(), metadata.getValue(key));
+                }
+            }
+        }
+        return column;
+    }
+
+    /**
+     * Plots are stored whole, so the plot is saved again.
+     */
+    @Override
+    public void addLike(Plot plot, UUID player) {
+        savePlot(plot);
+    }
+
+    /**
+     * Plots are stored whole, so the plot is saved again.
+     */
+    @Override
+    public void removeLike(Plot plot, UUID player) {
+        savePlot(plot);
+    }
+
+    @Override
+    public Map<PlotId, Integer> loadLikeCounts(IWorld world) {
+        HashMap<PlotId, Integer> counts = new HashMap<>();
+        for (Plot plot : loadWorld(world).values()) {
+            if (plot.getLikes() > 0) {
+                counts.put(plot.getId(), plot.getLikes());
+            }
+        }
+        return counts;
+    }
+
+    @Override
+    public Map<PlotId, String> loadPlotNames(IWorld world) {
+        HashMap<PlotId, String> names = new HashMap<>();
+        for (Plot plot : loadWorld(world).values()) {
+            if (plot.getPlotName() != null) {
+                names.put(plot.getId(), plot.getPlotName());
+            }
+        }
+        return names;
+    }
+
+    @Override
+    public long findPlotByName(String name) {
+        StoredPlot stored = byName.get(name.toLowerCase(Locale.ROOT));
+        return stored == null ? 0 : stored.header.internalId;
+    }
+
+    @Override
+    public void loadNames(NameCache cache) {
+        for (Map.Entry<UUID, StoredName> entry : names.entrySet()) {
+            cache.put(entry.getKey(), entry.getValue().name, entry.getValue().lastSeen);
+        }
+    }
+
+    @Override
+    public void saveName(UUID uuid, String name, long lastSeen) {
+        names.put(uuid, new StoredName(name, lastSeen));
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private Plot decode(StoredPlot stored, IWorld world) {
+        try {
+            return PlotCodec.decode(stored.data, world);
+        } catch (IOException e) {
+            logger.severe("Error reading plot with internal id " + stored.header.internalId + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    static final class StoredPlot {
+
+        final String world;
+        final PlotCodec.Header header;
+        /**
+         * The plot name in lower case, or null.
+         */
+        final String name;
+        final byte[] data;
+
+        private StoredPlot(String world, PlotCodec.Header header, String name, byte[] data) {
+            this.world = world;
+            this.header = header;
+            this.name = name;
+            this.data = data;
+        }
+    }
+
+    static final class StoredName {
+
+        final String name;
+        final long lastSeen;
+
+        StoredName(String name, long lastSeen) {
+            this.name = name;
+            this.lastSeen = lastSeen;
+        }
+    }
+}
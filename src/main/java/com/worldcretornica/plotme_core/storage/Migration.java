@@ -0,0 +1,50 @@
+package com.worldcretornica.plotme_core.storage;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * One step in the history of the PlotMe tables. Steps are applied in the order of their version, and the
+ * versions that were applied are recorded in the {@code plotmecore_schema_version} table.
+ *
+ * <p>Schema steps run at startup before PlotMe reads from the database. Background steps move data and
+ * run after startup while PlotMe keeps using the old layout. They must store their own progress so they can
+ * continue after a restart.</p>
+ */
+public abstract class Migration {
+
+    private final int version;
+    private final String description;
+
+    protected Migration(int version, String description) {
+        this.version = version;
+        this.description = description;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * Checks if this step moves data in the background after startup.
+     *
+     * @return true for a background step, false for a schema step
+     */
+    public boolean isBackground() {
+        return false;
+    }
+
+    /**
+     * Applies this step. Schema steps are committed by the caller; background steps commit as they go.
+     *
+     * @param connection the database connection
+     * @param progress progress of the step, for background steps that know how much work there is
+     * @return true if the step is complete, false if it has to run again at the next start
+     * @throws SQLException if the step failed
+     */
+    public abstract boolean migrate(Connection connection, MigrationProgress progress) throws SQLException;
+}
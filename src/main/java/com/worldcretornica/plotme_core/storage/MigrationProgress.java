@@ -0,0 +1,49 @@
+package com.worldcretornica.plotme_core.storage;
+
+import java.util.logging.Logger;
+
+/**
+ * Reports how far a background migration got, at most once every {@value #REPORT_INTERVAL_MILLIS} ms.
+ */
+public class MigrationProgress {
+
+    private static final long REPORT_INTERVAL_MILLIS = 10000;
+
+    private final Logger logger;
+    private final String description;
+    private long total = -1;
+    private long done;
+    private long reportedAt = System.currentTimeMillis();
+
+    MigrationProgress(Logger logger, String description) {
+        this.logger = logger;
+        this.description = description;
+    }
+
+    /**
+     * Sets the number of rows the migration still has to handle.
+     *
+     * @param total number of rows
+     */
+    public void setTotal(long total) {
+        this.total = total;
+    }
+
+    /**
+     * Records that rows were handled.
+     *
+     * @param rows number of rows
+     */
+    public void advance(long rows) {
+        done += rows;
+        long now = System.currentTimeMillis();
+        if (now - reportedAt >= REPORT_INTERVAL_MILLIS) {
+            reportedAt = now;
+            if (total > 0) {
+                logger.info(description + ": " + done + "/" + total + " (" + Math.min(100, done * 100 / total) + "%)");
+            } else {
+                logger.info(description + ": " + done);
+            }
+        }
+    }
+}
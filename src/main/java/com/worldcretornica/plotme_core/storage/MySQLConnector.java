@@ -4,11 +4,11 @@ import com.worldcretornica.plotme_core.PlotMe_Core;
 
 import java.sql.Connection;
 import java.sql.DriverManager;
-import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
 
-public class MySQLConnector extends Database {
+public class MySQLConnector extends JdbcPlotStorage {
 
     private final String url;
     private final String userName;
@@ -26,11 +26,9 @@ public class MySQLConnector extends Database {
     @Override
     public Connection startConnection() {
         try {
-            Class.forName("com.mysql.jdbc.Driver");
-            connection = DriverManager.getConnection(url, userName, password);
-            connection.setAutoCommit(false);
+            connection = openConnection();
             return connection;
-        } catch (SQLException | ClassNotFoundException e) {
+        } catch (SQLException e) {
             plugin.getLogger().severe("PlotMe could not establish a connection to the MySQL database:");
             plugin.getLogger().severe(e.getMessage());
             return connection;
@@ -38,82 +36,171 @@ public class MySQLConnector extends Database {
 
     }
 
-    @Override protected void createTables() {
-        Connection connection = getConnection();
-        try (Statement statement = connection.createStatement()) {
-            statement.executeUpdate("CREATE TABLE IF NOT EXISTS plotmecore_nextplotid (nextid INT(15));");
-            //MySQL specific plot table creation.
-            statement.executeUpdate("CREATE TABLE IF NOT EXISTS `plotmecore_plots` ("
-                    + "`plot_id` INTEGER NOT NULL AUTO_INCREMENT PRIMARY KEY,"
-                    + "`plotX` INTEGER NOT NULL,"
-                    + "`plotZ` INTEGER NOT NULL,"
-                    + "`world` VARCHAR(32) NOT NULL,"
-                    + "`ownerID` VARCHAR(50) NOT NULL,"
-                    + "`owner` VARCHAR(32) NOT NULL,"
-                    + "`biome` VARCHAR(50) NOT NULL DEFAULT 'PLAINS',"
-                    + "`finished` BOOLEAN NOT NULL DEFAULT '0',"
-                    + "`finishedDate` VARCHAR(20) DEFAULT NULL,"
-                    + "`createdDate` VARCHAR(20) DEFAULT 'Unknown',"
-                    + "`forSale` BOOLEAN NOT NULL DEFAULT '0',"
-                    + "`price` DOUBLE NOT NULL DEFAULT '0',"
-                    + "`protected` BOOLEAN NOT NULL DEFAULT '0',"
-                    + "`expiredDate` DATETIME NULL DEFAULT NULL,"
-                    + "`topX` INTEGER NOT NULL DEFAULT '0',"
-                    + "`topZ` INTEGER NOT NULL DEFAULT '0',"
-                    + "`bottomX` INTEGER NOT NULL DEFAULT '0',"
-                    + "`bottomZ` INTEGER NOT NULL DEFAULT '0',"
-                    + "`plotName` VARCHAR(32) DEFAULT NULL UNIQUE,"
-                    + "`plotLikes` INTEGER NOT NULL DEFAULT '0',"
-                    + "`homeX` INTEGER NOT NULL DEFAULT '0',"
-                    + "`homeY` INTEGER NOT NULL DEFAULT '0',"
-                    + "`homeZ` INTEGER NOT NULL DEFAULT '0',"
-                    + "`homeName` VARCHAR(32) DEFAULT NULL,"
-                    + "UNIQUE KEY `plotLocation` (`plotX`,`plotZ`,`world`),"
-                    + "UNIQUE KEY `playerHome` (`ownerID`(16),`homeName`)"
-                    + ");");
-            connection.commit();
-            statement.executeUpdate("CREATE TABLE IF NOT EXISTS `plotmecore_denied` ("
-                    + "`id` INTEGER NOT NULL AUTO_INCREMENT PRIMARY KEY ,"
-                    + "`plot_id` INTEGER NOT NULL,"
-                    + "`player` VARCHAR(50) NOT NULL,"
-                    + "UNIQUE INDEX `allowed` (plot_id,player)"
-                    + ");");
-            connection.commit();
-            statement.executeUpdate("CREATE TABLE IF NOT EXISTS `plotmecore_allowed` ("
-                    + "`id` INTEGER NOT NULL AUTO_INCREMENT PRIMARY KEY ,"
-                    + "`plot_id` INTEGER NOT NULL,"
-                    + "`player` VARCHAR(50) NOT NULL,"
-                    + "`access` INTEGER NOT NULL DEFAULT '1',"
-                    + "UNIQUE INDEX `allowed` (plot_id,player)"
-                    + ");");
-            connection.commit();
-            statement.executeUpdate("CREATE TABLE IF NOT EXISTS plotmecore_likes ("
-                    + "`id` INTEGER PRIMARY KEY NOT NULL AUTO_INCREMENT,"
-                    + "`plot_id` INTEGER NOT NULL,"
-                    + "`player` VARCHAR(50) NOT NULL,"
-                    + "UNIQUE INDEX `likes` (plot_id, player)"
-                    + ");");
-            statement.executeUpdate("CREATE TABLE IF NOT EXISTS `plotmecore_metadata` ("
-                    + "`id` INTEGER NOT NULL AUTO_INCREMENT PRIMARY KEY,"
-                    + "`plot_id` INTEGER NOT NULL,"
-                    + "`pluginname` VARCHAR(100) NOT NULL,"
-                    + "`propertyname` VARCHAR(100) NOT NULL,"
-                    + "`propertyvalue` VARCHAR(255) DEFAULT NULL"
-                    + ");");
-            connection.commit();
-            statement.executeUpdate("CREATE TABLE IF NOT EXISTS `plotmecore_nextid` (`nextId` INTEGER NOT NULL DEFAULT '0');");
-            connection.commit();
-            try (ResultSet results = statement.executeQuery("SELECT * FROM plotmecore_nextid;")) {
-                if (!results.next()) {
-                    statement.execute("INSERT INTO plotmecore_nextid VALUES(1);");
-                    this.nextPlotId = 1;
-                } else {
-                    this.nextPlotId = results.getLong("nextid");
-                }
-            }
-            connection.commit();
-        } catch (SQLException e) {
-            e.printStackTrace();
+    @Override
+    protected Connection openConnection() throws SQLException {
+        try {
+            Class.forName("com.mysql.jdbc.Driver");
+        } catch (ClassNotFoundException e) {
+            throw new SQLException("The MySQL driver is missing", e);
         }
+        Connection opened = DriverManager.getConnection(url, userName, password);
+        opened.setAutoCommit(false);
+        return opened;
+    }
+
+    @Override
+    protected String insertIgnore() {
+        return "INSERT IGNORE";
+    }
+
+    @Override
+    protected String plotNameEquals() {
+        // The default collations ignore case, so the unique index on plotName answers this
+        return "plotName = ?";
+    }
+
+    @Override
+    protected List<Migration> getSchemaMigrations() {
+        return Arrays.<Migration>asList(
+                new SqlMigration(1, "Create the plot tables",
+                        "CREATE TABLE IF NOT EXISTS `plotmecore_plots` ("
+                            + "`plot_id` INTEGER NOT NULL AUTO_INCREMENT PRIMARY KEY,"
+                            + "`plotX` INTEGER NOT NULL,"
+                            + "`plotZ` INTEGER NOT NULL,"
+                            + "`world` VARCHAR(32) NOT NULL,"
+                            + "`ownerID` VARCHAR(50) NOT NULL,"
+                            + "`owner` VARCHAR(32) NOT NULL,"
+                            + "`biome` VARCHAR(50) NOT NULL DEFAULT 'PLAINS',"
+                            + "`finished` BOOLEAN NOT NULL DEFAULT '0',"
+                            + "`finishedDate` VARCHAR(20) DEFAULT NULL,"
+                            + "`createdDate` VARCHAR(20) DEFAULT 'Unknown',"
+                            + "`forSale` BOOLEAN NOT NULL DEFAULT '0',"
+                            + "`price` DOUBLE NOT NULL DEFAULT '0',"
+                            + "`protected` BOOLEAN NOT NULL DEFAULT '0',"
+                            + "`expiredDate` DATETIME NULL DEFAULT NULL,"
+                            + "`topX` INTEGER NOT NULL DEFAULT '0',"
+                            + "`topZ` INTEGER NOT NULL DEFAULT '0',"
+                            + "`bottomX` INTEGER NOT NULL DEFAULT '0',"
+                            + "`bottomZ` INTEGER NOT NULL DEFAULT '0',"
+                            + "`plotName` VARCHAR(32) DEFAULT NULL UNIQUE,"
+                            + "`plotLikes` INTEGER NOT NULL DEFAULT '0',"
+                            + "`homeX` INTEGER NOT NULL DEFAULT '0',"
+                            + "`homeY` INTEGER NOT NULL DEFAULT '0',"
+                            + "`homeZ` INTEGER NOT NULL DEFAULT '0',"
+                            + "`homeName` VARCHAR(32) DEFAULT NULL,"
+                            + "UNIQUE KEY `plotLocation` (`plotX`,`plotZ`,`world`),"
+                            + "UNIQUE KEY `playerHome` (`ownerID`(16),`homeName`)"
+                            + ");",
+                        "CREATE TABLE IF NOT EXISTS `plotmecore_denied` ("
+                            + "`id` INTEGER NOT NULL AUTO_INCREMENT PRIMARY KEY ,"
+                            + "`plot_id` INTEGER NOT NULL,"
+                            + "`player` VARCHAR(50) NOT NULL,"
+                            + "UNIQUE INDEX `allowed` (plot_id,player)"
+                            + ");",
+                        "CREATE TABLE IF NOT EXISTS `plotmecore_allowed` ("
+                            + "`id` INTEGER NOT NULL AUTO_INCREMENT PRIMARY KEY ,"
+                            + "`plot_id` INTEGER NOT NULL,"
+                            + "`player` VARCHAR(50) NOT NULL,"
+                            + "`access` INTEGER NOT NULL DEFAULT '1',"
+                            + "UNIQUE INDEX `allowed` (plot_id,player)"
+                            + ");",
+                        "CREATE TABLE IF NOT EXISTS plotmecore_likes ("
+                            + "`id` INTEGER PRIMARY KEY NOT NULL AUTO_INCREMENT,"
+                            + "`plot_id` INTEGER NOT NULL,"
+                            + "`player` VARCHAR(50) NOT NULL,"
+                            + "UNIQUE INDEX `likes` (plot_id, player)"
+                            + ");",
+                        "CREATE TABLE IF NOT EXISTS `plotmecore_metadata` ("
+                            + "`id` INTEGER NOT NULL AUTO_INCREMENT PRIMARY KEY,"
+                            + "`plot_id` INTEGER NOT NULL,"
+                            + "`pluginname` VARCHAR(100) NOT NULL,"
+                            + "`propertyname` VARCHAR(100) NOT NULL,"
+                            + "`propertyvalue` VARCHAR(255) DEFAULT NULL"
+                            + ");",
+                        "CREATE TABLE IF NOT EXISTS `plotmecore_nextid` (`nextId` INTEGER NOT NULL DEFAULT '0');"),
+                new SqlMigration(2, "Add the player name table",
+                        "CREATE TABLE IF NOT EXISTS `plotmecore_names` ("
+                            + "`uuid` VARCHAR(36) NOT NULL PRIMARY KEY,"
+                            + "`name` VARCHAR(16) NOT NULL,"
+                            + "`lastSeen` BIGINT NOT NULL DEFAULT '0',"
+                            + "INDEX `names` (name)"
+                            + ");"),
+                new SqlMigration(3, "Add the migration progress table",
+                        "CREATE TABLE IF NOT EXISTS `plotmecore_migrations` ("
+                            + "`name` VARCHAR(64) NOT NULL PRIMARY KEY,"
+                            + "`lastId` BIGINT NOT NULL DEFAULT '0',"
+                            + "`done` BOOLEAN NOT NULL DEFAULT '0'"
+                            + ");"),
+                new SqlMigration(4, "Add the v2 plot tables",
+                        "CREATE TABLE IF NOT EXISTS `plotmecore_worlds` ("
+                            + "`world_id` INTEGER NOT NULL AUTO_INCREMENT PRIMARY KEY,"
+                            + "`name` VARCHAR(32) NOT NULL UNIQUE"
+                            + ");",
+                        "CREATE TABLE IF NOT EXISTS `plotmecore_plots_v2` ("
+                            + "`plot_id` INTEGER NOT NULL PRIMARY KEY,"
+                            + "`world_id` INTEGER NOT NULL,"
+                            + "`plotX` INTEGER NOT NULL,"
+                            + "`plotZ` INTEGER NOT NULL,"
+                            + "`ownerID` BINARY(16) NOT NULL,"
+                            + "`owner` VARCHAR(32) NOT NULL,"
+                            + "`biome` VARCHAR(50) NOT NULL DEFAULT 'PLAINS',"
+                            + "`finished` BOOLEAN NOT NULL DEFAULT '0',"
+                            + "`finishedDate` VARCHAR(20) DEFAULT NULL,"
+                            + "`createdDate` VARCHAR(20) DEFAULT 'Unknown',"
+                            + "`forSale` BOOLEAN NOT NULL DEFAULT '0',"
+                            + "`price` DOUBLE NOT NULL DEFAULT '0',"
+                            + "`protected` BOOLEAN NOT NULL DEFAULT '0',"
+                            + "`expiredDate` DATETIME DEFAULT NULL,"
+                            + "`topX` INTEGER NOT NULL DEFAULT '0',"
+                            + "`topZ` INTEGER NOT NULL DEFAULT '0',"
+                            + "`bottomX` INTEGER NOT NULL DEFAULT '0',"
+                            + "`bottomZ` INTEGER NOT NULL DEFAULT '0',"
+                            + "`plotName` VARCHAR(32) DEFAULT NULL UNIQUE,"
+                            + "`plotLikes` INTEGER NOT NULL DEFAULT '0',"
+                            + "UNIQUE KEY `plotLocation` (`world_id`,`plotX`,`plotZ`),"
+                            + "KEY `plotOwner` (`ownerID`)"
+                            + ");",
+                        "CREATE TABLE IF NOT EXISTS `plotmecore_allowed_v2` ("
+                            + "`plot_id` INTEGER NOT NULL,"
+                            + "`player` BINARY(16) NOT NULL,"
+                            + "`access` INTEGER NOT NULL DEFAULT '1',"
+                            + "PRIMARY KEY (`plot_id`,`player`)"
+                            + ");",
+                        "CREATE TABLE IF NOT EXISTS `plotmecore_denied_v2` ("
+                            + "`plot_id` INTEGER NOT NULL,"
+                            + "`player` BINARY(16) NOT NULL,"
+                            + "PRIMARY KEY (`plot_id`,`player`)"
+                            + ");",
+                        "CREATE TABLE IF NOT EXISTS `plotmecore_likes_v2` ("
+                            + "`plot_id` INTEGER NOT NULL,"
+                            + "`player` BINARY(16) NOT NULL,"
+                            + "PRIMARY KEY (`plot_id`,`player`)"
+                            + ");",
+                        "CREATE TABLE IF NOT EXISTS `plotmecore_metadata_v2` ("
+                            + "`plot_id` INTEGER NOT NULL,"
+                            + "`pluginName` VARCHAR(100) NOT NULL,"
+                            + "`propertyName` VARCHAR(100) NOT NULL,"
+                            + "`propertyValue` VARCHAR(255) DEFAULT NULL,"
+                            + "PRIMARY KEY (`plot_id`,`pluginName`,`propertyName`)"
+                            + ");"),
+                new SqlMigration(5, "Drop the unused plotmecore_nextplotid table",
+                        "DROP TABLE IF EXISTS plotmecore_nextplotid;"),
+                new SqlMigration(8, "Add the plot cache stamp table",
+                        "CREATE TABLE IF NOT EXISTS `plotmecore_cache_stamps` ("
+                            + "`world` VARCHAR(32) NOT NULL PRIMARY KEY,"
+                            + "`stamp` BIGINT NOT NULL"
+                            + ");"),
+                new SqlMigration(9, "Store plot expiration as epoch milliseconds and index the plot queries",
+                        "ALTER TABLE plotmecore_plots_v2 ADD COLUMN `expiredAt` BIGINT DEFAULT NULL;",
+                        "ALTER TABLE plotmecore_plots_v2 ADD INDEX `plotExpired` (`world_id`,`expiredAt`,`plot_id`);",
+                        "ALTER TABLE plotmecore_plots_v2 ADD INDEX `plotFinished` (`world_id`,`finished`,`plot_id`);",
+                        "ALTER TABLE plotmecore_plots_v2 ADD INDEX `plotForSale` (`world_id`,`forSale`,`plot_id`);",
+                        "ALTER TABLE plotmecore_plots_v2 ADD INDEX `plotWorldOwner` (`world_id`,`ownerID`,`plot_id`);",
+                        "UPDATE plotmecore_plots_v2 SET expiredAt = UNIX_TIMESTAMP(expiredDate) * 1000 WHERE expiredDate IS NOT NULL;"),
+                new SqlMigration(10, "Add typed plot metadata values",
+                        "ALTER TABLE plotmecore_metadata_v2 ADD COLUMN `valueType` TINYINT NOT NULL DEFAULT '0';",
+                        "ALTER TABLE plotmecore_metadata_v2 ADD COLUMN `numberValue` BIGINT DEFAULT NULL;",
+                        "ALTER TABLE plotmecore_metadata_v2 ADD COLUMN `blobValue` BLOB DEFAULT NULL;",
+                        "ALTER TABLE plotmecore_metadata_v2 ADD INDEX `metadataProperty` (`pluginName`,`propertyName`,`plot_id`);"));
     }
 }
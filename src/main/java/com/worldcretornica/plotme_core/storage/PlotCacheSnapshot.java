@@ -0,0 +1,208 @@
+package com.worldcretornica.plotme_core.storage;
+
+import com.worldcretornica.plotme_core.Plot;
+import com.worldcretornica.plotme_core.PlotId;
+import com.worldcretornica.plotme_core.api.IWorld;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Binary copies of the plot cache of each world, so a restart doesn't have to read every plot from the
+ * database again.
+ *
+ * <p>Every snapshot carries a stamp that is also stored in the database. The database forgets the stamp
+ * of a world as soon as a plot of that world changes, so a snapshot is only used if nothing changed
+ * since it was written. Snapshots are read through a memory map and checked against a checksum before any
+ * plot is read from them.</p>
+ */
+public class PlotCacheSnapshot {
+
+    private static final int MAGIC = 0x504d4331;
+    private static final int FORMAT = 1;
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 4 + 8;
+
+    private final Logger logger;
+    private final File folder;
+
+    public PlotCacheSnapshot(Logger logger, File folder) {
+        this.logger = logger;
+        this.folder = folder;
+    }
+
+    /**
+     * Encodes the plots of a world. Runs on the thread that changes the plots.
+     *
+     * @param plots the plots of the world
+     * @return the encoded plots, to pass to {@link #write}
+     */
+    public Encoded encode(Collection<Plot> plots) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(plots.size() * 160 + 16);
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            for (Plot plot : plots) {
+                byte[] data = PlotCodec.encode(plot);
+                out.writeInt(data.length);
+                out.write(data);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return new Encoded(plots.size(), bytes.toByteArray());
+    }
+
+    /**
+     * Writes the snapshot of a world, replacing the previous one.
+     *
+     * @param world world name
+     * @param stamp stamp of the snapshot, never 0
+     * @param encoded the encoded plots
+     * @return true if the snapshot was written
+     */
+    public boolean write(String world, long stamp, Encoded encoded) {
+        if (!folder.isDirectory() && !folder.mkdirs()) {
+            logger.severe("Could not create the plot cache folder " + folder);
+            return false;
+        }
+        File file = snapshotFile(world);
+        File temp = new File(file.getPath() + ".tmp");
+        CRC32 crc = new CRC32();
+        crc.update(encoded.body, 0, encoded.body.length);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(FORMAT).putLong(stamp).putInt(encoded.count).putLong(crc.getValue());
+        header.flip();
+        try {
+            try (FileChannel channel = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer body = ByteBuffer.wrap(encoded.body);
+                while (header.hasRemaining()) {
+                    channel.write(header);
+                }
+                while (body.hasRemaining()) {
+                    channel.write(body);
+                }
+                channel.force(true);
+            }
+            try {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            return true;
+        } catch (IOException e) {
+            logger.severe("Could not write the plot cache of " + world + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Reads the snapshot of a world.
+     *
+     * @param world the plotworld
+     * @param stamp stamp the database has for the world, or 0 if it has none
+     * @return the plots by id, or null if there is no usable snapshot with that stamp
+     */
+    public HashMap<PlotId, Plot> read(IWorld world, long stamp) {
+        File file = snapshotFile(world.getName());
+        if (stamp == 0 || !file.isFile()) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE || channel.size() > Integer.MAX_VALUE) {
+                return null;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT || buffer.getLong() != stamp) {
+                return null;
+            }
+            int count = buffer.getInt();
+            long checksum = buffer.getLong();
+            if (checksum(buffer.slice()) != checksum) {
+                logger.warning("The plot cache of " + world.getName() + " is damaged, reading the plots from the database");
+                return null;
+            }
+            DataInputStream in = new DataInputStream(new BufferInputStream(buffer));
+            HashMap<PlotId, Plot> plots = new HashMap<>(count * 4 / 3 + 1);
+            for (int i = 0; i < count; i++) {
+                in.readInt();
+                Plot plot = PlotCodec.read(in, world);
+                plots.put(plot.getId(), plot);
+            }
+            return plots;
+        } catch (IOException e) {
+            logger.warning("Could not read the plot cache of " + world.getName() + ", reading the plots from the database: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private File snapshotFile(String world) {
+        return new File(folder, world.toLowerCase() + ".cache");
+    }
+
+    private static long checksum(ByteBuffer buffer) {
+        CRC32 crc = new CRC32();
+        byte[] chunk = new byte[8192];
+        while (buffer.hasRemaining()) {
+            int length = Math.min(chunk.length, buffer.remaining());
+            buffer.get(chunk, 0, length);
+            crc.update(chunk, 0, length);
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * The plots of a world, encoded and ready to be written.
+     */
+    public static final class Encoded {
+
+        private final int count;
+        private final byte[] body;
+
+        private Encoded(int count, byte[] body) {
+            this.count = count;
+            this.body = body;
+        }
+    }
+
+    /**
+     * Reads from the current position of a buffer.
+     */
+    private static final class BufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        private BufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            length = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, length);
+            return length;
+        }
+    }
+}
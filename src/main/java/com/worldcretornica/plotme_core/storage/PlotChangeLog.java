@@ -0,0 +1,59 @@
+package com.worldcretornica.plotme_core.storage;
+
+import com.worldcretornica.plotme_core.PlotId;
+
+import java.util.Collection;
+
+/**
+ * The ids of the plots of a world that were added, saved or removed lately, so callers that derive data from
+ * a few plots only look at the plots that changed. Only the last {@link #CAPACITY} changes are kept.
+ */
+final class PlotChangeLog {
+
+    static final int CAPACITY = 512;
+
+    private final PlotId[] changes = new PlotId[CAPACITY];
+    private long revision;
+    /**
+     * Oldest revision whose changes are still known.
+     */
+    private long floor;
+
+    /**
+     * Records that a plot changed.
+     */
+    synchronized void add(PlotId id) {
+        changes[(int) (revision % CAPACITY)] = id;
+        revision++;
+        floor = Math.max(floor, revision - CAPACITY);
+    }
+
+    /**
+     * Forgets all changes, for instance because all plots of the world were read again.
+     */
+    synchronized void clear() {
+        revision++;
+        floor = revision;
+    }
+
+    synchronized long getRevision() {
+        return revision;
+    }
+
+    /**
+     * Collects the plots that changed after a revision.
+     *
+     * @param since the revision
+     * @param changed receives the ids of the plots, in the order they changed
+     * @return the current revision, or -1 if changes that old are no longer known
+     */
+    synchronized long getChanges(long since, Collection<PlotId> changed) {
+        if (since < floor || since > revision) {
+            return -1;
+        }
+        for (long i = since; i < revision; i++) {
+            changed.add(changes[(int) (i % CAPACITY)]);
+        }
+        return revision;
+    }
+}
@@ -0,0 +1,290 @@
+package com.worldcretornica.plotme_core.storage;
+
+import com.worldcretornica.plotme_core.Plot;
+import com.worldcretornica.plotme_core.PlotId;
+import com.worldcretornica.plotme_core.PlotMeCoreManager;
+import com.worldcretornica.plotme_core.PlotMetadata;
+import com.worldcretornica.plotme_core.api.IWorld;
+import com.worldcretornica.plotme_core.utils.StringPool;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Writes plots in the binary form used by the storages that don't use SQL.
+ *
+ * <p>A plot starts with a {@link Header} of the fields the storages index on, so they can be read without
+ * reading the rest of the plot. The world and the bounds of the plot are not stored; the world is known
+ * to the storage, and the bounds come from the generator.</p>
+ *
+ * <p>Format 2 stores typed metadata and whether the plot held the metadata of every plugin. Plots in
+ * format 1 are still read.</p>
+ */
+final class PlotCodec {
+
+    private static final int FORMAT = 2;
+    private static final int FORMAT_STRING_METADATA = 1;
+
+    private PlotCodec() {
+    }
+
+    static byte[] encode(Plot plot) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try {
+            write(new DataOutputStream(bytes), plot);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Encodes a plot for a storage that writes whole plots, which saves the changed metadata too.
+     */
+    static byte[] encodeSaved(Plot plot) {
+        for (PlotMetadata metadata : plot.getLoadedMetadata()) {
+            metadata.takeChanges();
+        }
+        return encode(plot);
+    }
+
+    static Plot decode(byte[] data, IWorld world) throws IOException {
+        return read(new DataInputStream(new ByteArrayInputStream(data)), world);
+    }
+
+    static Header decodeHeader(byte[] data) throws IOException {
+        return readHeader(new DataInputStream(new ByteArrayInputStream(data)));
+    }
+
+    static void write(DataOutput out, Plot plot) throws IOException {
+        out.writeByte(FORMAT);
+        out.writeLong(plot.getInternalID());
+        out.writeInt(plot.getId().getX());
+        out.writeInt(plot.getId().getZ());
+        writeUUID(out, plot.getOwnerId());
+        out.writeLong(plot.getExpiredAt());
+        out.writeUTF(plot.getOwner());
+        out.writeUTF(plot.getBiome());
+        out.writeBoolean(plot.isFinished());
+        writeNullable(out, plot.getFinishedDate());
+        writeNullable(out, plot.getCreatedDate());
+        out.writeBoolean(plot.isForSale());
+        out.writeDouble(plot.getPrice());
+        out.writeBoolean(plot.isProtected());
+        writeNullable(out, plot.getPlotName());
+        out.writeInt(plot.getLikes());
+        out.writeInt(plot.getMemberLevels().size());
+        for (Map.Entry<String, Plot.AccessLevel> member : plot.getMemberLevels().entrySet()) {
+            out.writeUTF(member.getKey());
+            out.writeByte(member.getValue().getLevel());
+        }
+        out.writeInt(plot.getDeniedPlayers().size());
+        for (String denied : plot.getDeniedPlayers()) {
+            out.writeUTF(denied);
+        }
+        out.writeInt(plot.getLikerIds().size());
+        for (UUID liker : plot.getLikerIds()) {
+            writeUUID(out, liker);
+        }
+        out.writeBoolean(plot.isMetadataComplete());
+        Collection<PlotMetadata> metadata = plot.getLoadedMetadata();
+        out.writeInt(metadata.size());
+        for (PlotMetadata plugin : metadata) {
+            Map<String, Object> values = plugin.getValues();
+            out.writeUTF(plugin.getNamespace());
+            out.writeInt(values.size());
+            for (Map.Entry<String, Object> property : values.entrySet()) {
+                out.writeUTF(property.getKey());
+                writeValue(out, property.getValue());
+            }
+        }
+    }
+
+    static Header readHeader(DataInput in) throws IOException {
+        int format = in.readUnsignedByte();
+        if (format != FORMAT && format != FORMAT_STRING_METADATA) {
+            throw new IOException("Unknown plot format " + format);
+        }
+        long internalId = in.readLong();
+        PlotId id = new PlotId(in.readInt(), in.readInt());
+        UUID ownerId = readUUID(in);
+        long expiredAt = in.readLong();
+        return new Header(format, internalId, id, ownerId, expiredAt);
+    }
+
+    /**
+     * Reads the name of a plot, skipping the fields before it and ignoring the rest.
+     *
+     * @return the name, or null if the plot has none
+     */
+    static String readName(DataInput in) throws IOException {
+        readHeader(in);
+        return readNameAfterHeader(in);
+    }
+
+    /**
+     * Reads the name of a plot whose header was just read with {@link #readHeader(DataInput)}.
+     *
+     * @return the name, or null if the plot has none
+     */
+    static String readNameAfterHeader(DataInput in) throws IOException {
+        in.readUTF();
+        in.readUTF();
+        in.readBoolean();
+        readNullable(in);
+        readNullable(in);
+        in.readBoolean();
+        in.readDouble();
+        in.readBoolean();
+        return readNullable(in);
+    }
+
+    static Plot read(DataInput in, IWorld world) throws IOException {
+        Header header = readHeader(in);
+        String owner = in.readUTF();
+        String biome = in.readUTF();
+        boolean finished = in.readBoolean();
+        String finishedDate = readNullable(in);
+        String createdDate = readNullable(in);
+        boolean forSale = in.readBoolean();
+        double price = in.readDouble();
+        boolean protect = in.readBoolean();
+        String plotName = readNullable(in);
+        int likes = in.readInt();
+        int count = in.readInt();
+        HashMap<String, Plot.AccessLevel> allowed = new HashMap<>(count * 2);
+        for (int i = 0; i < count; i++) {
+            allowed.put(StringPool.intern(in.readUTF()), Plot.AccessLevel.getAccessLevel(in.readUnsignedByte()));
+        }
+        count = in.readInt();
+        HashSet<String> denied = new HashSet<>(count * 2);
+        for (int i = 0; i < count; i++) {
+            denied.add(StringPool.intern(in.readUTF()));
+        }
+        count = in.readInt();
+        HashSet<UUID> likers = new HashSet<>(count * 2);
+        for (int i = 0; i < count; i++) {
+            likers.add(readUUID(in));
+        }
+        boolean complete = header.format == FORMAT_STRING_METADATA || in.readBoolean();
+        count = in.readInt();
+        List<PlotMetadata> metadata = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String pluginName = in.readUTF();
+            int properties = in.readInt();
+            HashMap<String, Object> values = new HashMap<>(properties * 2);
+            for (int j = 0; j < properties; j++) {
+                String key = StringPool.intern(in.readUTF());
+                Object value = header.format == FORMAT_STRING_METADATA ? readNullable(in) : readValue(in);
+                if (value != null) {
+                    values.put(key, value);
+                }
+            }
+            metadata.add(new PlotMetadata(pluginName, values));
+        }
+        Date expiredDate = header.expiredAt < 0 ? null : new Date(header.expiredAt);
+        Plot plot = new Plot(header.internalId, owner, header.ownerId, world, biome, expiredDate, allowed, denied, likers, price, forSale,
+                finished, finishedDate, protect, complete ? Collections.<String, Map<String, String>>emptyMap() : null, likes, plotName,
+                PlotMeCoreManager.getInstance().getGeometry(world, header.id), createdDate);
+        for (PlotMetadata plugin : metadata) {
+            plot.attachMetadata(plugin);
+        }
+        return plot;
+    }
+
+    private static void writeValue(DataOutput out, Object value) throws IOException {
+        PlotMetadata.Type type = PlotMetadata.Type.of(value);
+        out.writeByte(type.getCode());
+        switch (type) {
+            case INT:
+                out.writeInt((Integer) value);
+                break;
+            case LONG:
+                out.writeLong((Long) value);
+                break;
+            case BLOB:
+                byte[] bytes = (byte[]) value;
+                out.writeInt(bytes.length);
+                out.write(bytes);
+                break;
+            default:
+                out.writeUTF((String) value);
+        }
+    }
+
+    private static Object readValue(DataInput in) throws IOException {
+        switch (PlotMetadata.Type.getType(in.readUnsignedByte())) {
+            case INT:
+                return in.readInt();
+            case LONG:
+                return in.readLong();
+            case BLOB:
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                return bytes;
+            default:
+                return in.readUTF();
+        }
+    }
+
+    private static void writeUUID(DataOutput out, UUID uuid) throws IOException {
+        out.writeLong(uuid.getMostSignificantBits());
+        out.writeLong(uuid.getLeastSignificantBits());
+    }
+
+    private static UUID readUUID(DataInput in) throws IOException {
+        return new UUID(in.readLong(), in.readLong());
+    }
+
+    private static void writeNullable(DataOutput out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullable(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    /**
+     * The fields at the start of a stored plot.
+     */
+    static final class Header {
+
+        final int format;
+        final long internalId;
+        final PlotId id;
+        final UUID ownerId;
+        /**
+         * Expiration date in milliseconds since the epoch, or -1 if the plot doesn't expire.
+         */
+        final long expiredAt;
+
+        Header(int format, long internalId, PlotId id, UUID ownerId, long expiredAt) {
+            this.format = format;
+            this.internalId = internalId;
+            this.id = id;
+            this.ownerId = ownerId;
+            this.expiredAt = expiredAt;
+        }
+
+        boolean isExpired(long now) {
+            return expiredAt >= 0 && expiredAt < now;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.worldcretornica.plotme_core.storage;
+
+import com.google.common.primitives.Ints;
+import com.google.common.primitives.Longs;
+import com.worldcretornica.plotme_core.Plot;
+import com.worldcretornica.plotme_core.PlotId;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+/**
+ * The plots of a world that are for sale, sorted by price. Plots with the same price are sorted by plot id,
+ * so pages stay the same between calls.
+ *
+ * <p>The market holds the price of a plot as of its last save, like {@link PlotScanIndex}.</p>
+ */
+final class PlotMarket {
+
+    private final TreeSet<Listing> listings = new TreeSet<>();
+    private final HashMap<PlotId, Listing> byId = new HashMap<>();
+
+    /**
+     * Lists a plot if it is for sale and takes it off the market otherwise.
+     */
+    synchronized void put(Plot plot) {
+        remove(plot.getId());
+        if (plot.isForSale()) {
+            Listing listing = new Listing(plot.getPrice(), plot.getId(), 0);
+            listings.add(listing);
+            byId.put(plot.getId(), listing);
+        }
+    }
+
+    synchronized void remove(PlotId id) {
+        Listing listing = byId.remove(id);
+        if (listing != null) {
+            listings.remove(listing);
+        }
+    }
+
+    /**
+     * Finds plots for sale in a price range.
+     *
+     * @param minPrice lowest price, inclusive
+     * @param maxPrice highest price, inclusive
+     * @param skip number of plots to skip
+     * @param limit most plots to return
+     * @return the plot ids, the cheapest first
+     */
+    synchronized List<PlotId> find(double minPrice, double maxPrice, int skip, int limit) {
+        List<PlotId> found = new ArrayList<>(Math.min(limit, listings.size()));
+        Iterator<Listing> range = range(minPrice, maxPrice).iterator();
+        for (int i = 0; i < skip && range.hasNext(); i++) {
+            range.next();
+        }
+        while (found.size() < limit && range.hasNext()) {
+            found.add(range.next().id);
+        }
+        return found;
+    }
+
+    /**
+     * Counts the plots for sale in a price range.
+     */
+    synchronized int count(double minPrice, double maxPrice) {
+        return range(minPrice, maxPrice).size();
+    }
+
+    private NavigableSet<Listing> range(double minPrice, double maxPrice) {
+        // Compared the way the listings are sorted, so -0.0 and 0.0 can't make an inverted range
+        if (Double.isNaN(minPrice) || Double.isNaN(maxPrice) || Double.compare(minPrice, maxPrice) > 0) {
+            return new TreeSet<>();
+        }
+        return listings.subSet(new Listing(minPrice, null, -1), true, new Listing(maxPrice, null, 1), true);
+    }
+
+    /**
+     * A plot for sale, or a bound of a price range. A lower bound sorts before the plots of its price and an
+     * upper bound after them.
+     */
+    private static final class Listing implements Comparable<Listing> {
+
+        private final double price;
+        private final PlotId id;
+        /**
+         * -1 for a lower bound, 1 for an upper bound, 0 for a plot.
+         */
+        private final int bound;
+
+        private Listing(double price, PlotId id, int bound) {
+            this.price = price;
+            this.id = id;
+            this.bound = bound;
+        }
+
+        @Override
+        public int compareTo(Listing other) {
+            int result = Double.compare(price, other.price);
+            if (result != 0) {
+                return result;
+            }
+            if (bound != 0 || other.bound != 0) {
+                return Ints.compare(bound, other.bound);
+            }
+            return Longs.compare(id.getKey(), other.id.getKey());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Listing && compareTo((Listing) o) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return id == null ? bound : id.hashCode();
+        }
+    }
+}
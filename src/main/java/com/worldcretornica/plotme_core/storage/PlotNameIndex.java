@@ -0,0 +1,131 @@
+package com.worldcretornica.plotme_core.storage;
+
+import com.worldcretornica.plotme_core.Plot;
+import com.worldcretornica.plotme_core.PlotId;
+import com.worldcretornica.plotme_core.api.IWorld;
+import com.worldcretornica.plotme_core.utils.WorldTable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The names of the plots of all loaded worlds. Names are unique across worlds, like the plotName column,
+ * and are compared without regard to case.
+ *
+ * <p>A name is resolved with one hash lookup. A sorted copy of the names answers prefix lookups for tab
+ * completion. Every change goes through the lock of the index, so two plots can't take the same name.</p>
+ */
+final class PlotNameIndex {
+
+    private final HashMap<String, NamedPlot> byName = new HashMap<>();
+    private final TreeMap<String, NamedPlot> sorted = new TreeMap<>();
+    private final WorldTable<HashMap<PlotId, NamedPlot>> byPlot = new WorldTable<>();
+
+    /**
+     * Adds the names of the plots of a world. A name that is already taken is left with the plot that
+     * has it.
+     *
+     * @param names plot names by plot id
+     */
+    synchronized void loadWorld(IWorld world, Map<PlotId, String> names) {
+        for (Map.Entry<PlotId, String> name : names.entrySet()) {
+            claim(world, name.getKey(), name.getValue());
+        }
+    }
+
+    /**
+     * Gives a plot a name, or takes its name away. The old name of the plot is freed.
+     *
+     * @param name the new name, or null to take the name away
+     * @return false if another plot has the name; nothing changes then
+     */
+    synchronized boolean claim(IWorld world, PlotId id, String name) {
+        if (name != null) {
+            NamedPlot owner = byName.get(key(name));
+            if (owner != null && !(owner.world.equals(world) && owner.id.equals(id))) {
+                return false;
+            }
+        }
+        remove(world, id);
+        if (name != null) {
+            NamedPlot named = new NamedPlot(world, id, name);
+            byName.put(key(name), named);
+            sorted.put(key(name), named);
+            HashMap<PlotId, NamedPlot> plots = byPlot.get(world);
+            if (plots == null) {
+                plots = new HashMap<>();
+                byPlot.put(world, plots);
+            }
+            plots.put(id, named);
+        }
+        return true;
+    }
+
+    /**
+     * Brings the name of a saved plot up to date. A name that is already taken is left with the plot that
+     * has it.
+     */
+    synchronized void put(Plot plot) {
+        claim(plot.getWorld(), plot.getId(), plot.getPlotName());
+    }
+
+    synchronized void remove(IWorld world, PlotId id) {
+        HashMap<PlotId, NamedPlot> plots = byPlot.get(world);
+        NamedPlot named = plots == null ? null : plots.remove(id);
+        if (named != null) {
+            byName.remove(key(named.name));
+            sorted.remove(key(named.name));
+        }
+    }
+
+    /**
+     * Finds the plot with a name.
+     *
+     * @return the plot, or null if no plot has the name
+     */
+    synchronized NamedPlot get(String name) {
+        return byName.get(key(name));
+    }
+
+    /**
+     * Finds the names that start with a prefix.
+     *
+     * @param limit most names to return
+     * @return the names, in alphabetical order
+     */
+    synchronized List<String> complete(String prefix, int limit) {
+        List<String> found = new ArrayList<>(Math.min(limit, 16));
+        String from = key(prefix);
+        for (Map.Entry<String, NamedPlot> entry : sorted.tailMap(from, true).entrySet()) {
+            if (found.size() == limit || !entry.getKey().startsWith(from)) {
+                break;
+            }
+            found.add(entry.getValue().name);
+        }
+        return found;
+    }
+
+    private static String key(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * The plot a name belongs to.
+     */
+    static final class NamedPlot {
+
+        final IWorld world;
+        final PlotId id;
+        final String name;
+
+        private NamedPlot(IWorld world, PlotId id, String name) {
+            this.world = world;
+            this.id = id;
+            this.name = name;
+        }
+    }
+}
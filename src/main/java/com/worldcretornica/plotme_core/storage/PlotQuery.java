@@ -0,0 +1,218 @@
+package com.worldcretornica.plotme_core.storage;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Predicate;
+import com.google.common.collect.Collections2;
+import com.google.common.collect.Ordering;
+import com.google.common.primitives.Longs;
+import com.worldcretornica.plotme_core.Plot;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A question about the plots of a world that a {@link PlotStorage} can answer one page at a time.
+ *
+ * <p>The plots of a query are ordered by a sort key and then by internal id. A page starts after the
+ * {@link Cursor} of the last plot of the page before, so a SQL storage can read a page straight from an
+ * index instead of skipping over all plots before it.</p>
+ */
+public final class PlotQuery {
+
+    public enum Kind {
+        /**
+         * Plots whose expiration date has passed, the ones that expired first first.
+         */
+        EXPIRED,
+        /**
+         * Plots marked as finished.
+         */
+        FINISHED,
+        /**
+         * Plots that are for sale.
+         */
+        FOR_SALE,
+        /**
+         * Plots of an owner.
+         */
+        OWNED
+    }
+
+    private final Kind kind;
+    private final long now;
+    private final UUID owner;
+
+    private PlotQuery(Kind kind, long now, UUID owner) {
+        this.kind = kind;
+        this.now = now;
+        this.owner = owner;
+    }
+
+    /**
+     * @param now the time to compare expiration dates to, in milliseconds since the epoch
+     */
+    public static PlotQuery expired(long now) {
+        return new PlotQuery(Kind.EXPIRED, now, null);
+    }
+
+    public static PlotQuery finished() {
+        return new PlotQuery(Kind.FINISHED, 0, null);
+    }
+
+    public static PlotQuery forSale() {
+        return new PlotQuery(Kind.FOR_SALE, 0, null);
+    }
+
+    public static PlotQuery ownedBy(UUID owner) {
+        return new PlotQuery(Kind.OWNED, 0, Preconditions.checkNotNull(owner, "owner"));
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Gets the time expiration dates are compared to.
+     *
+     * @return time in milliseconds since the epoch, or 0 unless this query is for expired plots
+     */
+    public long getNow() {
+        return now;
+    }
+
+    /**
+     * Gets the owner whose plots are asked for.
+     *
+     * @return the owner UUID, or null unless this query is for the plots of an owner
+     */
+    public UUID getOwner() {
+        return owner;
+    }
+
+    public boolean matches(Plot plot) {
+        switch (kind) {
+            case EXPIRED:
+                return plot.getExpiredAt() != Plot.NO_EXPIRY && plot.getExpiredAt() < now;
+            case FINISHED:
+                return plot.isFinished();
+            case FOR_SALE:
+                return plot.isForSale();
+            default:
+                return plot.getOwnerId().equals(owner);
+        }
+    }
+
+    /**
+     * Checks the parts of a plot that are known without reading all of it.
+     *
+     * @return false if the plot can't match
+     */
+    boolean mightMatch(PlotCodec.Header header) {
+        switch (kind) {
+            case EXPIRED:
+                return header.isExpired(now);
+            case OWNED:
+                return header.ownerId.equals(owner);
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * Gets the position of a plot in the order of this query.
+     *
+     * @param plot a plot that matches this query
+     * @return the cursor to pass to read the plots after it
+     */
+    public Cursor cursorOf(Plot plot) {
+        long sortKey = kind == Kind.EXPIRED ? plot.getExpiredAt() : 0;
+        return new Cursor(sortKey, plot.getInternalID());
+    }
+
+    /**
+     * Gets one page of the matching plots out of plots that are in memory.
+     *
+     * @param plots the plots to look through
+     * @param after cursor of the last plot of the page before, or null for the first page
+     * @param limit most plots to return
+     * @return the page, in order
+     */
+    public List<Plot> page(Collection<Plot> plots, final Cursor after, int limit) {
+        Collection<Plot> matching = Collections2.filter(plots, new Predicate<Plot>() {
+            @Override
+            public boolean apply(Plot plot) {
+                return matches(plot) && (after == null || cursorOf(plot).compareTo(after) > 0);
+            }
+        });
+        return order().leastOf(matching, limit);
+    }
+
+    /**
+     * Gets the cursor that comes before the plot at a position, out of plots that are in memory.
+     *
+     * @param plots the plots to look through
+     * @param skip number of matching plots to skip
+     * @return the cursor of the last skipped plot, or null if nothing is skipped or fewer plots match
+     */
+    public Cursor cursorAt(Collection<Plot> plots, int skip) {
+        if (skip <= 0) {
+            return null;
+        }
+        List<Plot> skipped = page(plots, null, skip);
+        return skipped.size() < skip ? null : cursorOf(skipped.get(skip - 1));
+    }
+
+    /**
+     * Counts the matching plots out of plots that are in memory.
+     */
+    public int count(Collection<Plot> plots) {
+        int count = 0;
+        for (Plot plot : plots) {
+            if (matches(plot)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private Ordering<Plot> order() {
+        return new Ordering<Plot>() {
+            @Override
+            public int compare(Plot left, Plot right) {
+                return cursorOf(left).compareTo(cursorOf(right));
+            }
+        };
+    }
+
+    /**
+     * The position of a plot in the order of a query.
+     */
+    public static final class Cursor implements Comparable<Cursor> {
+
+        private final long sortKey;
+        private final long internalId;
+
+        public Cursor(long sortKey, long internalId) {
+            this.sortKey = sortKey;
+            this.internalId = internalId;
+        }
+
+        /**
+         * Gets the value the query sorts on: the expiration date for expired plots, otherwise 0.
+         */
+        public long getSortKey() {
+            return sortKey;
+        }
+
+        public long getInternalId() {
+            return internalId;
+        }
+
+        @Override
+        public int compareTo(Cursor other) {
+            int result = Longs.compare(sortKey, other.sortKey);
+            return result != 0 ? result : Longs.compare(internalId, other.internalId);
+        }
+    }
+}
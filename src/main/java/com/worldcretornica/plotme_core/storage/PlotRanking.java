@@ -0,0 +1,85 @@
+package com.worldcretornica.plotme_core.storage;
+
+import com.worldcretornica.plotme_core.PlotId;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The plots of a world ranked by their number of likes, kept up to date as plots are liked.
+ *
+ * <p>Plots are kept in buckets by number of likes, so a like moves a plot to the next bucket and the top
+ * plots are read off the fullest buckets without sorting anything. Plots with the same number of likes are
+ * ranked by who got there first. Plots without likes are not ranked.</p>
+ */
+final class PlotRanking {
+
+    private final TreeMap<Integer, LinkedHashSet<PlotId>> buckets = new TreeMap<>();
+    private final HashMap<PlotId, Integer> likes = new HashMap<>();
+
+    /**
+     * Creates a ranking.
+     *
+     * @param counts number of likes by plot id
+     */
+    PlotRanking(Map<PlotId, Integer> counts) {
+        for (Map.Entry<PlotId, Integer> count : counts.entrySet()) {
+            set(count.getKey(), count.getValue());
+        }
+    }
+
+    /**
+     * Moves a plot to its place for a number of likes.
+     *
+     * @param id the plot id
+     * @param count number of likes of the plot, 0 or less to take the plot out of the ranking
+     */
+    synchronized void set(PlotId id, int count) {
+        Integer previous = count > 0 ? likes.put(id, count) : likes.remove(id);
+        if (previous != null) {
+            if (previous == count) {
+                return;
+            }
+            LinkedHashSet<PlotId> bucket = buckets.get(previous);
+            bucket.remove(id);
+            if (bucket.isEmpty()) {
+                buckets.remove(previous);
+            }
+        }
+        if (count > 0) {
+            LinkedHashSet<PlotId> bucket = buckets.get(count);
+            if (bucket == null) {
+                bucket = new LinkedHashSet<>();
+                buckets.put(count, bucket);
+            }
+            bucket.add(id);
+        }
+    }
+
+    synchronized void remove(PlotId id) {
+        set(id, 0);
+    }
+
+    /**
+     * Gets the most liked plots.
+     *
+     * @param count most plots to return
+     * @return the plot ids, the most liked first
+     */
+    synchronized List<PlotId> top(int count) {
+        List<PlotId> top = new ArrayList<>(Math.min(count, likes.size()));
+        for (LinkedHashSet<PlotId> bucket : buckets.descendingMap().values()) {
+            for (PlotId id : bucket) {
+                if (top.size() == count) {
+                    return top;
+                }
+                top.add(id);
+            }
+        }
+        return top;
+    }
+}
@@ -0,0 +1,386 @@
+package com.worldcretornica.plotme_core.storage;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import com.worldcretornica.plotme_core.Plot;
+import com.worldcretornica.plotme_core.PlotId;
+import com.worldcretornica.plotme_core.PlotMeCoreManager;
+import com.worldcretornica.plotme_core.api.IPlayer;
+import com.worldcretornica.plotme_core.api.IPlotMe_GeneratorManager;
+import com.worldcretornica.plotme_core.api.IWorld;
+import com.worldcretornica.plotme_core.api.Vector;
+import com.worldcretornica.plotme_core.utils.WorldTable;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decides which plots stay in memory when plots are loaded lazily, see the {@code LazyPlotLoading} setting.
+ *
+ * <p>Plots are read from the storage the first time they are asked for. Every world keeps a Bloom filter
+ * of its claimed plot ids, so asking for a plot that was never claimed is answered without reading the
+ * storage. A plot id the filter wrongly reports as claimed is remembered for a while after the storage
+ * said otherwise. Once more plots were claimed than the filter was made for, it is built again from the
+ * storage in the background; until then, every plot of the world might be claimed.</p>
+ *
+ * <p>Once more plots are in memory than the budget allows, {@link #run()} evicts plots that weren't used
+ * since the last run, except the plots of online players and the plots close to them. Plots are saved as
+ * soon as they change, so evicting a plot loses nothing. An evicted plot is still held weakly, and so are
+ * the copies of plots read from the storage without keeping them in memory; as long as anyone still uses
+ * such a copy, like a plot being cleared or bought, asking for the plot returns that copy instead of
+ * reading a second one. Every run also reads the plots around online players that aren't in memory in the
+ * background, so {@link Database#getPlot} rarely has to read them on the main thread.</p>
+ */
+final class PlotResidency implements Runnable {
+
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    private final Database database;
+    private final int budget;
+    private final int radius;
+    private final WorldTable<WorldState> states = new WorldTable<>();
+
+    /**
+     * @param database the plot cache
+     * @param budget number of plots to keep in memory across all worlds, not counting the plots that must stay
+     * @param radius distance in plots around online players in which plots stay in memory
+     */
+    PlotResidency(Database database, int budget, int radius) {
+        this.database = database;
+        this.budget = Math.max(0, budget);
+        this.radius = Math.max(0, radius);
+    }
+
+    /**
+     * Reads the claimed plot ids of a world. Runs in the background while the world loads.
+     *
+     * @param world the plotworld
+     * @return number of claimed plots in the world
+     */
+    int loadWorld(IWorld world) {
+        long[] keys = database.getStorage().loadPlotKeys(world);
+        WorldState state = new WorldState(world, keys);
+        states.put(world, state);
+        return keys.length;
+    }
+
+    /**
+     * Reads a plot that isn't in memory.
+     *
+     * @param world the plotworld
+     * @param id the plot id
+     * @return the plot, or null if it isn't claimed
+     */
+    Plot load(IWorld world, PlotId id) {
+        WorldState state = states.get(world);
+        if (state != null && !state.mightBeClaimed(id)) {
+            return null;
+        }
+        Plot plot = database.getStorage().loadPlot(world, id);
+        if (plot == null && state != null) {
+            state.unclaimed.put(id, Boolean.TRUE);
+        }
+        return plot;
+    }
+
+    /**
+     * Checks if a plot might be claimed, without reading the storage.
+     */
+    boolean mightBeClaimed(IWorld world, PlotId id) {
+        WorldState state = states.get(world);
+        return state == null || state.mightBeClaimed(id);
+    }
+
+    /**
+     * Gets the copy of a plot that isn't in memory but still in use.
+     *
+     * @return the copy, or null if nobody uses one
+     */
+    Plot getReleased(IWorld world, PlotId id) {
+        WorldState state = states.get(world);
+        return state == null ? null : state.released.getIfPresent(id);
+    }
+
+    /**
+     * Holds a copy of a plot weakly, so it is handed out again as long as it is in use.
+     *
+     * @return the copy to use, which is another one if a copy was held already
+     */
+    Plot release(IWorld world, Plot plot) {
+        WorldState state = states.get(world);
+        if (state == null) {
+            return plot;
+        }
+        Plot held = state.released.asMap().putIfAbsent(plot.getId(), plot);
+        return held == null ? plot : held;
+    }
+
+    /**
+     * Stops holding a copy of a plot, because it is back in memory or the plot was removed or claimed again.
+     */
+    void forget(IWorld world, PlotId id) {
+        WorldState state = states.get(world);
+        if (state != null) {
+            state.released.invalidate(id);
+        }
+    }
+
+    /**
+     * Marks a plot as being read in the background.
+     *
+     * @return false if it is being read already
+     */
+    boolean startLoading(IWorld world, PlotId id) {
+        WorldState state = states.get(world);
+        return state != null && state.loading.add(id);
+    }
+
+    void doneLoading(IWorld world, PlotId id) {
+        WorldState state = states.get(world);
+        if (state != null) {
+            state.loading.remove(id);
+        }
+    }
+
+    /**
+     * Finds the plots a chunk overlaps, by asking the generator for the plot at each corner and the center.
+     *
+     * @return the plot ids, without the roads
+     */
+    static Set<PlotId> getChunkPlots(IWorld world, int chunkX, int chunkZ) {
+        Set<PlotId> ids = new HashSet<>();
+        IPlotMe_GeneratorManager genManager = PlotMeCoreManager.getInstance().getGenManager(world);
+        if (genManager == null) {
+            return ids;
+        }
+        int x = chunkX << 4;
+        int z = chunkZ << 4;
+        int[][] points = {{0, 0}, {15, 0}, {0, 15}, {15, 15}, {8, 8}};
+        for (int[] point : points) {
+            PlotId id = genManager.getPlotId(new Vector(x + point[0], 0, z + point[1]));
+            if (id != null) {
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Records that a plot in memory was used, so the next eviction run keeps it.
+     */
+    void touch(IWorld world, PlotId id) {
+        WorldState state = states.get(world);
+        if (state != null) {
+            state.touched.add(id);
+        }
+    }
+
+    /**
+     * Records that a plot was claimed.
+     */
+    void claimed(IWorld world, PlotId id) {
+        WorldState state = states.get(world);
+        if (state != null) {
+            state.released.invalidate(id);
+            state.claimed(id);
+        }
+    }
+
+    /**
+     * Records that a plot was removed.
+     */
+    void removed(IWorld world, PlotId id) {
+        WorldState state = states.get(world);
+        if (state != null) {
+            state.released.invalidate(id);
+            state.removed();
+        }
+    }
+
+    /**
+     * Gets the number of claimed plots of a world, in memory or not.
+     *
+     * @return the number of claimed plots, or -1 if the world isn't loaded
+     */
+    int getClaimedCount(IWorld world) {
+        WorldState state = states.get(world);
+        return state == null ? -1 : state.claimedCount;
+    }
+
+    /**
+     * Reads the plots around online players that aren't in memory in the background, and evicts plots until
+     * the budget is met. Runs on the main thread.
+     */
+    @Override
+    public void run() {
+        Set<UUID> online = new HashSet<>();
+        Map<IWorld, Set<PlotId>> nearby = new HashMap<>();
+        PlotMeCoreManager manager = PlotMeCoreManager.getInstance();
+        for (IPlayer player : database.plugin.getServerBridge().getOnlinePlayers()) {
+            online.add(player.getUniqueId());
+            IWorld world = player.getWorld();
+            PlotId center = manager.isPlotWorld(world) ? manager.getPlotId(player) : null;
+            if (center == null) {
+                continue;
+            }
+            Set<PlotId> ids = nearby.get(world);
+            if (ids == null) {
+                ids = new HashSet<>();
+                nearby.put(world, ids);
+            }
+            for (int x = center.getX() - radius; x <= center.getX() + radius; x++) {
+                for (int z = center.getZ() - radius; z <= center.getZ() + radius; z++) {
+                    ids.add(new PlotId(x, z));
+                }
+            }
+        }
+        for (Map.Entry<IWorld, Set<PlotId>> entry : nearby.entrySet()) {
+            database.loadPlots(entry.getKey(), entry.getValue(), null);
+        }
+        int resident = 0;
+        for (HashMap<PlotId, Plot> worldPlots : database.plots.values()) {
+            synchronized (worldPlots) {
+                resident += worldPlots.size();
+            }
+        }
+        if (resident <= budget) {
+            for (WorldState state : states.values()) {
+                state.touched.clear();
+            }
+            return;
+        }
+        int evicted = 0;
+        for (Map.Entry<IWorld, HashMap<PlotId, Plot>> entry : database.plots.entrySet()) {
+            WorldState state = states.get(entry.getKey());
+            if (state == null) {
+                continue;
+            }
+            Set<PlotId> ids = nearby.get(entry.getKey());
+            synchronized (entry.getValue()) {
+                Iterator<Plot> plots = entry.getValue().values().iterator();
+                while (resident - evicted > budget && plots.hasNext()) {
+                    Plot plot = plots.next();
+                    if (!state.touched.contains(plot.getId()) && !online.contains(plot.getOwnerId()) && (ids == null || !ids.contains(plot.getId()))) {
+                        plots.remove();
+                        state.released.put(plot.getId(), plot);
+                        evicted++;
+                    }
+                }
+            }
+            state.touched.clear();
+        }
+    }
+
+    /**
+     * What is known about the claimed plots of a world.
+     */
+    private final class WorldState {
+
+        private final IWorld world;
+        private final Set<PlotId> touched = Collections.newSetFromMap(new ConcurrentHashMap<PlotId, Boolean>());
+        private final Cache<PlotId, Boolean> unclaimed = CacheBuilder.newBuilder().maximumSize(4096).build();
+        /**
+         * Plots that aren't in memory but may still be in use, held weakly.
+         */
+        private final Cache<PlotId, Plot> released = CacheBuilder.newBuilder().weakValues().build();
+        private final Set<PlotId> loading = Collections.newSetFromMap(new ConcurrentHashMap<PlotId, Boolean>());
+        private BloomFilter<Long> filter;
+        private int capacity;
+        private int added;
+        private volatile int claimedCount;
+        /**
+         * Plots claimed since the filter started being built again, null if it isn't.
+         */
+        private Set<Long> claimedWhileRebuilding;
+
+        private WorldState(IWorld world, long[] keys) {
+            this.world = world;
+            this.claimedCount = keys.length;
+            build(keys);
+        }
+
+        private void build(long[] keys) {
+            capacity = Math.max(1024, keys.length * 2);
+            added = keys.length;
+            BloomFilter<Long> built = BloomFilter.create(Funnels.longFunnel(), capacity, FALSE_POSITIVE_RATE);
+            for (long key : keys) {
+                built.put(key);
+            }
+            filter = built;
+        }
+
+        private synchronized boolean mightBeClaimed(PlotId id) {
+            return (claimedWhileRebuilding != null || filter.mightContain(id.getKey())) && unclaimed.getIfPresent(id) == null;
+        }
+
+        /**
+         * Adds a plot to the filter. Once the filter holds more ids than it was made for, which would raise
+         * its false positive rate, it is built again from the storage in the background.
+         */
+        private synchronized void claimed(PlotId id) {
+            unclaimed.invalidate(id);
+            claimedCount++;
+            filter.put(id.getKey());
+            if (claimedWhileRebuilding != null) {
+                claimedWhileRebuilding.add(id.getKey());
+            } else if (++added > capacity) {
+                claimedWhileRebuilding = new HashSet<>();
+                claimedWhileRebuilding.add(id.getKey());
+                database.plugin.getServerBridge().runTaskAsynchronously(new Runnable() {
+                    @Override
+                    public void run() {
+                        long[] keys = null;
+                        try {
+                            keys = database.getStorage().loadPlotKeys(world);
+                        } finally {
+                            rebuilt(keys);
+                        }
+                    }
+                });
+            }
+        }
+
+        /**
+         * Swaps in the filter built from the storage. Plots claimed meanwhile, and plots in memory whose
+         * claim may not have reached the storage yet, are added to it.
+         *
+         * @param keys the plot keys read from the storage, or null if they couldn't be read
+         */
+        private void rebuilt(long[] keys) {
+            Set<Long> resident = new HashSet<>();
+            HashMap<PlotId, Plot> worldPlots = database.plots.get(world);
+            if (worldPlots != null) {
+                synchronized (worldPlots) {
+                    for (PlotId id : worldPlots.keySet()) {
+                        resident.add(id.getKey());
+                    }
+                }
+            }
+            synchronized (this) {
+                if (keys != null) {
+                    resident.addAll(claimedWhileRebuilding);
+                    long[] all = Arrays.copyOf(keys, keys.length + resident.size());
+                    int count = keys.length;
+                    for (Long key : resident) {
+                        all[count++] = key;
+                    }
+                    build(all);
+                }
+                claimedWhileRebuilding = null;
+            }
+        }
+
+        private synchronized void removed() {
+            claimedCount--;
+        }
+    }
+}
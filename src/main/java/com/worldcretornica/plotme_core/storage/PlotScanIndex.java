@@ -0,0 +1,186 @@
+package com.worldcretornica.plotme_core.storage;
+
+import com.worldcretornica.plotme_core.Plot;
+import com.worldcretornica.plotme_core.PlotId;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A scan index over the fields of the plots of a world that queries look at, kept column by column. Finding
+ * the expired, finished, for sale or owned plots of a world is a loop over primitive arrays instead of a
+ * walk over every {@link Plot} object and its fields.
+ *
+ * <p>The index is kept next to the {@link Plot} objects, not instead of them, so it adds memory: about 30
+ * bytes per plot. Owners are stored as numbers that index a dictionary of owner UUIDs. Rows are found by
+ * plot key through an open addressing hash table of row numbers, so the index holds no object per plot. A
+ * removed row is filled with the last row, so the columns never have gaps. The index holds the state of a
+ * plot as of its last save; callers check the plots it finds.</p>
+ */
+final class PlotScanIndex {
+
+    private static final byte FINISHED = 1;
+    private static final byte FOR_SALE = 2;
+
+    private final HashMap<UUID, Integer> ownerCodes = new HashMap<>();
+    /**
+     * Row number plus one of the plot hashed to each slot, or 0 for an empty slot. Has twice as many slots
+     * as the columns have rows, so probes stay short.
+     */
+    private int[] slots;
+    private long[] keyColumn;
+    private int[] ownerColumn;
+    private long[] expiredAtColumn;
+    private byte[] flagColumn;
+    private int size;
+
+    PlotScanIndex(int capacity) {
+        capacity = Integer.highestOneBit(Math.max(16, capacity) - 1) << 1;
+        slots = new int[capacity * 2];
+        keyColumn = new long[capacity];
+        ownerColumn = new int[capacity];
+        expiredAtColumn = new long[capacity];
+        flagColumn = new byte[capacity];
+    }
+
+    /**
+     * Adds a plot or updates its row.
+     */
+    synchronized void put(Plot plot) {
+        long key = plot.getId().getKey();
+        int slot = slotOf(key);
+        int row;
+        if (slots[slot] != 0) {
+            row = slots[slot] - 1;
+        } else {
+            if (size == keyColumn.length) {
+                grow();
+                slot = slotOf(key);
+            }
+            row = size++;
+            slots[slot] = row + 1;
+            keyColumn[row] = key;
+        }
+        ownerColumn[row] = ownerCode(plot.getOwnerId());
+        expiredAtColumn[row] = plot.getExpiredAt();
+        flagColumn[row] = (byte) ((plot.isFinished() ? FINISHED : 0) | (plot.isForSale() ? FOR_SALE : 0));
+    }
+
+    synchronized void remove(PlotId id) {
+        int slot = slotOf(id.getKey());
+        if (slots[slot] == 0) {
+            return;
+        }
+        int row = slots[slot] - 1;
+        clearSlot(slot);
+        int last = --size;
+        if (row != last) {
+            // The last row still holds its key, so its slot is found before the row is moved
+            slots[slotOf(keyColumn[last])] = row + 1;
+            keyColumn[row] = keyColumn[last];
+            ownerColumn[row] = ownerColumn[last];
+            expiredAtColumn[row] = expiredAtColumn[last];
+            flagColumn[row] = flagColumn[last];
+        }
+    }
+
+    /**
+     * Finds the plots that match a query, in no particular order.
+     *
+     * @return the ids of the matching plots
+     */
+    synchronized List<PlotId> select(PlotQuery query) {
+        List<PlotId> selected = new ArrayList<>();
+        switch (query.getKind()) {
+            case EXPIRED:
+                long now = query.getNow();
+                for (int row = 0; row < size; row++) {
+                    long expiredAt = expiredAtColumn[row];
+                    if (expiredAt != Plot.NO_EXPIRY && expiredAt < now) {
+                        selected.add(PlotId.fromKey(keyColumn[row]));
+                    }
+                }
+                break;
+            case FINISHED:
+            case FOR_SALE:
+                byte flag = query.getKind() == PlotQuery.Kind.FINISHED ? FINISHED : FOR_SALE;
+                for (int row = 0; row < size; row++) {
+                    if ((flagColumn[row] & flag) != 0) {
+                        selected.add(PlotId.fromKey(keyColumn[row]));
+                    }
+                }
+                break;
+            default:
+                Integer owner = ownerCodes.get(query.getOwner());
+                if (owner == null) {
+                    break;
+                }
+                int code = owner;
+                for (int row = 0; row < size; row++) {
+                    if (ownerColumn[row] == code) {
+                        selected.add(PlotId.fromKey(keyColumn[row]));
+                    }
+                }
+        }
+        return selected;
+    }
+
+    /**
+     * Finds the slot of a plot key, or the empty slot it would go into.
+     */
+    private int slotOf(long key) {
+        int mask = slots.length - 1;
+        int slot = hash(key) & mask;
+        while (slots[slot] != 0 && keyColumn[slots[slot] - 1] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Empties a slot, moving the keys that probed past it back so they are still found.
+     */
+    private void clearSlot(int slot) {
+        int mask = slots.length - 1;
+        int hole = slot;
+        for (int next = (slot + 1) & mask; slots[next] != 0; next = (next + 1) & mask) {
+            int home = hash(keyColumn[slots[next] - 1]) & mask;
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                slots[hole] = slots[next];
+                hole = next;
+            }
+        }
+        slots[hole] = 0;
+    }
+
+    private static int hash(long key) {
+        return (int) (key * 0x9E3779B97F4A7C15L >>> 32);
+    }
+
+    /**
+     * Gets the number an owner is stored as, adding the owner to the dictionary if needed.
+     */
+    private int ownerCode(UUID owner) {
+        Integer code = ownerCodes.get(owner);
+        if (code == null) {
+            code = ownerCodes.size();
+            ownerCodes.put(owner, code);
+        }
+        return code;
+    }
+
+    private void grow() {
+        int capacity = keyColumn.length * 2;
+        keyColumn = Arrays.copyOf(keyColumn, capacity);
+        ownerColumn = Arrays.copyOf(ownerColumn, capacity);
+        expiredAtColumn = Arrays.copyOf(expiredAtColumn, capacity);
+        flagColumn = Arrays.copyOf(flagColumn, capacity);
+        slots = new int[capacity * 2];
+        for (int row = 0; row < size; row++) {
+            slots[slotOf(keyColumn[row])] = row + 1;
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.worldcretornica.plotme_core.storage;
+
+import com.worldcretornica.plotme_core.NameCache;
+import com.worldcretornica.plotme_core.Plot;
+import com.worldcretornica.plotme_core.PlotId;
+import com.worldcretornica.plotme_core.api.IWorld;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Where plots are kept between restarts. {@link Database} keeps the plots of loaded worlds in memory and
+ * passes every change on to a storage.
+ *
+ * <p>Implementations report their own errors to the log and never throw. Plots are identified by their
+ * internal id, which the storage hands out through {@link #allocateId()}.</p>
+ *
+ * <p>Plots are handed to {@link #savePlot(Plot)} whole rather than as a list of changes. A storage that
+ * can write less, like one that only writes the metadata that changed, works that out from the plot.</p>
+ */
+public interface PlotStorage {
+
+    /**
+     * Reads all plots of a world.
+     *
+     * @param world the plotworld
+     * @return the plots of the world by id
+     */
+    Map<PlotId, Plot> loadWorld(IWorld world);
+
+    /**
+     * Reads a single plot of a world.
+     *
+     * @param world the plotworld
+     * @param id the plot id
+     * @return the plot, or null if the plot is not claimed
+     */
+    Plot loadPlot(IWorld world, PlotId id);
+
+    /**
+     * Reads the ids of the claimed plots of a world, without reading the plots themselves.
+     *
+     * @param world the plotworld
+     * @return the packed plot keys, see {@link PlotId#toKey(int, int)}
+     */
+    long[] loadPlotKeys(IWorld world);
+
+    /**
+     * Stores a plot, replacing the stored copy with the same internal id. Of the metadata of the plot, only
+     * the values that changed need to be written.
+     *
+     * @param plot plot with an internal id
+     */
+    void savePlot(Plot plot);
+
+    /**
+     * Reads the metadata a plugin keeps on a plot.
+     *
+     * @param plot a stored plot
+     * @param namespace name of the plugin
+     * @return the values by key, each an Integer, Long, String or byte[]
+     */
+    HashMap<String, Object> loadMetadata(Plot plot, String namespace);
+
+    /**
+     * Reads the metadata of all plugins of a plot.
+     *
+     * @param plot a stored plot
+     * @return the values by key by plugin name
+     */
+    Map<String, HashMap<String, Object>> loadAllMetadata(Plot plot);
+
+    /**
+     * Stores the metadata values of a plot that changed since it was last saved, without the rest of the
+     * plot.
+     *
+     * @param plot a stored plot
+     */
+    void saveMetadata(Plot plot);
+
+    /**
+     * Reads one metadata value of every plot of a world that has it.
+     *
+     * @param world the plotworld
+     * @param namespace name of the plugin
+     * @param key the key of the value
+     * @return the values by plot id
+     */
+    Map<PlotId, Object> loadMetadataColumn(IWorld world, String namespace, String key);
+
+    /**
+     * Removes a plot.
+     *
+     * @param plot the plot
+     */
+    void deletePlot(Plot plot);
+
+    /**
+     * Stores that a player likes a plot and counts the like, without writing the rest of the plot.
+     *
+     * @param plot a stored plot the player was added to the likers of
+     * @param player the player
+     */
+    void addLike(Plot plot, UUID player);
+
+    /**
+     * Stores that a player no longer likes a plot and counts the like off, without writing the rest of the
+     * plot.
+     *
+     * @param plot a stored plot the player was removed from the likers of
+     * @param player the player
+     */
+    void removeLike(Plot plot, UUID player);
+
+    /**
+     * Reads the number of likes of the liked plots of a world, without reading the plots themselves.
+     *
+     * @param world the plotworld
+     * @return number of likes by plot id, for plots with at least one like
+     */
+    Map<PlotId, Integer> loadLikeCounts(IWorld world);
+
+    /**
+     * Reads the names of the named plots of a world, without reading the plots themselves.
+     *
+     * @param world the plotworld
+     * @return plot names by plot id
+     */
+    Map<PlotId, String> loadPlotNames(IWorld world);
+
+    /**
+     * Finds the plot with a name in any world, including the worlds that aren't loaded.
+     *
+     * @param name plot name, compared without regard to case
+     * @return the internal id of the plot, 0 if no plot has the name, or -1 if the storage couldn't be read
+     */
+    long findPlotByName(String name);
+
+    /**
+     * Hands out an internal id that was never used before.
+     *
+     * @return a new internal id
+     */
+    long allocateId();
+
+    /**
+     * Reads the plots of a world that expired before a date.
+     *
+     * @param world the plotworld
+     * @param now the date to compare the expiration dates to
+     * @return the expired plots
+     */
+    List<Plot> findExpiredPlots(IWorld world, Date now);
+
+    /**
+     * Reads the plots of a world that a player owns.
+     *
+     * @param world the plotworld
+     * @param owner UUID of the owner
+     * @return the plots of the player
+     */
+    List<Plot> findOwnedPlots(IWorld world, UUID owner);
+
+    /**
+     * Reads the plots of a world that a player owns or is allowed on, including the plots everyone is
+     * allowed on.
+     *
+     * @param world the plotworld
+     * @param player UUID of the player
+     * @return the plots of the player
+     */
+    List<Plot> findMemberPlots(IWorld world, UUID player);
+
+    /**
+     * Reads one page of the plots of a world that match a query.
+     *
+     * @param world the plotworld
+     * @param query the query
+     * @param after cursor of the last plot of the page before, or null for the first page
+     * @param limit most plots to read
+     * @return the plots, in the order of the query
+     */
+    List<Plot> findPlots(IWorld world, PlotQuery query, PlotQuery.Cursor after, int limit);
+
+    /**
+     * Finds where a page of a query starts, without reading the plots before it.
+     *
+     * @param world the plotworld
+     * @param query the query
+     * @param skip number of matching plots before the page
+     * @return the cursor to pass to {@link #findPlots}, or null if nothing is skipped or fewer plots match
+     */
+    PlotQuery.Cursor findCursor(IWorld world, PlotQuery query, int skip);
+
+    /**
+     * Counts the plots of a world that match a query.
+     *
+     * @param world the plotworld
+     * @param query the query
+     * @return the number of matching plots
+     */
+    int countPlots(IWorld world, PlotQuery query);
+
+    /**
+     * Fills a name cache with the stored player names.
+     *
+     * @param names cache to fill
+     */
+    void loadNames(NameCache names);
+
+    /**
+     * Stores the name of a player.
+     *
+     * @param uuid player UUID
+     * @param name player name
+     * @param lastSeen time the player was last seen with this name, in milliseconds since the epoch
+     */
+    void saveName(UUID uuid, String name, long lastSeen);
+
+    /**
+     * Writes out anything that is pending and releases the files or connections of the storage.
+     */
+    void close();
+}
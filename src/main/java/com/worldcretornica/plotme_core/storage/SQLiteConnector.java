@@ -5,14 +5,28 @@ import com.worldcretornica.plotme_core.PlotMe_Core;
 import java.io.File;
 import java.sql.Connection;
 import java.sql.DriverManager;
-import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
 
-public class SQLiteConnector extends Database {
+public class SQLiteConnector extends JdbcPlotStorage {
+
+    private static final int BUSY_TIMEOUT_MILLIS = 10000;
+
+    private final File file;
 
     public SQLiteConnector(PlotMe_Core plugin) {
+        this(plugin, new File(plugin.getServerBridge().getDataFolder(), "plots.db"));
+    }
+
+    /**
+     * @param plugin the plugin
+     * @param file the database file
+     */
+    SQLiteConnector(PlotMe_Core plugin, File file) {
         super(plugin);
+        this.file = file;
         this.startConnection();
         this.createTables();
     }
@@ -24,95 +38,191 @@ public class SQLiteConnector extends Database {
     @Override
     public Connection startConnection() {
         try {
-            Class.forName("org.sqlite.JDBC");
-            connection = DriverManager.getConnection(
-                    "jdbc:sqlite:" + plugin.getServerBridge().getDataFolder().getAbsolutePath() + File.separatorChar + "plots.db");
-            connection.setAutoCommit(false);
+            connection = openConnection();
             return connection;
-        } catch (ClassNotFoundException | SQLException e) {
+        } catch (SQLException e) {
             plugin.getLogger().severe("Could not establish a connection to the PlotMe SQLite database:");
             plugin.getLogger().severe(e.getMessage());
             return connection;
         }
     }
 
-    @Override protected void createTables() {
-        Connection connection = getConnection();
-        try (Statement statement = connection.createStatement()) {
-            statement.executeUpdate("CREATE TABLE IF NOT EXISTS plotmecore_nextplotid (nextid INT(15));");
-            //MySQL specific plot table creation.
-            statement.executeUpdate("CREATE TABLE IF NOT EXISTS `plotmecore_plots` ("
-                    + "`plot_id` INTEGER NOT NULL PRIMARY KEY AUTOINCREMENT,"
-                    + "`plotX` INTEGER NOT NULL DEFAULT '0',"
-                    + "`plotZ` INTEGER NOT NULL DEFAULT '0',"
-                    + "`world` VARCHAR(32) NOT NULL DEFAULT 'world',"
-                    + "`ownerID` VARCHAR(50) NOT NULL DEFAULT '473cd4a7927741fabdbbdf98df801776',"
-                    + "`owner` VARCHAR(32) NOT NULL DEFAULT 'MBon29',"
-                    + "`biome` VARCHAR(50) NOT NULL DEFAULT 'PLAINS',"
-                    + "`finished` BOOLEAN NOT NULL DEFAULT '0',"
-                    + "`finishedDate` VARCHAR(20) DEFAULT NULL,"
-                    + "`createdDate` VARCHAR(20) DEFAULT 'Unknown',"
-                    + "`forSale` BOOLEAN NOT NULL DEFAULT '0',"
-                    + "`price` DOUBLE NOT NULL DEFAULT '0',"
-                    + "`protected` BOOLEAN NOT NULL DEFAULT '0',"
-                    + "`expiredDate` DATETIME DEFAULT NULL,"
-                    + "`topX` INTEGER NOT NULL DEFAULT '0',"
-                    + "`topZ` INTEGER NOT NULL DEFAULT '0',"
-                    + "`bottomX` INTEGER NOT NULL DEFAULT '0',"
-                    + "`bottomZ` INTEGER NOT NULL DEFAULT '0',"
-                    + "`plotName` VARCHAR(32) DEFAULT NULL UNIQUE,"
-                    + "`plotLikes` INTEGER NOT NULL DEFAULT '0',"
-                    + "`homeX` INTEGER NOT NULL DEFAULT '0',"
-                    + "`homeY` INTEGER NOT NULL DEFAULT '0',"
-                    + "`homeZ` INTEGER NOT NULL DEFAULT '0',"
-                    + "`homeName` VARCHAR(32) DEFAULT NULL"
-                    + ");");
-            statement.executeUpdate("CREATE UNIQUE INDEX IF NOT EXISTS `plotLocation` ON plotmecore_plots(plotx,plotz,world);");
-            statement.executeUpdate("CREATE UNIQUE INDEX IF NOT EXISTS `playerHome` ON plotmecore_plots(ownerid,homename);");
-            connection.commit();
-            statement.executeUpdate("CREATE TABLE IF NOT EXISTS `plotmecore_denied` ("
-                    + "`id` INTEGER NOT NULL PRIMARY KEY AUTOINCREMENT,"
-                    + "`plot_id` INTEGER NOT NULL DEFAULT '0',"
-                    + "`player` VARCHAR(50) NOT NULL DEFAULT '*'"
-                    + ");");
-            statement.executeUpdate("CREATE UNIQUE INDEX IF NOT EXISTS `denied` ON plotmecore_denied(plot_id,player)");
-            connection.commit();
-            statement.executeUpdate("CREATE TABLE IF NOT EXISTS `plotmecore_allowed` ("
-                    + "`id` INTEGER NOT NULL PRIMARY KEY AUTOINCREMENT,"
-                    + "`plot_id` INTEGER NOT NULL DEFAULT '0',"
-                    + "`player` VARCHAR(50) NOT NULL DEFAULT '*',"
-                    + "`access` INTEGER NOT NULL DEFAULT '1'"
-                    + ");");
-            statement.executeUpdate("CREATE UNIQUE INDEX IF NOT EXISTS `allowed` ON plotmecore_allowed(plot_id,player)");
-            connection.commit();
-            statement.executeUpdate("CREATE TABLE IF NOT EXISTS plotmecore_likes ("
-                    + "`id` INTEGER NOT NULL PRIMARY KEY AUTOINCREMENT,"
-                    + "`plot_id` INTEGER NOT NULL DEFAULT '0',"
-                    + "`player` VARCHAR(50) NOT NULL DEFAULT '*'"
-                    + ");");
-            statement.executeUpdate("CREATE UNIQUE INDEX IF NOT EXISTS `likes` ON plotmecore_likes(plot_id,player)");
-            connection.commit();
-            statement.executeUpdate("CREATE TABLE IF NOT EXISTS `plotmecore_metadata` ("
-                    + "`id` INTEGER NOT NULL PRIMARY KEY AUTOINCREMENT,"
-                    + "`plot_id` INTEGER NOT NULL DEFAULT '0',"
-                    + "`pluginName` VARCHAR(100) NOT NULL,"
-                    + "`propertyName` VARCHAR(100) NOT NULL,"
-                    + "`propertyValue` VARCHAR(255) DEFAULT NULL"
-                    + ");");
-            connection.commit();
-            statement.executeUpdate("CREATE TABLE IF NOT EXISTS `plotmecore_nextid` (`nextId` INTEGER NOT NULL DEFAULT '0');");
-            connection.commit();
-            try (ResultSet results = statement.executeQuery("SELECT * FROM plotmecore_nextid;")) {
-                if (!results.next()) {
-                    statement.execute("INSERT INTO plotmecore_nextid VALUES(1);");
-                    this.nextPlotId = 1;
-                } else {
-                    this.nextPlotId = results.getLong("nextid");
-                }
-            }
-            connection.commit();
-        } catch (SQLException e) {
-            e.printStackTrace();
+    /**
+     * Opens a connection to the plotme database. Connections wait for each other's writes instead of
+     * failing, and the write-ahead log lets them read while another one writes.
+     */
+    @Override
+    protected Connection openConnection() throws SQLException {
+        try {
+            Class.forName("org.sqlite.JDBC");
+        } catch (ClassNotFoundException e) {
+            throw new SQLException("The SQLite driver is missing", e);
+        }
+        Connection opened = DriverManager.getConnection("jdbc:sqlite:" + file.getAbsolutePath());
+        try (Statement statement = opened.createStatement()) {
+            statement.execute("PRAGMA busy_timeout = " + BUSY_TIMEOUT_MILLIS);
+            statement.execute("PRAGMA journal_mode = WAL");
         }
+        opened.setAutoCommit(false);
+        return opened;
+    }
+
+    @Override
+    protected String insertIgnore() {
+        return "INSERT OR IGNORE";
+    }
+
+    @Override
+    protected String plotNameEquals() {
+        return "plotName = ? COLLATE NOCASE";
+    }
+
+    @Override
+    protected List<Migration> getSchemaMigrations() {
+        return Arrays.<Migration>asList(
+                new SqlMigration(1, "Create the plot tables",
+                        "CREATE TABLE IF NOT EXISTS `plotmecore_plots` ("
+                            + "`plot_id` INTEGER NOT NULL PRIMARY KEY AUTOINCREMENT,"
+                            + "`plotX` INTEGER NOT NULL DEFAULT '0',"
+                            + "`plotZ` INTEGER NOT NULL DEFAULT '0',"
+                            + "`world` VARCHAR(32) NOT NULL DEFAULT 'world',"
+                            + "`ownerID` VARCHAR(50) NOT NULL DEFAULT '473cd4a7927741fabdbbdf98df801776',"
+                            + "`owner` VARCHAR(32) NOT NULL DEFAULT 'MBon29',"
+                            + "`biome` VARCHAR(50) NOT NULL DEFAULT 'PLAINS',"
+                            + "`finished` BOOLEAN NOT NULL DEFAULT '0',"
+                            + "`finishedDate` VARCHAR(20) DEFAULT NULL,"
+                            + "`createdDate` VARCHAR(20) DEFAULT 'Unknown',"
+                            + "`forSale` BOOLEAN NOT NULL DEFAULT '0',"
+                            + "`price` DOUBLE NOT NULL DEFAULT '0',"
+                            + "`protected` BOOLEAN NOT NULL DEFAULT '0',"
+                            + "`expiredDate` DATETIME DEFAULT NULL,"
+                            + "`topX` INTEGER NOT NULL DEFAULT '0',"
+                            + "`topZ` INTEGER NOT NULL DEFAULT '0',"
+                            + "`bottomX` INTEGER NOT NULL DEFAULT '0',"
+                            + "`bottomZ` INTEGER NOT NULL DEFAULT '0',"
+                            + "`plotName` VARCHAR(32) DEFAULT NULL UNIQUE,"
+                            + "`plotLikes` INTEGER NOT NULL DEFAULT '0',"
+                            + "`homeX` INTEGER NOT NULL DEFAULT '0',"
+                            + "`homeY` INTEGER NOT NULL DEFAULT '0',"
+                            + "`homeZ` INTEGER NOT NULL DEFAULT '0',"
+                            + "`homeName` VARCHAR(32) DEFAULT NULL"
+                            + ");",
+                        "CREATE UNIQUE INDEX IF NOT EXISTS `plotLocation` ON plotmecore_plots(plotx,plotz,world);",
+                        "CREATE UNIQUE INDEX IF NOT EXISTS `playerHome` ON plotmecore_plots(ownerid,homename);",
+                        "CREATE TABLE IF NOT EXISTS `plotmecore_denied` ("
+                            + "`id` INTEGER NOT NULL PRIMARY KEY AUTOINCREMENT,"
+                            + "`plot_id` INTEGER NOT NULL DEFAULT '0',"
+                            + "`player` VARCHAR(50) NOT NULL DEFAULT '*'"
+                            + ");",
+                        "CREATE UNIQUE INDEX IF NOT EXISTS `denied` ON plotmecore_denied(plot_id,player)",
+                        "CREATE TABLE IF NOT EXISTS `plotmecore_allowed` ("
+                            + "`id` INTEGER NOT NULL PRIMARY KEY AUTOINCREMENT,"
+                            + "`plot_id` INTEGER NOT NULL DEFAULT '0',"
+                            + "`player` VARCHAR(50) NOT NULL DEFAULT '*',"
+                            + "`access` INTEGER NOT NULL DEFAULT '1'"
+                            + ");",
+                        "CREATE UNIQUE INDEX IF NOT EXISTS `allowed` ON plotmecore_allowed(plot_id,player)",
+                        "CREATE TABLE IF NOT EXISTS plotmecore_likes ("
+                            + "`id` INTEGER NOT NULL PRIMARY KEY AUTOINCREMENT,"
+                            + "`plot_id` INTEGER NOT NULL DEFAULT '0',"
+                            + "`player` VARCHAR(50) NOT NULL DEFAULT '*'"
+                            + ");",
+                        "CREATE UNIQUE INDEX IF NOT EXISTS `likes` ON plotmecore_likes(plot_id,player)",
+                        "CREATE TABLE IF NOT EXISTS `plotmecore_metadata` ("
+                            + "`id` INTEGER NOT NULL PRIMARY KEY AUTOINCREMENT,"
+                            + "`plot_id` INTEGER NOT NULL DEFAULT '0',"
+                            + "`pluginName` VARCHAR(100) NOT NULL,"
+                            + "`propertyName` VARCHAR(100) NOT NULL,"
+                            + "`propertyValue` VARCHAR(255) DEFAULT NULL"
+                            + ");",
+                        "CREATE TABLE IF NOT EXISTS `plotmecore_nextid` (`nextId` INTEGER NOT NULL DEFAULT '0');"),
+                new SqlMigration(2, "Add the player name table",
+                        "CREATE TABLE IF NOT EXISTS `plotmecore_names` ("
+                            + "`uuid` VARCHAR(36) NOT NULL PRIMARY KEY,"
+                            + "`name` VARCHAR(16) NOT NULL,"
+                            + "`lastSeen` BIGINT NOT NULL DEFAULT '0'"
+                            + ");",
+                        "CREATE INDEX IF NOT EXISTS `names` ON plotmecore_names(name)"),
+                new SqlMigration(3, "Add the migration progress table",
+                        "CREATE TABLE IF NOT EXISTS `plotmecore_migrations` ("
+                            + "`name` VARCHAR(64) NOT NULL PRIMARY KEY,"
+                            + "`lastId` BIGINT NOT NULL DEFAULT '0',"
+                            + "`done` BOOLEAN NOT NULL DEFAULT '0'"
+                            + ");"),
+                new SqlMigration(4, "Add the v2 plot tables",
+                        "CREATE TABLE IF NOT EXISTS `plotmecore_worlds` ("
+                            + "`world_id` INTEGER NOT NULL PRIMARY KEY AUTOINCREMENT,"
+                            + "`name` VARCHAR(32) NOT NULL UNIQUE"
+                            + ");",
+                        "CREATE TABLE IF NOT EXISTS `plotmecore_plots_v2` ("
+                            + "`plot_id` INTEGER NOT NULL PRIMARY KEY,"
+                            + "`world_id` INTEGER NOT NULL,"
+                            + "`plotX` INTEGER NOT NULL,"
+                            + "`plotZ` INTEGER NOT NULL,"
+                            + "`ownerID` BINARY(16) NOT NULL,"
+                            + "`owner` VARCHAR(32) NOT NULL,"
+                            + "`biome` VARCHAR(50) NOT NULL DEFAULT 'PLAINS',"
+                            + "`finished` BOOLEAN NOT NULL DEFAULT '0',"
+                            + "`finishedDate` VARCHAR(20) DEFAULT NULL,"
+                            + "`createdDate` VARCHAR(20) DEFAULT 'Unknown',"
+                            + "`forSale` BOOLEAN NOT NULL DEFAULT '0',"
+                            + "`price` DOUBLE NOT NULL DEFAULT '0',"
+                            + "`protected` BOOLEAN NOT NULL DEFAULT '0',"
+                            + "`expiredDate` DATETIME DEFAULT NULL,"
+                            + "`topX` INTEGER NOT NULL DEFAULT '0',"
+                            + "`topZ` INTEGER NOT NULL DEFAULT '0',"
+                            + "`bottomX` INTEGER NOT NULL DEFAULT '0',"
+                            + "`bottomZ` INTEGER NOT NULL DEFAULT '0',"
+                            + "`plotName` VARCHAR(32) DEFAULT NULL UNIQUE,"
+                            + "`plotLikes` INTEGER NOT NULL DEFAULT '0'"
+                            + ");",
+                        "CREATE UNIQUE INDEX IF NOT EXISTS `plotLocation_v2` ON plotmecore_plots_v2(world_id,plotX,plotZ);",
+                        "CREATE INDEX IF NOT EXISTS `plotOwner_v2` ON plotmecore_plots_v2(ownerID);",
+                        "CREATE TABLE IF NOT EXISTS `plotmecore_allowed_v2` ("
+                            + "`plot_id` INTEGER NOT NULL,"
+                            + "`player` BINARY(16) NOT NULL,"
+                            + "`access` INTEGER NOT NULL DEFAULT '1',"
+                            + "PRIMARY KEY (`plot_id`,`player`)"
+                            + ");",
+                        "CREATE TABLE IF NOT EXISTS `plotmecore_denied_v2` ("
+                            + "`plot_id` INTEGER NOT NULL,"
+                            + "`player` BINARY(16) NOT NULL,"
+                            + "PRIMARY KEY (`plot_id`,`player`)"
+                            + ");",
+                        "CREATE TABLE IF NOT EXISTS `plotmecore_likes_v2` ("
+                            + "`plot_id` INTEGER NOT NULL,"
+                            + "`player` BINARY(16) NOT NULL,"
+                            + "PRIMARY KEY (`plot_id`,`player`)"
+                            + ");",
+                        "CREATE TABLE IF NOT EXISTS `plotmecore_metadata_v2` ("
+                            + "`plot_id` INTEGER NOT NULL,"
+                            + "`pluginName` VARCHAR(100) NOT NULL,"
+                            + "`propertyName` VARCHAR(100) NOT NULL,"
+                            + "`propertyValue` VARCHAR(255) DEFAULT NULL,"
+                            + "PRIMARY KEY (`plot_id`,`pluginName`,`propertyName`)"
+                            + ");"),
+                new SqlMigration(5, "Drop the unused plotmecore_nextplotid table",
+                        "DROP TABLE IF EXISTS plotmecore_nextplotid;"),
+                new SqlMigration(8, "Add the plot cache stamp table",
+                        "CREATE TABLE IF NOT EXISTS `plotmecore_cache_stamps` ("
+                            + "`world` VARCHAR(32) NOT NULL PRIMARY KEY,"
+                            + "`stamp` BIGINT NOT NULL"
+                            + ");"),
+                new SqlMigration(9, "Store plot expiration as epoch milliseconds and index the plot queries",
+                        "ALTER TABLE plotmecore_plots_v2 ADD COLUMN `expiredAt` BIGINT DEFAULT NULL;",
+                        "UPDATE plotmecore_plots_v2 SET expiredAt = CASE WHEN typeof(expiredDate) = 'integer' THEN expiredDate "
+                            + "ELSE CAST(strftime('%s', expiredDate) AS INTEGER) * 1000 END WHERE expiredDate IS NOT NULL;",
+                        "CREATE INDEX IF NOT EXISTS `plotExpired_v2` ON plotmecore_plots_v2(world_id,expiredAt,plot_id);",
+                        "CREATE INDEX IF NOT EXISTS `plotFinished_v2` ON plotmecore_plots_v2(world_id,plot_id) WHERE finished = 1;",
+                        "CREATE INDEX IF NOT EXISTS `plotForSale_v2` ON plotmecore_plots_v2(world_id,plot_id) WHERE forSale = 1;",
+                        "CREATE INDEX IF NOT EXISTS `plotWorldOwner_v2` ON plotmecore_plots_v2(world_id,ownerID,plot_id);"),
+                new SqlMigration(10, "Add typed plot metadata values",
+                        "ALTER TABLE plotmecore_metadata_v2 ADD COLUMN `valueType` INTEGER NOT NULL DEFAULT '0';",
+                        "ALTER TABLE plotmecore_metadata_v2 ADD COLUMN `numberValue` BIGINT DEFAULT NULL;",
+                        "ALTER TABLE plotmecore_metadata_v2 ADD COLUMN `blobValue` BLOB DEFAULT NULL;",
+                        "CREATE INDEX IF NOT EXISTS `metadataProperty_v2` ON plotmecore_metadata_v2(pluginName,propertyName,plot_id);"),
+                new SqlMigration(11, "Index plot names without regard to case",
+                        "CREATE INDEX IF NOT EXISTS `plotName` ON plotmecore_plots(plotName COLLATE NOCASE);",
+                        "CREATE INDEX IF NOT EXISTS `plotName_v2` ON plotmecore_plots_v2(plotName COLLATE NOCASE);"));
     }
 }
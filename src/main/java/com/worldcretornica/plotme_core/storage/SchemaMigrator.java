@@ -0,0 +1,162 @@
+package com.worldcretornica.plotme_core.storage;
+
+import com.worldcretornica.plotme_core.PlotMe_Core;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Applies the {@link Migration}s of a database that weren't applied yet, and records every applied version
+ * in the {@code plotmecore_schema_version} table.
+ *
+ * <p>Schema steps are applied in order at startup, each in its own transaction. MySQL commits every
+ * statement that changes a table, so there a failed step can be left half done; steps are written so they
+ * can run again over that. If one fails, the steps after it are left for the next start. Background steps
+ * are applied in order after startup, one after the other on their own connection, so their commits never
+ * take along writes of the server thread. The version of a background step is only recorded once it
+ * reports that it is complete.</p>
+ */
+public class SchemaMigrator {
+
+    private final PlotMe_Core plugin;
+    private final JdbcPlotStorage database;
+    private final List<Migration> migrations;
+
+    public SchemaMigrator(PlotMe_Core plugin, JdbcPlotStorage database, List<Migration> migrations) {
+        this.plugin = plugin;
+        this.database = database;
+        this.migrations = new ArrayList<>(migrations);
+        Collections.sort(this.migrations, new Comparator<Migration>() {
+            @Override
+            public int compare(Migration a, Migration b) {
+                return Integer.compare(a.getVersion(), b.getVersion());
+            }
+        });
+    }
+
+    /**
+     * Applies the schema steps that weren't applied yet.
+     */
+    public void migrateSchema() {
+        Connection connection = database.getConnection();
+        HashSet<Integer> applied;
+        try {
+            try (Statement statement = connection.createStatement()) {
+                statement.executeUpdate("CREATE TABLE IF NOT EXISTS plotmecore_schema_version ("
+                        + "version INTEGER NOT NULL PRIMARY KEY,"
+                        + "description VARCHAR(100) NOT NULL,"
+                        + "appliedAt BIGINT NOT NULL"
+                        + ");");
+            }
+            connection.commit();
+            applied = readApplied(connection);
+        } catch (SQLException e) {
+            plugin.getLogger().severe("Error reading the database version:");
+            plugin.getLogger().severe(e.getMessage());
+            return;
+        }
+        for (Migration migration : migrations) {
+            if (migration.isBackground() || applied.contains(migration.getVersion())) {
+                continue;
+            }
+            plugin.getLogger().info("Updating the database to version " + migration.getVersion() + ": " + migration.getDescription());
+            try {
+                migration.migrate(connection, new MigrationProgress(plugin.getLogger(), migration.getDescription()));
+                recordApplied(connection, migration);
+                connection.commit();
+            } catch (SQLException e) {
+                plugin.getLogger().severe("Error updating the database to version " + migration.getVersion() + ":");
+                plugin.getLogger().severe(e.getMessage());
+                try {
+                    connection.rollback();
+                } catch (SQLException ignored) {
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Starts the background steps that didn't complete yet. They run one after the other on an async task,
+     * after a minute so the plotworlds are loaded.
+     */
+    public void startBackgroundMigrations() {
+        final List<Migration> pending = new ArrayList<>();
+        try {
+            HashSet<Integer> applied = readApplied(database.getConnection());
+            for (Migration migration : migrations) {
+                if (migration.isBackground() && !applied.contains(migration.getVersion())) {
+                    pending.add(migration);
+                }
+            }
+        } catch (SQLException e) {
+            plugin.getLogger().severe("Error reading the database version:");
+            plugin.getLogger().severe(e.getMessage());
+            return;
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+        //20L * 60 = 1 minute in ticks
+        plugin.getServerBridge().runTaskLaterAsynchronously(new Runnable() {
+            @Override
+            public void run() {
+                Connection connection;
+                try {
+                    connection = database.openConnection();
+                } catch (SQLException e) {
+                    plugin.getLogger().severe("Could not open a database connection for the migrations, they will continue at the next start:");
+                    plugin.getLogger().severe(e.getMessage());
+                    return;
+                }
+                try {
+                    for (Migration migration : pending) {
+                        try {
+                            if (!migration.migrate(connection, new MigrationProgress(plugin.getLogger(), migration.getDescription()))) {
+                                return;
+                            }
+                            recordApplied(connection, migration);
+                            connection.commit();
+                        } catch (SQLException e) {
+                            plugin.getLogger().severe("Error in database migration " + migration.getVersion() + ", it will continue at the next start:");
+                            plugin.getLogger().severe(e.getMessage());
+                            JdbcPlotStorage.rollbackQuietly(connection);
+                            return;
+                        }
+                    }
+                } finally {
+                    database.closeQuietly(connection);
+                }
+            }
+        }, 20L * 60);
+    }
+
+    private HashSet<Integer> readApplied(Connection connection) throws SQLException {
+        HashSet<Integer> applied = new HashSet<>();
+        try (Statement statement = connection.createStatement();
+                ResultSet results = statement.executeQuery("SELECT version FROM plotmecore_schema_version")) {
+            while (results.next()) {
+                applied.add(results.getInt("version"));
+            }
+        }
+        return applied;
+    }
+
+    private void recordApplied(Connection connection, Migration migration) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(
+                "INSERT INTO plotmecore_schema_version (version, description, appliedAt) VALUES (?,?,?)")) {
+            ps.setInt(1, migration.getVersion());
+            ps.setString(2, migration.getDescription());
+            ps.setLong(3, System.currentTimeMillis());
+            ps.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,366 @@
+package com.worldcretornica.plotme_core.storage;
+
+import com.worldcretornica.plotme_core.PlotMe_Core;
+import com.worldcretornica.plotme_core.ProfileResolver;
+import com.worldcretornica.plotme_core.utils.UUIDs;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Copies the plots to the v2 tables, which store UUIDs as 16 bytes and worlds as ids of the {@code
+ * plotmecore_worlds} table, and switches the database to them when done.
+ *
+ * <p>The server keeps running while the plots are copied. Plots saved in the meantime are written to both
+ * layouts, so the copy skips rows that are already in the v2 tables. Plots are copied in pages ordered
+ * by internal id, and the id of the last copied plot is stored with every page, so the copy continues
+ * where it stopped after a restart. It only starts once the player names of the allowed and denied tables
+ * were converted to UUIDs.</p>
+ *
+ * <p>Owners without a UUID and entries that are still player names are looked up through the {@link
+ * ProfileResolver}. Names that no player has get the UUID the server gives that name in offline mode, so
+ * no entry is lost. If the lookup can't be done, the page isn't copied and the copy continues at the next
+ * start.</p>
+ *
+ * <p>The rows of a page are read before the UUIDs are looked up, which can take minutes. Every row is
+ * therefore inserted with an {@code INSERT ... SELECT} from the legacy table that only matches if the legacy
+ * row still exists, so a plot, member, like or metadata entry removed in the meantime isn't copied back.</p>
+ */
+public class SchemaV2Migration extends Migration {
+
+    static final int VERSION = 7;
+    static final String NAME = "schema:v2";
+    private static final int PAGE_SIZE = 200;
+    private static final long LOOKUP_TIMEOUT_MINUTES = 5;
+
+    private final PlotMe_Core plugin;
+    private final JdbcPlotStorage database;
+
+    public SchemaV2Migration(PlotMe_Core plugin, JdbcPlotStorage database) {
+        super(VERSION, "Copy plots to the v2 tables");
+        this.plugin = plugin;
+        this.database = database;
+    }
+
+    @Override
+    public boolean isBackground() {
+        return true;
+    }
+
+    @Override
+    public boolean migrate(Connection connection, MigrationProgress progress) throws SQLException {
+        if (database.isSchemaV2()) {
+            return true;
+        }
+        try {
+            if (!UUIDMigration.isDone(connection)) {
+                plugin.getLogger().info("The plots will be copied to the new tables once all player names were converted to UUIDs");
+                return false;
+            }
+            ProfileResolver resolver = plugin.getProfileResolver();
+            if (resolver == null) {
+                plugin.getLogger().warning("Player UUIDs can't be looked up, the plots will be copied at the next start");
+                return false;
+            }
+            long lastId = JdbcPlotStorage.readCheckpoint(connection, NAME);
+            if (lastId < 0) {
+                database.useSchemaV2();
+                return true;
+            }
+            plugin.getLogger().info("Copying plots to the new tables");
+            try (PreparedStatement ps = connection.prepareStatement("SELECT COUNT(*) FROM plotmecore_plots WHERE plot_id > ?")) {
+                ps.setLong(1, lastId);
+                try (ResultSet results = ps.executeQuery()) {
+                    progress.setTotal(results.next() ? results.getLong(1) : 0);
+                }
+            }
+            // Give every world its id before the copy, adding a world commits
+            try (Statement statement = connection.createStatement();
+                    ResultSet results = statement.executeQuery("SELECT DISTINCT world FROM plotmecore_plots")) {
+                while (results.next()) {
+                    database.getWorldId(connection, results.getString("world"));
+                }
+            }
+            int copied = 0;
+            int converted = 0;
+            List<Long> page;
+            while (!(page = readPage(connection, lastId)).isEmpty()) {
+                lastId = page.get(page.size() - 1);
+                progress.advance(page.size());
+                page.removeAll(readCopied(connection, page));
+                try {
+                    if (!page.isEmpty()) {
+                        String in = inList(page);
+                        HashSet<String> names = readLegacyNames(connection, in);
+                        Map<String, UUID> uuids = Collections.emptyMap();
+                        if (!names.isEmpty()) {
+                            uuids = resolver.resolveUniqueIds(names).get(LOOKUP_TIMEOUT_MINUTES, TimeUnit.MINUTES);
+                            converted += names.size();
+                        }
+                        copyPlots(connection, in, uuids);
+                        copyMembers(connection, "plotmecore_allowed", in, true, uuids);
+                        copyMembers(connection, "plotmecore_denied", in, false, uuids);
+                        copyLikes(connection, in, uuids);
+                        copyMetadata(connection, in);
+                    }
+                    JdbcPlotStorage.writeCheckpoint(connection, NAME, lastId, false);
+                    connection.commit();
+                } catch (SQLException e) {
+                    connection.rollback();
+                    throw e;
+                } catch (ExecutionException | TimeoutException | CancellationException e) {
+                    connection.rollback();
+                    plugin.getLogger().warning("Could not look up player UUIDs, the copy will continue at the next start");
+                    return false;
+                } catch (InterruptedException e) {
+                    connection.rollback();
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+                copied += page.size();
+            }
+            JdbcPlotStorage.writeCheckpoint(connection, NAME, lastId, true);
+            connection.commit();
+            database.useSchemaV2();
+            plugin.getLogger().info("Copied " + copied + " plots to the new tables");
+            if (converted > 0) {
+                plugin.getLogger().info("Looked up the UUIDs of " + converted + " player names");
+            }
+            return true;
+        } catch (SQLException e) {
+            plugin.getLogger().severe("Error copying plots to the new tables, the copy will continue at the next start:");
+            plugin.getLogger().severe(e.getMessage());
+            return false;
+        }
+    }
+
+    private List<Long> readPage(Connection connection, long afterId) throws SQLException {
+        List<Long> page = new ArrayList<>(PAGE_SIZE);
+        try (PreparedStatement ps = connection.prepareStatement(
+                "SELECT plot_id FROM plotmecore_plots WHERE plot_id > ? ORDER BY plot_id LIMIT " + PAGE_SIZE)) {
+            ps.setLong(1, afterId);
+            try (ResultSet results = ps.executeQuery()) {
+                while (results.next()) {
+                    page.add(results.getLong("plot_id"));
+                }
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Finds the plots of a page that are in the v2 tables already, because they were saved during the copy.
+     */
+    private HashSet<Long> readCopied(Connection connection, List<Long> page) throws SQLException {
+        HashSet<Long> copied = new HashSet<>();
+        try (Statement statement = connection.createStatement();
+                ResultSet results = statement.executeQuery("SELECT plot_id FROM plotmecore_plots_v2 WHERE plot_id IN (" + inList(page) + ")")) {
+            while (results.next()) {
+                copied.add(results.getLong("plot_id"));
+            }
+        }
+        return copied;
+    }
+
+    /**
+     * Collects the player names of a page that have to be looked up: owners without a UUID, and allowed,
+     * denied and like entries that aren't UUIDs.
+     */
+    private HashSet<String> readLegacyNames(Connection connection, String in) throws SQLException {
+        HashSet<String> names = new HashSet<>();
+        try (Statement statement = connection.createStatement()) {
+            try (ResultSet results = statement.executeQuery("SELECT ownerID, owner FROM plotmecore_plots WHERE plot_id IN (" + in + ")")) {
+                while (results.next()) {
+                    if (parse(results.getString("ownerID")) == null) {
+                        names.add(results.getString("owner"));
+                    }
+                }
+            }
+            for (String table : new String[]{"plotmecore_allowed", "plotmecore_denied", "plotmecore_likes"}) {
+                try (ResultSet results = statement.executeQuery("SELECT player FROM " + table + " WHERE plot_id IN (" + in + ")")) {
+                    while (results.next()) {
+                        String player = results.getString("player");
+                        if (!"*".equals(player) && parse(player) == null) {
+                            names.add(player);
+                        }
+                    }
+                }
+            }
+        }
+        return names;
+    }
+
+    private void copyPlots(Connection connection, String in, Map<String, UUID> uuids) throws SQLException {
+        try (Statement statement = connection.createStatement();
+                ResultSet results = statement.executeQuery("SELECT * FROM plotmecore_plots WHERE plot_id IN (" + in + ")");
+                PreparedStatement ps = connection.prepareStatement(
+                        database.insertIgnore() + " INTO plotmecore_plots_v2(plot_id, world_id, plotX, plotZ, ownerID, owner, biome, finished, finishedDate, "
+                                + "forSale, price, protected, expiredDate, topX, topZ, bottomX, bottomZ, plotName, plotLikes, createdDate, expiredAt) "
+                                + "SELECT ?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,? FROM plotmecore_plots WHERE plot_id = ?")) {
+            while (results.next()) {
+                String owner = results.getString("owner");
+                ps.setLong(1, results.getLong("plot_id"));
+                ps.setInt(2, database.getWorldId(connection, results.getString("world")));
+                ps.setInt(3, results.getInt("plotX"));
+                ps.setInt(4, results.getInt("plotZ"));
+                UUID ownerId = parse(results.getString("ownerID"));
+                ps.setBytes(5, UUIDs.toBytes(ownerId == null ? lookedUp(uuids, owner) : ownerId));
+                ps.setString(6, owner);
+                ps.setString(7, results.getString("biome"));
+                ps.setBoolean(8, results.getBoolean("finished"));
+                ps.setString(9, results.getString("finishedDate"));
+                ps.setBoolean(10, results.getBoolean("forSale"));
+                ps.setDouble(11, results.getDouble("price"));
+                ps.setBoolean(12, results.getBoolean("protected"));
+                Date expiredDate = results.getDate("expiredDate");
+                ps.setDate(13, expiredDate);
+                ps.setInt(14, results.getInt("topX"));
+                ps.setInt(15, results.getInt("topZ"));
+                ps.setInt(16, results.getInt("bottomX"));
+                ps.setInt(17, results.getInt("bottomZ"));
+                ps.setString(18, results.getString("plotName"));
+                ps.setInt(19, results.getInt("plotLikes"));
+                ps.setString(20, results.getString("createdDate"));
+                ps.setObject(21, expiredDate == null ? null : expiredDate.getTime(), Types.BIGINT);
+                ps.setLong(22, results.getLong("plot_id"));
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    /**
+     * Copies allowed or denied entries. Entries that are player names get the looked up UUID.
+     */
+    private void copyMembers(Connection connection, String table, String in, boolean allowed, Map<String, UUID> uuids) throws SQLException {
+        HashSet<String> seen = new HashSet<>();
+        String insert = database.insertIgnore() + (allowed ? " INTO plotmecore_allowed_v2 (plot_id, player, access) SELECT ?,?,?"
+                : " INTO plotmecore_denied_v2 (plot_id, player) SELECT ?,?") + " FROM " + table + " WHERE plot_id = ? AND player = ?";
+        try (Statement statement = connection.createStatement();
+                ResultSet results = statement.executeQuery("SELECT * FROM " + table + " WHERE plot_id IN (" + in + ")");
+                PreparedStatement ps = connection.prepareStatement(insert)) {
+            while (results.next()) {
+                long plotId = results.getLong("plot_id");
+                String player = results.getString("player");
+                byte[] bytes = JdbcPlotStorage.toPlayerBytes(player);
+                if (bytes == null) {
+                    bytes = UUIDs.toBytes(lookedUp(uuids, player));
+                }
+                if (!seen.add(plotId + ":" + UUIDs.fromBytes(bytes))) {
+                    continue;
+                }
+                int index = 1;
+                ps.setLong(index++, plotId);
+                ps.setBytes(index++, bytes);
+                if (allowed) {
+                    ps.setInt(index++, results.getInt("access"));
+                }
+                ps.setLong(index++, plotId);
+                ps.setString(index, player);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    private void copyLikes(Connection connection, String in, Map<String, UUID> uuids) throws SQLException {
+        HashSet<String> seen = new HashSet<>();
+        try (Statement statement = connection.createStatement();
+                ResultSet results = statement.executeQuery("SELECT plot_id, player FROM plotmecore_likes WHERE plot_id IN (" + in + ")");
+                PreparedStatement ps = connection.prepareStatement(database.insertIgnore()
+                        + " INTO plotmecore_likes_v2 (plot_id, player) SELECT ?,? FROM plotmecore_likes WHERE plot_id = ? AND player = ?")) {
+            while (results.next()) {
+                long plotId = results.getLong("plot_id");
+                String player = results.getString("player");
+                UUID uuid = parse(player);
+                if (uuid == null) {
+                    uuid = lookedUp(uuids, player);
+                }
+                if (seen.add(plotId + ":" + uuid)) {
+                    ps.setLong(1, plotId);
+                    ps.setBytes(2, UUIDs.toBytes(uuid));
+                    ps.setLong(3, plotId);
+                    ps.setString(4, player);
+                    ps.addBatch();
+                }
+            }
+            ps.executeBatch();
+        }
+    }
+
+    private void copyMetadata(Connection connection, String in) throws SQLException {
+        HashSet<String> seen = new HashSet<>();
+        try (Statement statement = connection.createStatement();
+                ResultSet results = statement.executeQuery(
+                        "SELECT id, plot_id, pluginName, propertyName, propertyValue FROM plotmecore_metadata WHERE plot_id IN (" + in + ") ORDER BY id DESC");
+                PreparedStatement ps = connection.prepareStatement(
+                        database.insertIgnore() + " INTO plotmecore_metadata_v2 (plot_id, pluginName, propertyName, propertyValue) "
+                                + "SELECT ?,?,?,? FROM plotmecore_metadata WHERE id = ?")) {
+            while (results.next()) {
+                long plotId = results.getLong("plot_id");
+                String pluginName = results.getString("pluginName");
+                String propertyName = results.getString("propertyName");
+                // Newest row first, older duplicates are dropped
+                if (seen.add(plotId + ":" + pluginName + ":" + propertyName)) {
+                    ps.setLong(1, plotId);
+                    ps.setString(2, pluginName);
+                    ps.setString(3, propertyName);
+                    ps.setString(4, results.getString("propertyValue"));
+                    ps.setLong(5, results.getLong("id"));
+                    ps.addBatch();
+                }
+            }
+            ps.executeBatch();
+        }
+    }
+
+    private static UUID parse(String uuid) {
+        if (uuid == null) {
+            return null;
+        }
+        try {
+            return UUID.fromString(uuid);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Gets the UUID of a player name that was looked up. Names that no player has get the UUID the server
+     * gives that name in offline mode.
+     */
+    private static UUID lookedUp(Map<String, UUID> uuids, String name) {
+        UUID uuid = uuids.get(name);
+        if (uuid != null) {
+            return uuid;
+        }
+        return UUID.nameUUIDFromBytes(("OfflinePlayer:" + name).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String inList(List<Long> ids) {
+        StringBuilder in = new StringBuilder();
+        for (Long id : ids) {
+            if (in.length() > 0) {
+                in.append(',');
+            }
+            in.append(id);
+        }
+        return in.toString();
+    }
+}
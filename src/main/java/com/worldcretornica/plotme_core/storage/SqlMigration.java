@@ -0,0 +1,71 @@
+package com.worldcretornica.plotme_core.storage;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A schema step that runs a fixed list of SQL statements.
+ *
+ * <p>MySQL commits after every statement that changes a table, so a step that failed half way can't be
+ * rolled back there and runs again from the start. Statements that add one column or one index, like
+ * {@code ALTER TABLE t ADD COLUMN c ...} or {@code ALTER TABLE t ADD INDEX i ...}, are skipped if the column
+ * or index is there already. All other statements must be safe to run twice.</p>
+ */
+public class SqlMigration extends Migration {
+
+    private static final Pattern ADD_COLUMN = Pattern.compile("ALTER TABLE `?(\\w+)`? ADD COLUMN `?(\\w+)`?[^,]*", Pattern.CASE_INSENSITIVE);
+    private static final Pattern ADD_INDEX = Pattern.compile("ALTER TABLE `?(\\w+)`? ADD INDEX `?(\\w+)`? *\\([^)]*\\);?", Pattern.CASE_INSENSITIVE);
+
+    private final String[] statements;
+
+    public SqlMigration(int version, String description, String... statements) {
+        super(version, description);
+        this.statements = statements;
+    }
+
+    @Override
+    public boolean migrate(Connection connection, MigrationProgress progress) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : statements) {
+                if (!isApplied(connection, sql)) {
+                    statement.executeUpdate(sql);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks if a statement that adds a column or an index was run before.
+     */
+    private static boolean isApplied(Connection connection, String sql) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        Matcher column = ADD_COLUMN.matcher(sql.trim());
+        if (column.matches()) {
+            try (ResultSet results = metaData.getColumns(connection.getCatalog(), null, column.group(1), null)) {
+                return contains(results, "COLUMN_NAME", column.group(2));
+            }
+        }
+        Matcher index = ADD_INDEX.matcher(sql.trim());
+        if (index.matches()) {
+            try (ResultSet results = metaData.getIndexInfo(connection.getCatalog(), null, index.group(1), false, false)) {
+                return contains(results, "INDEX_NAME", index.group(2));
+            }
+        }
+        return false;
+    }
+
+    private static boolean contains(ResultSet results, String label, String name) throws SQLException {
+        while (results.next()) {
+            if (name.equalsIgnoreCase(results.getString(label))) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
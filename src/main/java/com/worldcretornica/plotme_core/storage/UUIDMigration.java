@@ -0,0 +1,319 @@
+package com.worldcretornica.plotme_core.storage;
+
+import com.google.common.util.concurrent.RateLimiter;
+import com.worldcretornica.plotme_core.Plot;
+import com.worldcretornica.plotme_core.PlotId;
+import com.worldcretornica.plotme_core.PlotMeCoreManager;
+import com.worldcretornica.plotme_core.PlotMe_Core;
+import com.worldcretornica.plotme_core.ProfileResolver;
+import com.worldcretornica.plotme_core.api.IWorld;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Replaces the player names left in the allowed and denied tables by plots from before UUIDs with the UUIDs
+ * of those players.
+ *
+ * <p>Rows are read in pages ordered by id, names are looked up in bulk through the {@link
+ * com.worldcretornica.plotme_core.ProfileResolver}, and every page is rewritten in one transaction together
+ * with the id of its last row. If the job is stopped it continues after that row the next time it runs.
+ * The number of rows handled per second is capped so the job doesn't compete with the server for the
+ * database. Names that no player has are left as they are. If the profile API doesn't answer within
+ * {@value #LOOKUP_TIMEOUT_MINUTES} minutes, the job stops and continues at the next start.</p>
+ */
+public class UUIDMigration extends Migration {
+
+    static final int VERSION = 6;
+    private static final int PAGE_SIZE = 500;
+    private static final long LOOKUP_TIMEOUT_MINUTES = 5;
+    private static final String[] TABLES = {"plotmecore_allowed", "plotmecore_denied"};
+
+    private final PlotMe_Core plugin;
+    private final JdbcPlotStorage database;
+    private final RateLimiter rowLimiter;
+
+    public UUIDMigration(PlotMe_Core plugin, JdbcPlotStorage database, double rowsPerSecond) {
+        super(VERSION, "Convert player names to UUIDs");
+        this.plugin = plugin;
+        this.database = database;
+        this.rowLimiter = RateLimiter.create(rowsPerSecond);
+    }
+
+    /**
+     * Checks if the allowed and denied tables were converted completely.
+     *
+     * @param connection a connection to the database
+     * @return true if no player names are left to convert
+     */
+    static boolean isDone(Connection connection) throws SQLException {
+        for (String table : TABLES) {
+            if (JdbcPlotStorage.readCheckpoint(connection, migrationName(table)) >= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean isBackground() {
+        return true;
+    }
+
+    @Override
+    public boolean migrate(Connection connection, MigrationProgress progress) throws SQLException {
+        if (database.isSchemaV2()) {
+            return true;
+        }
+        ProfileResolver resolver = plugin.getProfileResolver();
+        if (resolver == null) {
+            plugin.getLogger().warning("Player UUIDs can't be looked up, the conversion will continue at the next start");
+            return false;
+        }
+        long total = 0;
+        for (String table : TABLES) {
+            total += countRemaining(connection, table);
+        }
+        progress.setTotal(total);
+        for (String table : TABLES) {
+            try {
+                migrate(connection, resolver, table, progress);
+            } catch (ExecutionException e) {
+                plugin.getLogger().warning("Could not look up player UUIDs, the conversion will continue at the next start: " + e.getCause()
+                        .getMessage());
+                return false;
+            } catch (TimeoutException | CancellationException e) {
+                plugin.getLogger().warning("The player UUID lookup didn't finish, the conversion will continue at the next start");
+                return false;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long countRemaining(Connection connection, String table) throws SQLException {
+        long lastId = JdbcPlotStorage.readCheckpoint(connection, migrationName(table));
+        if (lastId < 0) {
+            return 0;
+        }
+        try (PreparedStatement ps = connection.prepareStatement("SELECT COUNT(*) FROM " + table + " WHERE id > ?")) {
+            ps.setLong(1, lastId);
+            try (ResultSet results = ps.executeQuery()) {
+                return results.next() ? results.getLong(1) : 0;
+            }
+        }
+    }
+
+    private void migrate(Connection connection, ProfileResolver resolver, String table, MigrationProgress progress)
+            throws SQLException, ExecutionException, InterruptedException, TimeoutException {
+        long lastId = JdbcPlotStorage.readCheckpoint(connection, migrationName(table));
+        if (lastId < 0) {
+            return;
+        }
+        int converted = 0;
+        List<Row> page;
+        while (!(page = readPage(connection, table, lastId)).isEmpty()) {
+            rowLimiter.acquire(page.size());
+            HashSet<String> names = new HashSet<>();
+            for (Row row : page) {
+                if (row.isLegacy()) {
+                    names.add(row.player);
+                }
+            }
+            Map<String, UUID> uuids = Collections.emptyMap();
+            if (!names.isEmpty()) {
+                uuids = resolver.resolveUniqueIds(names).get(LOOKUP_TIMEOUT_MINUTES, TimeUnit.MINUTES);
+            }
+            lastId = page.get(page.size() - 1).id;
+            converted += rewrite(connection, table, page, uuids, lastId);
+            progress.advance(page.size());
+        }
+        JdbcPlotStorage.writeCheckpoint(connection, migrationName(table), lastId, true);
+        connection.commit();
+        if (converted > 0) {
+            plugin.getLogger().info("Converted " + converted + " player names to UUIDs in " + table);
+        }
+    }
+
+    private List<Row> readPage(Connection connection, String table, long afterId) throws SQLException {
+        List<Row> page = new ArrayList<>(PAGE_SIZE);
+        try (PreparedStatement ps = connection.prepareStatement(
+                "SELECT t.id, t.plot_id, t.player, p.world, p.plotX, p.plotZ FROM " + table + " t "
+                        + "LEFT JOIN plotmecore_plots p ON p.plot_id = t.plot_id WHERE t.id > ? ORDER BY t.id LIMIT " + PAGE_SIZE)) {
+            ps.setLong(1, afterId);
+            try (ResultSet results = ps.executeQuery()) {
+                while (results.next()) {
+                    page.add(new Row(results.getLong("id"), results.getLong("plot_id"), results.getString("player"), results.getString("world"),
+                            results.getInt("plotX"), results.getInt("plotZ")));
+                }
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Rewrites the rows of a page that have a known name, in one transaction with the checkpoint. A row is
+     * deleted instead if the plot already has a row for the UUID.
+     *
+     * @return number of rows rewritten
+     */
+    private int rewrite(Connection connection, String table, List<Row> page, Map<String, UUID> uuids, long lastId) throws SQLException {
+        List<Row> changed = new ArrayList<>();
+        HashSet<Long> plotIds = new HashSet<>();
+        for (Row row : page) {
+            UUID uuid = row.isLegacy() ? uuids.get(row.player) : null;
+            if (uuid != null) {
+                row.uuid = uuid.toString();
+                changed.add(row);
+                plotIds.add(row.plotId);
+            }
+        }
+        try {
+            if (!changed.isEmpty()) {
+                HashSet<String> existing = readPlayers(connection, table, plotIds);
+                try (PreparedStatement update = connection.prepareStatement("UPDATE " + table + " SET player = ? WHERE id = ?");
+                        PreparedStatement delete = connection.prepareStatement("DELETE FROM " + table + " WHERE id = ?")) {
+                    for (Row row : changed) {
+                        if (existing.add(row.plotId + ":" + row.uuid)) {
+                            update.setString(1, row.uuid);
+                            update.setLong(2, row.id);
+                            update.addBatch();
+                        } else {
+                            delete.setLong(1, row.id);
+                            delete.addBatch();
+                        }
+                    }
+                    update.executeBatch();
+                    delete.executeBatch();
+                }
+            }
+            if (!changed.isEmpty()) {
+                // Snapshots of the plot cache still hold the names
+                try (Statement statement = connection.createStatement()) {
+                    statement.executeUpdate("DELETE FROM plotmecore_cache_stamps");
+                }
+            }
+            JdbcPlotStorage.writeCheckpoint(connection, migrationName(table), lastId, false);
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        }
+        if (!changed.isEmpty()) {
+            patchLoadedPlots("plotmecore_allowed".equals(table), changed);
+        }
+        return changed.size();
+    }
+
+    private HashSet<String> readPlayers(Connection connection, String table, HashSet<Long> plotIds) throws SQLException {
+        StringBuilder in = new StringBuilder();
+        for (Long plotId : plotIds) {
+            if (in.length() > 0) {
+                in.append(',');
+            }
+            in.append(plotId);
+        }
+        HashSet<String> players = new HashSet<>();
+        try (Statement statement = connection.createStatement();
+                ResultSet results = statement.executeQuery("SELECT plot_id, player FROM " + table + " WHERE plot_id IN (" + in + ")")) {
+            while (results.next()) {
+                players.add(results.getLong("plot_id") + ":" + results.getString("player"));
+            }
+        }
+        return players;
+    }
+
+    /**
+     * Applies the new UUIDs to the plots that are already loaded, on the main thread. Plots that aren't
+     * loaded are left alone, they get the UUIDs from the database when they are.
+     */
+    private void patchLoadedPlots(final boolean allowed, final List<Row> changed) {
+        plugin.getServerBridge().runTask(new Runnable() {
+            @Override
+            public void run() {
+                for (Row row : changed) {
+                    IWorld world = findWorld(row.world);
+                    Plot plot = world == null ? null : plugin.getSqlManager().getLoadedPlot(new PlotId(row.plotX, row.plotZ), world);
+                    if (plot == null) {
+                        continue;
+                    }
+                    plugin.getSqlManager().changed(world);
+                    if (allowed) {
+                        Plot.AccessLevel level = plot.removeMemberAccess(row.player);
+                        if (level != null && !plot.getMemberLevels().containsKey(row.uuid)) {
+                            plot.addMember(row.uuid, level);
+                        }
+                    } else if (plot.removeDeniedPlayer(row.player)) {
+                        plot.addDenied(row.uuid);
+                    }
+                }
+            }
+        });
+    }
+
+    private IWorld findWorld(String name) {
+        if (name == null) {
+            return null;
+        }
+        for (IWorld world : PlotMeCoreManager.getInstance().getPlotMaps().keySet()) {
+            if (world.getName().equalsIgnoreCase(name)) {
+                return world;
+            }
+        }
+        return null;
+    }
+
+    private static String migrationName(String table) {
+        return "uuid:" + table;
+    }
+
+    private static final class Row {
+
+        private final long id;
+        private final long plotId;
+        private final String player;
+        private final String world;
+        private final int plotX;
+        private final int plotZ;
+        private String uuid;
+
+        private Row(long id, long plotId, String player, String world, int plotX, int plotZ) {
+            this.id = id;
+            this.plotId = plotId;
+            this.player = player;
+            this.world = world;
+            this.plotX = plotX;
+            this.plotZ = plotZ;
+        }
+
+        /**
+         * Checks if the row holds a player name rather than a UUID or the wildcard.
+         */
+        private boolean isLegacy() {
+            if ("*".equals(player)) {
+                return false;
+            }
+            try {
+                UUID.fromString(player);
+                return false;
+            } catch (IllegalArgumentException e) {
+                return true;
+            }
+        }
+    }
+}
@@ -54,7 +54,6 @@ public class ChunkEntry {
                 }
             }
         }
-        world.refreshChunk(chunk.getX(), chunk.getZ());
-
+        // The chunks of the plot are refreshed together once the plot is cleared, see PlotMeSpool
     }
 }
@@ -0,0 +1,109 @@
+package com.worldcretornica.plotme_core.utils;
+
+import java.util.TimeZone;
+
+/**
+ * Calendar dates stored as the number of days since 1970-01-01, the way plots keep their creation and
+ * finish dates. Conversions don't allocate anything besides the formatted string and are safe to use from
+ * any thread.
+ */
+public final class EpochDays {
+
+    /**
+     * Stands for a missing or unreadable date.
+     */
+    public static final int NONE = Integer.MIN_VALUE;
+
+    private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+
+    private EpochDays() {
+    }
+
+    /**
+     * Gets the current date in the time zone of the server.
+     *
+     * @return today, in days since 1970-01-01
+     */
+    public static int today() {
+        long now = System.currentTimeMillis();
+        long local = now + TimeZone.getDefault().getOffset(now);
+        long day = local / MILLIS_PER_DAY;
+        return (int) (local < 0 && local % MILLIS_PER_DAY != 0 ? day - 1 : day);
+    }
+
+    /**
+     * Reads a date written as {@code yyyy-MM-dd}.
+     *
+     * @param date the date, may be null
+     * @return the date in days since 1970-01-01, or {@link #NONE} if it is null or not a date
+     */
+    public static int parse(String date) {
+        if (date == null || date.length() != 10 || date.charAt(4) != '-' || date.charAt(7) != '-') {
+            return NONE;
+        }
+        int year = digits(date, 0, 4);
+        int month = digits(date, 5, 7);
+        int day = digits(date, 8, 10);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > 31) {
+            return NONE;
+        }
+        return fromCivil(year, month, day);
+    }
+
+    /**
+     * Writes a date as {@code yyyy-MM-dd}.
+     *
+     * @param epochDay date in days since 1970-01-01
+     * @return the date, or null if it is {@link #NONE}
+     */
+    public static String format(int epochDay) {
+        if (epochDay == NONE) {
+            return null;
+        }
+        // Civil date from days, see http://howardhinnant.github.io/date_algorithms.html
+        int z = epochDay + 719468;
+        int era = (z >= 0 ? z : z - 146096) / 146097;
+        int dayOfEra = z - era * 146097;
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int monthIndex = (5 * dayOfYear + 2) / 153;
+        int day = dayOfYear - (153 * monthIndex + 2) / 5 + 1;
+        int month = monthIndex < 10 ? monthIndex + 3 : monthIndex - 9;
+        int year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        char[] chars = new char[10];
+        write(chars, 0, year, 4);
+        chars[4] = '-';
+        write(chars, 5, month, 2);
+        chars[7] = '-';
+        write(chars, 8, day, 2);
+        return new String(chars);
+    }
+
+    private static int fromCivil(int year, int month, int day) {
+        year -= month <= 2 ? 1 : 0;
+        int era = (year >= 0 ? year : year - 399) / 400;
+        int yearOfEra = year - era * 400;
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    private static int digits(String text, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static void write(char[] chars, int offset, int value, int width) {
+        for (int i = offset + width - 1; i >= offset; i--) {
+            chars[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.worldcretornica.plotme_core.utils;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+/**
+ * One shared copy of the strings that repeat across plots: biomes, owner names, member and denied player
+ * ids and metadata keys. Copies nobody uses any more are collected.
+ */
+public final class StringPool {
+
+    private static final Interner<String> STRINGS = Interners.newWeakInterner();
+
+    private StringPool() {
+    }
+
+    /**
+     * Gets the shared copy of a string.
+     *
+     * @param string the string, may be null
+     * @return the shared copy, or null if the string is null
+     */
+    public static String intern(String string) {
+        return string == null ? null : STRINGS.intern(string);
+    }
+}
@@ -0,0 +1,51 @@
+package com.worldcretornica.plotme_core.utils;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+/**
+ * Conversions between UUIDs and the forms they are stored and sent in.
+ */
+public final class UUIDs {
+
+    private UUIDs() {
+    }
+
+    public static byte[] toBytes(UUID uuid) {
+        ByteBuffer byteBuffer = ByteBuffer.wrap(new byte[16]);
+        byteBuffer.putLong(uuid.getMostSignificantBits());
+        byteBuffer.putLong(uuid.getLeastSignificantBits());
+        return byteBuffer.array();
+    }
+
+    public static UUID fromBytes(byte[] array) {
+        if (array.length != 16) {
+            throw new IllegalArgumentException("Illegal byte array length: " + array.length);
+        }
+        ByteBuffer byteBuffer = ByteBuffer.wrap(array);
+        long mostSignificant = byteBuffer.getLong();
+        long leastSignificant = byteBuffer.getLong();
+        return new UUID(mostSignificant, leastSignificant);
+    }
+
+    /**
+     * Parses a UUID written without dashes, as the Mojang API sends them.
+     *
+     * @param id 32 hexadecimal digits
+     * @return the UUID
+     */
+    public static UUID fromTrimmed(String id) {
+        return UUID.fromString(id.substring(0, 8) + "-" + id.substring(8, 12) + "-" + id.substring(12, 16) + "-" + id.substring(16, 20) + "-" + id
+                .substring(20, 32));
+    }
+
+    /**
+     * Writes a UUID without dashes, as the Mojang API expects them.
+     *
+     * @param uuid the UUID
+     * @return 32 hexadecimal digits
+     */
+    public static String toTrimmed(UUID uuid) {
+        return uuid.toString().replace("-", "");
+    }
+}
@@ -0,0 +1,66 @@
+package com.worldcretornica.plotme_core.utils;
+
+import com.worldcretornica.plotme_core.api.IWorld;
+
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Gives every world a small, non-negative index that stays the same until the server shuts down, even if
+ * the world is unloaded and loaded again. The index is what {@link WorldTable} stores its values by.
+ *
+ * <p>The world wrappers of PlotMe implement {@link Indexed} and keep their index, so looking it up is a
+ * field read. Any other {@link IWorld} is looked up by its UUID.</p>
+ */
+public final class WorldIndex {
+
+    private static final ConcurrentHashMap<UUID, Integer> INDEXES = new ConcurrentHashMap<>();
+
+    private WorldIndex() {
+    }
+
+    /**
+     * Gets the index of a world.
+     *
+     * @param world the world
+     * @return the index of the world
+     */
+    public static int of(IWorld world) {
+        if (world instanceof Indexed) {
+            return ((Indexed) world).getIndex();
+        }
+        return of(world.getUUID());
+    }
+
+    /**
+     * Gets the index of a world, giving it the next free index if it has none yet.
+     *
+     * @param uuid UUID of the world
+     * @return the index of the world
+     */
+    public static int of(UUID uuid) {
+        Integer index = INDEXES.get(uuid);
+        if (index != null) {
+            return index;
+        }
+        synchronized (INDEXES) {
+            index = INDEXES.get(uuid);
+            if (index == null) {
+                index = INDEXES.size();
+                INDEXES.put(uuid, index);
+            }
+            return index;
+        }
+    }
+
+    /**
+     * A world that knows its index. Implementations must return {@link #of(UUID)} of their world UUID.
+     */
+    public interface Indexed {
+
+        /**
+         * @return the index of the world
+         */
+        int getIndex();
+    }
+}
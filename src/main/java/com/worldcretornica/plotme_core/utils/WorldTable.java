@@ -0,0 +1,167 @@
+package com.worldcretornica.plotme_core.utils;
+
+import com.worldcretornica.plotme_core.api.IWorld;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A map from worlds to values, stored in an array indexed by {@link WorldIndex}.
+ *
+ * <p>Lookups are a bounds check and an array read and never lock, for the worlds of
+ * PlotMe's own wrappers. Changes copy the arrays, which is
+ * cheap because worlds are only added and removed when they are loaded or unloaded. Iteration works
+ * on a snapshot taken when the iterator is created. Null values are not permitted.</p>
+ *
+ * @param <V> value type
+ */
+public class WorldTable<V> extends AbstractMap<IWorld, V> {
+
+    private static final IWorld[] NO_WORLDS = new IWorld[0];
+    private static final Object[] NO_VALUES = new Object[0];
+
+    private volatile Table table = new Table(NO_WORLDS, NO_VALUES, 0);
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        if (!(key instanceof IWorld)) {
+            return null;
+        }
+        int index = WorldIndex.of((IWorld) key);
+        Object[] values = table.values;
+        if (index < 0 || index >= values.length) {
+            return null;
+        }
+        return (V) values[index];
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public int size() {
+        return table.size;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public synchronized V put(IWorld key, V value) {
+        if (value == null) {
+            throw new NullPointerException("value");
+        }
+        Table current = table;
+        int index = WorldIndex.of(key);
+        int length = Math.max(current.values.length, index + 1);
+        IWorld[] worlds = Arrays.copyOf(current.worlds, length);
+        Object[] values = Arrays.copyOf(current.values, length);
+        V previous = (V) values[index];
+        worlds[index] = key;
+        values[index] = value;
+        table = new Table(worlds, values, previous == null ? current.size + 1 : current.size);
+        return previous;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public synchronized V remove(Object key) {
+        if (!(key instanceof IWorld)) {
+            return null;
+        }
+        Table current = table;
+        int index = WorldIndex.of((IWorld) key);
+        if (index < 0 || index >= current.values.length || current.values[index] == null) {
+            return null;
+        }
+        IWorld[] worlds = current.worlds.clone();
+        Object[] values = current.values.clone();
+        V previous = (V) values[index];
+        worlds[index] = null;
+        values[index] = null;
+        table = new Table(worlds, values, current.size - 1);
+        return previous;
+    }
+
+    @Override
+    public synchronized void clear() {
+        table = new Table(NO_WORLDS, NO_VALUES, 0);
+    }
+
+    @Override
+    public Set<Entry<IWorld, V>> entrySet() {
+        return new AbstractSet<Entry<IWorld, V>>() {
+            @Override
+            public Iterator<Entry<IWorld, V>> iterator() {
+                return new EntryIterator(table);
+            }
+
+            @Override
+            public int size() {
+                return table.size;
+            }
+        };
+    }
+
+    private static final class Table {
+
+        private final IWorld[] worlds;
+        private final Object[] values;
+        private final int size;
+
+        private Table(IWorld[] worlds, Object[] values, int size) {
+            this.worlds = worlds;
+            this.values = values;
+            this.size = size;
+        }
+    }
+
+    private final class EntryIterator implements Iterator<Entry<IWorld, V>> {
+
+        private final Table snapshot;
+        private int next;
+        private int last = -1;
+
+        private EntryIterator(Table snapshot) {
+            this.snapshot = snapshot;
+            advance(0);
+        }
+
+        private void advance(int from) {
+            next = from;
+            while (next < snapshot.values.length && snapshot.values[next] == null) {
+                next++;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < snapshot.values.length;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Entry<IWorld, V> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            last = next;
+            advance(next + 1);
+            return new SimpleImmutableEntry<>(snapshot.worlds[last], (V) snapshot.values[last]);
+        }
+
+        @Override
+        public void remove() {
+            if (last == -1) {
+                throw new IllegalStateException();
+            }
+            WorldTable.this.remove(snapshot.worlds[last]);
+            last = -1;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.worldcretornica.plotme_core;
+
+import com.worldcretornica.plotme_core.api.IBlock;
+import com.worldcretornica.plotme_core.api.IEntity;
+import com.worldcretornica.plotme_core.api.IWorld;
+import com.worldcretornica.plotme_core.api.IWorldBorder;
+import com.worldcretornica.plotme_core.api.Vector;
+import org.bukkit.Location;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.EntityType;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+/**
+ * Worlds and plots for tests that run without a server.
+ */
+public final class PlotFixtures {
+
+    /**
+     * Width of the plots of the test worlds, roads included.
+     */
+    public static final int PLOT_SIZE = 32;
+
+    private PlotFixtures() {
+    }
+
+    /**
+     * Installs a plugin that computes the geometry of a plot from its id, so plots can be read from a storage
+     * without a generator. The plugin logs to the {@code PlotMe} logger and has an empty config.
+     *
+     * @return the plugin
+     */
+    public static PlotMe_Core installPlugin() {
+        PlotMe_Core plugin = new PlotMe_Core() {
+            private final YamlConfiguration config = new YamlConfiguration();
+
+            @Override
+            public PlotGeometryCache getGeometryCache(IWorld world) {
+                return new PlotGeometryCache(world, null) {
+                    @Override
+                    public PlotGeometry get(PlotId id) {
+                        return geometry(id);
+                    }
+                };
+            }
+
+            @Override
+            public Logger getLogger() {
+                return Logger.getLogger("PlotMe");
+            }
+
+            @Override
+            public YamlConfiguration getConfig() {
+                return config;
+            }
+        };
+        PlotMeCoreManager.getInstance().setPlugin(plugin);
+        return plugin;
+    }
+
+    public static PlotGeometry geometry(PlotId id) {
+        int x = id.getX() * PLOT_SIZE;
+        int z = id.getZ() * PLOT_SIZE;
+        return new PlotGeometry(id, new Vector(x, 0, z), new Vector(x + PLOT_SIZE - 1, 255, z + PLOT_SIZE - 1));
+    }
+
+    /**
+     * Creates an unclaimed plot, as when a player claims it.
+     */
+    public static Plot plot(IWorld world, int x, int z, UUID owner) {
+        return new Plot("Owner", owner, world, geometry(new PlotId(x, z)));
+    }
+
+    /**
+     * Creates a world that only has a name. Worlds with the same name are equal.
+     */
+    public static IWorld world(final String name) {
+        final UUID uuid = UUID.nameUUIDFromBytes(name.getBytes());
+        return new IWorld() {
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public File getWorldFolder() {
+                return null;
+            }
+
+            @Override
+            public UUID getUUID() {
+                return uuid;
+            }
+
+            @Override
+            public void refreshChunk(int x, int z) {
+            }
+
+            @Override
+            public boolean isChunkLoaded(int x, int z) {
+                return false;
+            }
+
+            @Override
+            public IBlock getBlockAt(int x, int y, int z) {
+                return null;
+            }
+
+            @Override
+            public IWorldBorder getWorldBorder() {
+                return null;
+            }
+
+            @Override
+            public IBlock getBlockAt(Vector add) {
+                return null;
+            }
+
+            @Override
+            public void getBiome(Vector position) {
+            }
+
+            @Override
+            public List<IEntity> getEntities() {
+                return Collections.emptyList();
+            }
+
+            @Override
+            public Entity spawnEntity(Location etloc, EntityType entitytype) {
+                return null;
+            }
+
+            @Override
+            public boolean equals(Object obj) {
+                return obj instanceof IWorld && uuid.equals(((IWorld) obj).getUUID());
+            }
+
+            @Override
+            public int hashCode() {
+                return uuid.hashCode();
+            }
+
+            @Override
+            public String toString() {
+                return name;
+            }
+        };
+    }
+}
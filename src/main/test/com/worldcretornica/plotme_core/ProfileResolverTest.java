@@ -0,0 +1,284 @@
+package com.worldcretornica.plotme_core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import com.worldcretornica.plotme_core.utils.UUIDs;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Runs the resolver against a profile API stub on the loopback interface.
+ */
+public class ProfileResolverTest {
+
+    private static final UUID ALICE = UUID.randomUUID();
+    private static final UUID BOB = UUID.randomUUID();
+    private static final UUID CAROL = UUID.randomUUID();
+
+    private final NameCache names = new NameCache(null) {
+        @Override
+        public void resolved(UUID uuid, String name) {
+            put(uuid, name, 0);
+        }
+    };
+    private final List<Request> requests = new ArrayList<>();
+    /**
+     * Status codes to answer with, in order, before answering normally.
+     */
+    private final List<Integer> failures = new ArrayList<>();
+    private volatile CountDownLatch release = new CountDownLatch(0);
+    private HttpServer server;
+    private ExecutorService serverThreads;
+    private ProfileResolver resolver;
+
+    @Before
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        serverThreads = Executors.newCachedThreadPool();
+        server.setExecutor(serverThreads);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                respond(exchange);
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void stopServer() {
+        if (resolver != null) {
+            resolver.shutdown();
+        }
+        release.countDown();
+        server.stop(0);
+        serverThreads.shutdownNow();
+    }
+
+    private ProfileResolver resolver(double requestsPerSecond, int threads, int retries) {
+        String base = "http://127.0.0.1:" + server.getAddress().getPort();
+        resolver = new ProfileResolver(names, Logger.getLogger("PlotMe"), base + "/profiles", base + "/profile/",
+                requestsPerSecond, threads, retries);
+        return resolver;
+    }
+
+    @Test
+    public void sharesLookupsOfTheSameName() throws Exception {
+        release = new CountDownLatch(1);
+        resolver(100, 1, 0);
+
+        ListenableFuture<UUID> first = resolver.resolveUniqueId("Alice");
+        awaitRequests(1);
+        assertSame(first, resolver.resolveUniqueId("ALICE"));
+        ListenableFuture<Map<String, UUID>> others = resolver.resolveUniqueIds(Arrays.asList("Bob", "Carol", "Dave"));
+        release.countDown();
+
+        assertEquals(ALICE, first.get(5, TimeUnit.SECONDS));
+        Map<String, UUID> ids = others.get(5, TimeUnit.SECONDS);
+        assertEquals(BOB, ids.get("Bob"));
+        assertEquals(CAROL, ids.get("Carol"));
+        assertEquals(2, ids.size());
+        List<Request> sent = requests();
+        assertEquals(2, sent.size());
+        assertEquals("[\"alice\"]", sent.get(0).body);
+        assertEquals("[\"bob\",\"carol\",\"dave\"]", sent.get(1).body);
+        assertEquals(ALICE, names.getUniqueId("alice"));
+    }
+
+    @Test
+    public void neverLooksUpCachedPlayers() throws Exception {
+        names.put(ALICE, "Alice", 1);
+        resolver(100, 1, 0);
+
+        assertEquals(ALICE, resolver.resolveUniqueId("alice").get(5, TimeUnit.SECONDS));
+        assertEquals("Alice", resolver.resolveName(ALICE).get(5, TimeUnit.SECONDS));
+        assertTrue(requests().isEmpty());
+    }
+
+    @Test
+    public void limitsTheRequestRate() throws Exception {
+        resolver(5, 4, 0);
+
+        List<ListenableFuture<String>> futures = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            futures.add(resolver.resolveName(UUID.randomUUID()));
+        }
+        for (ListenableFuture<String> future : futures) {
+            assertNull(future.get(5, TimeUnit.SECONDS));
+        }
+
+        List<Request> sent = requests();
+        assertEquals(6, sent.size());
+        long span = sent.get(sent.size() - 1).receivedAt - sent.get(0).receivedAt;
+        assertTrue("6 requests at 5 per second took " + span + " ms", span >= 800);
+    }
+
+    @Test
+    public void retriesWithGrowingDelay() throws Exception {
+        failures.add(429);
+        failures.add(503);
+        resolver(100, 1, 2);
+
+        assertEquals("Bob", resolver.resolveName(BOB).get(10, TimeUnit.SECONDS));
+
+        List<Request> sent = requests();
+        assertEquals(3, sent.size());
+        long firstDelay = sent.get(1).receivedAt - sent.get(0).receivedAt;
+        long secondDelay = sent.get(2).receivedAt - sent.get(1).receivedAt;
+        assertTrue("first retry after " + firstDelay + " ms", firstDelay >= 450);
+        assertTrue("second retry after " + secondDelay + " ms", secondDelay >= 950);
+        assertEquals("Bob", names.getName(BOB));
+    }
+
+    @Test
+    public void failsOnceTheRetriesAreUsedUp() throws Exception {
+        failures.add(500);
+        failures.add(500);
+        resolver(100, 1, 1);
+
+        try {
+            resolver.resolveName(CAROL).get(10, TimeUnit.SECONDS);
+            fail("the lookup should have failed");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+        assertEquals(2, requests().size());
+        assertNull(names.getName(CAROL));
+    }
+
+    private void respond(HttpExchange exchange) throws IOException {
+        String body = read(exchange.getRequestBody());
+        Integer failure;
+        synchronized (requests) {
+            requests.add(new Request(body, System.currentTimeMillis()));
+            requests.notifyAll();
+            failure = failures.isEmpty() ? null : failures.remove(0);
+        }
+        try {
+            release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        String path = exchange.getRequestURI().getPath();
+        String response = null;
+        if (failure != null) {
+            exchange.sendResponseHeaders(failure, -1);
+        } else if (path.startsWith("/profile/")) {
+            UUID uuid = UUIDs.fromTrimmed(path.substring("/profile/".length()));
+            String name = nameOf(uuid);
+            if (name == null) {
+                exchange.sendResponseHeaders(204, -1);
+            } else {
+                response = profile(uuid, name);
+            }
+        } else {
+            StringBuilder profiles = new StringBuilder("[");
+            for (String name : Arrays.asList("Alice", "Bob", "Carol")) {
+                if (body.contains("\"" + name.toLowerCase() + "\"")) {
+                    if (profiles.length() > 1) {
+                        profiles.append(',');
+                    }
+                    profiles.append(profile(idOf(name), name));
+                }
+            }
+            response = profiles.append(']').toString();
+        }
+        if (response != null) {
+            byte[] bytes = response.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream stream = exchange.getResponseBody()) {
+                stream.write(bytes);
+            }
+        }
+        exchange.close();
+    }
+
+    private static String profile(UUID uuid, String name) {
+        return "{\"id\":\"" + UUIDs.toTrimmed(uuid) + "\",\"name\":\"" + name + "\"}";
+    }
+
+    private static UUID idOf(String name) {
+        switch (name) {
+            case "Alice":
+                return ALICE;
+            case "Bob":
+                return BOB;
+            default:
+                return CAROL;
+        }
+    }
+
+    private static String nameOf(UUID uuid) {
+        if (ALICE.equals(uuid)) {
+            return "Alice";
+        } else if (BOB.equals(uuid)) {
+            return "Bob";
+        } else if (CAROL.equals(uuid)) {
+            return "Carol";
+        }
+        return null;
+    }
+
+    private static String read(InputStream stream) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int read;
+        while ((read = stream.read(buffer)) != -1) {
+            bytes.write(buffer, 0, read);
+        }
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private void awaitRequests(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        synchronized (requests) {
+            while (requests.size() < count && System.currentTimeMillis() < deadline) {
+                requests.wait(100);
+            }
+        }
+    }
+
+    private List<Request> requests() {
+        synchronized (requests) {
+            return new ArrayList<>(requests);
+        }
+    }
+
+    private static final class Request {
+
+        private final String body;
+        private final long receivedAt;
+
+        private Request(String body, long receivedAt) {
+            this.body = body;
+            this.receivedAt = receivedAt;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.worldcretornica.plotme_core.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import com.worldcretornica.plotme_core.Plot;
+import com.worldcretornica.plotme_core.PlotFixtures;
+import com.worldcretornica.plotme_core.PlotMe_Core;
+import com.worldcretornica.plotme_core.api.IWorld;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Pages through plots of a SQLite database, in the legacy tables and in the v2 tables.
+ */
+public class JdbcPlotStorageTest {
+
+    private static final long NOW = 1000000000L;
+
+    private final IWorld world = PlotFixtures.world("plotworld");
+    private final IWorld other = PlotFixtures.world("otherworld");
+    private final UUID owner = UUID.randomUUID();
+    private File file;
+    private SQLiteConnector storage;
+
+    @Before
+    public void setUp() throws IOException {
+        PlotMe_Core plugin = PlotFixtures.installPlugin();
+        file = File.createTempFile("plots", ".db");
+        storage = new SQLiteConnector(plugin, file);
+    }
+
+    @After
+    public void tearDown() {
+        storage.close();
+        for (String suffix : new String[]{"", "-wal", "-shm"}) {
+            new File(file.getPath() + suffix).delete();
+        }
+    }
+
+    /**
+     * Saves 25 plots of the owner with expiration dates in the past, out of order, and a few other plots.
+     */
+    private void savePlots() {
+        for (int i = 0; i < 25; i++) {
+            Plot plot = PlotFixtures.plot(world, i, 0, owner);
+            plot.setInternalID(storage.allocateId());
+            plot.setExpiredDate(new Date(NOW - 1000 * ((i * 7) % 5) - 1000));
+            plot.setForSale(i % 3 == 0);
+            storage.savePlot(plot);
+        }
+        Plot notExpired = PlotFixtures.plot(world, 0, 1, UUID.randomUUID());
+        notExpired.setInternalID(storage.allocateId());
+        notExpired.setExpiredDate(new Date(NOW + 1000));
+        storage.savePlot(notExpired);
+        Plot elsewhere = PlotFixtures.plot(other, 0, 0, owner);
+        elsewhere.setInternalID(storage.allocateId());
+        elsewhere.setExpiredDate(new Date(NOW - 1000));
+        storage.savePlot(elsewhere);
+    }
+
+    /**
+     * Reads all pages of a query and checks them against the query run on all plots in memory.
+     */
+    private void checkPages(PlotQuery query, int expected) {
+        List<Plot> all = query.page(storage.loadWorld(world).values(), null, Integer.MAX_VALUE);
+        assertEquals(expected, all.size());
+        assertEquals(expected, storage.countPlots(world, query));
+
+        List<Plot> walked = new ArrayList<>();
+        PlotQuery.Cursor after = null;
+        List<Plot> page;
+        while (!(page = storage.findPlots(world, query, after, 4)).isEmpty()) {
+            walked.addAll(page);
+            after = query.cursorOf(page.get(page.size() - 1));
+        }
+        assertEquals(PlotQueryTest.internalIds(all), PlotQueryTest.internalIds(walked));
+
+        for (int skip = 4; skip < expected; skip += 4) {
+            PlotQuery.Cursor cursor = storage.findCursor(world, query, skip);
+            assertEquals(all.get(skip - 1).getInternalID(), cursor.getInternalId());
+            assertEquals(PlotQueryTest.internalIds(all.subList(skip, Math.min(skip + 4, expected))),
+                    PlotQueryTest.internalIds(storage.findPlots(world, query, cursor, 4)));
+        }
+        assertNull(storage.findCursor(world, query, 0));
+        assertNull(storage.findCursor(world, query, expected + 1));
+    }
+
+    private void checkAllQueries() {
+        checkPages(PlotQuery.expired(NOW), 25);
+        checkPages(PlotQuery.ownedBy(owner), 25);
+        checkPages(PlotQuery.forSale(), 9);
+        checkPages(PlotQuery.finished(), 0);
+    }
+
+    @Test
+    public void pagesThroughLegacyTables() {
+        savePlots();
+        checkAllQueries();
+    }
+
+    @Test
+    public void pagesThroughV2TablesByKeyset() {
+        storage.useSchemaV2();
+        savePlots();
+        checkAllQueries();
+    }
+
+    @Test
+    public void readsTheSamePlotsFromBothLayouts() {
+        savePlots();
+        List<Long> legacy = PlotQueryTest.internalIds(storage.findPlots(world, PlotQuery.expired(NOW), null, 100));
+        storage.useSchemaV2();
+        assertEquals(legacy, PlotQueryTest.internalIds(storage.findPlots(world, PlotQuery.expired(NOW), null, 100)));
+    }
+}
@@ -0,0 +1,191 @@
+package com.worldcretornica.plotme_core.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.worldcretornica.plotme_core.NameCache;
+import com.worldcretornica.plotme_core.Plot;
+import com.worldcretornica.plotme_core.PlotFixtures;
+import com.worldcretornica.plotme_core.PlotId;
+import com.worldcretornica.plotme_core.api.IWorld;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+public class JournalPlotStorageTest {
+
+    private static final int COMPACTION_BYTES = 1024;
+
+    private final IWorld world = PlotFixtures.world("plotworld");
+    private final UUID owner = UUID.randomUUID();
+    private File folder;
+    private File journalFile;
+    private File snapshotFile;
+    private JournalPlotStorage storage;
+
+    @BeforeClass
+    public static void installPlugin() {
+        PlotFixtures.installPlugin();
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        folder = Files.createTempDirectory("plotme-journal").toFile();
+        journalFile = new File(folder, "plots.journal");
+        snapshotFile = new File(folder, "plots.snapshot");
+        storage = open();
+    }
+
+    @After
+    public void tearDown() {
+        storage.close();
+        File[] files = folder.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        folder.delete();
+    }
+
+    private JournalPlotStorage open() {
+        return new JournalPlotStorage(Logger.getLogger("PlotMe"), folder, 0, COMPACTION_BYTES);
+    }
+
+    private JournalPlotStorage reopen() {
+        storage.close();
+        storage = open();
+        return storage;
+    }
+
+    private Plot save(int x, int z) {
+        Plot plot = PlotFixtures.plot(world, x, z, owner);
+        plot.setInternalID(storage.allocateId());
+        storage.savePlot(plot);
+        return plot;
+    }
+
+    @Test
+    public void replaysTheJournal() {
+        Plot kept = save(1, 1);
+        Plot deleted = save(2, 2);
+        kept.setPlotName("Castle");
+        storage.savePlot(kept);
+        storage.deletePlot(deleted);
+        UUID player = UUID.randomUUID();
+        storage.saveName(player, "Alice", 5);
+        long nextId = storage.getNextId();
+
+        reopen();
+
+        assertEquals("Castle", storage.loadPlot(world, new PlotId(1, 1)).getPlotName());
+        assertNull(storage.loadPlot(world, new PlotId(2, 2)));
+        assertEquals(nextId, storage.getNextId());
+        NameCache names = new NameCache(null);
+        storage.loadNames(names);
+        assertEquals("Alice", names.getName(player));
+    }
+
+    @Test
+    public void dropsARecordThatWasCutOff() throws IOException {
+        save(1, 1);
+        Plot plot = PlotFixtures.plot(world, 2, 2, owner);
+        plot.setInternalID(storage.allocateId());
+        long end = journalFile.length();
+        storage.savePlot(plot);
+        long cutOff = journalFile.length() - 3;
+        storage.close();
+        try (RandomAccessFile file = new RandomAccessFile(journalFile, "rw")) {
+            file.setLength(cutOff);
+        }
+
+        storage = open();
+
+        assertNotNull(storage.loadPlot(world, new PlotId(1, 1)));
+        assertNull(storage.loadPlot(world, new PlotId(2, 2)));
+        assertEquals(end, journalFile.length());
+        save(3, 3);
+        reopen();
+        assertNotNull(storage.loadPlot(world, new PlotId(1, 1)));
+        assertNotNull(storage.loadPlot(world, new PlotId(3, 3)));
+    }
+
+    @Test
+    public void stopsAtADamagedRecord() throws IOException {
+        save(1, 1);
+        Plot plot = save(2, 2);
+        long damaged = journalFile.length();
+        plot.setPlotName("Castle");
+        storage.savePlot(plot);
+        save(3, 3);
+        storage.close();
+        try (RandomAccessFile file = new RandomAccessFile(journalFile, "rw")) {
+            // First byte of the payload, after the length
+            file.seek(damaged + 4);
+            int type = file.read();
+            file.seek(damaged + 4);
+            file.write(type ^ 0xff);
+        }
+
+        storage = open();
+
+        assertNotNull(storage.loadPlot(world, new PlotId(1, 1)));
+        assertNull(storage.loadPlot(world, new PlotId(2, 2)).getPlotName());
+        assertNull(storage.loadPlot(world, new PlotId(3, 3)));
+        assertEquals(damaged, journalFile.length());
+    }
+
+    @Test
+    public void refusesAFileThatIsNotAJournal() throws IOException {
+        storage.close();
+        byte[] garbage = "not a journal".getBytes("UTF-8");
+        Files.write(journalFile.toPath(), garbage);
+
+        storage = open();
+        save(1, 1);
+        storage.close();
+
+        assertEquals(garbage.length, journalFile.length());
+    }
+
+    @Test
+    public void compactsTheJournalIntoTheSnapshot() throws Exception {
+        Plot plot = save(1, 1);
+        Plot deleted = save(2, 2);
+        storage.deletePlot(deleted);
+        long before = journalFile.length();
+        plot.setPlotName("Castle 0");
+        storage.savePlot(plot);
+        long uncompacted = before + 50 * (journalFile.length() - before);
+        for (int i = 1; i < 50; i++) {
+            plot.setPlotName("Castle " + i);
+            storage.savePlot(plot);
+        }
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (journalFile.length() >= uncompacted && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(snapshotFile.isFile());
+        assertTrue(journalFile.length() < uncompacted);
+
+        plot.setPlotName("Tower");
+        storage.savePlot(plot);
+        reopen();
+
+        assertEquals("Tower", storage.loadPlot(world, new PlotId(1, 1)).getPlotName());
+        assertNull(storage.loadPlot(world, new PlotId(2, 2)));
+        assertEquals(1, storage.loadWorld(world).size());
+        assertTrue(storage.allocateId() > deleted.getInternalID());
+    }
+}
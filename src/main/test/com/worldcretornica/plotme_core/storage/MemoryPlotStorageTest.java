@@ -0,0 +1,242 @@
+package com.worldcretornica.plotme_core.storage;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.worldcretornica.plotme_core.Plot;
+import com.worldcretornica.plotme_core.PlotFixtures;
+import com.worldcretornica.plotme_core.PlotId;
+import com.worldcretornica.plotme_core.api.IWorld;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+public class MemoryPlotStorageTest {
+
+    private final IWorld world = PlotFixtures.world("PlotWorld");
+    private final IWorld other = PlotFixtures.world("OtherWorld");
+    private final UUID owner = UUID.randomUUID();
+    private MemoryPlotStorage storage;
+
+    @BeforeClass
+    public static void installPlugin() {
+        PlotFixtures.installPlugin();
+    }
+
+    @Before
+    public void setUp() {
+        storage = new MemoryPlotStorage(Logger.getLogger("PlotMe"));
+    }
+
+    private Plot save(IWorld world, int x, int z, UUID owner) {
+        Plot plot = PlotFixtures.plot(world, x, z, owner);
+        plot.setInternalID(storage.allocateId());
+        storage.savePlot(plot);
+        return plot;
+    }
+
+    @Test
+    public void readsBackWhatWasSaved() {
+        UUID member = UUID.randomUUID();
+        UUID liker = UUID.randomUUID();
+        Plot plot = PlotFixtures.plot(world, 2, -3, owner);
+        plot.setInternalID(storage.allocateId());
+        plot.setBiome("DESERT");
+        plot.setPrice(12.5);
+        plot.setForSale(true);
+        plot.setProtected(true);
+        plot.setPlotName("Castle");
+        plot.addMember(member.toString(), Plot.AccessLevel.TRUSTED);
+        plot.addDenied("*");
+        HashSet<UUID> likers = new HashSet<>();
+        likers.add(liker);
+        plot.setLikers(likers);
+        plot.setLikes(1);
+        plot.setPlotProperty("PlotMe-Test", "color", "red");
+        storage.savePlot(plot);
+
+        Plot read = storage.loadPlot(world, new PlotId(2, -3));
+        assertEquals(plot.getInternalID(), read.getInternalID());
+        assertEquals(plot.getId(), read.getId());
+        assertEquals(owner, read.getOwnerId());
+        assertEquals("Owner", read.getOwner());
+        assertEquals("DESERT", read.getBiome());
+        assertEquals(12.5, read.getPrice(), 0.0);
+        assertTrue(read.isForSale());
+        assertTrue(read.isProtected());
+        assertFalse(read.isFinished());
+        assertEquals("Castle", read.getPlotName());
+        assertEquals(Plot.AccessLevel.TRUSTED, read.isMember(member).get());
+        assertTrue(read.isDenied("*"));
+        assertEquals(1, read.getLikes());
+        assertFalse(read.canPlayerLike(liker));
+        assertEquals("red", read.getPlotProperty("PlotMe-Test", "color"));
+        assertEquals(plot.getCreatedDate(), read.getCreatedDate());
+        assertEquals(plot.getExpiredDate(), read.getExpiredDate());
+    }
+
+    @Test
+    public void keepsChangesUntilSaved() {
+        Plot plot = save(world, 1, 1, owner);
+        Plot read = storage.loadPlot(world, plot.getId());
+        read.setPlotName("Castle");
+
+        assertNull(storage.loadPlot(world, plot.getId()).getPlotName());
+        storage.savePlot(read);
+        assertEquals("Castle", storage.loadPlot(world, plot.getId()).getPlotName());
+    }
+
+    @Test
+    public void separatesWorlds() {
+        save(world, 1, 1, owner);
+        save(other, 2, 2, owner);
+
+        Map<PlotId, Plot> loaded = storage.loadWorld(PlotFixtures.world("plotworld"));
+        assertEquals(1, loaded.size());
+        assertTrue(loaded.containsKey(new PlotId(1, 1)));
+        assertNull(storage.loadPlot(other, new PlotId(1, 1)));
+        assertArrayEquals(new long[]{new PlotId(2, 2).getKey()}, storage.loadPlotKeys(other));
+    }
+
+    @Test
+    public void deletesPlots() {
+        Plot plot = save(world, 1, 1, owner);
+        save(world, 2, 2, owner);
+        storage.deletePlot(plot);
+
+        assertNull(storage.loadPlot(world, new PlotId(1, 1)));
+        assertEquals(1, storage.loadWorld(world).size());
+    }
+
+    @Test
+    public void findsOwnedPlots() {
+        save(world, 1, 1, owner);
+        save(world, 2, 2, UUID.randomUUID());
+        save(other, 3, 3, owner);
+
+        List<Plot> owned = storage.findOwnedPlots(world, owner);
+        assertEquals(1, owned.size());
+        assertEquals(new PlotId(1, 1), owned.get(0).getId());
+    }
+
+    @Test
+    public void findsMemberPlots() {
+        UUID member = UUID.randomUUID();
+        save(world, 1, 1, member);
+        Plot shared = save(world, 2, 2, UUID.randomUUID());
+        shared.addMember(member.toString(), Plot.AccessLevel.ALLOWED);
+        storage.savePlot(shared);
+        Plot open = save(world, 3, 3, UUID.randomUUID());
+        open.addMember("*", Plot.AccessLevel.ALLOWED);
+        storage.savePlot(open);
+        save(world, 4, 4, UUID.randomUUID());
+        save(other, 5, 5, member);
+
+        HashSet<PlotId> found = new HashSet<>();
+        for (Plot plot : storage.findMemberPlots(world, member)) {
+            found.add(plot.getId());
+        }
+        HashSet<PlotId> expected = new HashSet<>();
+        expected.add(new PlotId(1, 1));
+        expected.add(new PlotId(2, 2));
+        expected.add(new PlotId(3, 3));
+        assertEquals(expected, found);
+    }
+
+    @Test
+    public void readsLikeCounts() {
+        Plot plot = save(world, 1, 1, owner);
+        HashSet<UUID> likers = new HashSet<>();
+        likers.add(UUID.randomUUID());
+        likers.add(UUID.randomUUID());
+        plot.setLikers(likers);
+        plot.setLikes(2);
+        storage.savePlot(plot);
+        save(world, 2, 2, owner);
+
+        Map<PlotId, Integer> likes = storage.loadLikeCounts(world);
+        assertEquals(1, likes.size());
+        assertEquals(Integer.valueOf(2), likes.get(new PlotId(1, 1)));
+    }
+
+    @Test
+    public void readsPlotNames() {
+        Plot plot = save(world, 1, 1, owner);
+        plot.setPlotName("Castle");
+        storage.savePlot(plot);
+        save(world, 2, 2, owner);
+
+        Map<PlotId, String> names = storage.loadPlotNames(world);
+        assertEquals(1, names.size());
+        assertEquals("Castle", names.get(new PlotId(1, 1)));
+    }
+
+    @Test
+    public void findsPlotsByNameInAnyWorld() {
+        Plot plot = save(other, 1, 1, owner);
+        plot.setPlotName("Castle");
+        storage.savePlot(plot);
+        save(world, 2, 2, owner);
+
+        assertEquals(plot.getInternalID(), storage.findPlotByName("cASTLE"));
+        assertEquals(0, storage.findPlotByName("Tower"));
+    }
+
+    @Test
+    public void forgetsTheOldNameOfARenamedPlot() {
+        Plot plot = save(world, 1, 1, owner);
+        plot.setPlotName("Castle");
+        storage.savePlot(plot);
+        plot.setPlotName("Tower");
+        storage.savePlot(plot);
+
+        assertEquals(0, storage.findPlotByName("Castle"));
+        assertEquals(plot.getInternalID(), storage.findPlotByName("tower"));
+        storage.deletePlot(plot);
+        assertEquals(0, storage.findPlotByName("Tower"));
+    }
+
+    @Test
+    public void findsAPlotThatMoved() {
+        Plot plot = save(world, 1, 1, owner);
+        Plot moved = PlotFixtures.plot(world, 5, 5, owner);
+        moved.setInternalID(plot.getInternalID());
+        storage.savePlot(moved);
+
+        assertNull(storage.loadPlot(world, new PlotId(1, 1)));
+        assertEquals(plot.getInternalID(), storage.loadPlot(world, new PlotId(5, 5)).getInternalID());
+        assertArrayEquals(new long[]{new PlotId(5, 5).getKey()}, storage.loadPlotKeys(world));
+    }
+
+    @Test
+    public void findsANewPlotWhereADeletedOneWas() {
+        Plot plot = save(world, 1, 1, owner);
+        storage.deletePlot(plot);
+        Plot claimed = save(world, 1, 1, UUID.randomUUID());
+        storage.deletePlot(plot);
+
+        assertEquals(claimed.getInternalID(), storage.loadPlot(world, new PlotId(1, 1)).getInternalID());
+    }
+
+    @Test
+    public void neverHandsOutAnIdTwice() {
+        long first = storage.allocateId();
+        storage.raiseNextId(first + 10);
+        long second = storage.allocateId();
+
+        assertNotEquals(first, second);
+        assertTrue(second >= first + 10);
+        storage.raiseNextId(1);
+        assertEquals(second + 1, storage.allocateId());
+    }
+}
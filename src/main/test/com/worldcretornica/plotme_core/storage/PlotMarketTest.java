@@ -0,0 +1,113 @@
+package com.worldcretornica.plotme_core.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.worldcretornica.plotme_core.Plot;
+import com.worldcretornica.plotme_core.PlotFixtures;
+import com.worldcretornica.plotme_core.PlotId;
+import com.worldcretornica.plotme_core.api.IWorld;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+public class PlotMarketTest {
+
+    private final IWorld world = PlotFixtures.world("plotworld");
+    private PlotMarket market;
+
+    @Before
+    public void setUp() {
+        market = new PlotMarket();
+        list(1, 10.0);
+        list(2, 20.0);
+        list(3, 20.0);
+        list(4, 30.0);
+    }
+
+    private Plot list(int x, double price) {
+        Plot plot = PlotFixtures.plot(world, x, 0, UUID.randomUUID());
+        plot.setPrice(price);
+        plot.setForSale(true);
+        market.put(plot);
+        return plot;
+    }
+
+    private static PlotId id(int x) {
+        return new PlotId(x, 0);
+    }
+
+    @Test
+    public void includesBothBounds() {
+        assertEquals(Arrays.asList(id(2), id(3), id(4)), market.find(20.0, 30.0, 0, 10));
+        assertEquals(3, market.count(20.0, 30.0));
+    }
+
+    @Test
+    public void findsOnePrice() {
+        assertEquals(Arrays.asList(id(2), id(3)), market.find(20.0, 20.0, 0, 10));
+        assertEquals(2, market.count(20.0, 20.0));
+    }
+
+    @Test
+    public void findsNothingBetweenPrices() {
+        assertTrue(market.find(10.5, 19.5, 0, 10).isEmpty());
+        assertEquals(0, market.count(10.5, 19.5));
+    }
+
+    @Test
+    public void findsNothingInAnEmptyRange() {
+        assertTrue(market.find(30.0, 10.0, 0, 10).isEmpty());
+        assertEquals(0, market.count(30.0, 10.0));
+    }
+
+    @Test
+    public void findsNothingForNaNBounds() {
+        assertTrue(market.find(Double.NaN, 30.0, 0, 10).isEmpty());
+        assertEquals(0, market.count(0.0, Double.NaN));
+        assertEquals(0, market.count(Double.NaN, Double.NaN));
+    }
+
+    @Test
+    public void comparesZeroesLikeTheListings() {
+        list(5, 0.0);
+        assertEquals(0, market.count(0.0, -0.0));
+        assertEquals(1, market.count(-0.0, 0.0));
+    }
+
+    @Test
+    public void findsEverythingInAnUnboundedRange() {
+        assertEquals(4, market.count(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY));
+        assertEquals(4, market.count(0.0, Double.MAX_VALUE));
+    }
+
+    @Test
+    public void pagesThroughTheRange() {
+        assertEquals(Arrays.asList(id(1), id(2)), market.find(0.0, 100.0, 0, 2));
+        assertEquals(Arrays.asList(id(3), id(4)), market.find(0.0, 100.0, 2, 2));
+        assertTrue(market.find(0.0, 100.0, 4, 2).isEmpty());
+    }
+
+    @Test
+    public void followsPriceChanges() {
+        Plot plot = list(5, 15.0);
+        assertEquals(Arrays.asList(id(1), id(5)), market.find(0.0, 15.0, 0, 10));
+
+        plot.setPrice(25.0);
+        market.put(plot);
+        assertEquals(Arrays.asList(id(1)), market.find(0.0, 15.0, 0, 10));
+        assertEquals(Arrays.asList(id(2), id(3), id(5)), market.find(20.0, 25.0, 0, 10));
+
+        plot.setForSale(false);
+        market.put(plot);
+        assertEquals(Arrays.asList(id(2), id(3)), market.find(20.0, 25.0, 0, 10));
+    }
+
+    @Test
+    public void removesPlots() {
+        market.remove(id(2));
+        assertEquals(Arrays.asList(id(3)), market.find(20.0, 20.0, 0, 10));
+    }
+}
@@ -0,0 +1,107 @@
+package com.worldcretornica.plotme_core.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.worldcretornica.plotme_core.PlotFixtures;
+import com.worldcretornica.plotme_core.PlotId;
+import com.worldcretornica.plotme_core.api.IWorld;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+public class PlotNameIndexTest {
+
+    private final IWorld world = PlotFixtures.world("plotworld");
+    private final IWorld other = PlotFixtures.world("otherworld");
+    private final PlotNameIndex index = new PlotNameIndex();
+
+    @Test
+    public void findsNamesRegardlessOfCase() {
+        assertTrue(index.claim(world, new PlotId(1, 1), "Castle"));
+
+        PlotNameIndex.NamedPlot named = index.get("cASTLE");
+        assertEquals(world, named.world);
+        assertEquals(new PlotId(1, 1), named.id);
+        assertEquals("Castle", named.name);
+    }
+
+    @Test
+    public void keepsNamesUniqueAcrossWorlds() {
+        assertTrue(index.claim(world, new PlotId(1, 1), "Castle"));
+
+        assertFalse(index.claim(world, new PlotId(2, 2), "castle"));
+        assertFalse(index.claim(other, new PlotId(1, 1), "CASTLE"));
+        assertEquals(new PlotId(1, 1), index.get("castle").id);
+    }
+
+    @Test
+    public void renamingFreesTheOldName() {
+        index.claim(world, new PlotId(1, 1), "Castle");
+        assertTrue(index.claim(world, new PlotId(1, 1), "Tower"));
+
+        assertNull(index.get("castle"));
+        assertTrue(index.claim(world, new PlotId(2, 2), "Castle"));
+    }
+
+    @Test
+    public void renamingToTheSameNameKeepsIt() {
+        index.claim(world, new PlotId(1, 1), "Castle");
+
+        assertTrue(index.claim(world, new PlotId(1, 1), "CASTLE"));
+        assertEquals("CASTLE", index.get("castle").name);
+    }
+
+    @Test
+    public void removesNames() {
+        index.claim(world, new PlotId(1, 1), "Castle");
+        index.claim(world, new PlotId(2, 2), "Tower");
+
+        assertTrue(index.claim(world, new PlotId(1, 1), null));
+        index.remove(world, new PlotId(2, 2));
+
+        assertNull(index.get("castle"));
+        assertNull(index.get("tower"));
+    }
+
+    @Test
+    public void leavesTakenNamesWhenLoading() {
+        index.claim(world, new PlotId(1, 1), "Castle");
+        Map<PlotId, String> names = new HashMap<>();
+        names.put(new PlotId(5, 5), "castle");
+        names.put(new PlotId(6, 6), "Tower");
+        index.loadWorld(other, names);
+
+        assertEquals(world, index.get("castle").world);
+        assertEquals(other, index.get("tower").world);
+    }
+
+    @Test
+    public void comparesNamesTheSameInEveryLocale() {
+        Locale locale = Locale.getDefault();
+        try {
+            Locale.setDefault(new Locale("tr", "TR"));
+            index.claim(world, new PlotId(1, 1), "TITLE");
+            assertEquals(new PlotId(1, 1), index.get("title").id);
+        } finally {
+            Locale.setDefault(locale);
+        }
+    }
+
+    @Test
+    public void completesPrefixes() {
+        index.claim(world, new PlotId(1, 1), "Castle");
+        index.claim(world, new PlotId(2, 2), "cave");
+        index.claim(other, new PlotId(3, 3), "Cathedral");
+        index.claim(other, new PlotId(4, 4), "Tower");
+
+        assertEquals(Arrays.asList("Castle", "Cathedral", "cave"), index.complete("CA", 10));
+        assertEquals(Arrays.asList("Castle", "Cathedral"), index.complete("ca", 2));
+        assertTrue(index.complete("x", 10).isEmpty());
+    }
+}
@@ -0,0 +1,116 @@
+package com.worldcretornica.plotme_core.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.worldcretornica.plotme_core.Plot;
+import com.worldcretornica.plotme_core.PlotFixtures;
+import com.worldcretornica.plotme_core.api.IWorld;
+import org.junit.Test;
+
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+public class PlotQueryTest {
+
+    private static final long NOW = 1000000L;
+
+    private final IWorld world = PlotFixtures.world("plotworld");
+    private final UUID owner = UUID.randomUUID();
+
+    private Plot plot(long internalId, long expiredAt) {
+        Plot plot = PlotFixtures.plot(world, (int) internalId, 0, owner);
+        plot.setInternalID(internalId);
+        plot.setExpiredDate(expiredAt == Plot.NO_EXPIRY ? null : new Date(expiredAt));
+        return plot;
+    }
+
+    @Test
+    public void ordersExpiredPlotsByDateThenId() {
+        Plot late = plot(1, NOW - 10);
+        Plot early = plot(2, NOW - 500);
+        Plot sameDate = plot(3, NOW - 500);
+        Plot notExpired = plot(4, NOW + 10);
+        Plot neverExpires = plot(5, Plot.NO_EXPIRY);
+        List<Plot> plots = Arrays.asList(late, early, sameDate, notExpired, neverExpires);
+
+        assertEquals(Arrays.asList(early, sameDate, late), PlotQuery.expired(NOW).page(plots, null, 10));
+        assertEquals(3, PlotQuery.expired(NOW).count(plots));
+    }
+
+    @Test
+    public void pagesStartAfterTheCursor() {
+        PlotQuery query = PlotQuery.expired(NOW);
+        List<Plot> plots = new ArrayList<>();
+        for (int i = 1; i <= 10; i++) {
+            plots.add(plot(i, NOW - 100 * (i % 4) - 1));
+        }
+        List<Plot> all = query.page(plots, null, Integer.MAX_VALUE);
+
+        List<Plot> walked = new ArrayList<>();
+        PlotQuery.Cursor after = null;
+        List<Plot> page;
+        while (!(page = query.page(plots, after, 3)).isEmpty()) {
+            assertTrue(page.size() <= 3);
+            walked.addAll(page);
+            after = query.cursorOf(page.get(page.size() - 1));
+        }
+        assertEquals(all, walked);
+    }
+
+    @Test
+    public void cursorAtSkipsToTheSamePageAsWalking() {
+        PlotQuery query = PlotQuery.ownedBy(owner);
+        List<Plot> plots = new ArrayList<>();
+        for (int i = 10; i >= 1; i--) {
+            plots.add(plot(i, Plot.NO_EXPIRY));
+        }
+        plots.add(PlotFixtures.plot(world, 20, 20, UUID.randomUUID()));
+
+        PlotQuery.Cursor after = query.cursorAt(plots, 4);
+        assertEquals(4, after.getInternalId());
+        assertEquals(0, after.getSortKey());
+        List<Plot> page = query.page(plots, after, 4);
+        assertEquals(Arrays.asList(5L, 6L, 7L, 8L), internalIds(page));
+        assertNull(query.cursorAt(plots, 0));
+        assertNull(query.cursorAt(plots, 11));
+    }
+
+    @Test
+    public void comparesCursorsBySortKeyFirst() {
+        PlotQuery.Cursor first = new PlotQuery.Cursor(5, 9);
+        PlotQuery.Cursor second = new PlotQuery.Cursor(6, 1);
+        PlotQuery.Cursor third = new PlotQuery.Cursor(6, 2);
+
+        assertTrue(first.compareTo(second) < 0);
+        assertTrue(second.compareTo(third) < 0);
+        assertEquals(0, third.compareTo(new PlotQuery.Cursor(6, 2)));
+    }
+
+    @Test
+    public void matchesFlagsAndOwner() {
+        Plot plot = plot(1, Plot.NO_EXPIRY);
+        assertFalse(PlotQuery.forSale().matches(plot));
+        assertFalse(PlotQuery.finished().matches(plot));
+        assertTrue(PlotQuery.ownedBy(owner).matches(plot));
+        assertFalse(PlotQuery.ownedBy(UUID.randomUUID()).matches(plot));
+        assertFalse(PlotQuery.expired(NOW).matches(plot));
+        plot.setForSale(true);
+        plot.setFinished(true);
+        assertTrue(PlotQuery.forSale().matches(plot));
+        assertTrue(PlotQuery.finished().matches(plot));
+    }
+
+    static List<Long> internalIds(List<Plot> plots) {
+        List<Long> ids = new ArrayList<>(plots.size());
+        for (Plot plot : plots) {
+            ids.add(plot.getInternalID());
+        }
+        return ids;
+    }
+}
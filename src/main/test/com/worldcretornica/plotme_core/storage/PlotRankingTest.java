@@ -0,0 +1,74 @@
+package com.worldcretornica.plotme_core.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.worldcretornica.plotme_core.PlotId;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+public class PlotRankingTest {
+
+    private static final PlotId A = new PlotId(1, 1);
+    private static final PlotId B = new PlotId(2, 1);
+    private static final PlotId C = new PlotId(3, 1);
+
+    @Test
+    public void ranksByLikes() {
+        Map<PlotId, Integer> counts = new HashMap<>();
+        counts.put(A, 1);
+        counts.put(B, 5);
+        counts.put(C, 3);
+        PlotRanking ranking = new PlotRanking(counts);
+
+        assertEquals(Arrays.asList(B, C, A), ranking.top(10));
+        assertEquals(Arrays.asList(B, C), ranking.top(2));
+    }
+
+    @Test
+    public void ranksTiesByArrival() {
+        PlotRanking ranking = new PlotRanking(new HashMap<PlotId, Integer>());
+        ranking.set(A, 2);
+        ranking.set(B, 2);
+        ranking.set(C, 1);
+        ranking.set(C, 2);
+
+        assertEquals(Arrays.asList(A, B, C), ranking.top(10));
+    }
+
+    @Test
+    public void movesPlotsBetweenBuckets() {
+        PlotRanking ranking = new PlotRanking(new HashMap<PlotId, Integer>());
+        ranking.set(A, 3);
+        ranking.set(B, 2);
+        ranking.set(B, 4);
+        ranking.set(A, 1);
+
+        assertEquals(Arrays.asList(B, A), ranking.top(10));
+    }
+
+    @Test
+    public void dropsPlotsWithoutLikes() {
+        PlotRanking ranking = new PlotRanking(new HashMap<PlotId, Integer>());
+        ranking.set(A, 1);
+        ranking.set(B, 1);
+        ranking.set(A, 0);
+        ranking.remove(B);
+        ranking.set(C, -1);
+
+        assertTrue(ranking.top(10).isEmpty());
+    }
+
+    @Test
+    public void settingTheSameCountKeepsTheRank() {
+        PlotRanking ranking = new PlotRanking(new HashMap<PlotId, Integer>());
+        ranking.set(A, 2);
+        ranking.set(B, 2);
+        ranking.set(A, 2);
+
+        assertEquals(Arrays.asList(A, B), ranking.top(10));
+    }
+}
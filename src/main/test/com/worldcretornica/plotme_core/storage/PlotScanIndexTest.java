@@ -0,0 +1,72 @@
+package com.worldcretornica.plotme_core.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.worldcretornica.plotme_core.Plot;
+import com.worldcretornica.plotme_core.PlotFixtures;
+import com.worldcretornica.plotme_core.PlotId;
+import com.worldcretornica.plotme_core.api.IWorld;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.UUID;
+
+public class PlotScanIndexTest {
+
+    private final IWorld world = PlotFixtures.world("plotworld");
+    private final UUID owner = UUID.randomUUID();
+
+    @Test
+    public void selectsByOwnerAndFlags() {
+        PlotScanIndex index = new PlotScanIndex(0);
+        Plot owned = PlotFixtures.plot(world, 1, 1, owner);
+        Plot forSale = PlotFixtures.plot(world, 2, 2, UUID.randomUUID());
+        forSale.setForSale(true);
+        Plot finished = PlotFixtures.plot(world, 3, 3, UUID.randomUUID());
+        finished.setFinished(true);
+        index.put(owned);
+        index.put(forSale);
+        index.put(finished);
+
+        assertEquals(new HashSet<>(Arrays.asList(owned.getId())), new HashSet<>(index.select(PlotQuery.ownedBy(owner))));
+        assertEquals(Arrays.asList(forSale.getId()), index.select(PlotQuery.forSale()));
+        assertEquals(Arrays.asList(finished.getId()), index.select(PlotQuery.finished()));
+        assertTrue(index.select(PlotQuery.ownedBy(UUID.randomUUID())).isEmpty());
+    }
+
+    @Test
+    public void updatesRowsInPlace() {
+        PlotScanIndex index = new PlotScanIndex(0);
+        Plot plot = PlotFixtures.plot(world, 1, 1, owner);
+        index.put(plot);
+        plot.setForSale(true);
+        index.put(plot);
+
+        assertEquals(1, index.select(PlotQuery.ownedBy(owner)).size());
+        assertEquals(1, index.select(PlotQuery.forSale()).size());
+    }
+
+    @Test
+    public void keepsFindingPlotsAcrossGrowthAndRemoval() {
+        PlotScanIndex index = new PlotScanIndex(0);
+        HashSet<PlotId> present = new HashSet<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 5000; i++) {
+            PlotId id = new PlotId(random.nextInt(60) - 30, random.nextInt(60) - 30);
+            if (random.nextInt(3) == 0) {
+                index.remove(id);
+                present.remove(id);
+            } else {
+                index.put(PlotFixtures.plot(world, id.getX(), id.getZ(), owner));
+                present.add(id);
+            }
+        }
+
+        HashSet<PlotId> selected = new HashSet<>(index.select(PlotQuery.ownedBy(owner)));
+        assertEquals(present.size(), index.select(PlotQuery.ownedBy(owner)).size());
+        assertEquals(present, selected);
+    }
+}
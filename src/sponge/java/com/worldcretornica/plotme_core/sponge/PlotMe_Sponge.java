@@ -35,11 +35,12 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Plugin(id = "PlotMe", name = "PlotMe-Core", version = "0.17")
 public class PlotMe_Sponge {
 
-    private final HashMap<UUID, SpongePlayer> spongePlayerMap = new HashMap<>();
+    private final ConcurrentHashMap<UUID, SpongePlayer> spongePlayerMap = new ConcurrentHashMap<>();
 
     @Inject
     private Game game;
@@ -118,14 +119,22 @@ public class PlotMe_Sponge {
     }
 
     public SpongePlayer wrapPlayer(Player player) {
-        if (spongePlayerMap.containsKey(player.getUniqueId())) {
-            return spongePlayerMap.get(player.getUniqueId());
-        } else {
-            SpongePlayer spongePlayer = new SpongePlayer(player);
-            spongePlayerMap.put(player.getUniqueId(), spongePlayer);
+        UUID uuid = player.getUniqueId();
+        SpongePlayer spongePlayer = spongePlayerMap.get(uuid);
+        if (spongePlayer != null && spongePlayer.getPlayer() == player) {
             return spongePlayer;
         }
+        SpongePlayer created = new SpongePlayer(player);
+        if (spongePlayer == null) {
+            spongePlayer = spongePlayerMap.putIfAbsent(uuid, created);
+            return spongePlayer == null ? created : spongePlayer;
+        }
+        spongePlayerMap.put(uuid, created);
+        return created;
+    }
 
+    public void removePlayer(UUID playerUUID) {
+        spongePlayerMap.remove(playerUUID);
     }
 
     ConfigurationNode loadDefaultConfiguration() throws IOException {
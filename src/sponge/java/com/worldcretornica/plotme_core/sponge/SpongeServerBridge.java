@@ -163,7 +163,7 @@ public class SpongeServerBridge extends IServerBridge {
         Collection<IWorld> worlds = new ArrayList<>();
 
         for (World world : plugin.getGame().getServer().getWorlds()) {
-            worlds.add(new SpongeWorld(world));
+            worlds.add(SpongeWorld.adapt(world));
         }
         return worlds;
     }
@@ -47,7 +47,7 @@ public class SpongeEntity implements IEntity {
 
     @Override
     public IWorld getWorld() {
-        return new SpongeWorld(entity.getWorld());
+        return SpongeWorld.adapt(entity.getWorld());
     }
 
     @Override
@@ -34,7 +34,7 @@ public class SpongePlayer extends SpongeUser implements IPlayer {
 
     @Override
     public IWorld getWorld() {
-        return new SpongeWorld(player.getWorld());
+        return SpongeWorld.adapt(player.getWorld());
     }
 
     @Override
@@ -5,21 +5,75 @@ import com.worldcretornica.plotme_core.api.IEntity;
 import com.worldcretornica.plotme_core.api.IWorld;
 import com.worldcretornica.plotme_core.api.IWorldBorder;
 import com.worldcretornica.plotme_core.api.Vector;
+import com.worldcretornica.plotme_core.utils.WorldIndex;
 import org.bukkit.Location;
 import org.bukkit.entity.Entity;
 import org.bukkit.entity.EntityType;
 import org.spongepowered.api.world.World;
 
 import java.io.File;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
 import java.util.List;
 import java.util.UUID;
 
-public class SpongeWorld implements IWorld {
+public class SpongeWorld implements IWorld, WorldIndex.Indexed {
+
+    private static volatile Slot[] registry = new Slot[0];
 
     private final World world;
+    private final int index;
 
+    /**
+     * @deprecated use {@link #adapt(World)} to get the canonical wrapper of a world
+     */
+    @Deprecated
     public SpongeWorld(World world) {
+        this(world, adapt(world).getIndex());
+    }
+
+    private SpongeWorld(World world, int index) {
         this.world = world;
+        this.index = index;
+    }
+
+    /**
+     * Get the canonical wrapper of a world.
+     *
+     * @param world the Sponge world
+     * @return the wrapper of the world
+     */
+    public static SpongeWorld adapt(World world) {
+        for (Slot slot : registry) {
+            SpongeWorld wrapper = slot.wrapper.get();
+            if (wrapper != null && wrapper.world == world) {
+                return wrapper;
+            }
+        }
+        return register(world);
+    }
+
+    private static synchronized SpongeWorld register(World world) {
+        Slot[] current = registry;
+        UUID uuid = world.getUniqueId();
+        for (int i = 0; i < current.length; i++) {
+            if (current[i].uuid.equals(uuid)) {
+                SpongeWorld wrapper = current[i].wrapper.get();
+                if (wrapper != null && wrapper.world == world) {
+                    return wrapper;
+                }
+                wrapper = new SpongeWorld(world, WorldIndex.of(uuid));
+                Slot[] updated = current.clone();
+                updated[i] = new Slot(uuid, wrapper);
+                registry = updated;
+                return wrapper;
+            }
+        }
+        SpongeWorld wrapper = new SpongeWorld(world, WorldIndex.of(uuid));
+        Slot[] updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = new Slot(uuid, wrapper);
+        registry = updated;
+        return wrapper;
     }
 
     @Override
@@ -34,7 +88,7 @@ public class SpongeWorld implements IWorld {
 
     @Override
     public int hashCode() {
-        return getUUID().hashCode();
+        return index;
     }
 
     public World getWorld() {
@@ -46,13 +100,14 @@ public class SpongeWorld implements IWorld {
         return world.getUniqueId();
     }
 
+    @Override
+    public int getIndex() {
+        return index;
+    }
+
     @Override
     public boolean equals(Object obj) {
-        boolean result = false;
-        if (obj instanceof IWorld) {
-            result = this.hashCode() == obj.hashCode();
-        }
-        return result;
+        return obj == this || obj instanceof IWorld && WorldIndex.of((IWorld) obj) == index;
     }
 
     @Override
@@ -60,6 +115,11 @@ public class SpongeWorld implements IWorld {
         //Todo not possible yet
     }
 
+    @Override
+    public boolean isChunkLoaded(int x, int z) {
+        return world.getChunk(x, 0, z).isPresent();
+    }
+
     @Override
     public IBlock getBlockAt(int x, int y, int z) {
         //Todo not possible yet
@@ -89,4 +149,19 @@ public class SpongeWorld implements IWorld {
     public Entity spawnEntity(Location etloc, EntityType entitytype) {
         return null;
     }
+
+    /**
+     * The wrapper of a world UUID. The wrapper is only weakly reachable from here, so an unloaded world can
+     * be collected; a new wrapper with the same {@link WorldIndex} is made if the world is loaded again.
+     */
+    private static final class Slot {
+
+        private final UUID uuid;
+        private final WeakReference<SpongeWorld> wrapper;
+
+        private Slot(UUID uuid, SpongeWorld wrapper) {
+            this.uuid = uuid;
+            this.wrapper = new WeakReference<>(wrapper);
+        }
+    }
 }
@@ -3,6 +3,10 @@ package com.worldcretornica.plotme_core.sponge.listener;
 import com.worldcretornica.plotme_core.PlotMeCoreManager;
 import com.worldcretornica.plotme_core.PlotMe_Core;
 import com.worldcretornica.plotme_core.sponge.PlotMe_Sponge;
+import org.spongepowered.api.event.Order;
+import org.spongepowered.api.event.Subscribe;
+import org.spongepowered.api.event.entity.player.PlayerJoinEvent;
+import org.spongepowered.api.event.entity.player.PlayerQuitEvent;
 
 public class SpongePlotListener {
 
@@ -17,4 +21,15 @@ public class SpongePlotListener {
         manager = PlotMeCoreManager.getInstance();
     }
 
+    @Subscribe(order = Order.FIRST)
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        plugin.wrapPlayer(event.getEntity());
+        manager.UpdatePlayerNameFromId(event.getEntity().getUniqueId(), event.getEntity().getName());
+    }
+
+    @Subscribe(order = Order.POST)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        plugin.removePlayer(event.getEntity().getUniqueId());
+    }
+
 }